@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link InMemoryOAuth2AuthorizationService#save(OAuth2Authorization)} and
+ * {@link InMemoryOAuth2AuthorizationService#findByTokenAndTokenType(String, TokenType)}
+ * for each type of token, at varied store sizes.
+ *
+ * <p>
+ * Each invocation saves or looks up a random authorization of the store, saving an authorization
+ * replaces the stored authorization, so that the store size remains constant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryOAuth2AuthorizationServiceBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int storeSize;
+
+	private InMemoryOAuth2AuthorizationService authorizationService;
+	private OAuth2Authorization[] authorizations;
+	private String[] codes;
+	private String[] accessTokens;
+	private String[] refreshTokens;
+
+	@Setup
+	public void setup() {
+		RegisteredClient registeredClient = RegisteredClient.withId("registration-1")
+				.clientId("client-1")
+				.clientSecret("secret")
+				.redirectUri("https://example.com")
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+				.scope("openid")
+				.build();
+		this.authorizationService = new InMemoryOAuth2AuthorizationService();
+		this.authorizations = new OAuth2Authorization[this.storeSize];
+		this.codes = new String[this.storeSize];
+		this.accessTokens = new String[this.storeSize];
+		this.refreshTokens = new String[this.storeSize];
+		Instant issuedAt = Instant.now();
+		for (int i = 0; i < this.storeSize; i++) {
+			this.codes[i] = UUID.randomUUID().toString();
+			this.accessTokens[i] = UUID.randomUUID().toString();
+			this.refreshTokens[i] = UUID.randomUUID().toString();
+			this.authorizations[i] = OAuth2Authorization.withRegisteredClient(registeredClient)
+					.principalName("principal-" + i)
+					.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, this.accessTokens[i],
+							issuedAt, issuedAt.plusSeconds(300), Collections.singleton("openid")))
+					.refreshToken(new OAuth2RefreshToken(this.refreshTokens[i], issuedAt))
+					.attribute(OAuth2AuthorizationAttributeNames.CODE, this.codes[i])
+					.build();
+			this.authorizationService.save(this.authorizations[i]);
+		}
+	}
+
+	@Benchmark
+	public void save() {
+		this.authorizationService.save(this.authorizations[randomIndex()]);
+	}
+
+	@Benchmark
+	public OAuth2Authorization findByAuthorizationCode() {
+		return this.authorizationService.findByTokenAndTokenType(this.codes[randomIndex()], TokenType.AUTHORIZATION_CODE);
+	}
+
+	@Benchmark
+	public OAuth2Authorization findByAccessToken() {
+		return this.authorizationService.findByTokenAndTokenType(this.accessTokens[randomIndex()], TokenType.ACCESS_TOKEN);
+	}
+
+	@Benchmark
+	public OAuth2Authorization findByRefreshToken() {
+		return this.authorizationService.findByTokenAndTokenType(this.refreshTokens[randomIndex()], TokenType.REFRESH_TOKEN);
+	}
+
+	private int randomIndex() {
+		return ThreadLocalRandom.current().nextInt(this.storeSize);
+	}
+}
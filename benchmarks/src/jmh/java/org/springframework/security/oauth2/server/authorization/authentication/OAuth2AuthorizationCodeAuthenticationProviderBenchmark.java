@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the authorization code exchange of {@link OAuth2AuthorizationCodeAuthenticationProvider}
+ * without PKCE and with the {@code plain} and {@code S256} code challenge methods,
+ * to measure the cost of verifying the {@code code_verifier} on the token path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OAuth2AuthorizationCodeAuthenticationProviderBenchmark {
+	private static final String CODE_VERIFIER = "dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk";
+
+	@Param({"none", "plain", "S256"})
+	public String codeChallengeMethod;
+
+	private RegisteredClient registeredClient;
+	private OAuth2ClientAuthenticationToken clientPrincipal;
+	private OAuth2AuthorizationRequest authorizationRequest;
+	private String codeChallenge;
+	private OAuth2AuthorizationCodeAuthenticationProvider authenticationProvider;
+	private OAuth2Authorization authorization;
+	private long codeSequence;
+
+	@Setup
+	public void setup() throws Exception {
+		this.registeredClient = RegisteredClient.withId("registration-1")
+				.clientId("client-1")
+				.clientSecret("secret")
+				.redirectUri("https://example.com")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.BASIC)
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.scope("openid")
+				.build();
+		this.clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		this.authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+				.authorizationUri("https://provider.com/oauth2/authorize")
+				.clientId(this.registeredClient.getClientId())
+				.redirectUri("https://example.com")
+				.scopes(this.registeredClient.getScopes())
+				.build();
+		if ("S256".equals(this.codeChallengeMethod)) {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(CODE_VERIFIER.getBytes(StandardCharsets.US_ASCII));
+			this.codeChallenge = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+		} else if ("plain".equals(this.codeChallengeMethod)) {
+			this.codeChallenge = CODE_VERIFIER;
+		}
+
+		// The authorization service returns the authorization prepared for the current invocation,
+		// so that only the provider is measured
+		OAuth2AuthorizationService authorizationService = new OAuth2AuthorizationService() {
+			@Override
+			public void save(OAuth2Authorization authorization) {
+			}
+
+			@Override
+			public boolean replace(OAuth2Authorization authorization) {
+				return true;
+			}
+
+			@Override
+			public void remove(OAuth2Authorization authorization) {
+			}
+
+			@Override
+			public OAuth2Authorization findByTokenAndTokenType(String token, TokenType tokenType) {
+				return OAuth2AuthorizationCodeAuthenticationProviderBenchmark.this.authorization;
+			}
+		};
+		this.authenticationProvider = new OAuth2AuthorizationCodeAuthenticationProvider(authorizationService);
+		// Every invocation consumes a new authorization code, size the tombstones accordingly
+		this.authenticationProvider.setAuthorizationCodeTombstones(
+				new AuthorizationCodeTombstones(Duration.ofSeconds(6), Duration.ofMillis(200), 60_000_000));
+	}
+
+	@Benchmark
+	public Authentication exchangeAuthorizationCode() {
+		String code = "code-" + this.codeSequence++;
+		OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(this.registeredClient)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, code)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT, Instant.now())
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, this.authorizationRequest);
+		String codeVerifier = null;
+		if (this.codeChallenge != null) {
+			builder.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE, this.codeChallenge)
+					.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD, this.codeChallengeMethod);
+			codeVerifier = CODE_VERIFIER;
+		}
+		this.authorization = builder.build();
+		return this.authenticationProvider.authenticate(new OAuth2AuthorizationCodeAuthenticationToken(
+				code, this.clientPrincipal, "https://example.com", codeVerifier));
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link InMemoryRegisteredClientRepository#findByClientId(String)}
+ * for registered and unknown clients, at varied numbers of registered clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryRegisteredClientRepositoryBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int clientCount;
+
+	private InMemoryRegisteredClientRepository registeredClientRepository;
+	private String[] clientIds;
+
+	@Setup
+	public void setup() {
+		List<RegisteredClient> registeredClients = new ArrayList<>(this.clientCount);
+		this.clientIds = new String[this.clientCount];
+		for (int i = 0; i < this.clientCount; i++) {
+			this.clientIds[i] = "client-" + i;
+			registeredClients.add(RegisteredClient.withId("registration-" + i)
+					.clientId(this.clientIds[i])
+					.clientSecret("secret")
+					.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+					.scope("message.read")
+					.build());
+		}
+		this.registeredClientRepository = new InMemoryRegisteredClientRepository(registeredClients);
+	}
+
+	@Benchmark
+	public RegisteredClient findByClientId() {
+		return this.registeredClientRepository.findByClientId(
+				this.clientIds[ThreadLocalRandom.current().nextInt(this.clientCount)]);
+	}
+
+	@Benchmark
+	public RegisteredClient findByClientIdWhenUnknown() {
+		return this.registeredClientRepository.findByClientId("unknown-client");
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building a {@link RegisteredClient} with {@link RegisteredClient.Builder},
+ * which validates the scopes and redirect URIs, and copying it with
+ * {@link RegisteredClient#withRegisteredClient(RegisteredClient)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegisteredClientBuilderBenchmark {
+	private final RegisteredClient registeredClient = build();
+
+	@Benchmark
+	public RegisteredClient build() {
+		return RegisteredClient.withId("registration-1")
+				.clientId("client-1")
+				.clientSecret("secret")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.BASIC)
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+				.redirectUri("https://client.example.com/login/oauth2/code/client-1")
+				.redirectUri("https://client.example.com/authorized")
+				.scope("openid")
+				.scope("message.read")
+				.scope("message.write")
+				.build();
+	}
+
+	@Benchmark
+	public RegisteredClient copy() {
+		return RegisteredClient.withRegisteredClient(this.registeredClient).build();
+	}
+}
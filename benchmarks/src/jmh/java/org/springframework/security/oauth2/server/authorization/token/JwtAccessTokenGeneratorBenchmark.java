@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the signing throughput of {@link JwtAccessTokenGenerator} for RS256 and ES256 signing keys,
+ * compared to creating a {@code JWSSigner} and {@code JWSHeader} for every token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtAccessTokenGeneratorBenchmark {
+
+	@Param({"RS256", "ES256"})
+	public String algorithm;
+
+	private JWK signingKey;
+	private JwtAccessTokenGenerator accessTokenGenerator;
+	private OAuth2TokenContext tokenContext;
+
+	@Setup
+	public void setup() throws Exception {
+		if (JWSAlgorithm.RS256.getName().equals(this.algorithm)) {
+			this.signingKey = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+		} else {
+			this.signingKey = new ECKeyGenerator(Curve.P_256).keyID(UUID.randomUUID().toString()).generate();
+		}
+		this.accessTokenGenerator = new JwtAccessTokenGenerator(this.signingKey);
+		this.accessTokenGenerator.setIssuer("https://provider.com");
+
+		RegisteredClient registeredClient = RegisteredClient.withId("registration-1")
+				.clientId("client-1")
+				.clientSecret("secret")
+				.redirectUri("https://example.com")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.BASIC)
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.scope("openid")
+				.scope("profile")
+				.build();
+		Instant issuedAt = Instant.now();
+		this.tokenContext = OAuth2TokenContext.withRegisteredClient(registeredClient)
+				.principalName("principal")
+				.scopes(scopes -> scopes.addAll(registeredClient.getScopes()))
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plus(Duration.ofMinutes(5)))
+				.build();
+	}
+
+	@Benchmark
+	public OAuth2AccessToken preparedSigner() {
+		return this.accessTokenGenerator.generate(this.tokenContext);
+	}
+
+	@Benchmark
+	public String signerPerToken() throws Exception {
+		JWSSigner signer;
+		JWSAlgorithm jwsAlgorithm;
+		if (this.signingKey instanceof RSAKey) {
+			signer = new RSASSASigner((RSAKey) this.signingKey);
+			jwsAlgorithm = JWSAlgorithm.RS256;
+		} else {
+			signer = new ECDSASigner((ECKey) this.signingKey);
+			jwsAlgorithm = JWSAlgorithm.ES256;
+		}
+		JWSHeader header = new JWSHeader.Builder(jwsAlgorithm).keyID(this.signingKey.getKeyID()).build();
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.issuer("https://provider.com")
+				.subject(this.tokenContext.getPrincipalName())
+				.audience(this.tokenContext.getRegisteredClient().getClientId())
+				.claim("client_id", this.tokenContext.getRegisteredClient().getClientId())
+				.issueTime(Date.from(this.tokenContext.getIssuedAt()))
+				.notBeforeTime(Date.from(this.tokenContext.getIssuedAt()))
+				.expirationTime(Date.from(this.tokenContext.getExpiresAt()))
+				.jwtID(UUID.randomUUID().toString())
+				.claim("scope", String.join(" ", this.tokenContext.getScopes()))
+				.build();
+		SignedJWT jwt = new SignedJWT(header, claims);
+		jwt.sign(signer);
+		return jwt.serialize();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full round trip of an Authorization Request through {@link OAuth2AuthorizationEndpointFilter},
+ * from parsing and validating the request to issuing the authorization code and redirecting,
+ * with mock servlet objects and an {@link OAuth2AuthorizationService} that discards the authorizations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OAuth2AuthorizationEndpointFilterBenchmark {
+	private static final FilterChain FILTER_CHAIN = (request, response) -> { };
+
+	private OAuth2AuthorizationEndpointFilter filter;
+
+	@Setup
+	public void setup() {
+		RegisteredClient registeredClient = RegisteredClient.withId("registration-1")
+				.clientId("client-1")
+				.clientSecret("secret")
+				.redirectUri("https://client.example.com/authorized")
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.scope("openid")
+				.scope("message.read")
+				.build();
+		OAuth2AuthorizationService authorizationService = new OAuth2AuthorizationService() {
+			@Override
+			public void save(OAuth2Authorization authorization) {
+			}
+
+			@Override
+			public void remove(OAuth2Authorization authorization) {
+			}
+
+			@Override
+			public OAuth2Authorization findByTokenAndTokenType(String token, TokenType tokenType) {
+				return null;
+			}
+		};
+		this.filter = new OAuth2AuthorizationEndpointFilter(
+				new InMemoryRegisteredClientRepository(registeredClient), authorizationService);
+
+		// The security context is bound to the benchmark thread, which the setup of a thread state runs on
+		TestingAuthenticationToken principal = new TestingAuthenticationToken("principal", "password");
+		principal.setAuthenticated(true);
+		SecurityContextHolder.getContext().setAuthentication(principal);
+	}
+
+	@TearDown
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse authorizationRequest() throws Exception {
+		String requestUri = OAuth2AuthorizationEndpointFilter.DEFAULT_AUTHORIZATION_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter(OAuth2ParameterNames.RESPONSE_TYPE, "code");
+		request.addParameter(OAuth2ParameterNames.CLIENT_ID, "client-1");
+		request.addParameter(OAuth2ParameterNames.REDIRECT_URI, "https://client.example.com/authorized");
+		request.addParameter(OAuth2ParameterNames.SCOPE, "openid message.read");
+		request.addParameter(OAuth2ParameterNames.STATE, "state");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, FILTER_CHAIN);
+		return response;
+	}
+}
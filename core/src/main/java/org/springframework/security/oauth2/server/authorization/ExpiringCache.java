@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of values that expire, used for the short-lived caches kept by the endpoints.
+ *
+ * <p>
+ * The cache is split into segments, each a least-recently-used map guarded by its own lock.
+ * Once a segment is full, adding a value evicts its least recently used value,
+ * so adding a value is a constant time operation, and the cache keeps admitting new values.
+ * An expired value is removed when it is next looked up, or evicted like any other value.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 0.0.1
+ */
+public final class ExpiringCache<K, V> {
+	private static final int MAXIMUM_SEGMENTS = 16;
+	private static final int MINIMUM_SEGMENT_SIZE = 64;
+	private final Segment<K, V>[] segments;
+	private final int maximumSize;
+
+	/**
+	 * Constructs an {@code ExpiringCache} holding at most the provided number of values.
+	 *
+	 * @param maximumSize the maximum number of values held, {@code 0} disables caching
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public ExpiringCache(int maximumSize) {
+		Assert.isTrue(maximumSize >= 0, "maximumSize cannot be negative");
+		int segmentCount = 1;
+		while (segmentCount < MAXIMUM_SEGMENTS && segmentCount * 2 * MINIMUM_SEGMENT_SIZE <= maximumSize) {
+			segmentCount *= 2;
+		}
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			// The remainder is spread over the first segments, so that the capacities add up to the maximum size
+			int capacity = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment<>(capacity);
+		}
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Returns the value cached for the key, or {@code null} if not cached or expired.
+	 *
+	 * @param key the key
+	 * @param now the current time
+	 * @return the value cached for the key, or {@code null} if not cached or expired
+	 */
+	public V get(K key, Instant now) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Entry<V> entry = segment.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (!now.isBefore(entry.expiresAt)) {
+				segment.remove(key);
+				return null;
+			}
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Caches the value for the key until it expires, evicting the least recently used value if needed.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 * @param expiresAt the time at which the value expires
+	 */
+	public void put(K key, V value, Instant expiresAt) {
+		Assert.notNull(value, "value cannot be null");
+		Assert.notNull(expiresAt, "expiresAt cannot be null");
+		if (this.maximumSize == 0) {
+			return;
+		}
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, new Entry<>(value, expiresAt));
+		}
+	}
+
+	/**
+	 * Removes the value cached for the key, if any.
+	 *
+	 * @param key the key
+	 * @return the value removed, or {@code null} if none was cached
+	 */
+	public V remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Entry<V> entry = segment.remove(key);
+			return entry != null ? entry.value : null;
+		}
+	}
+
+	/**
+	 * Removes all the cached values.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of values held, including the expired values not yet removed.
+	 *
+	 * @return the number of values held
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		Assert.notNull(key, "key cannot be null");
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return this.segments[hash & (this.segments.length - 1)];
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+		private final int capacity;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+			return size() > this.capacity;
+		}
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private final Instant expiresAt;
+
+		private Entry(V value, Instant expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
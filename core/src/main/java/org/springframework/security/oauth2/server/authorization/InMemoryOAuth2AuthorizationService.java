@@ -15,27 +15,64 @@
  */
 package org.springframework.security.oauth2.server.authorization;
 
-import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.jfr.FlightRecorderEvents;
+import org.springframework.security.oauth2.server.authorization.jfr.TokenLookupEvent;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
 import org.springframework.util.Assert;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An {@link OAuth2AuthorizationService} that stores {@link OAuth2Authorization}'s in-memory.
  *
+ * <p>
+ * Authorizations are indexed by the {@link TokenDigest} of their tokens, so lookups are constant-time
+ * on fixed-size keys, and each kind of token has its own index. The values of the
+ * {@link OAuth2AccessToken access token} and {@link OAuth2RefreshToken refresh token} are never retained:
+ * only their digest and metadata are stored, and a token is restored when the authorization is
+ * looked up by its value. As a consequence, an authorization only contains the token it was looked up by.
+ *
+ * <p>
+ * Saving an authorization atomically swaps the tokens it is indexed by, so that the tokens it replaces,
+ * such as a rotated refresh token, can no longer be looked up once it is saved.
+ * {@link #replace(String, OAuth2Authorization) Replacing} an authorization also checks,
+ * within the same atomic swap, that the refresh token presented is still the current one,
+ * and {@link #replace(OAuth2Authorization) replacing} it after an authorization code exchange checks
+ * that it has not been removed meanwhile.
+ *
+ * <p>
+ * The expired authorizations are evicted periodically when an authorization is saved:
+ * an authorization is expired once its access token has expired, or, when no access token was issued yet,
+ * once its authorization code has expired. As refresh tokens do not expire, an authorization with
+ * a refresh token is kept until it is removed.
+ *
  * @author Krisztian Toth
  * @since 0.0.1
  * @see OAuth2AuthorizationService
+ * @see TokenDigest
  */
 public final class InMemoryOAuth2AuthorizationService implements OAuth2AuthorizationService {
-	private final List<OAuth2Authorization> authorizations;
+	private final Map<TokenDigest, StoredAuthorization> authorizationsByCode = new ConcurrentHashMap<>();
+	private final Map<TokenDigest, StoredAuthorization> authorizationsByAccessToken = new ConcurrentHashMap<>();
+	private final Map<TokenDigest, StoredAuthorization> authorizationsByRefreshToken = new ConcurrentHashMap<>();
+	private final AtomicLong nextEvictionTime = new AtomicLong();
+	private Duration evictionInterval = Duration.ofMinutes(1);
+	private Duration authorizationCodeTimeToLive = Duration.ofMinutes(10);
+	private Clock clock = Clock.systemUTC();
 
 	/**
 	 * Constructs an {@code InMemoryOAuth2AuthorizationService}.
 	 */
 	public InMemoryOAuth2AuthorizationService() {
-		this.authorizations = new CopyOnWriteArrayList<>();
 	}
 
 	/**
@@ -45,32 +82,291 @@ public final class InMemoryOAuth2AuthorizationService implements OAuth2Authoriza
 	 */
 	public InMemoryOAuth2AuthorizationService(List<OAuth2Authorization> authorizations) {
 		Assert.notEmpty(authorizations, "authorizations cannot be empty");
-		this.authorizations = new CopyOnWriteArrayList<>(authorizations);
+		authorizations.forEach(this::save);
+	}
+
+	/**
+	 * Sets the interval between two evictions of the expired authorizations. The default is 1 minute.
+	 *
+	 * @param evictionInterval the interval between two evictions
+	 */
+	public void setEvictionInterval(Duration evictionInterval) {
+		Assert.notNull(evictionInterval, "evictionInterval cannot be null");
+		Assert.isTrue(!evictionInterval.isNegative() && !evictionInterval.isZero(), "evictionInterval must be positive");
+		this.evictionInterval = evictionInterval;
+	}
+
+	/**
+	 * Sets the lifetime of an authorization code, after which an authorization for which no access token
+	 * was issued is evicted. The default is 10 minutes.
+	 *
+	 * @param authorizationCodeTimeToLive the lifetime of an authorization code
+	 */
+	public void setAuthorizationCodeTimeToLive(Duration authorizationCodeTimeToLive) {
+		Assert.notNull(authorizationCodeTimeToLive, "authorizationCodeTimeToLive cannot be null");
+		this.authorizationCodeTimeToLive = authorizationCodeTimeToLive;
+	}
+
+	/**
+	 * Sets the {@link Clock} used for evicting the expired authorizations.
+	 *
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
 	}
 
 	@Override
 	public void save(OAuth2Authorization authorization) {
 		Assert.notNull(authorization, "authorization cannot be null");
-		this.authorizations.add(authorization);
+		evictExpiredAuthorizations();
+		StoredAuthorization storedAuthorization = new StoredAuthorization(authorization);
+		if (storedAuthorization.codeDigest == null) {
+			// Authorization granted without an authorization code, identified by its access token
+			this.authorizationsByAccessToken.put(storedAuthorization.accessTokenDigest, storedAuthorization);
+			return;
+		}
+		this.authorizationsByCode.compute(storedAuthorization.codeDigest, (codeDigest, existing) -> {
+			if (existing != null) {
+				unindex(existing);
+			}
+			index(storedAuthorization);
+			return storedAuthorization;
+		});
+	}
+
+	@Override
+	public boolean replace(String refreshToken, OAuth2Authorization authorization) {
+		Assert.hasText(refreshToken, "refreshToken cannot be empty");
+		Assert.notNull(authorization, "authorization cannot be null");
+		StoredAuthorization storedAuthorization = new StoredAuthorization(authorization);
+		if (storedAuthorization.codeDigest == null) {
+			return false;
+		}
+		TokenDigest refreshTokenDigest = TokenDigest.of(refreshToken);
+		boolean[] replaced = new boolean[1];
+		this.authorizationsByCode.computeIfPresent(storedAuthorization.codeDigest, (codeDigest, existing) -> {
+			// The refresh token is unindexed while holding the lock of the authorization code,
+			// so that only one of the concurrent replacements of the same refresh token succeeds
+			if (!this.authorizationsByRefreshToken.remove(refreshTokenDigest, existing)) {
+				return existing;
+			}
+			unindex(existing);
+			index(storedAuthorization);
+			replaced[0] = true;
+			return storedAuthorization;
+		});
+		return replaced[0];
+	}
+
+	@Override
+	public boolean replace(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		StoredAuthorization storedAuthorization = new StoredAuthorization(authorization);
+		if (storedAuthorization.codeDigest == null) {
+			return false;
+		}
+		boolean[] replaced = new boolean[1];
+		this.authorizationsByCode.computeIfPresent(storedAuthorization.codeDigest, (codeDigest, existing) -> {
+			unindex(existing);
+			index(storedAuthorization);
+			replaced[0] = true;
+			return storedAuthorization;
+		});
+		return replaced[0];
+	}
+
+	@Override
+	public void remove(OAuth2Authorization authorization) {
+		revoke(authorization);
+	}
+
+	@Override
+	public TokenRevocation revoke(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		String code = authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE);
+		StoredAuthorization[] removed = new StoredAuthorization[1];
+		if (code == null) {
+			TokenDigest accessTokenDigest = TokenDigest.of(authorization.getAccessToken().getTokenValue());
+			removed[0] = this.authorizationsByAccessToken.remove(accessTokenDigest);
+		} else {
+			this.authorizationsByCode.computeIfPresent(TokenDigest.of(code), (codeDigest, existing) -> {
+				unindex(existing);
+				removed[0] = existing;
+				return null;
+			});
+		}
+		// The authorization looked up by its refresh token does not contain the access token,
+		// which is revoked by the digest stored along with it instead
+		if (removed[0] == null || removed[0].accessTokenDigest == null) {
+			return null;
+		}
+		return TokenRevocation.of(removed[0].accessTokenDigest, removed[0].accessTokenExpiresAt);
 	}
 
 	@Override
 	public OAuth2Authorization findByTokenAndTokenType(String token, TokenType tokenType) {
 		Assert.hasText(token, "token cannot be empty");
 		Assert.notNull(tokenType, "tokenType cannot be null");
-		return this.authorizations.stream()
-				.filter(authorization -> hasToken(authorization, token, tokenType))
-				.findFirst()
-				.orElse(null);
+		TokenLookupEvent tokenLookupEvent = FlightRecorderEvents.beginTokenLookup();
+		OAuth2Authorization authorization = findByToken(token, tokenType);
+		if (tokenLookupEvent != null) {
+			tokenLookupEvent.record(tokenType.getValue(), authorization);
+		}
+		return authorization;
 	}
 
-	private boolean hasToken(OAuth2Authorization authorization, String token, TokenType tokenType) {
+	private OAuth2Authorization findByToken(String token, TokenType tokenType) {
 		if (TokenType.AUTHORIZATION_CODE.equals(tokenType)) {
-			return token.equals(authorization.getAttributes().get(OAuth2AuthorizationAttributeNames.CODE);
+			StoredAuthorization storedAuthorization = this.authorizationsByCode.get(TokenDigest.of(token));
+			return storedAuthorization != null ? storedAuthorization.authorization : null;
 		} else if (TokenType.ACCESS_TOKEN.equals(tokenType)) {
-			return authorization.getAccessToken() != null &&
-					authorization.getAccessToken().getTokenValue().equals(token);
+			StoredAuthorization storedAuthorization = this.authorizationsByAccessToken.get(TokenDigest.of(token));
+			return storedAuthorization != null ? storedAuthorization.withAccessToken(token) : null;
+		} else if (TokenType.REFRESH_TOKEN.equals(tokenType)) {
+			StoredAuthorization storedAuthorization = this.authorizationsByRefreshToken.get(TokenDigest.of(token));
+			return storedAuthorization != null ? storedAuthorization.withRefreshToken(token) : null;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of authorizations that can be looked up by a token of the provided type.
+	 *
+	 * @param tokenType the {@link TokenType token type}
+	 * @return the number of authorizations indexed by the token type
+	 */
+	public int size(TokenType tokenType) {
+		Assert.notNull(tokenType, "tokenType cannot be null");
+		if (TokenType.AUTHORIZATION_CODE.equals(tokenType)) {
+			return this.authorizationsByCode.size();
+		} else if (TokenType.ACCESS_TOKEN.equals(tokenType)) {
+			return this.authorizationsByAccessToken.size();
+		} else if (TokenType.REFRESH_TOKEN.equals(tokenType)) {
+			return this.authorizationsByRefreshToken.size();
+		}
+		return 0;
+	}
+
+	private void evictExpiredAuthorizations() {
+		Instant now = this.clock.instant();
+		long evictionTime = this.nextEvictionTime.get();
+		if (now.toEpochMilli() < evictionTime ||
+				!this.nextEvictionTime.compareAndSet(evictionTime, now.plus(this.evictionInterval).toEpochMilli())) {
+			return;
+		}
+		this.authorizationsByAccessToken.forEach((accessTokenDigest, storedAuthorization) -> {
+			if (storedAuthorization.codeDigest == null && storedAuthorization.isExpired(now, this.authorizationCodeTimeToLive)) {
+				this.authorizationsByAccessToken.remove(accessTokenDigest, storedAuthorization);
+			}
+		});
+		this.authorizationsByCode.forEach((codeDigest, storedAuthorization) -> {
+			if (storedAuthorization.isExpired(now, this.authorizationCodeTimeToLive)) {
+				// The authorization is only evicted if it has not been saved again meanwhile
+				this.authorizationsByCode.computeIfPresent(codeDigest, (key, existing) -> {
+					if (existing != storedAuthorization) {
+						return existing;
+					}
+					unindex(existing);
+					return null;
+				});
+			}
+		});
+	}
+
+	private void index(StoredAuthorization storedAuthorization) {
+		if (storedAuthorization.accessTokenDigest != null) {
+			this.authorizationsByAccessToken.put(storedAuthorization.accessTokenDigest, storedAuthorization);
+		}
+		if (storedAuthorization.refreshTokenDigest != null) {
+			this.authorizationsByRefreshToken.put(storedAuthorization.refreshTokenDigest, storedAuthorization);
+		}
+	}
+
+	private void unindex(StoredAuthorization storedAuthorization) {
+		if (storedAuthorization.accessTokenDigest != null) {
+			this.authorizationsByAccessToken.remove(storedAuthorization.accessTokenDigest, storedAuthorization);
+		}
+		if (storedAuthorization.refreshTokenDigest != null) {
+			this.authorizationsByRefreshToken.remove(storedAuthorization.refreshTokenDigest, storedAuthorization);
+		}
+	}
+
+	private static final class StoredAuthorization {
+		private final OAuth2Authorization authorization;
+		private final TokenDigest codeDigest;
+		private final TokenDigest accessTokenDigest;
+		private final OAuth2AccessToken.TokenType accessTokenType;
+		private final Instant accessTokenIssuedAt;
+		private final Instant accessTokenExpiresAt;
+		private final Set<String> accessTokenScopes;
+		private final TokenDigest refreshTokenDigest;
+		private final Instant refreshTokenIssuedAt;
+
+		private StoredAuthorization(OAuth2Authorization authorization) {
+			String code = authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE);
+			this.codeDigest = code != null ? TokenDigest.of(code) : null;
+			OAuth2AccessToken accessToken = authorization.getAccessToken();
+			if (this.codeDigest != null) {
+				this.authorization = OAuth2Authorization.from(authorization)
+						.accessToken(null)
+						.refreshToken(null)
+						.build();
+			} else {
+				// An authorization granted without an authorization code must retain its access token,
+				// which is sealed by substituting the token value with its digest
+				this.authorization = OAuth2Authorization.from(authorization)
+						.accessToken(new OAuth2AccessToken(accessToken.getTokenType(),
+								TokenDigest.of(accessToken.getTokenValue()).toString(), accessToken.getIssuedAt(),
+								accessToken.getExpiresAt(), accessToken.getScopes()))
+						.refreshToken(null)
+						.build();
+			}
+			if (accessToken != null) {
+				this.accessTokenDigest = TokenDigest.of(accessToken.getTokenValue());
+				this.accessTokenType = accessToken.getTokenType();
+				this.accessTokenIssuedAt = accessToken.getIssuedAt();
+				this.accessTokenExpiresAt = accessToken.getExpiresAt();
+				this.accessTokenScopes = accessToken.getScopes();
+			} else {
+				this.accessTokenDigest = null;
+				this.accessTokenType = null;
+				this.accessTokenIssuedAt = null;
+				this.accessTokenExpiresAt = null;
+				this.accessTokenScopes = null;
+			}
+			OAuth2RefreshToken refreshToken = authorization.getRefreshToken();
+			if (refreshToken != null) {
+				this.refreshTokenDigest = TokenDigest.of(refreshToken.getTokenValue());
+				this.refreshTokenIssuedAt = refreshToken.getIssuedAt();
+			} else {
+				this.refreshTokenDigest = null;
+				this.refreshTokenIssuedAt = null;
+			}
+		}
+
+		private boolean isExpired(Instant now, Duration authorizationCodeTimeToLive) {
+			if (this.refreshTokenDigest != null) {
+				// The refresh token may still be exchanged for a new access token
+				return false;
+			}
+			if (this.accessTokenDigest != null) {
+				return this.accessTokenExpiresAt != null && !now.isBefore(this.accessTokenExpiresAt);
+			}
+			Instant codeIssuedAt = this.authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT);
+			return codeIssuedAt != null && !now.isBefore(codeIssuedAt.plus(authorizationCodeTimeToLive));
+		}
+
+		private OAuth2Authorization withAccessToken(String tokenValue) {
+			OAuth2AccessToken accessToken = new OAuth2AccessToken(this.accessTokenType, tokenValue,
+					this.accessTokenIssuedAt, this.accessTokenExpiresAt, this.accessTokenScopes);
+			return OAuth2Authorization.from(this.authorization).accessToken(accessToken).build();
+		}
+
+		private OAuth2Authorization withRefreshToken(String tokenValue) {
+			OAuth2RefreshToken refreshToken = new OAuth2RefreshToken(tokenValue, this.refreshTokenIssuedAt);
+			return OAuth2Authorization.from(this.authorization).refreshToken(refreshToken).build();
 		}
-		return false;
 	}
 }
@@ -16,21 +16,34 @@
 package org.springframework.security.oauth2.server.authorization;
 
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.util.Assert;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Collections;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * A representation of an OAuth 2.0 Authorization,
  * which holds state related to the authorization granted to the {@link #getRegisteredClientId() client}
  * by the {@link #getPrincipalName() resource owner}.
  *
+ * <p>
+ * An attribute may be {@link Builder#lazyAttribute(String, Supplier) materialized lazily},
+ * on the first access of its value, so that an authorization loaded from a store
+ * does not pay for decoding the attributes that are never read.
+ *
  * @author Joe Grandja
  * @author Krisztian Toth
  * @since 0.0.1
@@ -42,6 +55,7 @@ public class OAuth2Authorization implements Serializable {
 	private String registeredClientId;
 	private String principalName;
 	private OAuth2AccessToken accessToken;
+	private OAuth2RefreshToken refreshToken;
 	private Map<String, Object> attributes;
 
 	protected OAuth2Authorization() {
@@ -74,8 +88,19 @@ public class OAuth2Authorization implements Serializable {
 		return this.accessToken;
 	}
 
+	/**
+	 * Returns the {@link OAuth2RefreshToken refresh token} credential.
+	 *
+	 * @return the {@link OAuth2RefreshToken}, or {@code null} if not issued
+	 */
+	public OAuth2RefreshToken getRefreshToken() {
+		return this.refreshToken;
+	}
+
 	/**
 	 * Returns the attribute(s) associated to the authorization.
+	 * A lazily materialized attribute is materialized when its value is read from the {@code Map},
+	 * and iterating over the entries materializes an attribute only when the value of its entry is read.
 	 *
 	 * @return a {@code Map} of the attribute(s)
 	 */
@@ -96,6 +121,17 @@ public class OAuth2Authorization implements Serializable {
 		return (T) this.attributes.get(name);
 	}
 
+	/**
+	 * Returns the {@code Supplier} of a lazily materialized attribute not materialized yet,
+	 * allowing an encoder to copy the attribute as it was decoded, without materializing it.
+	 *
+	 * @param name the name of the attribute
+	 * @return the {@code Supplier} of the attribute, or {@code null} if not lazily materialized or already materialized
+	 */
+	Supplier<?> getLazyAttribute(String name) {
+		return this.attributes instanceof Attributes ? ((Attributes) this.attributes).getLazy(name) : null;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj) {
@@ -108,12 +144,13 @@ public class OAuth2Authorization implements Serializable {
 		return Objects.equals(this.registeredClientId, that.registeredClientId) &&
 				Objects.equals(this.principalName, that.principalName) &&
 				Objects.equals(this.accessToken, that.accessToken) &&
+				Objects.equals(this.refreshToken, that.refreshToken) &&
 				Objects.equals(this.attributes, that.attributes);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.registeredClientId, this.principalName, this.accessToken, this.attributes);
+		return Objects.hash(this.registeredClientId, this.principalName, this.accessToken, this.refreshToken, this.attributes);
 	}
 
 	/**
@@ -127,6 +164,27 @@ public class OAuth2Authorization implements Serializable {
 		return new Builder(registeredClient.getId());
 	}
 
+	/**
+	 * Returns a new {@link Builder}, initialized with the values from the provided {@code OAuth2Authorization}.
+	 *
+	 * @param authorization the {@code OAuth2Authorization} to copy from
+	 * @return the {@link Builder}
+	 */
+	public static Builder from(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		Builder builder = new Builder(authorization.getRegisteredClientId())
+				.principalName(authorization.getPrincipalName())
+				.accessToken(authorization.getAccessToken())
+				.refreshToken(authorization.getRefreshToken());
+		if (authorization.attributes instanceof Attributes) {
+			// Copies the attributes not materialized yet as is
+			builder.attributes.values.putAll(((Attributes) authorization.attributes).values);
+		} else {
+			builder.attributes.putAll(authorization.attributes);
+		}
+		return builder;
+	}
+
 	/**
 	 * A builder for {@link OAuth2Authorization}.
 	 */
@@ -135,7 +193,8 @@ public class OAuth2Authorization implements Serializable {
 		private String registeredClientId;
 		private String principalName;
 		private OAuth2AccessToken accessToken;
-		private Map<String, Object> attributes = new HashMap<>();
+		private OAuth2RefreshToken refreshToken;
+		private Attributes attributes = new Attributes(new HashMap<>(), true);
 
 		protected Builder(String registeredClientId) {
 			this.registeredClientId = registeredClientId;
@@ -163,6 +222,17 @@ public class OAuth2Authorization implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Sets the {@link OAuth2RefreshToken refresh token} credential.
+		 *
+		 * @param refreshToken the {@link OAuth2RefreshToken}
+		 * @return the {@link Builder}
+		 */
+		public Builder refreshToken(OAuth2RefreshToken refreshToken) {
+			this.refreshToken = refreshToken;
+			return this;
+		}
+
 		/**
 		 * Adds an attribute associated to the authorization.
 		 *
@@ -177,9 +247,27 @@ public class OAuth2Authorization implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Adds an attribute associated to the authorization, whose value is materialized
+		 * by the provided {@code Supplier} on its first access.
+		 * The {@code Supplier} is called at most once.
+		 *
+		 * @param name the name of the attribute
+		 * @param valueSupplier the {@code Supplier} of the value of the attribute
+		 * @return the {@link Builder}
+		 */
+		public Builder lazyAttribute(String name, Supplier<?> valueSupplier) {
+			Assert.hasText(name, "name cannot be empty");
+			Assert.notNull(valueSupplier, "valueSupplier cannot be null");
+			this.attributes.values.put(name, new LazyValue(valueSupplier));
+			return this;
+		}
+
 		/**
 		 * A {@code Consumer} of the attributes {@code Map}
 		 * allowing the ability to add, replace, or remove.
+		 * Replacing or removing a lazily materialized attribute does not materialize it,
+		 * and returns {@code null} instead of the previous value if it was not materialized yet.
 		 *
 		 * @param attributesConsumer a {@link Consumer} of the attributes {@code Map}
 		 * @return the {@link Builder}
@@ -196,14 +284,196 @@ public class OAuth2Authorization implements Serializable {
 		 */
 		public OAuth2Authorization build() {
 			Assert.hasText(this.principalName, "principalName cannot be empty");
-			Assert.notNull(this.attributes.get(OAuth2AuthorizationAttributeNames.CODE), "authorization code cannot be null");
+			if (this.accessToken == null) {
+				Assert.notNull(this.attributes.get(OAuth2AuthorizationAttributeNames.CODE), "authorization code cannot be null");
+			}
 
 			OAuth2Authorization authorization = new OAuth2Authorization();
 			authorization.registeredClientId = this.registeredClientId;
 			authorization.principalName = this.principalName;
 			authorization.accessToken = this.accessToken;
-			authorization.attributes = Collections.unmodifiableMap(this.attributes);
+			authorization.refreshToken = this.refreshToken;
+			authorization.attributes = new Attributes(new HashMap<>(this.attributes.values), false);
 			return authorization;
 		}
 	}
+
+	/**
+	 * The attributes {@code Map}, holding a {@link LazyValue} for a lazily materialized attribute.
+	 */
+	private static final class Attributes extends AbstractMap<String, Object> implements Serializable {
+		private static final long serialVersionUID = Version.SERIAL_VERSION_UID;
+		private transient Map<String, Object> values;
+		private final boolean modifiable;
+
+		private Attributes(Map<String, Object> values, boolean modifiable) {
+			this.values = values;
+			this.modifiable = modifiable;
+		}
+
+		@Override
+		public Object get(Object key) {
+			return materialize(this.values.get(key));
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return this.values.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return this.values.size();
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			checkModifiable();
+			return materialized(this.values.put(key, value));
+		}
+
+		@Override
+		public Object remove(Object key) {
+			checkModifiable();
+			return materialized(this.values.remove(key));
+		}
+
+		@Override
+		public void clear() {
+			checkModifiable();
+			this.values.clear();
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					Iterator<Entry<String, Object>> iterator = values.entrySet().iterator();
+					return new Iterator<Entry<String, Object>>() {
+						@Override
+						public boolean hasNext() {
+							return iterator.hasNext();
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							return new AttributeEntry(iterator.next());
+						}
+
+						@Override
+						public void remove() {
+							checkModifiable();
+							iterator.remove();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return values.size();
+				}
+			};
+		}
+
+		private void checkModifiable() {
+			if (!this.modifiable) {
+				throw new UnsupportedOperationException();
+			}
+		}
+
+		private Supplier<?> getLazy(Object key) {
+			Object value = this.values.get(key);
+			return value instanceof LazyValue ? ((LazyValue) value).getSupplier() : null;
+		}
+
+		private static Object materialize(Object value) {
+			return value instanceof LazyValue ? ((LazyValue) value).get() : value;
+		}
+
+		private static Object materialized(Object value) {
+			return value instanceof LazyValue ? ((LazyValue) value).getIfMaterialized() : value;
+		}
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+			out.writeObject(new HashMap<>(this));
+		}
+
+		@SuppressWarnings("unchecked")
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			this.values = (Map<String, Object>) in.readObject();
+		}
+	}
+
+	/**
+	 * An attribute entry, materializing a lazily materialized attribute when its value is read.
+	 */
+	private static final class AttributeEntry implements Map.Entry<String, Object> {
+		private final Map.Entry<String, Object> entry;
+
+		private AttributeEntry(Map.Entry<String, Object> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public String getKey() {
+			return this.entry.getKey();
+		}
+
+		@Override
+		public Object getValue() {
+			return Attributes.materialize(this.entry.getValue());
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+			return Objects.equals(getKey(), that.getKey()) && Objects.equals(getValue(), that.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	private static final class LazyValue {
+		private Supplier<?> valueSupplier;
+		private Object value;
+
+		private LazyValue(Supplier<?> valueSupplier) {
+			this.valueSupplier = valueSupplier;
+		}
+
+		private synchronized Object get() {
+			if (this.valueSupplier != null) {
+				this.value = this.valueSupplier.get();
+				this.valueSupplier = null;
+			}
+			return this.value;
+		}
+
+		private synchronized Supplier<?> getSupplier() {
+			return this.valueSupplier;
+		}
+
+		private synchronized Object getIfMaterialized() {
+			return this.valueSupplier == null ? this.value : null;
+		}
+	}
 }
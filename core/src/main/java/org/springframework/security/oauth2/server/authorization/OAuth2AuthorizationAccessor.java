@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.springframework.util.Assert;
+
+import java.util.function.Supplier;
+
+/**
+ * Internal class used for decoding and encoding an {@link OAuth2Authorization}
+ * across Spring Security Authorization Server classes.
+ *
+ * @since 0.0.1
+ * @see OAuth2Authorization.Builder#lazyAttribute(String, Supplier)
+ */
+public final class OAuth2AuthorizationAccessor {
+
+	private OAuth2AuthorizationAccessor() {
+	}
+
+	/**
+	 * Returns a new {@link OAuth2Authorization.Builder}, initialized with the provided registered client identifier.
+	 *
+	 * @param registeredClientId the identifier of the registered client
+	 * @return the {@link OAuth2Authorization.Builder}
+	 */
+	public static OAuth2Authorization.Builder withRegisteredClientId(String registeredClientId) {
+		return new OAuth2Authorization.Builder(registeredClientId);
+	}
+
+	/**
+	 * Returns the {@code Supplier} of a lazily materialized attribute of the authorization not materialized yet,
+	 * allowing an encoder to copy the attribute as it was decoded, without materializing it.
+	 *
+	 * @param authorization the {@link OAuth2Authorization}
+	 * @param name the name of the attribute
+	 * @return the {@code Supplier} of the attribute, or {@code null} if not lazily materialized or already materialized
+	 */
+	public static Supplier<?> getLazyAttribute(OAuth2Authorization authorization, String name) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		return authorization.getLazyAttribute(name);
+	}
+}
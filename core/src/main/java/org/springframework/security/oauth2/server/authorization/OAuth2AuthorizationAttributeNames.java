@@ -18,6 +18,7 @@ package org.springframework.security.oauth2.server.authorization;
 
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.endpoint.PkceParameterNames;
 
 /**
  * The name of the attributes that may be contained in the
@@ -34,8 +35,29 @@ public interface OAuth2AuthorizationAttributeNames {
 	 */
 	String CODE = OAuth2Authorization.class.getName().concat(".CODE");
 
+	/**
+	 * The name of the attribute used for the {@code Instant} at which the {@link #CODE} was issued.
+	 */
+	String CODE_ISSUED_AT = OAuth2Authorization.class.getName().concat(".CODE_ISSUED_AT");
+
 	/**
 	 * The name of the attribute used for the {@link OAuth2AuthorizationRequest}.
 	 */
 	String AUTHORIZATION_REQUEST = OAuth2Authorization.class.getName().concat(".AUTHORIZATION_REQUEST");
+
+	/**
+	 * The name of the attribute used for the {@link PkceParameterNames#CODE_CHALLENGE} parameter.
+	 */
+	String CODE_CHALLENGE = OAuth2Authorization.class.getName().concat(".CODE_CHALLENGE");
+
+	/**
+	 * The name of the attribute used for the {@link PkceParameterNames#CODE_CHALLENGE_METHOD} parameter.
+	 */
+	String CODE_CHALLENGE_METHOD = OAuth2Authorization.class.getName().concat(".CODE_CHALLENGE_METHOD");
+
+	/**
+	 * The name of the attribute used for the SHA-256 thumbprint of the client {@code X.509} certificate
+	 * the access token is bound to.
+	 */
+	String X509_CERTIFICATE_THUMBPRINT = OAuth2Authorization.class.getName().concat(".X509_CERTIFICATE_THUMBPRINT");
 }
@@ -0,0 +1,594 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A compact binary codec for {@link OAuth2Authorization}, an alternative to Java serialization
+ * for storing authorizations in a persistent or distributed store.
+ *
+ * <p>
+ * The encoding starts with a format version, and holds no class descriptors: numbers are written
+ * as variable-length integers, the well-known attribute names as a single byte, and a string
+ * repeated within the same block (such as a scope of both the access token and the authorization)
+ * as a reference to its first occurrence. The {@link OAuth2AccessToken}, {@link OAuth2RefreshToken}
+ * and {@link OAuth2AuthorizationRequest} are encoded field by field, as are attribute values of type
+ * {@code String}, {@code Instant}, {@code Integer}, {@code Long} and {@code Boolean}.
+ * Any other {@code Serializable} attribute value is encoded with Java serialization.
+ *
+ * <p>
+ * The {@link OAuth2AuthorizationRequest} and the Java serialized attribute values are encoded as
+ * length-prefixed blocks, each with its own repeated strings, which are skipped when decoding the authorization
+ * and decoded on the first access of the attribute, as a {@link OAuth2Authorization.Builder#lazyAttribute(String, Supplier)
+ * lazily materialized attribute}. Encoding a decoded authorization copies the blocks of the attributes
+ * not materialized yet as is.
+ *
+ * <p>
+ * When decoding, the client identifiers, scopes and other values shared by many authorizations
+ * are interned, so that the authorizations held in memory share a single instance of each.
+ * The number of elements of a collection is checked against the remaining input before allocating it,
+ * so that a malformed encoding cannot allocate more than its own size.
+ *
+ * @since 0.0.1
+ * @see OAuth2Authorization
+ */
+public final class OAuth2AuthorizationCodec {
+	private static final byte VERSION = 1;
+	private static final byte ACCESS_TOKEN = 0x01;
+	private static final byte REFRESH_TOKEN = 0x02;
+	private static final byte REFRESH_TOKEN_ISSUED_AT = 0x04;
+
+	// The index of a well-known attribute name is part of the format, new names must be appended
+	private static final List<String> ATTRIBUTE_NAMES = Arrays.asList(
+			null,
+			OAuth2AuthorizationAttributeNames.CODE,
+			OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT,
+			OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST,
+			OAuth2AuthorizationAttributeNames.CODE_CHALLENGE,
+			OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD,
+			OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT);
+
+	private static final byte STRING = 0;
+	private static final byte INSTANT = 1;
+	private static final byte INTEGER = 2;
+	private static final byte LONG = 3;
+	private static final byte BOOLEAN = 4;
+	private static final byte AUTHORIZATION_REQUEST = 5;
+	private static final byte SERIALIZED = 6;
+
+	private final Map<String, String> internedStrings = new ConcurrentHashMap<>();
+	private int maximumInternedStrings = 10000;
+
+	/**
+	 * Sets the maximum number of distinct strings interned when decoding. The default is 10000.
+	 *
+	 * @param maximumInternedStrings the maximum number of distinct strings interned
+	 */
+	public void setMaximumInternedStrings(int maximumInternedStrings) {
+		Assert.isTrue(maximumInternedStrings >= 0, "maximumInternedStrings cannot be negative");
+		this.maximumInternedStrings = maximumInternedStrings;
+	}
+
+	/**
+	 * Encodes the {@link OAuth2Authorization}.
+	 *
+	 * @param authorization the {@link OAuth2Authorization}
+	 * @return the encoded authorization
+	 */
+	public byte[] encode(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		Output out = new Output();
+		out.writeByte(VERSION);
+		out.writeSharedString(authorization.getRegisteredClientId());
+		out.writeString(authorization.getPrincipalName());
+
+		OAuth2AccessToken accessToken = authorization.getAccessToken();
+		OAuth2RefreshToken refreshToken = authorization.getRefreshToken();
+		int flags = 0;
+		if (accessToken != null) {
+			flags |= ACCESS_TOKEN;
+		}
+		if (refreshToken != null) {
+			flags |= REFRESH_TOKEN;
+			if (refreshToken.getIssuedAt() != null) {
+				flags |= REFRESH_TOKEN_ISSUED_AT;
+			}
+		}
+		out.writeByte(flags);
+		if (accessToken != null) {
+			out.writeSharedString(accessToken.getTokenType().getValue());
+			out.writeString(accessToken.getTokenValue());
+			out.writeInstant(accessToken.getIssuedAt());
+			out.writeInstant(accessToken.getExpiresAt());
+			out.writeSharedStrings(accessToken.getScopes());
+		}
+		if (refreshToken != null) {
+			out.writeString(refreshToken.getTokenValue());
+			if (refreshToken.getIssuedAt() != null) {
+				out.writeInstant(refreshToken.getIssuedAt());
+			}
+		}
+
+		Map<String, Object> attributes = authorization.getAttributes();
+		out.writeVarInt(attributes.size());
+		for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+			int nameIndex = ATTRIBUTE_NAMES.indexOf(attribute.getKey());
+			if (nameIndex > 0) {
+				out.writeVarInt(nameIndex);
+			} else {
+				out.writeVarInt(0);
+				out.writeSharedString(attribute.getKey());
+			}
+			Supplier<?> lazyValue = OAuth2AuthorizationAccessor.getLazyAttribute(authorization, attribute.getKey());
+			if (lazyValue instanceof EncodedBlock) {
+				((EncodedBlock) lazyValue).writeTo(out);
+			} else {
+				writeValue(out, attribute.getValue());
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes an {@link OAuth2Authorization} encoded by {@link #encode(OAuth2Authorization)}.
+	 *
+	 * @param bytes the encoded authorization
+	 * @return the {@link OAuth2Authorization}
+	 * @throws IllegalArgumentException if the encoded authorization is malformed or of an unsupported version
+	 */
+	public OAuth2Authorization decode(byte[] bytes) {
+		Assert.notNull(bytes, "bytes cannot be null");
+		Input in = new Input(bytes, 0, bytes.length);
+		try {
+			byte version = in.readByte();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version);
+			}
+			OAuth2Authorization.Builder builder = new OAuth2Authorization.Builder(in.readSharedString())
+					.principalName(in.readString());
+
+			int flags = in.readByte();
+			if ((flags & ACCESS_TOKEN) != 0) {
+				OAuth2AccessToken.TokenType tokenType = tokenType(in.readSharedString());
+				builder.accessToken(new OAuth2AccessToken(tokenType, in.readString(),
+						in.readInstant(), in.readInstant(), in.readSharedStrings()));
+			}
+			if ((flags & REFRESH_TOKEN) != 0) {
+				String tokenValue = in.readString();
+				Instant issuedAt = (flags & REFRESH_TOKEN_ISSUED_AT) != 0 ? in.readInstant() : null;
+				builder.refreshToken(new OAuth2RefreshToken(tokenValue, issuedAt));
+			}
+
+			int attributeCount = in.readCount();
+			Map<String, Object> attributes = new HashMap<>(Math.max(4, attributeCount * 2));
+			for (int i = 0; i < attributeCount; i++) {
+				int nameIndex = in.readVarInt();
+				String name = nameIndex > 0 ? ATTRIBUTE_NAMES.get(nameIndex) : in.readSharedString();
+				byte type = in.readByte();
+				if (type == AUTHORIZATION_REQUEST || type == SERIALIZED) {
+					builder.lazyAttribute(name, new EncodedBlock(type, in.readBlock()));
+				} else {
+					attributes.put(name, readValue(type, in));
+				}
+			}
+			builder.attributes(attrs -> attrs.putAll(attributes));
+			if (in.remaining() != 0) {
+				throw new IllegalArgumentException("Malformed authorization: trailing bytes");
+			}
+			return builder.build();
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Malformed authorization", ex);
+		}
+	}
+
+	private void writeValue(Output out, Object value) {
+		if (value instanceof String) {
+			out.writeByte(STRING);
+			out.writeString((String) value);
+		} else if (value instanceof Instant) {
+			out.writeByte(INSTANT);
+			out.writeInstant((Instant) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeVarLong((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeVarLong((Long) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeByte((Boolean) value ? 1 : 0);
+		} else if (value instanceof OAuth2AuthorizationRequest &&
+				AuthorizationGrantType.AUTHORIZATION_CODE.equals(((OAuth2AuthorizationRequest) value).getGrantType())) {
+			// Any other grant type is left to Java serialization
+			out.writeByte(AUTHORIZATION_REQUEST);
+			Output block = new Output();
+			writeAuthorizationRequest(block, (OAuth2AuthorizationRequest) value);
+			out.writeBlock(block);
+		} else if (value instanceof Serializable) {
+			out.writeByte(SERIALIZED);
+			out.writeBytes(serialize((Serializable) value));
+		} else {
+			throw new IllegalArgumentException("Unsupported attribute value type " + value.getClass().getName());
+		}
+	}
+
+	private Object readValue(byte type, Input in) {
+		switch (type) {
+			case STRING:
+				return in.readString();
+			case INSTANT:
+				return in.readInstant();
+			case INTEGER:
+				return (int) in.readVarLong();
+			case LONG:
+				return in.readVarLong();
+			case BOOLEAN:
+				return in.readByte() != 0;
+			case AUTHORIZATION_REQUEST:
+			case SERIALIZED:
+				return readBlock(type, in.readBlock());
+			default:
+				throw new IllegalArgumentException("Malformed authorization: unknown value type " + type);
+		}
+	}
+
+	private Object readBlock(byte type, Input block) {
+		try {
+			Object value = type == AUTHORIZATION_REQUEST ? readAuthorizationRequest(block) : block.deserialize();
+			if (block.remaining() != 0) {
+				throw new IllegalArgumentException("Malformed authorization: trailing bytes");
+			}
+			return value;
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Malformed authorization", ex);
+		}
+	}
+
+	private void writeAuthorizationRequest(Output out, OAuth2AuthorizationRequest authorizationRequest) {
+		out.writeSharedString(authorizationRequest.getGrantType().getValue());
+		out.writeSharedString(authorizationRequest.getAuthorizationUri());
+		out.writeSharedString(authorizationRequest.getClientId());
+		out.writeNullableSharedString(authorizationRequest.getRedirectUri());
+		out.writeSharedStrings(authorizationRequest.getScopes());
+		out.writeNullableString(authorizationRequest.getState());
+		writeValues(out, authorizationRequest.getAdditionalParameters());
+		writeValues(out, authorizationRequest.getAttributes());
+		out.writeString(authorizationRequest.getAuthorizationRequestUri());
+	}
+
+	private OAuth2AuthorizationRequest readAuthorizationRequest(Input in) {
+		String grantType = in.readSharedString();
+		if (!AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(grantType)) {
+			throw new IllegalArgumentException("Malformed authorization: unknown grant type " + grantType);
+		}
+		return OAuth2AuthorizationRequest.authorizationCode()
+				.authorizationUri(in.readSharedString())
+				.clientId(in.readSharedString())
+				.redirectUri(in.readNullableSharedString())
+				.scopes(in.readSharedStrings())
+				.state(in.readNullableString())
+				.additionalParameters(readValues(in))
+				.attributes(readValues(in))
+				.authorizationRequestUri(in.readString())
+				.build();
+	}
+
+	private void writeValues(Output out, Map<String, Object> values) {
+		out.writeVarInt(values.size());
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			out.writeSharedString(value.getKey());
+			writeValue(out, value.getValue());
+		}
+	}
+
+	private Map<String, Object> readValues(Input in) {
+		int size = in.readCount();
+		Map<String, Object> values = new LinkedHashMap<>(Math.max(4, size * 2));
+		for (int i = 0; i < size; i++) {
+			values.put(in.readSharedString(), readValue(in.readByte(), in));
+		}
+		return values;
+	}
+
+	private String intern(String value) {
+		String interned = this.internedStrings.get(value);
+		if (interned != null) {
+			return interned;
+		}
+		if (this.internedStrings.size() >= this.maximumInternedStrings) {
+			return value;
+		}
+		interned = this.internedStrings.putIfAbsent(value, value);
+		return interned != null ? interned : value;
+	}
+
+	private static OAuth2AccessToken.TokenType tokenType(String value) {
+		if (OAuth2AccessToken.TokenType.BEARER.getValue().equalsIgnoreCase(value)) {
+			return OAuth2AccessToken.TokenType.BEARER;
+		}
+		throw new IllegalArgumentException("Malformed authorization: unknown token type " + value);
+	}
+
+	private static byte[] serialize(Serializable value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		} catch (IOException ex) {
+			throw new IllegalArgumentException("Failed to serialize attribute value: " + ex.getMessage(), ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * A block not decoded yet, the {@code Supplier} of a lazily materialized attribute.
+	 */
+	private final class EncodedBlock implements Supplier<Object> {
+		private final byte type;
+		private final byte[] buffer;
+		private final int offset;
+		private final int length;
+
+		private EncodedBlock(byte type, Input block) {
+			this.type = type;
+			this.buffer = block.buffer;
+			this.offset = block.position;
+			this.length = block.remaining();
+		}
+
+		@Override
+		public Object get() {
+			return readBlock(this.type, new Input(this.buffer, this.offset, this.offset + this.length));
+		}
+
+		private void writeTo(Output out) {
+			out.writeByte(this.type);
+			out.writeBytes(this.buffer, this.offset, this.length);
+		}
+	}
+
+	private static final class Output {
+		private final Map<String, Integer> sharedStrings = new HashMap<>();
+		private byte[] buffer = new byte[256];
+		private int position;
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			this.buffer[this.position++] = (byte) value;
+		}
+
+		private void writeVarInt(int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		private void writeVarLong(long value) {
+			// ZigZag, so that small negative values are small too
+			long zigZag = (value << 1) ^ (value >> 63);
+			ensureCapacity(10);
+			while ((zigZag & ~0x7FL) != 0) {
+				this.buffer[this.position++] = (byte) ((zigZag & 0x7F) | 0x80);
+				zigZag >>>= 7;
+			}
+			this.buffer[this.position++] = (byte) zigZag;
+		}
+
+		private void writeBytes(byte[] bytes) {
+			writeBytes(bytes, 0, bytes.length);
+		}
+
+		private void writeBytes(byte[] bytes, int offset, int length) {
+			writeVarInt(length);
+			ensureCapacity(length);
+			System.arraycopy(bytes, offset, this.buffer, this.position, length);
+			this.position += length;
+		}
+
+		private void writeBlock(Output block) {
+			writeBytes(block.buffer, 0, block.position);
+		}
+
+		private void writeString(String value) {
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void writeNullableString(String value) {
+			writeByte(value != null ? 1 : 0);
+			if (value != null) {
+				writeString(value);
+			}
+		}
+
+		private void writeSharedString(String value) {
+			// 0 for a string not written before, followed by the string, otherwise its index + 1
+			Integer index = this.sharedStrings.get(value);
+			if (index != null) {
+				writeVarInt(index + 1);
+				return;
+			}
+			this.sharedStrings.put(value, this.sharedStrings.size());
+			writeVarInt(0);
+			writeString(value);
+		}
+
+		private void writeNullableSharedString(String value) {
+			writeByte(value != null ? 1 : 0);
+			if (value != null) {
+				writeSharedString(value);
+			}
+		}
+
+		private void writeSharedStrings(Collection<String> values) {
+			writeVarInt(values.size());
+			for (String value : values) {
+				writeSharedString(value);
+			}
+		}
+
+		private void writeInstant(Instant value) {
+			writeVarLong(value.getEpochSecond());
+			writeVarInt(value.getNano());
+		}
+
+		private void ensureCapacity(int length) {
+			if (this.position + length > this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.position + length));
+			}
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(this.buffer, this.position);
+		}
+	}
+
+	private final class Input {
+		private final List<String> sharedStrings = new ArrayList<>();
+		private final byte[] buffer;
+		private final int limit;
+		private int position;
+
+		private Input(byte[] buffer, int position, int limit) {
+			this.buffer = buffer;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		private byte readByte() {
+			if (this.position >= this.limit) {
+				throw new IndexOutOfBoundsException("Unexpected end of input");
+			}
+			return this.buffer[this.position++];
+		}
+
+		private int readVarInt() {
+			long value = readVarLong();
+			if (value < 0 || value > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Malformed authorization: invalid length " + value);
+			}
+			return (int) value;
+		}
+
+		private long readVarLong() {
+			long zigZag = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = readByte();
+				zigZag |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return (zigZag >>> 1) ^ -(zigZag & 1);
+				}
+			}
+			throw new IllegalArgumentException("Malformed authorization: invalid variable-length integer");
+		}
+
+		private int readCount() {
+			// Every element is encoded in at least one byte
+			int count = readVarInt();
+			if (count > remaining()) {
+				throw new IllegalArgumentException("Malformed authorization: invalid count " + count);
+			}
+			return count;
+		}
+
+		private Input readBlock() {
+			int length = readVarInt();
+			if (length > remaining()) {
+				throw new IndexOutOfBoundsException("Unexpected end of input");
+			}
+			Input block = new Input(this.buffer, this.position, this.position + length);
+			this.position += length;
+			return block;
+		}
+
+		private Object deserialize() {
+			try (ObjectInputStream in = new ObjectInputStream(
+					new ByteArrayInputStream(this.buffer, this.position, remaining()))) {
+				Object value = in.readObject();
+				this.position = this.limit;
+				return value;
+			} catch (IOException | ClassNotFoundException ex) {
+				throw new IllegalArgumentException("Failed to deserialize attribute value: " + ex.getMessage(), ex);
+			}
+		}
+
+		private String readString() {
+			int length = readVarInt();
+			if (length > remaining()) {
+				throw new IndexOutOfBoundsException("Unexpected end of input");
+			}
+			String value = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return value;
+		}
+
+		private String readNullableString() {
+			return readByte() != 0 ? readString() : null;
+		}
+
+		private String readSharedString() {
+			int index = readVarInt();
+			if (index > 0) {
+				return this.sharedStrings.get(index - 1);
+			}
+			String value = intern(readString());
+			this.sharedStrings.add(value);
+			return value;
+		}
+
+		private String readNullableSharedString() {
+			return readByte() != 0 ? readSharedString() : null;
+		}
+
+		private Set<String> readSharedStrings() {
+			int size = readCount();
+			Set<String> values = new LinkedHashSet<>(Math.max(4, size * 2));
+			for (int i = 0; i < size; i++) {
+				values.add(readSharedString());
+			}
+			return values;
+		}
+
+		private Instant readInstant() {
+			return Instant.ofEpochSecond(readVarLong(), readVarInt());
+		}
+
+		private int remaining() {
+			return this.limit - this.position;
+		}
+	}
+}
@@ -15,6 +15,9 @@
  */
 package org.springframework.security.oauth2.server.authorization;
 
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+
 /**
  * Implementations of this interface are responsible for the management
  * of {@link OAuth2Authorization OAuth 2.0 Authorization(s)}.
@@ -32,6 +35,80 @@ public interface OAuth2AuthorizationService {
 	 */
 	void save(OAuth2Authorization authorization);
 
+	/**
+	 * Saves the {@link OAuth2Authorization} in place of the one containing the provided {@code refreshToken},
+	 * only if that refresh token has not been replaced nor revoked in the meantime.
+	 * Used for rotating a refresh token, so that of concurrent requests presenting the same refresh token,
+	 * only one may obtain new tokens.
+	 *
+	 * <p>
+	 * The default implementation is not atomic: it checks that the refresh token can still be
+	 * looked up before saving the authorization. Implementations should override this method
+	 * and perform the check and the save as a single atomic operation.
+	 *
+	 * @param refreshToken the refresh token presented
+	 * @param authorization the {@link OAuth2Authorization} containing the rotated refresh token
+	 * @return {@code true} if the authorization was saved, {@code false} if the refresh token had already been replaced
+	 */
+	default boolean replace(String refreshToken, OAuth2Authorization authorization) {
+		if (findByTokenAndTokenType(refreshToken, TokenType.REFRESH_TOKEN) == null) {
+			return false;
+		}
+		save(authorization);
+		return true;
+	}
+
+	/**
+	 * Saves the {@link OAuth2Authorization} in place of the one issued with the same authorization code,
+	 * only if that one has not been removed in the meantime.
+	 * Used for saving the tokens issued in exchange for an authorization code, so that an authorization
+	 * removed because its authorization code was used more than once is not saved again.
+	 *
+	 * <p>
+	 * The default implementation is not atomic: it checks that the authorization code can still be
+	 * looked up before saving the authorization. Implementations should override this method
+	 * and perform the check and the save as a single atomic operation.
+	 *
+	 * @param authorization the {@link OAuth2Authorization} containing the tokens issued for the authorization code
+	 * @return {@code true} if the authorization was saved, {@code false} if it had been removed
+	 */
+	default boolean replace(OAuth2Authorization authorization) {
+		String code = authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE);
+		if (code == null || findByTokenAndTokenType(code, TokenType.AUTHORIZATION_CODE) == null) {
+			return false;
+		}
+		save(authorization);
+		return true;
+	}
+
+	/**
+	 * Removes the {@link OAuth2Authorization}, which revokes all the tokens issued from it.
+	 *
+	 * @param authorization the {@link OAuth2Authorization}
+	 */
+	void remove(OAuth2Authorization authorization);
+
+	/**
+	 * Removes the {@link OAuth2Authorization}, which revokes all the tokens issued from it,
+	 * and returns the {@link TokenRevocation} of its access token, so that the nodes
+	 * which may have cached the access token stop accepting it.
+	 *
+	 * <p>
+	 * The default implementation derives the revocation from the access token of the provided authorization.
+	 * Implementations returning an authorization looked up by its refresh token without its access token
+	 * must override this method, so that the access token issued with the refresh token is revoked as well.
+	 *
+	 * @param authorization the {@link OAuth2Authorization}
+	 * @return the {@link TokenRevocation} of the access token, or {@code null} if no access token was issued
+	 */
+	default TokenRevocation revoke(OAuth2Authorization authorization) {
+		remove(authorization);
+		OAuth2AccessToken accessToken = authorization.getAccessToken();
+		return accessToken != null ?
+				TokenRevocation.of(TokenDigest.of(accessToken.getTokenValue()), accessToken.getExpiresAt()) :
+				null;
+	}
+
 	/**
 	 * Returns the {@link OAuth2Authorization} containing the provided {@code token},
 	 * or {@code null} if not found.
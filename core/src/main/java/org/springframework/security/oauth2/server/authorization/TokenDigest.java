@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A fixed-size digest of a token credential, used in place of the token value
+ * for storing and looking up the token, so that the token value itself does not need to be retained.
+ *
+ * <p>
+ * The digest is the SHA-256 hash of the token value truncated to 128 bits,
+ * which is sufficient to uniquely identify tokens generated with at least 128 bits of entropy.
+ *
+ * @since 0.0.1
+ */
+public final class TokenDigest implements Serializable {
+	private static final long serialVersionUID = Version.SERIAL_VERSION_UID;
+	private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	});
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private final long high;
+	private final long low;
+
+	private TokenDigest(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Returns the {@code TokenDigest} of the provided token value.
+	 *
+	 * @param token the token value
+	 * @return the {@code TokenDigest}
+	 */
+	public static TokenDigest of(String token) {
+		Assert.hasText(token, "token cannot be empty");
+		MessageDigest messageDigest = SHA_256.get();
+		byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+		return new TokenDigest(toLong(digest, 0), toLong(digest, 8));
+	}
+
+	/**
+	 * Returns the {@code TokenDigest} from its 16 bytes representation.
+	 *
+	 * @param bytes the 16 bytes representation of the digest
+	 * @return the {@code TokenDigest}
+	 * @see #toByteArray()
+	 */
+	public static TokenDigest fromByteArray(byte[] bytes) {
+		Assert.isTrue(bytes != null && bytes.length == 16, "bytes must be 16 bytes long");
+		return new TokenDigest(toLong(bytes, 0), toLong(bytes, 8));
+	}
+
+	/**
+	 * Returns the 16 bytes representation of this digest.
+	 *
+	 * @return the 16 bytes representation of this digest
+	 */
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[16];
+		for (int i = 0; i < 8; i++) {
+			bytes[i] = (byte) (this.high >>> (56 - 8 * i));
+			bytes[8 + i] = (byte) (this.low >>> (56 - 8 * i));
+		}
+		return bytes;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		TokenDigest that = (TokenDigest) obj;
+		return this.high == that.high && this.low == that.low;
+	}
+
+	@Override
+	public int hashCode() {
+		// The digest is uniformly distributed, any 32 bits of it make a good hash code
+		return (int) this.low;
+	}
+
+	@Override
+	public String toString() {
+		char[] chars = new char[32];
+		toHex(this.high, chars, 0);
+		toHex(this.low, chars, 16);
+		return new String(chars);
+	}
+
+	private static long toLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = offset; i < offset + 8; i++) {
+			value = (value << 8) | (bytes[i] & 0xff);
+		}
+		return value;
+	}
+
+	private static void toHex(long value, char[] chars, int offset) {
+		for (int i = 15; i >= 0; i--) {
+			chars[offset + i] = HEX[(int) (value & 0xf)];
+			value >>>= 4;
+		}
+	}
+}
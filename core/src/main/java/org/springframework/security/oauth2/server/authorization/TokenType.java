@@ -27,6 +27,7 @@ public final class TokenType implements Serializable {
 	private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
 	public static final TokenType ACCESS_TOKEN = new TokenType("access_token");
 	public static final TokenType AUTHORIZATION_CODE = new TokenType("authorization_code");
+	public static final TokenType REFRESH_TOKEN = new TokenType("refresh_token");
 	private final String value;
 
 	public TokenType(String value) {
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.springframework.util.Assert;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+/**
+ * Computes the thumbprint of an {@code X.509} certificate, as used for matching the certificate
+ * presented by a client with {@code tls_client_auth}, and for binding access tokens to that certificate.
+ *
+ * @since 0.0.1
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc8705#section-3.1">Section 3.1 JWT Certificate Thumbprint Confirmation Method</a>
+ */
+public final class X509CertificateThumbprints {
+
+	private X509CertificateThumbprints() {
+	}
+
+	/**
+	 * Returns the base64url-encoded SHA-256 thumbprint of the DER encoding of the {@code X.509} certificate,
+	 * that is, the value of the {@code x5t#S256} confirmation method.
+	 *
+	 * @param certificate the {@code X.509} certificate
+	 * @return the base64url-encoded SHA-256 thumbprint of the certificate
+	 */
+	public static String sha256(X509Certificate certificate) {
+		Assert.notNull(certificate, "certificate cannot be null");
+		try {
+			byte[] thumbprint = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(thumbprint);
+		} catch (CertificateEncodingException ex) {
+			throw new IllegalArgumentException("Invalid certificate: " + ex.getMessage(), ex);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the authorization codes that have been exchanged, so that a code presented more than once
+ * can be detected in constant time and memory.
+ *
+ * <p>
+ * Consumed codes are tracked in a ring of time buckets, each holding a bloom filter of fixed size.
+ * The most recent buckets, covering at least the authorization code lifetime, also hold the exact codes,
+ * which means that a code still within its lifetime is never reported as consumed by a false positive.
+ * Older buckets only answer probabilistically, and are only consulted for codes issued before them.
+ *
+ * @since 0.0.1
+ * @see OAuth2AuthorizationCodeAuthenticationProvider
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.1.2">Section 4.1.2 Authorization Response</a>
+ */
+public final class AuthorizationCodeTombstones {
+	private static final int BUCKET_COUNT = 60;
+	private static final int HASH_FUNCTIONS = 7;
+	private static final int BITS_PER_CODE = 10;
+	private final long bucketMillis;
+	private final int exactBucketCount;
+	private final int bloomFilterMask;
+	private final Bucket[] buckets;
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs an {@code AuthorizationCodeTombstones} retaining consumed codes for 1 hour,
+	 * the last 10 minutes of which are retained exactly.
+	 */
+	public AuthorizationCodeTombstones() {
+		this(Duration.ofHours(1), Duration.ofMinutes(10), 10000);
+	}
+
+	/**
+	 * Constructs an {@code AuthorizationCodeTombstones} using the provided parameters.
+	 *
+	 * @param retention the duration a consumed code is retained for
+	 * @param exactRetention the duration a consumed code is retained exactly for,
+	 * which should be at least the authorization code lifetime
+	 * @param expectedCodesPerMinute the expected number of codes consumed per minute, used to size the bloom filters
+	 */
+	public AuthorizationCodeTombstones(Duration retention, Duration exactRetention, int expectedCodesPerMinute) {
+		Assert.notNull(retention, "retention cannot be null");
+		Assert.notNull(exactRetention, "exactRetention cannot be null");
+		Assert.isTrue(retention.toMillis() >= BUCKET_COUNT, "retention must be greater than or equal to " + BUCKET_COUNT + "ms");
+		Assert.isTrue(!exactRetention.isNegative() && exactRetention.compareTo(retention) <= 0,
+				"exactRetention must be between 0 and retention");
+		Assert.isTrue(expectedCodesPerMinute > 0, "expectedCodesPerMinute must be greater than 0");
+		this.bucketMillis = retention.toMillis() / BUCKET_COUNT;
+		// +1 to cover the partially elapsed oldest bucket
+		this.exactBucketCount = (int) Math.min(BUCKET_COUNT,
+				(exactRetention.toMillis() + this.bucketMillis - 1) / this.bucketMillis + 1);
+		long expectedCodesPerBucket = Math.max(1, expectedCodesPerMinute * this.bucketMillis / 60000);
+		int bits = Integer.highestOneBit((int) Math.min(1 << 29, expectedCodesPerBucket * BITS_PER_CODE - 1)) << 1;
+		this.bloomFilterMask = Math.max(bits, Long.SIZE) - 1;
+		this.buckets = new Bucket[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			this.buckets[i] = new Bucket((this.bloomFilterMask + 1) / Long.SIZE);
+		}
+	}
+
+	/**
+	 * Records the authorization code as consumed.
+	 *
+	 * @param code the authorization code
+	 * @param issuedAt the time the authorization code was issued at, or {@code null} if unknown
+	 * @return {@code true} if this is the first time the code is consumed,
+	 * or {@code false} if the code has been consumed before
+	 */
+	public boolean consume(String code, @Nullable Instant issuedAt) {
+		Assert.hasText(code, "code cannot be empty");
+		long hash = hash(code);
+		long currentEpoch = this.clock.millis() / this.bucketMillis;
+		if (isConsumed(code, hash, currentEpoch, issuedAt)) {
+			return false;
+		}
+		Bucket bucket = currentBucket(currentEpoch);
+		bucket.put(hash, this.bloomFilterMask);
+		Set<String> codes = bucket.codes;
+		return codes == null || codes.add(code);
+	}
+
+	/**
+	 * Returns {@code true} if the authorization code has been consumed.
+	 *
+	 * @param code the authorization code
+	 * @param issuedAt the time the authorization code was issued at, or {@code null} if unknown
+	 * @return {@code true} if the authorization code has been consumed, {@code false} otherwise
+	 */
+	public boolean isConsumed(String code, @Nullable Instant issuedAt) {
+		Assert.hasText(code, "code cannot be empty");
+		return isConsumed(code, hash(code), this.clock.millis() / this.bucketMillis, issuedAt);
+	}
+
+	/**
+	 * Sets the {@code Clock} used when determining the current time bucket.
+	 *
+	 * @param clock the {@code Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private boolean isConsumed(String code, long hash, long currentEpoch, @Nullable Instant issuedAt) {
+		long oldestEpoch = currentEpoch - BUCKET_COUNT + 1;
+		if (issuedAt != null) {
+			oldestEpoch = Math.max(oldestEpoch, issuedAt.toEpochMilli() / this.bucketMillis);
+		}
+		for (long epoch = currentEpoch; epoch >= oldestEpoch; epoch--) {
+			Bucket bucket = this.buckets[(int) (epoch % BUCKET_COUNT)];
+			if (bucket.epoch != epoch || !bucket.mightContain(hash, this.bloomFilterMask)) {
+				continue;
+			}
+			Set<String> codes = bucket.codes;
+			if (currentEpoch - epoch >= this.exactBucketCount || codes == null || codes.contains(code)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Bucket currentBucket(long currentEpoch) {
+		Bucket bucket = this.buckets[(int) (currentEpoch % BUCKET_COUNT)];
+		if (bucket.epoch != currentEpoch) {
+			synchronized (bucket) {
+				if (bucket.epoch < currentEpoch) {
+					bucket.reset(currentEpoch);
+					// Release the exact codes of the bucket leaving the exact retention window
+					Bucket expired = this.buckets[(int) ((currentEpoch - this.exactBucketCount + BUCKET_COUNT) % BUCKET_COUNT)];
+					if (expired != bucket) {
+						expired.codes = null;
+					}
+				}
+			}
+		}
+		return bucket;
+	}
+
+	private static long hash(String code) {
+		// FNV-1a followed by the MurmurHash3 finalizer
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < code.length(); i++) {
+			hash ^= code.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static final class Bucket {
+		private final AtomicLongArray bits;
+		private volatile long epoch = -1;
+		private volatile Set<String> codes;
+
+		private Bucket(int words) {
+			this.bits = new AtomicLongArray(words);
+		}
+
+		private void reset(long epoch) {
+			for (int i = 0; i < this.bits.length(); i++) {
+				this.bits.set(i, 0L);
+			}
+			this.codes = ConcurrentHashMap.newKeySet();
+			this.epoch = epoch;
+		}
+
+		private void put(long hash, int mask) {
+			int hash1 = (int) hash;
+			int hash2 = (int) (hash >>> 32);
+			for (int i = 0; i < HASH_FUNCTIONS; i++) {
+				int bit = (hash1 + i * hash2) & mask;
+				long bitMask = 1L << bit;
+				int word = bit >>> 6;
+				long current;
+				do {
+					current = this.bits.get(word);
+				} while ((current & bitMask) == 0 && !this.bits.compareAndSet(word, current, current | bitMask));
+			}
+		}
+
+		private boolean mightContain(long hash, int mask) {
+			int hash1 = (int) hash;
+			int hash2 = (int) (hash >>> 32);
+			for (int i = 0; i < HASH_FUNCTIONS; i++) {
+				int bit = (hash1 + i * hash2) & mask;
+				if ((this.bits.get(bit >>> 6) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache of the JSON Web Key (JWK) Set(s) of the clients authenticating with {@code private_key_jwt},
+ * keyed by the {@code URL} of the client's JWK Set.
+ *
+ * <p>
+ * A JWK Set is cached for the duration allowed by the {@code Cache-Control max-age} of its response,
+ * bounded by the minimum and maximum time-to-live, and is refreshed in the background
+ * once 80% of its time-to-live has elapsed, so that requests keep being served from the cache.
+ * Concurrent requests for a JWK Set that is not (or no longer) cached share a single fetch,
+ * so a cold key does not trigger a fetch per request.
+ *
+ * <p>
+ * A failed fetch is remembered for the {@link #setFailureBackoff(Duration) failure backoff},
+ * during which the JWK Set is not fetched again, so that an unavailable JWK Set endpoint
+ * is not hit by every client authentication. By default, the JWK Set(s) are retrieved
+ * with a connect timeout of 2 seconds and a read timeout of 5 seconds.
+ *
+ * @since 0.0.1
+ * @see OAuth2ClientAuthenticationProvider
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7517#section-5">Section 5 JWK Set Format</a>
+ */
+public final class ClientJwkSetCache {
+	private static final String MAX_AGE = "max-age=";
+	private static final int DEFAULT_CONNECT_TIMEOUT = 2000;
+	private static final int DEFAULT_READ_TIMEOUT = 5000;
+	private final RestOperations restOperations;
+	private final Map<String, CachedJwkSet> jwkSets = new ConcurrentHashMap<>();
+	private final Map<String, FutureTask<CachedJwkSet>> fetches = new ConcurrentHashMap<>();
+	private final Map<String, FailedFetch> failures = new ConcurrentHashMap<>();
+	private final Set<String> refreshes = ConcurrentHashMap.newKeySet();
+	private Executor refreshExecutor;
+	private Duration defaultTimeToLive = Duration.ofMinutes(5);
+	private Duration minimumTimeToLive = Duration.ofSeconds(30);
+	private Duration maximumTimeToLive = Duration.ofDays(1);
+	private Duration failureBackoff = Duration.ofSeconds(10);
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs a {@code ClientJwkSetCache}.
+	 */
+	public ClientJwkSetCache() {
+		this(createRestTemplate());
+	}
+
+	/**
+	 * Constructs a {@code ClientJwkSetCache} using the provided parameters.
+	 *
+	 * @param restOperations the {@link RestOperations} used for retrieving the JWK Set(s)
+	 */
+	public ClientJwkSetCache(RestOperations restOperations) {
+		Assert.notNull(restOperations, "restOperations cannot be null");
+		this.restOperations = restOperations;
+		this.refreshExecutor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "client-jwk-set-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Sets the {@code Executor} used for refreshing a JWK Set ahead of its expiry.
+	 *
+	 * @param refreshExecutor the {@code Executor} used for refreshing a JWK Set
+	 */
+	public void setRefreshExecutor(Executor refreshExecutor) {
+		Assert.notNull(refreshExecutor, "refreshExecutor cannot be null");
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	/**
+	 * Sets the duration a JWK Set is cached for when its response does not specify a {@code max-age}.
+	 * The default is 5 minutes.
+	 *
+	 * @param defaultTimeToLive the duration a JWK Set is cached for by default
+	 */
+	public void setDefaultTimeToLive(Duration defaultTimeToLive) {
+		Assert.notNull(defaultTimeToLive, "defaultTimeToLive cannot be null");
+		this.defaultTimeToLive = defaultTimeToLive;
+	}
+
+	/**
+	 * Sets the minimum duration a JWK Set is cached for, which also is the minimum interval
+	 * between two fetches of the same JWK Set. The default is 30 seconds.
+	 *
+	 * @param minimumTimeToLive the minimum duration a JWK Set is cached for
+	 */
+	public void setMinimumTimeToLive(Duration minimumTimeToLive) {
+		Assert.notNull(minimumTimeToLive, "minimumTimeToLive cannot be null");
+		Assert.isTrue(!minimumTimeToLive.isNegative(), "minimumTimeToLive cannot be negative");
+		this.minimumTimeToLive = minimumTimeToLive;
+	}
+
+	/**
+	 * Sets the maximum duration a JWK Set is cached for. The default is 1 day.
+	 *
+	 * @param maximumTimeToLive the maximum duration a JWK Set is cached for
+	 */
+	public void setMaximumTimeToLive(Duration maximumTimeToLive) {
+		Assert.notNull(maximumTimeToLive, "maximumTimeToLive cannot be null");
+		this.maximumTimeToLive = maximumTimeToLive;
+	}
+
+	/**
+	 * Sets the duration a failed fetch of a JWK Set is remembered for, during which the JWK Set is not fetched again.
+	 * The default is 10 seconds.
+	 *
+	 * @param failureBackoff the duration a failed fetch is remembered for
+	 */
+	public void setFailureBackoff(Duration failureBackoff) {
+		Assert.notNull(failureBackoff, "failureBackoff cannot be null");
+		Assert.isTrue(!failureBackoff.isNegative(), "failureBackoff cannot be negative");
+		this.failureBackoff = failureBackoff;
+	}
+
+	/**
+	 * Sets the {@link Clock} used for expiring the cached JWK Set(s).
+	 *
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the JWK Set located at the provided {@code URL}, from the cache if available.
+	 *
+	 * @param jwkSetUrl the {@code URL} of the JWK Set
+	 * @return the {@link JWKSet}
+	 * @throws IllegalStateException if the JWK Set could not be retrieved
+	 */
+	public JWKSet get(String jwkSetUrl) {
+		Assert.hasText(jwkSetUrl, "jwkSetUrl cannot be empty");
+		CachedJwkSet cached = this.jwkSets.get(jwkSetUrl);
+		long now = this.clock.millis();
+		if (cached != null && now < cached.expiresAt) {
+			if (now >= cached.refreshAt) {
+				refreshAhead(jwkSetUrl);
+			}
+			return cached.jwkSet;
+		}
+		return fetch(jwkSetUrl).jwkSet;
+	}
+
+	/**
+	 * Returns the JWK Set located at the provided {@code URL}, fetching it again unless it was fetched
+	 * within the minimum time-to-live, for example, when a key is not found in the cached JWK Set.
+	 *
+	 * @param jwkSetUrl the {@code URL} of the JWK Set
+	 * @return the {@link JWKSet}
+	 * @throws IllegalStateException if the JWK Set could not be retrieved
+	 */
+	public JWKSet refresh(String jwkSetUrl) {
+		Assert.hasText(jwkSetUrl, "jwkSetUrl cannot be empty");
+		CachedJwkSet cached = this.jwkSets.get(jwkSetUrl);
+		if (cached != null && this.clock.millis() < cached.fetchedAt + this.minimumTimeToLive.toMillis()) {
+			return cached.jwkSet;
+		}
+		return fetch(jwkSetUrl).jwkSet;
+	}
+
+	/**
+	 * Removes the JWK Set located at the provided {@code URL} from the cache.
+	 *
+	 * @param jwkSetUrl the {@code URL} of the JWK Set
+	 */
+	public void invalidate(String jwkSetUrl) {
+		Assert.hasText(jwkSetUrl, "jwkSetUrl cannot be empty");
+		this.jwkSets.remove(jwkSetUrl);
+	}
+
+	private void refreshAhead(String jwkSetUrl) {
+		if (!this.refreshes.add(jwkSetUrl)) {
+			return;
+		}
+		try {
+			this.refreshExecutor.execute(() -> {
+				try {
+					fetch(jwkSetUrl);
+				} catch (RuntimeException ex) {
+					// The cached JWK Set remains in use until it expires
+				} finally {
+					this.refreshes.remove(jwkSetUrl);
+				}
+			});
+		} catch (RuntimeException ex) {
+			this.refreshes.remove(jwkSetUrl);
+		}
+	}
+
+	private CachedJwkSet fetch(String jwkSetUrl) {
+		FailedFetch failure = this.failures.get(jwkSetUrl);
+		if (failure != null && this.clock.millis() < failure.retryAt) {
+			throw new IllegalStateException("Failed to retrieve the JWK Set from " + jwkSetUrl +
+					", not retrying before the failure backoff elapses", failure.cause);
+		}
+		FutureTask<CachedJwkSet> fetch = new FutureTask<>(() -> {
+			try {
+				CachedJwkSet cached = load(jwkSetUrl);
+				this.failures.remove(jwkSetUrl);
+				return cached;
+			} catch (RuntimeException ex) {
+				this.failures.put(jwkSetUrl, new FailedFetch(ex, this.clock.millis() + this.failureBackoff.toMillis()));
+				throw ex;
+			}
+		});
+		FutureTask<CachedJwkSet> inflightFetch = this.fetches.putIfAbsent(jwkSetUrl, fetch);
+		if (inflightFetch == null) {
+			try {
+				fetch.run();
+			} finally {
+				this.fetches.remove(jwkSetUrl, fetch);
+			}
+			inflightFetch = fetch;
+		}
+		try {
+			return inflightFetch.get();
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IllegalStateException) {
+				throw (IllegalStateException) ex.getCause();
+			}
+			throw new IllegalStateException("Failed to retrieve the JWK Set from " + jwkSetUrl, ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while retrieving the JWK Set from " + jwkSetUrl, ex);
+		}
+	}
+
+	private CachedJwkSet load(String jwkSetUrl) {
+		RequestEntity<Void> request = RequestEntity.get(URI.create(jwkSetUrl))
+				.accept(MediaType.APPLICATION_JSON)
+				.build();
+		ResponseEntity<String> response = this.restOperations.exchange(request, String.class);
+		if (response.getBody() == null) {
+			throw new IllegalStateException("Empty JWK Set retrieved from " + jwkSetUrl);
+		}
+		JWKSet jwkSet;
+		try {
+			jwkSet = JWKSet.parse(response.getBody());
+		} catch (ParseException ex) {
+			throw new IllegalStateException("Invalid JWK Set retrieved from " + jwkSetUrl, ex);
+		}
+		long now = this.clock.millis();
+		long timeToLive = getTimeToLive(response.getHeaders());
+		CachedJwkSet cached = new CachedJwkSet(jwkSet, now, now + timeToLive, now + timeToLive / 5 * 4);
+		this.jwkSets.put(jwkSetUrl, cached);
+		return cached;
+	}
+
+	private long getTimeToLive(HttpHeaders headers) {
+		long timeToLive = this.defaultTimeToLive.toMillis();
+		String cacheControl = headers.getCacheControl();
+		if (StringUtils.hasText(cacheControl)) {
+			for (String directive : StringUtils.commaDelimitedListToStringArray(cacheControl)) {
+				directive = directive.trim().toLowerCase();
+				if (directive.equals("no-store") || directive.equals("no-cache")) {
+					return this.minimumTimeToLive.toMillis();
+				}
+				if (directive.startsWith(MAX_AGE)) {
+					try {
+						timeToLive = Duration.ofSeconds(Long.parseLong(directive.substring(MAX_AGE.length()))).toMillis();
+					} catch (NumberFormatException ex) {
+						// Fall back to the default time-to-live
+					}
+				}
+			}
+		}
+		return Math.min(Math.max(timeToLive, this.minimumTimeToLive.toMillis()), this.maximumTimeToLive.toMillis());
+	}
+
+	private static RestTemplate createRestTemplate() {
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT);
+		requestFactory.setReadTimeout(DEFAULT_READ_TIMEOUT);
+		return new RestTemplate(requestFactory);
+	}
+
+	private static final class FailedFetch {
+		private final RuntimeException cause;
+		private final long retryAt;
+
+		private FailedFetch(RuntimeException cause, long retryAt) {
+			this.cause = cause;
+			this.retryAt = retryAt;
+		}
+	}
+
+	private static final class CachedJwkSet {
+		private final JWKSet jwkSet;
+		private final long fetchedAt;
+		private final long expiresAt;
+		private final long refreshAt;
+
+		private CachedJwkSet(JWKSet jwkSet, long fetchedAt, long expiresAt, long refreshAt) {
+			this.jwkSet = jwkSet;
+			this.fetchedAt = fetchedAt;
+			this.expiresAt = expiresAt;
+			this.refreshAt = refreshAt;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A cache of the JWT ID(s) ({@code jti}) of the client assertions already used,
+ * allowing a client assertion to be used only once until it expires.
+ *
+ * <p>
+ * JWT ID(s) are grouped in time buckets by the expiry of their client assertion,
+ * so that all the JWT ID(s) of a bucket are purged at once, when the bucket has fully elapsed,
+ * rather than tracking and expiring each JWT ID individually.
+ *
+ * @since 0.0.1
+ * @see OAuth2ClientAuthenticationProvider
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7523#section-3">Section 3 JWT Format and Processing Requirements</a>
+ */
+public final class JtiReplayCache {
+	private final Map<String, Long> jtis = new ConcurrentHashMap<>();
+	private final ConcurrentNavigableMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+	private final long bucketMillis;
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs a {@code JtiReplayCache} using one minute time buckets.
+	 */
+	public JtiReplayCache() {
+		this(Duration.ofMinutes(1));
+	}
+
+	/**
+	 * Constructs a {@code JtiReplayCache} using the provided parameters.
+	 *
+	 * @param bucketDuration the duration of a time bucket
+	 */
+	public JtiReplayCache(Duration bucketDuration) {
+		Assert.notNull(bucketDuration, "bucketDuration cannot be null");
+		Assert.isTrue(bucketDuration.toMillis() > 0, "bucketDuration must be positive");
+		this.bucketMillis = bucketDuration.toMillis();
+	}
+
+	/**
+	 * Sets the {@link Clock} used for purging the elapsed time buckets.
+	 *
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Records the JWT ID of a client assertion as used, unless it has been used before.
+	 *
+	 * @param clientId the client identifier
+	 * @param jti the JWT ID of the client assertion
+	 * @param expiresAt the expiry of the client assertion
+	 * @return {@code true} if the JWT ID was not used before, {@code false} if the client assertion is replayed
+	 */
+	public boolean consume(String clientId, String jti, Instant expiresAt) {
+		Assert.hasText(clientId, "clientId cannot be empty");
+		Assert.hasText(jti, "jti cannot be empty");
+		Assert.notNull(expiresAt, "expiresAt cannot be null");
+		purge();
+
+		// The bucket ending at or after the expiry of the client assertion
+		long bucket = Math.floorDiv(expiresAt.toEpochMilli(), this.bucketMillis) + 1;
+		String key = clientId + ' ' + jti;
+		if (this.jtis.putIfAbsent(key, bucket) != null) {
+			return false;
+		}
+		this.buckets.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet()).add(key);
+		return true;
+	}
+
+	/**
+	 * Returns the number of JWT ID(s) currently tracked.
+	 *
+	 * @return the number of JWT ID(s) currently tracked
+	 */
+	public int size() {
+		return this.jtis.size();
+	}
+
+	private void purge() {
+		long currentBucket = Math.floorDiv(this.clock.millis(), this.bucketMillis);
+		ConcurrentNavigableMap<Long, Set<String>> elapsedBuckets = this.buckets.headMap(currentBucket, true);
+		elapsedBuckets.forEach((bucket, keys) -> {
+			if (this.buckets.remove(bucket, keys)) {
+				keys.forEach(this.jtis::remove);
+			}
+		});
+	}
+}
@@ -18,25 +18,277 @@ package org.springframework.security.oauth2.server.authorization.authentication;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.keygen.Base64StringKeyGenerator;
 import org.springframework.security.crypto.keygen.StringKeyGenerator;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
-import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationBus;
+import org.springframework.security.oauth2.server.authorization.token.JwtAccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.OpaqueAccessTokenGenerator;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 
 /**
+ * An {@link AuthenticationProvider} implementation for the OAuth 2.0 Authorization Code Grant.
+ *
+ * <p>
+ * An authorization code may only be exchanged once. When an authorization code is presented again,
+ * the request is denied and the {@link OAuth2Authorization} issued from it is
+ * {@link OAuth2AuthorizationService#revoke(OAuth2Authorization) revoked},
+ * which revokes the access token previously issued based on that authorization code.
+ * The revocation of the access token is published on the {@link TokenRevocationBus}, if set,
+ * so that the nodes which may have cached the access token, or validate it locally, stop accepting it.
+ * The tokens issued for an authorization code are only saved if the authorization has not been revoked meanwhile,
+ * so that an authorization code presented again while it is being exchanged revokes the tokens as well.
+ *
+ * <p>
+ * When the authorization request included a PKCE {@code code_challenge}, the {@code code_verifier}
+ * is verified against the code challenge stored in the {@link OAuth2Authorization}
+ * retrieved for the authorization code, so no additional lookup is needed.
+ *
  * @author Joe Grandja
+ * @since 0.0.1
+ * @see OAuth2AuthorizationCodeAuthenticationToken
+ * @see OAuth2AccessTokenAuthenticationToken
+ * @see AuthorizationCodeTombstones
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.1.2">Section 4.1.2 Authorization Response</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.1.3">Section 4.1.3 Access Token Request</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7636#section-4.6">Section 4.6 Server Verifies code_verifier before Returning the Tokens</a>
  */
 public class OAuth2AuthorizationCodeAuthenticationProvider implements AuthenticationProvider {
-	private RegisteredClientRepository registeredClientRepository;
-	private OAuth2AuthorizationService authorizationService;
-	private StringKeyGenerator accessTokenGenerator;
+	private static final String CODE_CHALLENGE_METHOD_S256 = "S256";
+	private static final String CODE_CHALLENGE_METHOD_PLAIN = "plain";
+	private static final Base64.Encoder CODE_CHALLENGE_ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final StringKeyGenerator REFRESH_TOKEN_VALUE_GENERATOR =
+			new Base64StringKeyGenerator(Base64.getUrlEncoder().withoutPadding(), 32);
+	private final OAuth2AuthorizationService authorizationService;
+	private OAuth2AccessTokenGenerator accessTokenGenerator = new OpaqueAccessTokenGenerator();
+	private AuthorizationCodeTombstones authorizationCodeTombstones = new AuthorizationCodeTombstones();
+	private TokenRevocationBus revocationBus;
+	private Duration authorizationCodeTimeToLive = Duration.ofMinutes(10);
+	private Duration accessTokenTimeToLive = Duration.ofMinutes(5);
+
+	/**
+	 * Constructs an {@code OAuth2AuthorizationCodeAuthenticationProvider} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 */
+	public OAuth2AuthorizationCodeAuthenticationProvider(OAuth2AuthorizationService authorizationService) {
+		Assert.notNull(authorizationService, "authorizationService cannot be null");
+		this.authorizationService = authorizationService;
+	}
 
 	@Override
 	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
-		return authentication;
+		OAuth2AuthorizationCodeAuthenticationToken authorizationCodeAuthentication =
+				(OAuth2AuthorizationCodeAuthenticationToken) authentication;
+
+		OAuth2ClientAuthenticationToken clientPrincipal = null;
+		if (authorizationCodeAuthentication.getPrincipal() instanceof OAuth2ClientAuthenticationToken) {
+			clientPrincipal = (OAuth2ClientAuthenticationToken) authorizationCodeAuthentication.getPrincipal();
+		}
+		if (clientPrincipal == null || !clientPrincipal.isAuthenticated()) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
+
+		String code = authorizationCodeAuthentication.getCode();
+		OAuth2Authorization authorization = this.authorizationService.findByTokenAndTokenType(
+				code, TokenType.AUTHORIZATION_CODE);
+		if (authorization == null) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		OAuth2AuthorizationRequest authorizationRequest = authorization.getAttribute(
+				OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		if (!registeredClient.getClientId().equals(authorizationRequest.getClientId())) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+		if (StringUtils.hasText(authorizationRequest.getRedirectUri()) &&
+				!authorizationRequest.getRedirectUri().equals(authorizationCodeAuthentication.getRedirectUri())) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		String codeChallenge = authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE);
+		if (codeChallenge != null) {
+			String codeChallengeMethod = authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD);
+			if (!codeVerifierValid(authorizationCodeAuthentication.getCodeVerifier(), codeChallenge, codeChallengeMethod)) {
+				throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+			}
+		}
+
+		Instant codeIssuedAt = authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT);
+		Instant issuedAt = Instant.now();
+		if (codeIssuedAt != null && issuedAt.isAfter(codeIssuedAt.plus(this.authorizationCodeTimeToLive))) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		// The access token is generated before the authorization code is consumed,
+		// so that a request failing to get one (for example, while signing is temporarily unavailable)
+		// leaves the authorization code usable for a retry
+		String x509CertificateThumbprint = clientPrincipal.getX509CertificateThumbprint();
+		OAuth2TokenContext tokenContext = OAuth2TokenContext.withRegisteredClient(registeredClient)
+				.principalName(authorization.getPrincipalName())
+				.scopes(scopes -> scopes.addAll(authorizationRequest.getScopes()))
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plus(this.accessTokenTimeToLive))
+				.x509CertificateThumbprint(x509CertificateThumbprint)
+				.build();
+		OAuth2AccessToken accessToken = this.accessTokenGenerator.generate(tokenContext);
+
+		if (!this.authorizationCodeTombstones.consume(code, codeIssuedAt)) {
+			// The authorization code has been used more than once,
+			// revoke all tokens previously issued based on it
+			revoke(authorization);
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		OAuth2RefreshToken refreshToken = null;
+		if (registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN)) {
+			refreshToken = new OAuth2RefreshToken(REFRESH_TOKEN_VALUE_GENERATOR.generateKey(), issuedAt);
+		}
+
+		authorization = OAuth2Authorization.from(authorization)
+				.accessToken(accessToken)
+				.refreshToken(refreshToken)
+				.attributes(attributes -> {
+					// The access token is bound to the certificate the client authenticated with, if any
+					if (x509CertificateThumbprint != null) {
+						attributes.put(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT, x509CertificateThumbprint);
+					} else {
+						attributes.remove(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT);
+					}
+				})
+				.build();
+		if (!this.authorizationService.replace(authorization)) {
+			// The authorization was revoked meanwhile, as the authorization code was presented again
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken, refreshToken);
+	}
+
+	private void revoke(OAuth2Authorization authorization) {
+		TokenRevocation revocation = this.authorizationService.revoke(authorization);
+		if (revocation != null && this.revocationBus != null) {
+			this.revocationBus.publish(revocation);
+		}
+	}
+
+	private static boolean codeVerifierValid(String codeVerifier, String codeChallenge, String codeChallengeMethod) {
+		if (!codeVerifierWellFormed(codeVerifier)) {
+			return false;
+		}
+		byte[] codeVerifierBytes = codeVerifier.getBytes(StandardCharsets.US_ASCII);
+		byte[] expectedCodeChallenge;
+		if (CODE_CHALLENGE_METHOD_S256.equals(codeChallengeMethod)) {
+			MessageDigest md;
+			try {
+				md = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException(ex);
+			}
+			expectedCodeChallenge = CODE_CHALLENGE_ENCODER.encode(md.digest(codeVerifierBytes));
+		} else if (CODE_CHALLENGE_METHOD_PLAIN.equals(codeChallengeMethod)) {
+			expectedCodeChallenge = codeVerifierBytes;
+		} else {
+			return false;
+		}
+		// Constant-time comparison, so that the code challenge cannot be recovered through timing
+		return MessageDigest.isEqual(expectedCodeChallenge, codeChallenge.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static boolean codeVerifierWellFormed(String codeVerifier) {
+		// code-verifier = 43*128unreserved
+		if (codeVerifier == null || codeVerifier.length() < 43 || codeVerifier.length() > 128) {
+			return false;
+		}
+		for (int i = 0; i < codeVerifier.length(); i++) {
+			char c = codeVerifier.charAt(i);
+			if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ||
+					c == '-' || c == '.' || c == '_' || c == '~')) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public boolean supports(Class<?> authentication) {
 		return OAuth2AuthorizationCodeAuthenticationToken.class.isAssignableFrom(authentication);
 	}
+
+	/**
+	 * Sets the {@link OAuth2AccessTokenGenerator} used for generating the access token.
+	 * The default is {@link OpaqueAccessTokenGenerator}.
+	 *
+	 * @param accessTokenGenerator the {@link OAuth2AccessTokenGenerator}
+	 * @see JwtAccessTokenGenerator
+	 */
+	public void setAccessTokenGenerator(OAuth2AccessTokenGenerator accessTokenGenerator) {
+		Assert.notNull(accessTokenGenerator, "accessTokenGenerator cannot be null");
+		this.accessTokenGenerator = accessTokenGenerator;
+	}
+
+	/**
+	 * Sets the {@link AuthorizationCodeTombstones} used for detecting authorization codes used more than once.
+	 *
+	 * @param authorizationCodeTombstones the {@link AuthorizationCodeTombstones}
+	 */
+	public void setAuthorizationCodeTombstones(AuthorizationCodeTombstones authorizationCodeTombstones) {
+		Assert.notNull(authorizationCodeTombstones, "authorizationCodeTombstones cannot be null");
+		this.authorizationCodeTombstones = authorizationCodeTombstones;
+	}
+
+	/**
+	 * Sets the {@link TokenRevocationBus} the revocation of the access token issued for an authorization code
+	 * presented more than once is published on. By default, the revocation is not published.
+	 *
+	 * @param revocationBus the {@link TokenRevocationBus}
+	 */
+	public void setTokenRevocationBus(TokenRevocationBus revocationBus) {
+		Assert.notNull(revocationBus, "revocationBus cannot be null");
+		this.revocationBus = revocationBus;
+	}
+
+	/**
+	 * Sets the lifetime of an authorization code, after which it can no longer be exchanged.
+	 * The default is 10 minutes.
+	 *
+	 * @param authorizationCodeTimeToLive the lifetime of an authorization code
+	 */
+	public void setAuthorizationCodeTimeToLive(Duration authorizationCodeTimeToLive) {
+		Assert.notNull(authorizationCodeTimeToLive, "authorizationCodeTimeToLive cannot be null");
+		this.authorizationCodeTimeToLive = authorizationCodeTimeToLive;
+	}
+
+	/**
+	 * Sets the lifetime of an issued access token. The default is 5 minutes.
+	 *
+	 * @param accessTokenTimeToLive the lifetime of an access token
+	 */
+	public void setAccessTokenTimeToLive(Duration accessTokenTimeToLive) {
+		Assert.notNull(accessTokenTimeToLive, "accessTokenTimeToLive cannot be null");
+		this.accessTokenTimeToLive = accessTokenTimeToLive;
+	}
 }
@@ -31,13 +31,20 @@ public class OAuth2AuthorizationCodeAuthenticationToken extends AbstractAuthenti
 	private Authentication clientPrincipal;
 	private String clientId;
 	private String redirectUri;
+	private String codeVerifier;
 
 	public OAuth2AuthorizationCodeAuthenticationToken(String code,
 			Authentication clientPrincipal, @Nullable String redirectUri) {
+		this(code, clientPrincipal, redirectUri, null);
+	}
+
+	public OAuth2AuthorizationCodeAuthenticationToken(String code,
+			Authentication clientPrincipal, @Nullable String redirectUri, @Nullable String codeVerifier) {
 		super(Collections.emptyList());
 		this.code = code;
 		this.redirectUri = redirectUri;
 		this.clientPrincipal = clientPrincipal;
+		this.codeVerifier = codeVerifier;
 	}
 
 	public OAuth2AuthorizationCodeAuthenticationToken(String code,
@@ -50,11 +57,38 @@ public class OAuth2AuthorizationCodeAuthenticationToken extends AbstractAuthenti
 
 	@Override
 	public Object getCredentials() {
-		return null;
+		return "";
 	}
 
 	@Override
 	public Object getPrincipal() {
-		return null;
+		return this.clientPrincipal != null ? this.clientPrincipal : this.clientId;
+	}
+
+	/**
+	 * Returns the authorization code.
+	 *
+	 * @return the authorization code
+	 */
+	public String getCode() {
+		return this.code;
+	}
+
+	/**
+	 * Returns the redirect uri.
+	 *
+	 * @return the redirect uri
+	 */
+	public @Nullable String getRedirectUri() {
+		return this.redirectUri;
+	}
+
+	/**
+	 * Returns the PKCE code verifier.
+	 *
+	 * @return the code verifier
+	 */
+	public @Nullable String getCodeVerifier() {
+		return this.codeVerifier;
 	}
 }
@@ -15,24 +15,348 @@
  */
 package org.springframework.security.oauth2.server.authorization.authentication;
 
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.X509CertificateThumbprints;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.Assert;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
+ * An {@link AuthenticationProvider} implementation used for authenticating an OAuth 2.0 Client
+ * using a client secret, that is, {@code client_secret_basic} or {@code client_secret_post}, when registered for it,
+ * or using a JWT assertion signed with the client's private key, that is, {@code private_key_jwt}.
+ *
+ * <p>
+ * Successful client secret verifications are kept in a {@link VerifiedClientSecretCache},
+ * so that a client authenticating repeatedly only pays for the {@link PasswordEncoder} once per cache time-to-live.
+ *
+ * <p>
+ * A client assertion is verified against the client's {@link RegisteredClient#getJwkSetUrl() JWK Set},
+ * cached by the {@link ClientJwkSetCache}, must be intended for one of the
+ * {@link #setClientAssertionAudiences(Collection) client assertion audiences},
+ * and may only be used once, as tracked by the {@link JtiReplayCache}.
+ * Its lifetime is bounded by the {@link #setMaximumClientAssertionLifetime(Duration) maximum client assertion lifetime},
+ * so that a client assertion expiring far in the future cannot hold an entry of the {@link JtiReplayCache} indefinitely.
+ *
+ * <p>
+ * A client authenticating with {@code tls_client_auth} is matched by the SHA-256 thumbprint of the certificate
+ * presented during the mutual-TLS handshake against its registered
+ * {@link RegisteredClient#getX509CertificateThumbprints() certificate thumbprints},
+ * which involves no secret hashing at all. The access tokens issued are bound to that certificate.
+ *
  * @author Joe Grandja
+ * @since 0.0.1
+ * @see OAuth2ClientAuthenticationToken
+ * @see VerifiedClientSecretCache
+ * @see ClientJwkSetCache
+ * @see JtiReplayCache
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-2.3.1">Section 2.3.1 Client Password</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7523#section-2.2">Section 2.2 Using JWTs for Client Authentication</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc8705#section-2.1">Section 2.1 PKI Mutual-TLS Method</a>
  */
 public class OAuth2ClientAuthenticationProvider implements AuthenticationProvider {
-	private RegisteredClientRepository registeredClientRepository;
+	/**
+	 * The {@code private_key_jwt} client authentication method.
+	 */
+	public static final ClientAuthenticationMethod PRIVATE_KEY_JWT = new ClientAuthenticationMethod("private_key_jwt");
+
+	/**
+	 * The {@code tls_client_auth} client authentication method.
+	 */
+	public static final ClientAuthenticationMethod TLS_CLIENT_AUTH = new ClientAuthenticationMethod("tls_client_auth");
+
+	private static final DefaultJWSVerifierFactory JWS_VERIFIER_FACTORY = new DefaultJWSVerifierFactory();
+	private final RegisteredClientRepository registeredClientRepository;
+	private PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+	private VerifiedClientSecretCache verifiedClientSecretCache = new VerifiedClientSecretCache();
+	private ClientJwkSetCache clientJwkSetCache = new ClientJwkSetCache();
+	private JtiReplayCache jtiReplayCache = new JtiReplayCache();
+	private Set<String> clientAssertionAudiences = Collections.emptySet();
+	private Duration clockSkew = Duration.ofSeconds(60);
+	private Duration maximumClientAssertionLifetime = Duration.ofMinutes(5);
+
+	/**
+	 * Constructs an {@code OAuth2ClientAuthenticationProvider} using the provided parameters.
+	 *
+	 * @param registeredClientRepository the repository of registered clients
+	 */
+	public OAuth2ClientAuthenticationProvider(RegisteredClientRepository registeredClientRepository) {
+		Assert.notNull(registeredClientRepository, "registeredClientRepository cannot be null");
+		this.registeredClientRepository = registeredClientRepository;
+	}
 
 	@Override
 	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
-		return authentication;
+		OAuth2ClientAuthenticationToken clientAuthentication =
+				(OAuth2ClientAuthenticationToken) authentication;
+
+		if (PRIVATE_KEY_JWT.equals(clientAuthentication.getClientAuthenticationMethod())) {
+			return new OAuth2ClientAuthenticationToken(authenticateClientAssertion(clientAuthentication));
+		}
+		if (TLS_CLIENT_AUTH.equals(clientAuthentication.getClientAuthenticationMethod())) {
+			return authenticateClientCertificate(clientAuthentication);
+		}
+
+		Object clientId = clientAuthentication.getPrincipal();
+		RegisteredClient registeredClient = clientId != null ?
+				this.registeredClientRepository.findByClientId(clientId.toString()) : null;
+		if (registeredClient == null ||
+				!clientSecretAuthenticationAllowed(registeredClient, clientAuthentication.getClientAuthenticationMethod())) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+
+		String clientSecret = clientAuthentication.getCredentials() instanceof String ?
+				(String) clientAuthentication.getCredentials() : null;
+		String storedClientSecret = registeredClient.getClientSecret();
+		if (clientSecret == null || storedClientSecret == null) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		if (!this.verifiedClientSecretCache.isVerified(
+				registeredClient.getClientId(), clientSecret, storedClientSecret)) {
+			if (!this.passwordEncoder.matches(clientSecret, storedClientSecret)) {
+				throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+			}
+			this.verifiedClientSecretCache.put(registeredClient.getClientId(), clientSecret, storedClientSecret);
+		}
+
+		return new OAuth2ClientAuthenticationToken(registeredClient);
+	}
+
+	private static boolean clientSecretAuthenticationAllowed(RegisteredClient registeredClient,
+			ClientAuthenticationMethod clientAuthenticationMethod) {
+		Set<ClientAuthenticationMethod> clientAuthenticationMethods = registeredClient.getClientAuthenticationMethods();
+		if (clientAuthenticationMethod != null) {
+			return (ClientAuthenticationMethod.BASIC.equals(clientAuthenticationMethod) ||
+					ClientAuthenticationMethod.POST.equals(clientAuthenticationMethod)) &&
+					clientAuthenticationMethods.contains(clientAuthenticationMethod);
+		}
+		return clientAuthenticationMethods.contains(ClientAuthenticationMethod.BASIC) ||
+				clientAuthenticationMethods.contains(ClientAuthenticationMethod.POST);
+	}
+
+	private OAuth2ClientAuthenticationToken authenticateClientCertificate(
+			OAuth2ClientAuthenticationToken clientAuthentication) {
+		if (!(clientAuthentication.getCredentials() instanceof X509Certificate)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		X509Certificate clientCertificate = (X509Certificate) clientAuthentication.getCredentials();
+		try {
+			clientCertificate.checkValidity();
+		} catch (CertificateException ex) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT), ex);
+		}
+
+		String x509CertificateThumbprint = X509CertificateThumbprints.sha256(clientCertificate);
+		Object clientId = clientAuthentication.getPrincipal();
+		RegisteredClient registeredClient = clientId != null ?
+				this.registeredClientRepository.findByClientId(clientId.toString()) :
+				this.registeredClientRepository.findByX509CertificateThumbprint(x509CertificateThumbprint);
+		if (registeredClient == null ||
+				!registeredClient.getClientAuthenticationMethods().contains(TLS_CLIENT_AUTH) ||
+				!registeredClient.getX509CertificateThumbprints().contains(x509CertificateThumbprint)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		return new OAuth2ClientAuthenticationToken(registeredClient, x509CertificateThumbprint);
+	}
+
+	private RegisteredClient authenticateClientAssertion(OAuth2ClientAuthenticationToken clientAuthentication) {
+		SignedJWT clientAssertion;
+		JWTClaimsSet claims;
+		try {
+			clientAssertion = SignedJWT.parse((String) clientAuthentication.getCredentials());
+			claims = clientAssertion.getJWTClaimsSet();
+		} catch (ParseException ex) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT), ex);
+		}
+
+		// The issuer and subject of the client assertion are the client identifier
+		String clientId = claims.getIssuer();
+		Object requestedClientId = clientAuthentication.getPrincipal();
+		if (clientId == null || !clientId.equals(claims.getSubject()) ||
+				(requestedClientId != null && !clientId.equals(requestedClientId))) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		RegisteredClient registeredClient = this.registeredClientRepository.findByClientId(clientId);
+		if (registeredClient == null || registeredClient.getJwkSetUrl() == null ||
+				!registeredClient.getClientAuthenticationMethods().contains(PRIVATE_KEY_JWT)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		if (!verifySignature(clientAssertion, registeredClient.getJwkSetUrl())) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+
+		Instant now = Instant.now();
+		Date expiresAt = claims.getExpirationTime();
+		Date notBefore = claims.getNotBeforeTime();
+		if (expiresAt == null || now.minus(this.clockSkew).isAfter(expiresAt.toInstant()) ||
+				(notBefore != null && now.plus(this.clockSkew).isBefore(notBefore.toInstant()))) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		if (!isLifetimeAllowed(now, claims.getIssueTime(), expiresAt)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		if (claims.getAudience() == null || Collections.disjoint(claims.getAudience(), this.clientAssertionAudiences)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		if (claims.getJWTID() == null ||
+				!this.jtiReplayCache.consume(clientId, claims.getJWTID(), expiresAt.toInstant().plus(this.clockSkew))) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		return registeredClient;
+	}
+
+	private boolean isLifetimeAllowed(Instant now, Date issuedAt, Date expiresAt) {
+		Instant latestExpiresAt = now.plus(this.maximumClientAssertionLifetime).plus(this.clockSkew);
+		if (expiresAt.toInstant().isAfter(latestExpiresAt)) {
+			return false;
+		}
+		return issuedAt == null ||
+				!expiresAt.toInstant().isAfter(issuedAt.toInstant().plus(this.maximumClientAssertionLifetime));
+	}
+
+	private boolean verifySignature(SignedJWT clientAssertion, String jwkSetUrl) {
+		JWSHeader header = clientAssertion.getHeader();
+		if (!JWSAlgorithm.Family.RSA.contains(header.getAlgorithm()) &&
+				!JWSAlgorithm.Family.EC.contains(header.getAlgorithm())) {
+			return false;
+		}
+		JWKSelector jwkSelector = new JWKSelector(JWKMatcher.forJWSHeader(header));
+		try {
+			List<JWK> jwks = jwkSelector.select(this.clientJwkSetCache.get(jwkSetUrl));
+			if (jwks.isEmpty()) {
+				// The client may have rotated its keys since the JWK Set was cached
+				jwks = jwkSelector.select(this.clientJwkSetCache.refresh(jwkSetUrl));
+			}
+			for (JWK jwk : jwks) {
+				for (Key key : KeyConverter.toJavaKeys(Collections.singletonList(jwk))) {
+					if (key instanceof PublicKey) {
+						JWSVerifier verifier = JWS_VERIFIER_FACTORY.createJWSVerifier(header, key);
+						if (clientAssertion.verify(verifier)) {
+							return true;
+						}
+					}
+				}
+			}
+		} catch (IllegalStateException | JOSEException ex) {
+			return false;
+		}
+		return false;
 	}
 
 	@Override
 	public boolean supports(Class<?> authentication) {
 		return OAuth2ClientAuthenticationToken.class.isAssignableFrom(authentication);
 	}
+
+	/**
+	 * Sets the {@link PasswordEncoder} used for verifying the client secret
+	 * against the stored (encoded) client secret. The default is the {@code DelegatingPasswordEncoder}
+	 * created by {@link PasswordEncoderFactories#createDelegatingPasswordEncoder()}, so the stored client secret
+	 * is expected to be prefixed with the identifier of its encoding, such as {@code {bcrypt}} or {@code {noop}}.
+	 *
+	 * @param passwordEncoder the {@link PasswordEncoder}
+	 */
+	public void setPasswordEncoder(PasswordEncoder passwordEncoder) {
+		Assert.notNull(passwordEncoder, "passwordEncoder cannot be null");
+		this.passwordEncoder = passwordEncoder;
+	}
+
+	/**
+	 * Sets the {@link VerifiedClientSecretCache} used for caching successful client secret verifications.
+	 *
+	 * @param verifiedClientSecretCache the {@link VerifiedClientSecretCache}
+	 */
+	public void setVerifiedClientSecretCache(VerifiedClientSecretCache verifiedClientSecretCache) {
+		Assert.notNull(verifiedClientSecretCache, "verifiedClientSecretCache cannot be null");
+		this.verifiedClientSecretCache = verifiedClientSecretCache;
+	}
+
+	/**
+	 * Sets the {@link ClientJwkSetCache} used for retrieving the clients' JWK Set(s).
+	 *
+	 * @param clientJwkSetCache the {@link ClientJwkSetCache}
+	 */
+	public void setClientJwkSetCache(ClientJwkSetCache clientJwkSetCache) {
+		Assert.notNull(clientJwkSetCache, "clientJwkSetCache cannot be null");
+		this.clientJwkSetCache = clientJwkSetCache;
+	}
+
+	/**
+	 * Sets the {@link JtiReplayCache} used for detecting replayed client assertions.
+	 *
+	 * @param jtiReplayCache the {@link JtiReplayCache}
+	 */
+	public void setJtiReplayCache(JtiReplayCache jtiReplayCache) {
+		Assert.notNull(jtiReplayCache, "jtiReplayCache cannot be null");
+		this.jtiReplayCache = jtiReplayCache;
+	}
+
+	/**
+	 * Sets the audience(s) a client assertion must be intended for, typically the issuer identifier
+	 * and the {@code URL} of the token endpoint. Client assertions are denied until set.
+	 *
+	 * @param clientAssertionAudiences the audience(s) a client assertion must be intended for
+	 */
+	public void setClientAssertionAudiences(Collection<String> clientAssertionAudiences) {
+		Assert.notEmpty(clientAssertionAudiences, "clientAssertionAudiences cannot be empty");
+		this.clientAssertionAudiences = Collections.unmodifiableSet(new LinkedHashSet<>(clientAssertionAudiences));
+	}
+
+	/**
+	 * Sets the maximum clock skew tolerated when validating the expiry of a client assertion.
+	 * The default is 60 seconds.
+	 *
+	 * @param clockSkew the maximum clock skew
+	 */
+	public void setClockSkew(Duration clockSkew) {
+		Assert.notNull(clockSkew, "clockSkew cannot be null");
+		Assert.isTrue(!clockSkew.isNegative(), "clockSkew cannot be negative");
+		this.clockSkew = clockSkew;
+	}
+
+	/**
+	 * Sets the maximum lifetime of a client assertion, from its issue time ({@code iat}), or else from now,
+	 * to its expiry ({@code exp}). The default is 5 minutes.
+	 *
+	 * @param maximumClientAssertionLifetime the maximum lifetime of a client assertion
+	 */
+	public void setMaximumClientAssertionLifetime(Duration maximumClientAssertionLifetime) {
+		Assert.notNull(maximumClientAssertionLifetime, "maximumClientAssertionLifetime cannot be null");
+		Assert.isTrue(!maximumClientAssertionLifetime.isNegative() && !maximumClientAssertionLifetime.isZero(),
+				"maximumClientAssertionLifetime must be positive");
+		this.maximumClientAssertionLifetime = maximumClientAssertionLifetime;
+	}
 }
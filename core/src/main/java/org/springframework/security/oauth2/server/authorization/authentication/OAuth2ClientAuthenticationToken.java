@@ -15,8 +15,10 @@
  */
 package org.springframework.security.oauth2.server.authorization.authentication;
 
+import org.springframework.lang.Nullable;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 
 import java.util.Collections;
@@ -27,28 +29,87 @@ import java.util.Collections;
 public class OAuth2ClientAuthenticationToken extends AbstractAuthenticationToken {
 	private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
 	private String clientId;
-	private String clientSecret;
+	private Object credentials;
+	private ClientAuthenticationMethod clientAuthenticationMethod;
 	private RegisteredClient registeredClient;
+	private String x509CertificateThumbprint;
 
 	public OAuth2ClientAuthenticationToken(String clientId, String clientSecret) {
+		this(clientId, clientSecret, null);
+	}
+
+	/**
+	 * Constructs an {@code OAuth2ClientAuthenticationToken} using the provided parameters.
+	 *
+	 * @param clientId the client identifier, may be {@code null} if conveyed by the credentials
+	 * @param credentials the client secret, client assertion or client {@code X509Certificate}
+	 * @param clientAuthenticationMethod the authentication method used by the client
+	 */
+	public OAuth2ClientAuthenticationToken(@Nullable String clientId, Object credentials,
+			@Nullable ClientAuthenticationMethod clientAuthenticationMethod) {
 		super(Collections.emptyList());
 		this.clientId = clientId;
-		this.clientSecret = clientSecret;
+		this.credentials = credentials;
+		this.clientAuthenticationMethod = clientAuthenticationMethod;
 	}
 
 	public OAuth2ClientAuthenticationToken(RegisteredClient registeredClient) {
+		this(registeredClient, null);
+	}
+
+	/**
+	 * Constructs an authenticated {@code OAuth2ClientAuthenticationToken} using the provided parameters.
+	 *
+	 * @param registeredClient the authenticated {@link RegisteredClient}
+	 * @param x509CertificateThumbprint the SHA-256 thumbprint of the {@code X.509} certificate
+	 * the client authenticated with, or {@code null}
+	 */
+	public OAuth2ClientAuthenticationToken(RegisteredClient registeredClient, @Nullable String x509CertificateThumbprint) {
 		super(Collections.emptyList());
 		this.registeredClient = registeredClient;
+		this.x509CertificateThumbprint = x509CertificateThumbprint;
 		setAuthenticated(true);
 	}
 
 	@Override
 	public Object getCredentials() {
-		return null;
+		return this.credentials;
 	}
 
 	@Override
 	public Object getPrincipal() {
-		return null;
+		return this.registeredClient != null ?
+				this.registeredClient.getClientId() :
+				this.clientId;
+	}
+
+	/**
+	 * Returns the {@link ClientAuthenticationMethod authentication method} used by the client,
+	 * or {@code null} if not known.
+	 *
+	 * @return the {@link ClientAuthenticationMethod}
+	 */
+	public @Nullable ClientAuthenticationMethod getClientAuthenticationMethod() {
+		return this.clientAuthenticationMethod;
+	}
+
+	/**
+	 * Returns the {@link RegisteredClient registered client}, or {@code null} if not yet authenticated.
+	 *
+	 * @return the {@link RegisteredClient}
+	 */
+	public @Nullable RegisteredClient getRegisteredClient() {
+		return this.registeredClient;
+	}
+
+	/**
+	 * Returns the SHA-256 thumbprint (base64url-encoded) of the {@code X.509} certificate
+	 * the client authenticated with, to which the issued access tokens are bound,
+	 * or {@code null} if the client did not authenticate with a certificate.
+	 *
+	 * @return the {@code X.509} certificate SHA-256 thumbprint, or {@code null}
+	 */
+	public @Nullable String getX509CertificateThumbprint() {
+		return this.x509CertificateThumbprint;
 	}
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.ExpiringCache;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.token.JwtAccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.OpaqueAccessTokenGenerator;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An {@link AuthenticationProvider} implementation for the OAuth 2.0 Client Credentials Grant.
+ *
+ * <p>
+ * When the {@link OAuth2AccessTokenGenerator#isSelfContained() access tokens are self-contained},
+ * such as with {@link JwtAccessTokenGenerator}, they are issued without being stored in the
+ * {@link OAuth2AuthorizationService}. Otherwise, an {@link OAuth2Authorization} holding the access token
+ * is saved for each access token issued.
+ *
+ * <p>
+ * Optionally, an access token may be {@link #setReuseAccessTokens(boolean) reused} for the same client
+ * and scope(s) while it has at least half of its lifetime remaining, which avoids issuing (and signing)
+ * a new access token for every request. At most 10000 access tokens are held for reuse, and an access token
+ * that is not self-contained is only reused while its {@link OAuth2Authorization} has not been removed,
+ * so that a revoked access token is never issued again. The {@code expires_in} of the response returning a reused
+ * access token is its remaining lifetime.
+ *
+ * @since 0.0.1
+ * @see OAuth2ClientCredentialsAuthenticationToken
+ * @see OAuth2AccessTokenAuthenticationToken
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.4">Section 4.4 Client Credentials Grant</a>
+ */
+public class OAuth2ClientCredentialsAuthenticationProvider implements AuthenticationProvider {
+	private final OAuth2AuthorizationService authorizationService;
+	private final ExpiringCache<String, OAuth2AccessToken> reusableAccessTokens = new ExpiringCache<>(10000);
+	private OAuth2AccessTokenGenerator accessTokenGenerator = new OpaqueAccessTokenGenerator();
+	private Duration accessTokenTimeToLive = Duration.ofMinutes(5);
+	private boolean reuseAccessTokens;
+
+	/**
+	 * Constructs an {@code OAuth2ClientCredentialsAuthenticationProvider} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 */
+	public OAuth2ClientCredentialsAuthenticationProvider(OAuth2AuthorizationService authorizationService) {
+		Assert.notNull(authorizationService, "authorizationService cannot be null");
+		this.authorizationService = authorizationService;
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		OAuth2ClientCredentialsAuthenticationToken clientCredentialsAuthentication =
+				(OAuth2ClientCredentialsAuthenticationToken) authentication;
+
+		OAuth2ClientAuthenticationToken clientPrincipal = null;
+		if (clientCredentialsAuthentication.getPrincipal() instanceof OAuth2ClientAuthenticationToken) {
+			clientPrincipal = (OAuth2ClientAuthenticationToken) clientCredentialsAuthentication.getPrincipal();
+		}
+		if (clientPrincipal == null || !clientPrincipal.isAuthenticated()) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
+		if (!registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.CLIENT_CREDENTIALS)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.UNAUTHORIZED_CLIENT));
+		}
+
+		Set<String> scopes = clientCredentialsAuthentication.getScopes();
+		if (!registeredClient.getScopes().containsAll(scopes)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_SCOPE));
+		}
+		if (scopes.isEmpty()) {
+			scopes = registeredClient.getScopes();
+		}
+
+		Instant issuedAt = Instant.now();
+		String x509CertificateThumbprint = clientPrincipal.getX509CertificateThumbprint();
+		String reuseKey = null;
+		if (this.reuseAccessTokens) {
+			reuseKey = registeredClient.getId() + ' ' + String.join(" ", new TreeSet<>(scopes));
+			if (x509CertificateThumbprint != null) {
+				// A certificate-bound access token is only reused with the same certificate
+				reuseKey += ' ' + x509CertificateThumbprint;
+			}
+			OAuth2AccessToken accessToken = this.reusableAccessTokens.get(reuseKey, issuedAt);
+			if (accessToken != null) {
+				if (this.accessTokenGenerator.isSelfContained() || this.authorizationService.findByTokenAndTokenType(
+						accessToken.getTokenValue(), TokenType.ACCESS_TOKEN) != null) {
+					return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
+				}
+				// The access token has been revoked
+				this.reusableAccessTokens.remove(reuseKey);
+			}
+		}
+
+		Set<String> requestedScopes = scopes;
+		OAuth2TokenContext tokenContext = OAuth2TokenContext.withRegisteredClient(registeredClient)
+				.principalName(registeredClient.getClientId())
+				.scopes(tokenScopes -> tokenScopes.addAll(requestedScopes))
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plus(this.accessTokenTimeToLive))
+				.x509CertificateThumbprint(x509CertificateThumbprint)
+				.build();
+		OAuth2AccessToken accessToken = this.accessTokenGenerator.generate(tokenContext);
+
+		if (!this.accessTokenGenerator.isSelfContained()) {
+			OAuth2Authorization.Builder authorizationBuilder = OAuth2Authorization.withRegisteredClient(registeredClient)
+					.principalName(registeredClient.getClientId())
+					.accessToken(accessToken);
+			if (x509CertificateThumbprint != null) {
+				authorizationBuilder.attribute(
+						OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT, x509CertificateThumbprint);
+			}
+			OAuth2Authorization authorization = authorizationBuilder.build();
+			this.authorizationService.save(authorization);
+		}
+		Instant reusableUntil = reusableUntil(accessToken);
+		if (reuseKey != null && reusableUntil != null) {
+			this.reusableAccessTokens.put(reuseKey, accessToken, reusableUntil);
+		}
+
+		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
+	}
+
+	@Override
+	public boolean supports(Class<?> authentication) {
+		return OAuth2ClientCredentialsAuthenticationToken.class.isAssignableFrom(authentication);
+	}
+
+	/**
+	 * Sets the {@link OAuth2AccessTokenGenerator} used for generating the access token.
+	 * The default is {@link OpaqueAccessTokenGenerator}.
+	 *
+	 * @param accessTokenGenerator the {@link OAuth2AccessTokenGenerator}
+	 */
+	public void setAccessTokenGenerator(OAuth2AccessTokenGenerator accessTokenGenerator) {
+		Assert.notNull(accessTokenGenerator, "accessTokenGenerator cannot be null");
+		this.accessTokenGenerator = accessTokenGenerator;
+	}
+
+	/**
+	 * Sets the lifetime of an issued access token. The default is 5 minutes.
+	 *
+	 * @param accessTokenTimeToLive the lifetime of an access token
+	 */
+	public void setAccessTokenTimeToLive(Duration accessTokenTimeToLive) {
+		Assert.notNull(accessTokenTimeToLive, "accessTokenTimeToLive cannot be null");
+		this.accessTokenTimeToLive = accessTokenTimeToLive;
+	}
+
+	/**
+	 * Sets whether an access token is reused for the same client and scope(s)
+	 * while it has at least half of its lifetime remaining. The default is {@code false}.
+	 *
+	 * @param reuseAccessTokens {@code true} to reuse access tokens, {@code false} otherwise
+	 */
+	public void setReuseAccessTokens(boolean reuseAccessTokens) {
+		this.reuseAccessTokens = reuseAccessTokens;
+		if (!reuseAccessTokens) {
+			this.reusableAccessTokens.clear();
+		}
+	}
+
+	private static Instant reusableUntil(OAuth2AccessToken accessToken) {
+		if (accessToken.getIssuedAt() == null || accessToken.getExpiresAt() == null) {
+			return null;
+		}
+		Duration lifetime = Duration.between(accessToken.getIssuedAt(), accessToken.getExpiresAt());
+		return accessToken.getIssuedAt().plus(lifetime.dividedBy(2));
+	}
+}
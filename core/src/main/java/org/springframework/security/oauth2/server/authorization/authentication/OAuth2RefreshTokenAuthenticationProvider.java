@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.keygen.Base64StringKeyGenerator;
+import org.springframework.security.crypto.keygen.StringKeyGenerator;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.OpaqueAccessTokenGenerator;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * An {@link AuthenticationProvider} implementation for the OAuth 2.0 Refresh Token Grant.
+ *
+ * <p>
+ * Refresh tokens are rotated: every refresh issues a new refresh token along with the access token,
+ * and the refresh token presented can no longer be used once the {@link OAuth2Authorization} is saved.
+ * The authorization is {@link OAuth2AuthorizationService#replace(String, OAuth2Authorization) replaced}
+ * only if the refresh token presented is still the current one, so that of concurrent requests
+ * presenting the same refresh token, only one obtains new tokens.
+ * The lifetime of a refresh token starts when it is issued.
+ *
+ * @since 0.0.1
+ * @see OAuth2RefreshTokenAuthenticationToken
+ * @see OAuth2AccessTokenAuthenticationToken
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-6">Section 6 Refreshing an Access Token</a>
+ */
+public class OAuth2RefreshTokenAuthenticationProvider implements AuthenticationProvider {
+	private static final StringKeyGenerator REFRESH_TOKEN_VALUE_GENERATOR =
+			new Base64StringKeyGenerator(Base64.getUrlEncoder().withoutPadding(), 32);
+	private final OAuth2AuthorizationService authorizationService;
+	private OAuth2AccessTokenGenerator accessTokenGenerator = new OpaqueAccessTokenGenerator();
+	private Duration accessTokenTimeToLive = Duration.ofMinutes(5);
+	private Duration refreshTokenTimeToLive = Duration.ofMinutes(60);
+
+	/**
+	 * Constructs an {@code OAuth2RefreshTokenAuthenticationProvider} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 */
+	public OAuth2RefreshTokenAuthenticationProvider(OAuth2AuthorizationService authorizationService) {
+		Assert.notNull(authorizationService, "authorizationService cannot be null");
+		this.authorizationService = authorizationService;
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		OAuth2RefreshTokenAuthenticationToken refreshTokenAuthentication =
+				(OAuth2RefreshTokenAuthenticationToken) authentication;
+
+		OAuth2ClientAuthenticationToken clientPrincipal = null;
+		if (refreshTokenAuthentication.getPrincipal() instanceof OAuth2ClientAuthenticationToken) {
+			clientPrincipal = (OAuth2ClientAuthenticationToken) refreshTokenAuthentication.getPrincipal();
+		}
+		if (clientPrincipal == null || !clientPrincipal.isAuthenticated()) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
+		if (!registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.UNAUTHORIZED_CLIENT));
+		}
+
+		OAuth2Authorization authorization = this.authorizationService.findByTokenAndTokenType(
+				refreshTokenAuthentication.getRefreshToken(), TokenType.REFRESH_TOKEN);
+		if (authorization == null || !registeredClient.getId().equals(authorization.getRegisteredClientId())) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		Instant issuedAt = Instant.now();
+		OAuth2RefreshToken refreshToken = authorization.getRefreshToken();
+		if (refreshToken.getIssuedAt() != null &&
+				!issuedAt.isBefore(refreshToken.getIssuedAt().plus(this.refreshTokenTimeToLive))) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		OAuth2AuthorizationRequest authorizationRequest = authorization.getAttribute(
+				OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		Set<String> authorizedScopes = authorizationRequest != null ?
+				authorizationRequest.getScopes() : Collections.emptySet();
+		Set<String> scopes = refreshTokenAuthentication.getScopes();
+		if (!authorizedScopes.containsAll(scopes)) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_SCOPE));
+		}
+		if (scopes.isEmpty()) {
+			scopes = authorizedScopes;
+		}
+
+		Set<String> requestedScopes = scopes;
+		String x509CertificateThumbprint = clientPrincipal.getX509CertificateThumbprint();
+		OAuth2TokenContext tokenContext = OAuth2TokenContext.withRegisteredClient(registeredClient)
+				.principalName(authorization.getPrincipalName())
+				.scopes(tokenScopes -> tokenScopes.addAll(requestedScopes))
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plus(this.accessTokenTimeToLive))
+				.x509CertificateThumbprint(x509CertificateThumbprint)
+				.build();
+		OAuth2AccessToken accessToken = this.accessTokenGenerator.generate(tokenContext);
+		OAuth2RefreshToken rotatedRefreshToken = new OAuth2RefreshToken(
+				REFRESH_TOKEN_VALUE_GENERATOR.generateKey(), issuedAt);
+
+		authorization = OAuth2Authorization.from(authorization)
+				.accessToken(accessToken)
+				.refreshToken(rotatedRefreshToken)
+				.attributes(attributes -> {
+					// The access token is bound to the certificate the client authenticated with, if any
+					if (x509CertificateThumbprint != null) {
+						attributes.put(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT, x509CertificateThumbprint);
+					} else {
+						attributes.remove(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT);
+					}
+				})
+				.build();
+		if (!this.authorizationService.replace(refreshTokenAuthentication.getRefreshToken(), authorization)) {
+			// The refresh token has been rotated by a concurrent request in the meantime
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+		}
+
+		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken, rotatedRefreshToken);
+	}
+
+	@Override
+	public boolean supports(Class<?> authentication) {
+		return OAuth2RefreshTokenAuthenticationToken.class.isAssignableFrom(authentication);
+	}
+
+	/**
+	 * Sets the {@link OAuth2AccessTokenGenerator} used for generating the access token.
+	 * The default is {@link OpaqueAccessTokenGenerator}.
+	 *
+	 * @param accessTokenGenerator the {@link OAuth2AccessTokenGenerator}
+	 */
+	public void setAccessTokenGenerator(OAuth2AccessTokenGenerator accessTokenGenerator) {
+		Assert.notNull(accessTokenGenerator, "accessTokenGenerator cannot be null");
+		this.accessTokenGenerator = accessTokenGenerator;
+	}
+
+	/**
+	 * Sets the lifetime of an issued access token. The default is 5 minutes.
+	 *
+	 * @param accessTokenTimeToLive the lifetime of an access token
+	 */
+	public void setAccessTokenTimeToLive(Duration accessTokenTimeToLive) {
+		Assert.notNull(accessTokenTimeToLive, "accessTokenTimeToLive cannot be null");
+		this.accessTokenTimeToLive = accessTokenTimeToLive;
+	}
+
+	/**
+	 * Sets the lifetime of a refresh token, from the time it is issued. The default is 60 minutes.
+	 *
+	 * @param refreshTokenTimeToLive the lifetime of a refresh token
+	 */
+	public void setRefreshTokenTimeToLive(Duration refreshTokenTimeToLive) {
+		Assert.notNull(refreshTokenTimeToLive, "refreshTokenTimeToLive cannot be null");
+		this.refreshTokenTimeToLive = refreshTokenTimeToLive;
+	}
+}
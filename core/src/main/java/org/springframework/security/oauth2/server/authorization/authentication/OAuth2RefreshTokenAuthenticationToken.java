@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An {@link Authentication} implementation used for the OAuth 2.0 Refresh Token Grant.
+ *
+ * @since 0.0.1
+ * @see OAuth2RefreshTokenAuthenticationProvider
+ */
+public class OAuth2RefreshTokenAuthenticationToken extends AbstractAuthenticationToken {
+	private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+	private String refreshToken;
+	private Authentication clientPrincipal;
+	private Set<String> scopes;
+
+	public OAuth2RefreshTokenAuthenticationToken(String refreshToken,
+			Authentication clientPrincipal, Set<String> scopes) {
+		super(Collections.emptyList());
+		this.refreshToken = refreshToken;
+		this.clientPrincipal = clientPrincipal;
+		this.scopes = Collections.unmodifiableSet(
+				scopes != null ? new LinkedHashSet<>(scopes) : Collections.emptySet());
+	}
+
+	@Override
+	public Object getCredentials() {
+		return "";
+	}
+
+	@Override
+	public Object getPrincipal() {
+		return this.clientPrincipal;
+	}
+
+	/**
+	 * Returns the refresh token.
+	 *
+	 * @return the refresh token
+	 */
+	public String getRefreshToken() {
+		return this.refreshToken;
+	}
+
+	/**
+	 * Returns the requested scope(s), or an empty {@code Set} to request the scope(s) originally granted.
+	 *
+	 * @return the requested scope(s)
+	 */
+	public Set<String> getScopes() {
+		return this.scopes;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.springframework.security.oauth2.server.authorization.ExpiringCache;
+import org.springframework.util.Assert;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A short-lived, bounded cache of successful client secret verifications,
+ * allowing a confidential client authenticating repeatedly to skip the (deliberately slow) password hash.
+ *
+ * <p>
+ * A verification is recorded as a keyed hash (HMAC-SHA256) of the client identifier,
+ * the presented client secret and the stored (encoded) client secret.
+ * The presented client secret itself is never retained, and the key is generated per instance,
+ * so the cached hashes are of no use outside of this process.
+ * Since the stored client secret is part of the hash, a rotated client secret invalidates
+ * the cached verification, and a client secret may also be explicitly {@link #invalidate(String) invalidated}.
+ *
+ * @since 0.0.1
+ * @see OAuth2ClientAuthenticationProvider
+ */
+public final class VerifiedClientSecretCache {
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private final SecretKeySpec key;
+	private final ThreadLocal<Mac> mac;
+	private ExpiringCache<String, byte[]> verifications = new ExpiringCache<>(10000);
+	private Duration timeToLive = Duration.ofMinutes(5);
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs a {@code VerifiedClientSecretCache}.
+	 */
+	public VerifiedClientSecretCache() {
+		byte[] keyBytes = new byte[32];
+		new SecureRandom().nextBytes(keyBytes);
+		this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+		this.mac = ThreadLocal.withInitial(this::createMac);
+	}
+
+	/**
+	 * Sets the maximum duration a verification is cached for. The default is 5 minutes.
+	 *
+	 * @param timeToLive the maximum duration a verification is cached for
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative(), "timeToLive cannot be negative");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the maximum number of cached verifications, beyond which the least recently used verification is evicted.
+	 * The default is 10000. Setting the maximum size discards the cached verifications.
+	 *
+	 * @param maximumSize the maximum number of cached verifications
+	 */
+	public void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize >= 0, "maximumSize cannot be negative");
+		this.verifications = new ExpiringCache<>(maximumSize);
+	}
+
+	/**
+	 * Sets the {@link Clock} used for expiring cached verifications.
+	 *
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns {@code true} if the presented client secret has previously been verified
+	 * against the stored client secret, and the verification has not expired.
+	 *
+	 * @param clientId the client identifier
+	 * @param clientSecret the presented client secret
+	 * @param storedClientSecret the stored (encoded) client secret
+	 * @return {@code true} if the verification is cached, {@code false} otherwise
+	 */
+	public boolean isVerified(String clientId, String clientSecret, String storedClientSecret) {
+		byte[] verification = this.verifications.get(clientId, this.clock.instant());
+		return verification != null &&
+				MessageDigest.isEqual(verification, hash(clientId, clientSecret, storedClientSecret));
+	}
+
+	/**
+	 * Records a successful verification of the presented client secret against the stored client secret.
+	 *
+	 * @param clientId the client identifier
+	 * @param clientSecret the presented client secret
+	 * @param storedClientSecret the stored (encoded) client secret
+	 */
+	public void put(String clientId, String clientSecret, String storedClientSecret) {
+		Assert.hasText(clientId, "clientId cannot be empty");
+		Assert.notNull(clientSecret, "clientSecret cannot be null");
+		if (this.timeToLive.isZero()) {
+			return;
+		}
+		Instant expiresAt = this.clock.instant().plus(this.timeToLive);
+		this.verifications.put(clientId, hash(clientId, clientSecret, storedClientSecret), expiresAt);
+	}
+
+	/**
+	 * Invalidates the cached verification for the client, for example, when its client secret is revoked.
+	 *
+	 * @param clientId the client identifier
+	 */
+	public void invalidate(String clientId) {
+		Assert.hasText(clientId, "clientId cannot be empty");
+		this.verifications.remove(clientId);
+	}
+
+	/**
+	 * Invalidates all cached verifications.
+	 */
+	public void invalidateAll() {
+		this.verifications.clear();
+	}
+
+	private byte[] hash(String clientId, String clientSecret, String storedClientSecret) {
+		Mac mac = this.mac.get();
+		update(mac, clientId);
+		update(mac, clientSecret);
+		update(mac, storedClientSecret != null ? storedClientSecret : "");
+		return mac.doFinal();
+	}
+
+	private static void update(Mac mac, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		mac.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+		mac.update(bytes);
+	}
+
+	private Mac createMac() {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(this.key);
+			return mac;
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -15,6 +15,8 @@
  */
 package org.springframework.security.oauth2.server.authorization.client;
 
+import org.springframework.security.oauth2.server.authorization.jfr.ClientLookupEvent;
+import org.springframework.security.oauth2.server.authorization.jfr.FlightRecorderEvents;
 import org.springframework.util.Assert;
 
 import java.util.Arrays;
@@ -33,6 +35,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public final class InMemoryRegisteredClientRepository implements RegisteredClientRepository {
 	private final Map<String, RegisteredClient> idRegistrationMap;
 	private final Map<String, RegisteredClient> clientIdRegistrationMap;
+	private final Map<String, RegisteredClient> x509CertificateThumbprintRegistrationMap;
 
 	/**
 	 * Constructs an {@code InMemoryRegisteredClientRepository} using the provided parameters.
@@ -52,6 +55,7 @@ public final class InMemoryRegisteredClientRepository implements RegisteredClien
 		Assert.notEmpty(registrations, "registrations cannot be empty");
 		ConcurrentHashMap<String, RegisteredClient> idRegistrationMapResult = new ConcurrentHashMap<>();
 		ConcurrentHashMap<String, RegisteredClient> clientIdRegistrationMapResult = new ConcurrentHashMap<>();
+		ConcurrentHashMap<String, RegisteredClient> x509CertificateThumbprintRegistrationMapResult = new ConcurrentHashMap<>();
 		for (RegisteredClient registration : registrations) {
 			Assert.notNull(registration, "registration cannot be null");
 			String id = registration.getId();
@@ -64,22 +68,60 @@ public final class InMemoryRegisteredClientRepository implements RegisteredClien
 				throw new IllegalArgumentException("Registered client must be unique. " +
 						"Found duplicate client identifier: " + clientId);
 			}
+			for (String x509CertificateThumbprint : registration.getX509CertificateThumbprints()) {
+				if (x509CertificateThumbprintRegistrationMapResult.containsKey(x509CertificateThumbprint)) {
+					throw new IllegalArgumentException("Registered client must be unique. " +
+							"Found duplicate X.509 certificate thumbprint: " + x509CertificateThumbprint);
+				}
+				x509CertificateThumbprintRegistrationMapResult.put(x509CertificateThumbprint, registration);
+			}
 			idRegistrationMapResult.put(id, registration);
 			clientIdRegistrationMapResult.put(clientId, registration);
 		}
 		this.idRegistrationMap = idRegistrationMapResult;
 		this.clientIdRegistrationMap = clientIdRegistrationMapResult;
+		this.x509CertificateThumbprintRegistrationMap = x509CertificateThumbprintRegistrationMapResult;
 	}
 
 	@Override
 	public RegisteredClient findById(String id) {
 		Assert.hasText(id, "id cannot be empty");
-		return this.idRegistrationMap.get(id);
+		ClientLookupEvent clientLookupEvent = FlightRecorderEvents.beginClientLookup();
+		RegisteredClient registeredClient = this.idRegistrationMap.get(id);
+		if (clientLookupEvent != null) {
+			clientLookupEvent.record("id", registeredClient);
+		}
+		return registeredClient;
 	}
 
 	@Override
 	public RegisteredClient findByClientId(String clientId) {
 		Assert.hasText(clientId, "clientId cannot be empty");
-		return this.clientIdRegistrationMap.get(clientId);
+		ClientLookupEvent clientLookupEvent = FlightRecorderEvents.beginClientLookup();
+		RegisteredClient registeredClient = this.clientIdRegistrationMap.get(clientId);
+		if (clientLookupEvent != null) {
+			clientLookupEvent.record("clientId", registeredClient);
+		}
+		return registeredClient;
+	}
+
+	@Override
+	public RegisteredClient findByX509CertificateThumbprint(String x509CertificateThumbprint) {
+		Assert.hasText(x509CertificateThumbprint, "x509CertificateThumbprint cannot be empty");
+		ClientLookupEvent clientLookupEvent = FlightRecorderEvents.beginClientLookup();
+		RegisteredClient registeredClient = this.x509CertificateThumbprintRegistrationMap.get(x509CertificateThumbprint);
+		if (clientLookupEvent != null) {
+			clientLookupEvent.record("x509CertificateThumbprint", registeredClient);
+		}
+		return registeredClient;
+	}
+
+	/**
+	 * Returns the number of registered clients.
+	 *
+	 * @return the number of registered clients
+	 */
+	public int size() {
+		return this.idRegistrationMap.size();
 	}
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.client;
+
+import org.springframework.security.oauth2.server.authorization.Version;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The maximum rate at which a {@link RegisteredClient} may send requests to the
+ * authorization and token endpoints, expressed as a token bucket: the bucket holds up to
+ * the burst capacity of permits, and is refilled with the number of permits every period.
+ *
+ * @since 0.0.1
+ * @see RegisteredClient#getRateLimit()
+ */
+public final class RateLimit implements Serializable {
+	private static final long serialVersionUID = Version.SERIAL_VERSION_UID;
+	private final long permits;
+	private final Duration period;
+	private final long burstCapacity;
+
+	private RateLimit(long permits, Duration period, long burstCapacity) {
+		this.permits = permits;
+		this.period = period;
+		this.burstCapacity = burstCapacity;
+	}
+
+	/**
+	 * Returns a new {@code RateLimit} of the number of permits every period,
+	 * with a burst capacity of the number of permits.
+	 *
+	 * @param permits the number of permits added every period
+	 * @param period the period
+	 * @return the {@link RateLimit}
+	 */
+	public static RateLimit of(long permits, Duration period) {
+		return of(permits, period, permits);
+	}
+
+	/**
+	 * Returns a new {@code RateLimit} of the number of permits every period,
+	 * with the provided burst capacity.
+	 *
+	 * @param permits the number of permits added every period
+	 * @param period the period
+	 * @param burstCapacity the maximum number of permits available at once
+	 * @return the {@link RateLimit}
+	 */
+	public static RateLimit of(long permits, Duration period, long burstCapacity) {
+		Assert.isTrue(permits > 0, "permits must be greater than 0");
+		Assert.notNull(period, "period cannot be null");
+		Assert.isTrue(!period.isNegative() && !period.isZero(), "period must be positive");
+		Assert.isTrue(burstCapacity > 0, "burstCapacity must be greater than 0");
+		Assert.isTrue(period.toNanos() / permits > 0, "permits cannot exceed 1 per nanosecond");
+		return new RateLimit(permits, period, burstCapacity);
+	}
+
+	/**
+	 * Returns the number of permits added every period.
+	 *
+	 * @return the number of permits added every period
+	 */
+	public long getPermits() {
+		return this.permits;
+	}
+
+	/**
+	 * Returns the period.
+	 *
+	 * @return the period
+	 */
+	public Duration getPeriod() {
+		return this.period;
+	}
+
+	/**
+	 * Returns the maximum number of permits available at once.
+	 *
+	 * @return the maximum number of permits available at once
+	 */
+	public long getBurstCapacity() {
+		return this.burstCapacity;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		RateLimit that = (RateLimit) obj;
+		return this.permits == that.permits &&
+				this.burstCapacity == that.burstCapacity &&
+				this.period.equals(that.period);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.permits, this.period, this.burstCapacity);
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimit{" +
+				"permits=" + this.permits +
+				", period=" + this.period +
+				", burstCapacity=" + this.burstCapacity +
+				'}';
+	}
+}
@@ -46,6 +46,9 @@ public class RegisteredClient implements Serializable {
 	private Set<AuthorizationGrantType> authorizationGrantTypes;
 	private Set<String> redirectUris;
 	private Set<String> scopes;
+	private String jwkSetUrl;
+	private Set<String> x509CertificateThumbprints;
+	private RateLimit rateLimit;
 
 	protected RegisteredClient() {
 	}
@@ -114,6 +117,36 @@ public class RegisteredClient implements Serializable {
 		return this.scopes;
 	}
 
+	/**
+	 * Returns the {@code URL} of the client's JSON Web Key (JWK) Set, holding the public key(s)
+	 * used for verifying the client's signed JWT assertions, or {@code null} if not registered.
+	 *
+	 * @return the {@code URL} of the client's JWK Set, or {@code null}
+	 */
+	public String getJwkSetUrl() {
+		return this.jwkSetUrl;
+	}
+
+	/**
+	 * Returns the {@code X.509} certificate SHA-256 thumbprint(s) (base64url-encoded) of the certificate(s)
+	 * the client may present when authenticating with {@code tls_client_auth}.
+	 *
+	 * @return the {@code Set} of {@code X.509} certificate SHA-256 thumbprint(s)
+	 */
+	public Set<String> getX509CertificateThumbprints() {
+		return this.x509CertificateThumbprints;
+	}
+
+	/**
+	 * Returns the {@link RateLimit} of the requests the client may send to the authorization and token endpoints,
+	 * or {@code null} if the default rate limit applies.
+	 *
+	 * @return the {@link RateLimit}, or {@code null}
+	 */
+	public RateLimit getRateLimit() {
+		return this.rateLimit;
+	}
+
 	@Override
 	public String toString() {
 		return "RegisteredClient{" +
@@ -123,6 +156,9 @@ public class RegisteredClient implements Serializable {
 				", authorizationGrantTypes=" + this.authorizationGrantTypes +
 				", redirectUris=" + this.redirectUris +
 				", scopes=" + this.scopes +
+				", jwkSetUrl='" + this.jwkSetUrl + '\'' +
+				", x509CertificateThumbprints=" + this.x509CertificateThumbprints +
+				", rateLimit=" + this.rateLimit +
 				'}';
 	}
 
@@ -160,6 +196,9 @@ public class RegisteredClient implements Serializable {
 		private Set<AuthorizationGrantType> authorizationGrantTypes = new LinkedHashSet<>();
 		private Set<String> redirectUris = new LinkedHashSet<>();
 		private Set<String> scopes = new LinkedHashSet<>();
+		private String jwkSetUrl;
+		private Set<String> x509CertificateThumbprints = new LinkedHashSet<>();
+		private RateLimit rateLimit;
 
 		protected Builder(String id) {
 			this.id = id;
@@ -181,6 +220,11 @@ public class RegisteredClient implements Serializable {
 			if (!CollectionUtils.isEmpty(registeredClient.scopes)) {
 				this.scopes.addAll(registeredClient.scopes);
 			}
+			this.jwkSetUrl = registeredClient.jwkSetUrl;
+			if (!CollectionUtils.isEmpty(registeredClient.x509CertificateThumbprints)) {
+				this.x509CertificateThumbprints.addAll(registeredClient.x509CertificateThumbprints);
+			}
+			this.rateLimit = registeredClient.rateLimit;
 		}
 
 		/**
@@ -310,6 +354,52 @@ public class RegisteredClient implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Sets the {@code URL} of the client's JSON Web Key (JWK) Set, used for {@code private_key_jwt} client authentication.
+		 *
+		 * @param jwkSetUrl the {@code URL} of the client's JWK Set
+		 * @return the {@link Builder}
+		 */
+		public Builder jwkSetUrl(String jwkSetUrl) {
+			this.jwkSetUrl = jwkSetUrl;
+			return this;
+		}
+
+		/**
+		 * Adds an {@code X.509} certificate SHA-256 thumbprint (base64url-encoded) of a certificate
+		 * the client may present when authenticating with {@code tls_client_auth}.
+		 *
+		 * @param x509CertificateThumbprint the {@code X.509} certificate SHA-256 thumbprint
+		 * @return the {@link Builder}
+		 */
+		public Builder x509CertificateThumbprint(String x509CertificateThumbprint) {
+			this.x509CertificateThumbprints.add(x509CertificateThumbprint);
+			return this;
+		}
+
+		/**
+		 * A {@code Consumer} of the {@code X.509} certificate SHA-256 thumbprint(s)
+		 * allowing the ability to add, replace, or remove.
+		 *
+		 * @param x509CertificateThumbprintsConsumer a {@link Consumer} of the {@code X.509} certificate SHA-256 thumbprint(s)
+		 * @return the {@link Builder}
+		 */
+		public Builder x509CertificateThumbprints(Consumer<Set<String>> x509CertificateThumbprintsConsumer) {
+			x509CertificateThumbprintsConsumer.accept(this.x509CertificateThumbprints);
+			return this;
+		}
+
+		/**
+		 * Sets the {@link RateLimit} of the requests the client may send to the authorization and token endpoints.
+		 *
+		 * @param rateLimit the {@link RateLimit}
+		 * @return the {@link Builder}
+		 */
+		public Builder rateLimit(RateLimit rateLimit) {
+			this.rateLimit = rateLimit;
+			return this;
+		}
+
 		/**
 		 * Builds a new {@link RegisteredClient}.
 		 *
@@ -319,7 +409,9 @@ public class RegisteredClient implements Serializable {
 			Assert.hasText(this.clientId, "clientId cannot be empty");
 			Assert.notEmpty(this.authorizationGrantTypes, "authorizationGrantTypes cannot be empty");
 			if (this.authorizationGrantTypes.contains(AuthorizationGrantType.AUTHORIZATION_CODE)) {
-				Assert.hasText(this.clientSecret, "clientSecret cannot be empty");
+				if (this.jwkSetUrl == null && this.x509CertificateThumbprints.isEmpty()) {
+					Assert.hasText(this.clientSecret, "clientSecret cannot be empty");
+				}
 				Assert.notEmpty(this.redirectUris, "redirectUris cannot be empty");
 			}
 			if (CollectionUtils.isEmpty(this.clientAuthenticationMethods)) {
@@ -341,6 +433,9 @@ public class RegisteredClient implements Serializable {
 			registeredClient.authorizationGrantTypes = Collections.unmodifiableSet(this.authorizationGrantTypes);
 			registeredClient.redirectUris = Collections.unmodifiableSet(this.redirectUris);
 			registeredClient.scopes = Collections.unmodifiableSet(this.scopes);
+			registeredClient.jwkSetUrl = this.jwkSetUrl;
+			registeredClient.x509CertificateThumbprints = Collections.unmodifiableSet(this.x509CertificateThumbprints);
+			registeredClient.rateLimit = this.rateLimit;
 
 			return registeredClient;
 		}
@@ -41,4 +41,16 @@ public interface RegisteredClientRepository {
 	 */
 	RegisteredClient findByClientId(String clientId);
 
+	/**
+	 * Returns the registered client that registered the provided {@code X.509} certificate SHA-256 thumbprint,
+	 * or {@code null} if not found. The default implementation returns {@code null}.
+	 *
+	 * @param x509CertificateThumbprint the {@code X.509} certificate SHA-256 thumbprint (base64url-encoded)
+	 * @return the {@link RegisteredClient} if found, otherwise {@code null}
+	 * @see RegisteredClient#getX509CertificateThumbprints()
+	 */
+	default RegisteredClient findByX509CertificateThumbprint(String x509CertificateThumbprint) {
+		return null;
+	}
+
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utility methods for the streaming serializers and deserializers of this package.
+ */
+final class JsonStreams {
+
+	private JsonStreams() {
+	}
+
+	static void writeStringArrayField(JsonGenerator generator, String fieldName, Collection<String> values)
+			throws IOException {
+		generator.writeArrayFieldStart(fieldName);
+		for (String value : values) {
+			generator.writeString(value);
+		}
+		generator.writeEndArray();
+	}
+
+	static void writeInstantField(JsonGenerator generator, String fieldName, Instant value) throws IOException {
+		if (value != null) {
+			generator.writeStringField(fieldName, value.toString());
+		}
+	}
+
+	static void writeStringField(JsonGenerator generator, String fieldName, String value) throws IOException {
+		if (value != null) {
+			generator.writeStringField(fieldName, value);
+		}
+	}
+
+	/**
+	 * Writes a {@code String}, {@code Boolean}, {@code Integer} or {@code Long} directly,
+	 * and any other value with the serializer configured for its type.
+	 */
+	static void writeValue(JsonGenerator generator, SerializerProvider provider, Object value) throws IOException {
+		if (value instanceof String) {
+			generator.writeString((String) value);
+		} else if (value instanceof Boolean) {
+			generator.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer) {
+			generator.writeNumber((Integer) value);
+		} else if (value instanceof Long) {
+			generator.writeNumber((Long) value);
+		} else {
+			provider.defaultSerializeValue(value, generator);
+		}
+	}
+
+	static void writeValuesField(JsonGenerator generator, SerializerProvider provider, String fieldName,
+			Map<String, Object> values) throws IOException {
+		generator.writeObjectFieldStart(fieldName);
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			generator.writeFieldName(value.getKey());
+			writeValue(generator, provider, value.getValue());
+		}
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Reads the value at the current token, a JSON string, boolean or integer is read as
+	 * a {@code String}, {@code Boolean}, {@code Integer} or {@code Long}.
+	 */
+	static Object readValue(JsonParser parser, DeserializationContext context) throws IOException {
+		switch (parser.currentToken()) {
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_NUMBER_INT:
+				return parser.getNumberType() == JsonParser.NumberType.INT ? parser.getIntValue() : parser.getNumberValue();
+			default:
+				return context.readValue(parser, Object.class);
+		}
+	}
+
+	static Map<String, Object> readValues(JsonParser parser, DeserializationContext context) throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		Map<String, Object> values = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			values.put(name, readValue(parser, context));
+		}
+		return values;
+	}
+
+	static Set<String> readStringSet(JsonParser parser, DeserializationContext context) throws IOException {
+		expect(parser, JsonToken.START_ARRAY, context);
+		Set<String> values = new LinkedHashSet<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			values.add(readString(parser, context));
+		}
+		return values;
+	}
+
+	static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+		if (parser.currentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expect(parser, JsonToken.VALUE_STRING, context);
+		return parser.getText();
+	}
+
+	static Instant readInstant(JsonParser parser, DeserializationContext context) throws IOException {
+		String value = readString(parser, context);
+		try {
+			return value != null ? Instant.parse(value) : null;
+		} catch (DateTimeParseException ex) {
+			throw context.weirdStringException(value, Instant.class, ex.getMessage());
+		}
+	}
+
+	static void expect(JsonParser parser, JsonToken token, DeserializationContext context) throws IOException {
+		if (parser.currentToken() != token) {
+			throw context.wrongTokenException(parser, (Class<?>) null, token, null);
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAccessor;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.expect;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readInstant;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readString;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readStringSet;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readValue;
+
+/**
+ * A {@code JsonDeserializer} for {@link OAuth2Authorization}.
+ *
+ * <p>
+ * The {@link OAuth2AuthorizationRequest} attribute is buffered as JSON tokens and
+ * {@link OAuth2Authorization.Builder#lazyAttribute(String, Supplier) materialized lazily}.
+ * The {@link OAuth2AuthorizationSerializer} writes the buffered JSON tokens of an attribute
+ * not materialized yet as is.
+ *
+ * @see OAuth2AuthorizationSerializer
+ */
+final class OAuth2AuthorizationDeserializer extends StdDeserializer<OAuth2Authorization> {
+
+	OAuth2AuthorizationDeserializer() {
+		super(OAuth2Authorization.class);
+	}
+
+	@Override
+	public OAuth2Authorization deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		String registeredClientId = null;
+		String principalName = null;
+		OAuth2AccessToken accessToken = null;
+		OAuth2RefreshToken refreshToken = null;
+		Map<String, Object> attributes = Collections.emptyMap();
+		Map<String, TokenBuffer> bufferedAttributes = new HashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case "registeredClientId":
+					registeredClientId = readString(parser, context);
+					break;
+				case "principalName":
+					principalName = readString(parser, context);
+					break;
+				case "accessToken":
+					accessToken = readAccessToken(parser, context);
+					break;
+				case "refreshToken":
+					refreshToken = readRefreshToken(parser, context);
+					break;
+				case "attributes":
+					attributes = readAttributes(parser, context, bufferedAttributes);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+
+		Map<String, Object> authorizationAttributes = attributes;
+		ObjectCodec codec = parser.getCodec();
+		try {
+			OAuth2Authorization.Builder builder = OAuth2AuthorizationAccessor.withRegisteredClientId(registeredClientId)
+					.principalName(principalName)
+					.accessToken(accessToken)
+					.refreshToken(refreshToken)
+					.attributes(attrs -> attrs.putAll(authorizationAttributes));
+			bufferedAttributes.forEach((name, buffer) ->
+					builder.lazyAttribute(name, new BufferedAttribute(codec, buffer)));
+			return builder.build();
+		} catch (IllegalArgumentException ex) {
+			throw context.instantiationException(OAuth2Authorization.class, ex);
+		}
+	}
+
+	/**
+	 * Returns the JSON tokens buffered for an attribute not materialized yet.
+	 *
+	 * @param authorization the {@link OAuth2Authorization}
+	 * @param name the name of the attribute
+	 * @return the buffered JSON tokens, or {@code null} if not buffered or already materialized
+	 */
+	static TokenBuffer getBufferedAttribute(OAuth2Authorization authorization, String name) {
+		Supplier<?> lazyValue = OAuth2AuthorizationAccessor.getLazyAttribute(authorization, name);
+		return lazyValue instanceof BufferedAttribute ? ((BufferedAttribute) lazyValue).buffer : null;
+	}
+
+	private static OAuth2AccessToken readAccessToken(JsonParser parser, DeserializationContext context)
+			throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		String tokenType = null;
+		String tokenValue = null;
+		Instant issuedAt = null;
+		Instant expiresAt = null;
+		Set<String> scopes = Collections.emptySet();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case "tokenType":
+					tokenType = readString(parser, context);
+					break;
+				case "tokenValue":
+					tokenValue = readString(parser, context);
+					break;
+				case "issuedAt":
+					issuedAt = readInstant(parser, context);
+					break;
+				case "expiresAt":
+					expiresAt = readInstant(parser, context);
+					break;
+				case "scopes":
+					scopes = readStringSet(parser, context);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		if (!OAuth2AccessToken.TokenType.BEARER.getValue().equalsIgnoreCase(tokenType)) {
+			throw context.weirdStringException(tokenType, OAuth2AccessToken.TokenType.class, "Unsupported token type");
+		}
+		try {
+			return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, issuedAt, expiresAt, scopes);
+		} catch (IllegalArgumentException ex) {
+			throw context.instantiationException(OAuth2AccessToken.class, ex);
+		}
+	}
+
+	private static OAuth2RefreshToken readRefreshToken(JsonParser parser, DeserializationContext context)
+			throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		String tokenValue = null;
+		Instant issuedAt = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case "tokenValue":
+					tokenValue = readString(parser, context);
+					break;
+				case "issuedAt":
+					issuedAt = readInstant(parser, context);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		try {
+			return new OAuth2RefreshToken(tokenValue, issuedAt);
+		} catch (IllegalArgumentException ex) {
+			throw context.instantiationException(OAuth2RefreshToken.class, ex);
+		}
+	}
+
+	private static Map<String, Object> readAttributes(JsonParser parser, DeserializationContext context,
+			Map<String, TokenBuffer> bufferedAttributes) throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		Map<String, Object> attributes = new HashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			if (OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT.equals(name)) {
+				attributes.put(name, readInstant(parser, context));
+			} else if (OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST.equals(name)) {
+				TokenBuffer buffer = new TokenBuffer(parser, context);
+				buffer.copyCurrentStructure(parser);
+				bufferedAttributes.put(name, buffer);
+			} else {
+				attributes.put(name, readValue(parser, context));
+			}
+		}
+		return attributes;
+	}
+
+	private static OAuth2AuthorizationRequest readAuthorizationRequest(ObjectCodec codec, TokenBuffer buffer) {
+		try (JsonParser parser = buffer.asParser(codec)) {
+			parser.nextToken();
+			return codec.readValue(parser, OAuth2AuthorizationRequest.class);
+		} catch (IOException ex) {
+			throw new IllegalArgumentException("Failed to read the authorization request: " + ex.getMessage(), ex);
+		}
+	}
+
+	private static final class BufferedAttribute implements Supplier<Object> {
+		private final ObjectCodec codec;
+		private final TokenBuffer buffer;
+
+		private BufferedAttribute(ObjectCodec codec, TokenBuffer buffer) {
+			this.codec = codec;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public Object get() {
+			return readAuthorizationRequest(this.codec, this.buffer);
+		}
+	}
+}
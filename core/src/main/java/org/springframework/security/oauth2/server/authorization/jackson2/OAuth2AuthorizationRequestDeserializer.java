@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.expect;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readString;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readStringSet;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readValues;
+
+/**
+ * A {@code JsonDeserializer} for {@link OAuth2AuthorizationRequest}.
+ *
+ * @see OAuth2AuthorizationRequestSerializer
+ */
+final class OAuth2AuthorizationRequestDeserializer extends StdDeserializer<OAuth2AuthorizationRequest> {
+
+	OAuth2AuthorizationRequestDeserializer() {
+		super(OAuth2AuthorizationRequest.class);
+	}
+
+	@Override
+	public OAuth2AuthorizationRequest deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		String authorizationGrantType = null;
+		String authorizationUri = null;
+		String clientId = null;
+		String redirectUri = null;
+		Set<String> scopes = null;
+		String state = null;
+		Map<String, Object> additionalParameters = null;
+		Map<String, Object> attributes = null;
+		String authorizationRequestUri = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case "authorizationGrantType":
+					authorizationGrantType = readString(parser, context);
+					break;
+				case "authorizationUri":
+					authorizationUri = readString(parser, context);
+					break;
+				case "clientId":
+					clientId = readString(parser, context);
+					break;
+				case "redirectUri":
+					redirectUri = readString(parser, context);
+					break;
+				case "scopes":
+					scopes = readStringSet(parser, context);
+					break;
+				case "state":
+					state = readString(parser, context);
+					break;
+				case "additionalParameters":
+					additionalParameters = readValues(parser, context);
+					break;
+				case "attributes":
+					attributes = readValues(parser, context);
+					break;
+				case "authorizationRequestUri":
+					authorizationRequestUri = readString(parser, context);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+
+		if (!AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(authorizationGrantType)) {
+			throw context.weirdStringException(authorizationGrantType, AuthorizationGrantType.class,
+					"Unsupported authorization grant type");
+		}
+		try {
+			return OAuth2AuthorizationRequest.authorizationCode()
+					.authorizationUri(authorizationUri)
+					.clientId(clientId)
+					.redirectUri(redirectUri)
+					.scopes(scopes)
+					.state(state)
+					.additionalParameters(additionalParameters)
+					.attributes(attributes)
+					.authorizationRequestUri(authorizationRequestUri)
+					.build();
+		} catch (IllegalArgumentException ex) {
+			throw context.instantiationException(OAuth2AuthorizationRequest.class, ex);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+import java.io.IOException;
+
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeStringArrayField;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeStringField;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeValuesField;
+
+/**
+ * A {@code JsonSerializer} for {@link OAuth2AuthorizationRequest}.
+ *
+ * @see OAuth2AuthorizationRequestDeserializer
+ */
+final class OAuth2AuthorizationRequestSerializer extends StdSerializer<OAuth2AuthorizationRequest> {
+
+	OAuth2AuthorizationRequestSerializer() {
+		super(OAuth2AuthorizationRequest.class);
+	}
+
+	@Override
+	public void serialize(OAuth2AuthorizationRequest authorizationRequest, JsonGenerator generator,
+			SerializerProvider provider) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("authorizationGrantType", authorizationRequest.getGrantType().getValue());
+		generator.writeStringField("authorizationUri", authorizationRequest.getAuthorizationUri());
+		generator.writeStringField("clientId", authorizationRequest.getClientId());
+		writeStringField(generator, "redirectUri", authorizationRequest.getRedirectUri());
+		writeStringArrayField(generator, "scopes", authorizationRequest.getScopes());
+		writeStringField(generator, "state", authorizationRequest.getState());
+		writeValuesField(generator, provider, "additionalParameters", authorizationRequest.getAdditionalParameters());
+		writeValuesField(generator, provider, "attributes", authorizationRequest.getAttributes());
+		generator.writeStringField("authorizationRequestUri", authorizationRequest.getAuthorizationRequestUri());
+		generator.writeEndObject();
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeInstantField;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeStringArrayField;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeValue;
+
+/**
+ * A {@code JsonSerializer} for {@link OAuth2Authorization}.
+ *
+ * @see OAuth2AuthorizationDeserializer
+ */
+final class OAuth2AuthorizationSerializer extends StdSerializer<OAuth2Authorization> {
+
+	OAuth2AuthorizationSerializer() {
+		super(OAuth2Authorization.class);
+	}
+
+	@Override
+	public void serialize(OAuth2Authorization authorization, JsonGenerator generator, SerializerProvider provider)
+			throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("registeredClientId", authorization.getRegisteredClientId());
+		generator.writeStringField("principalName", authorization.getPrincipalName());
+
+		OAuth2AccessToken accessToken = authorization.getAccessToken();
+		if (accessToken != null) {
+			generator.writeObjectFieldStart("accessToken");
+			generator.writeStringField("tokenType", accessToken.getTokenType().getValue());
+			generator.writeStringField("tokenValue", accessToken.getTokenValue());
+			writeInstantField(generator, "issuedAt", accessToken.getIssuedAt());
+			writeInstantField(generator, "expiresAt", accessToken.getExpiresAt());
+			writeStringArrayField(generator, "scopes", accessToken.getScopes());
+			generator.writeEndObject();
+		}
+		OAuth2RefreshToken refreshToken = authorization.getRefreshToken();
+		if (refreshToken != null) {
+			generator.writeObjectFieldStart("refreshToken");
+			generator.writeStringField("tokenValue", refreshToken.getTokenValue());
+			writeInstantField(generator, "issuedAt", refreshToken.getIssuedAt());
+			generator.writeEndObject();
+		}
+
+		generator.writeObjectFieldStart("attributes");
+		for (Map.Entry<String, Object> attribute : authorization.getAttributes().entrySet()) {
+			// An attribute not materialized yet is written as it was read
+			TokenBuffer buffer = OAuth2AuthorizationDeserializer.getBufferedAttribute(authorization, attribute.getKey());
+			if (buffer != null) {
+				generator.writeFieldName(attribute.getKey());
+				buffer.serialize(generator);
+			} else if (OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT.equals(attribute.getKey())) {
+				writeInstantField(generator, attribute.getKey(), (Instant) attribute.getValue());
+			} else {
+				generator.writeFieldName(attribute.getKey());
+				writeValue(generator, provider, attribute.getValue());
+			}
+		}
+		generator.writeEndObject();
+		generator.writeEndObject();
+	}
+}
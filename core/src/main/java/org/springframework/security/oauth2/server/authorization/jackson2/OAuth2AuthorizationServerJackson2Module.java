@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+/**
+ * A Jackson {@code Module} for the Spring Authorization Server domain objects,
+ * allowing {@link OAuth2Authorization}, {@link RegisteredClient} and {@link OAuth2AuthorizationRequest}
+ * to be stored as JSON.
+ *
+ * <p>
+ * Each type is written and read field by field with the streaming {@code JsonGenerator} and {@code JsonParser},
+ * without bean introspection or intermediate {@code Map}s. The timestamps are written as ISO-8601 strings.
+ * Attribute and parameter values of type {@code String}, {@code Boolean}, {@code Integer} and {@code Long}
+ * are read back as the same type, other values are written with the serializer configured for their type
+ * and read back as the corresponding JSON type.
+ *
+ * <pre>
+ *     ObjectMapper mapper = new ObjectMapper();
+ *     mapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+ * </pre>
+ *
+ * @since 0.0.1
+ */
+public class OAuth2AuthorizationServerJackson2Module extends SimpleModule {
+
+	public OAuth2AuthorizationServerJackson2Module() {
+		super(OAuth2AuthorizationServerJackson2Module.class.getName(), new Version(1, 0, 0, null, null, null));
+		addSerializer(OAuth2Authorization.class, new OAuth2AuthorizationSerializer());
+		addDeserializer(OAuth2Authorization.class, new OAuth2AuthorizationDeserializer());
+		addSerializer(RegisteredClient.class, new RegisteredClientSerializer());
+		addDeserializer(RegisteredClient.class, new RegisteredClientDeserializer());
+		addSerializer(OAuth2AuthorizationRequest.class, new OAuth2AuthorizationRequestSerializer());
+		addDeserializer(OAuth2AuthorizationRequest.class, new OAuth2AuthorizationRequestDeserializer());
+	}
+}
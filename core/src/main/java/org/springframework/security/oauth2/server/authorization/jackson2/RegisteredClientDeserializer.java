@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.expect;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readString;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.readStringSet;
+
+/**
+ * A {@code JsonDeserializer} for {@link RegisteredClient}.
+ *
+ * @see RegisteredClientSerializer
+ */
+final class RegisteredClientDeserializer extends StdDeserializer<RegisteredClient> {
+
+	RegisteredClientDeserializer() {
+		super(RegisteredClient.class);
+	}
+
+	@Override
+	public RegisteredClient deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		expect(parser, JsonToken.START_OBJECT, context);
+		String id = null;
+		String clientId = null;
+		String clientSecret = null;
+		String jwkSetUrl = null;
+		Set<String> clientAuthenticationMethods = Collections.emptySet();
+		Set<String> authorizationGrantTypes = Collections.emptySet();
+		Set<String> redirectUris = Collections.emptySet();
+		Set<String> scopes = Collections.emptySet();
+		Set<String> x509CertificateThumbprints = Collections.emptySet();
+		RateLimit rateLimit = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case "id":
+					id = readString(parser, context);
+					break;
+				case "clientId":
+					clientId = readString(parser, context);
+					break;
+				case "clientSecret":
+					clientSecret = readString(parser, context);
+					break;
+				case "clientAuthenticationMethods":
+					clientAuthenticationMethods = readStringSet(parser, context);
+					break;
+				case "authorizationGrantTypes":
+					authorizationGrantTypes = readStringSet(parser, context);
+					break;
+				case "redirectUris":
+					redirectUris = readStringSet(parser, context);
+					break;
+				case "scopes":
+					scopes = readStringSet(parser, context);
+					break;
+				case "jwkSetUrl":
+					jwkSetUrl = readString(parser, context);
+					break;
+				case "x509CertificateThumbprints":
+					x509CertificateThumbprints = readStringSet(parser, context);
+					break;
+				case "rateLimit":
+					rateLimit = readRateLimit(parser, context);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+
+		try {
+			RegisteredClient.Builder builder = RegisteredClient.withId(id)
+					.clientId(clientId)
+					.clientSecret(clientSecret)
+					.jwkSetUrl(jwkSetUrl)
+					.rateLimit(rateLimit);
+			clientAuthenticationMethods.forEach(method ->
+					builder.clientAuthenticationMethod(new ClientAuthenticationMethod(method)));
+			authorizationGrantTypes.forEach(grantType ->
+					builder.authorizationGrantType(new AuthorizationGrantType(grantType)));
+			redirectUris.forEach(builder::redirectUri);
+			scopes.forEach(builder::scope);
+			x509CertificateThumbprints.forEach(builder::x509CertificateThumbprint);
+			return builder.build();
+		} catch (IllegalArgumentException ex) {
+			throw context.instantiationException(RegisteredClient.class, ex);
+		}
+	}
+
+	private static RateLimit readRateLimit(JsonParser parser, DeserializationContext context) throws IOException {
+		if (parser.currentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expect(parser, JsonToken.START_OBJECT, context);
+		long permits = 0;
+		Duration period = null;
+		long burstCapacity = 0;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case "permits":
+					expect(parser, JsonToken.VALUE_NUMBER_INT, context);
+					permits = parser.getLongValue();
+					break;
+				case "period":
+					String value = readString(parser, context);
+					try {
+						period = value != null ? Duration.parse(value) : null;
+					} catch (DateTimeParseException ex) {
+						throw context.weirdStringException(value, Duration.class, ex.getMessage());
+					}
+					break;
+				case "burstCapacity":
+					expect(parser, JsonToken.VALUE_NUMBER_INT, context);
+					burstCapacity = parser.getLongValue();
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		try {
+			return RateLimit.of(permits, period, burstCapacity);
+		} catch (IllegalArgumentException ex) {
+			throw context.instantiationException(RateLimit.class, ex);
+		}
+	}
+}
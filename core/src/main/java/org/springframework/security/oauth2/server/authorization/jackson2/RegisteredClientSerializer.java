@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.io.IOException;
+
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeStringArrayField;
+import static org.springframework.security.oauth2.server.authorization.jackson2.JsonStreams.writeStringField;
+
+/**
+ * A {@code JsonSerializer} for {@link RegisteredClient}.
+ *
+ * @see RegisteredClientDeserializer
+ */
+final class RegisteredClientSerializer extends StdSerializer<RegisteredClient> {
+
+	RegisteredClientSerializer() {
+		super(RegisteredClient.class);
+	}
+
+	@Override
+	public void serialize(RegisteredClient registeredClient, JsonGenerator generator, SerializerProvider provider)
+			throws IOException {
+		generator.writeStartObject();
+		writeStringField(generator, "id", registeredClient.getId());
+		generator.writeStringField("clientId", registeredClient.getClientId());
+		writeStringField(generator, "clientSecret", registeredClient.getClientSecret());
+		generator.writeArrayFieldStart("clientAuthenticationMethods");
+		for (ClientAuthenticationMethod clientAuthenticationMethod : registeredClient.getClientAuthenticationMethods()) {
+			generator.writeString(clientAuthenticationMethod.getValue());
+		}
+		generator.writeEndArray();
+		generator.writeArrayFieldStart("authorizationGrantTypes");
+		for (AuthorizationGrantType authorizationGrantType : registeredClient.getAuthorizationGrantTypes()) {
+			generator.writeString(authorizationGrantType.getValue());
+		}
+		generator.writeEndArray();
+		writeStringArrayField(generator, "redirectUris", registeredClient.getRedirectUris());
+		writeStringArrayField(generator, "scopes", registeredClient.getScopes());
+		writeStringField(generator, "jwkSetUrl", registeredClient.getJwkSetUrl());
+		writeStringArrayField(generator, "x509CertificateThumbprints", registeredClient.getX509CertificateThumbprints());
+		RateLimit rateLimit = registeredClient.getRateLimit();
+		if (rateLimit != null) {
+			generator.writeObjectFieldStart("rateLimit");
+			generator.writeNumberField("permits", rateLimit.getPermits());
+			generator.writeStringField("period", rateLimit.getPeriod().toString());
+			generator.writeNumberField("burstCapacity", rateLimit.getBurstCapacity());
+			generator.writeEndObject();
+		}
+		generator.writeEndObject();
+	}
+}
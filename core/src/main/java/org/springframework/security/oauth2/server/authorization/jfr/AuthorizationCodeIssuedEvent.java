@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for an authorization code issued by the authorization endpoint.
+ *
+ * @since 0.0.1
+ * @see FlightRecorderEvents#beginAuthorizationCodeIssued()
+ */
+@Name("org.springframework.security.oauth2.server.authorization.AuthorizationCodeIssued")
+@Label("Authorization Code Issued")
+@Description("An authorization code issued by the authorization endpoint")
+@Category({ "Spring Security", "OAuth 2.0 Authorization Server" })
+@StackTrace(false)
+public final class AuthorizationCodeIssuedEvent extends Event {
+	private static final AuthorizationCodeIssuedEvent PROTOTYPE = new AuthorizationCodeIssuedEvent();
+
+	@Label("Client Id")
+	private String clientId;
+
+	AuthorizationCodeIssuedEvent() {
+	}
+
+	static AuthorizationCodeIssuedEvent beginIfEnabled() {
+		if (!PROTOTYPE.isEnabled()) {
+			return null;
+		}
+		AuthorizationCodeIssuedEvent event = new AuthorizationCodeIssuedEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event, and commits it with the provided values if it is recorded.
+	 *
+	 * @param clientId the client identifier
+	 */
+	public void record(String clientId) {
+		end();
+		if (shouldCommit()) {
+			this.clientId = clientId;
+			commit();
+		}
+	}
+}
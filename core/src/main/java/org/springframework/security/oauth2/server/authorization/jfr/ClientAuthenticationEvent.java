@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for the authentication of a client.
+ *
+ * @since 0.0.1
+ * @see FlightRecorderEvents#beginClientAuthentication()
+ */
+@Name("org.springframework.security.oauth2.server.authorization.ClientAuthentication")
+@Label("Client Authentication")
+@Description("The authentication of a client")
+@Category({ "Spring Security", "OAuth 2.0 Authorization Server" })
+@StackTrace(false)
+public final class ClientAuthenticationEvent extends Event {
+	private static final ClientAuthenticationEvent PROTOTYPE = new ClientAuthenticationEvent();
+
+	@Label("Client Id")
+	private String clientId;
+
+	@Label("Authentication Method")
+	private String authenticationMethod;
+
+	@Label("Error")
+	@Description("The error code, if the client was not authenticated")
+	private String error;
+
+	ClientAuthenticationEvent() {
+	}
+
+	static ClientAuthenticationEvent beginIfEnabled() {
+		if (!PROTOTYPE.isEnabled()) {
+			return null;
+		}
+		ClientAuthenticationEvent event = new ClientAuthenticationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event, and commits it with the provided values if it is recorded.
+	 *
+	 * @param clientId the client identifier, or {@code null} if not provided
+	 * @param authenticationMethod the client authentication method, or {@code null} if not known
+	 * @param error the error code, or {@code null} if the client was authenticated
+	 */
+	public void record(String clientId, String authenticationMethod, String error) {
+		end();
+		if (shouldCommit()) {
+			this.clientId = clientId;
+			this.authenticationMethod = authenticationMethod;
+			this.error = error;
+			commit();
+		}
+	}
+}
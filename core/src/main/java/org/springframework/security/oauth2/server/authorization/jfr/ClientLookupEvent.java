@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+/**
+ * A Flight Recorder event for the lookup of a registered client.
+ *
+ * @since 0.0.1
+ * @see FlightRecorderEvents#beginClientLookup()
+ */
+@Name("org.springframework.security.oauth2.server.authorization.ClientLookup")
+@Label("Client Lookup")
+@Description("The lookup of a registered client")
+@Category({ "Spring Security", "OAuth 2.0 Authorization Server" })
+@StackTrace(false)
+public final class ClientLookupEvent extends Event {
+	private static final ClientLookupEvent PROTOTYPE = new ClientLookupEvent();
+
+	@Label("Lookup")
+	@Description("The attribute the registered client was looked up by")
+	private String lookup;
+
+	@Label("Client Id")
+	private String clientId;
+
+	@Label("Found")
+	private boolean found;
+
+	ClientLookupEvent() {
+	}
+
+	static ClientLookupEvent beginIfEnabled() {
+		if (!PROTOTYPE.isEnabled()) {
+			return null;
+		}
+		ClientLookupEvent event = new ClientLookupEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event, and commits it with the provided values if it is recorded.
+	 *
+	 * @param lookup the attribute the registered client was looked up by
+	 * @param registeredClient the registered client found, or {@code null} if not found
+	 */
+	public void record(String lookup, RegisteredClient registeredClient) {
+		end();
+		if (shouldCommit()) {
+			this.lookup = lookup;
+			this.clientId = registeredClient != null ? registeredClient.getClientId() : null;
+			this.found = registeredClient != null;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Begins the Flight Recorder events of the authorization server.
+ *
+ * <p>
+ * Each method returns {@code null} when the event is not enabled in a running recording,
+ * or when the Flight Recorder API is not available, so that no event is allocated and the
+ * event classes are not loaded. Otherwise, the event is begun and must be ended with its
+ * {@code record} method, which commits it if it exceeds the threshold of the recording.
+ *
+ * <pre>
+ * TokenLookupEvent event = FlightRecorderEvents.beginTokenLookup();
+ * OAuth2Authorization authorization = ...;
+ * if (event != null) {
+ *     event.record(tokenType.getValue(), authorization);
+ * }
+ * </pre>
+ *
+ * @since 0.0.1
+ */
+public final class FlightRecorderEvents {
+	private static final boolean FLIGHT_RECORDER_PRESENT =
+			ClassUtils.isPresent("jdk.jfr.Event", FlightRecorderEvents.class.getClassLoader());
+
+	private FlightRecorderEvents() {
+	}
+
+	/**
+	 * Begins an {@link AuthorizationCodeIssuedEvent}.
+	 *
+	 * @return the {@link AuthorizationCodeIssuedEvent}, or {@code null} if not enabled
+	 */
+	@Nullable
+	public static AuthorizationCodeIssuedEvent beginAuthorizationCodeIssued() {
+		return FLIGHT_RECORDER_PRESENT ? AuthorizationCodeIssuedEvent.beginIfEnabled() : null;
+	}
+
+	/**
+	 * Begins a {@link TokenRequestEvent}.
+	 *
+	 * @return the {@link TokenRequestEvent}, or {@code null} if not enabled
+	 */
+	@Nullable
+	public static TokenRequestEvent beginTokenRequest() {
+		return FLIGHT_RECORDER_PRESENT ? TokenRequestEvent.beginIfEnabled() : null;
+	}
+
+	/**
+	 * Begins a {@link ClientAuthenticationEvent}.
+	 *
+	 * @return the {@link ClientAuthenticationEvent}, or {@code null} if not enabled
+	 */
+	@Nullable
+	public static ClientAuthenticationEvent beginClientAuthentication() {
+		return FLIGHT_RECORDER_PRESENT ? ClientAuthenticationEvent.beginIfEnabled() : null;
+	}
+
+	/**
+	 * Begins a {@link TokenLookupEvent}.
+	 *
+	 * @return the {@link TokenLookupEvent}, or {@code null} if not enabled
+	 */
+	@Nullable
+	public static TokenLookupEvent beginTokenLookup() {
+		return FLIGHT_RECORDER_PRESENT ? TokenLookupEvent.beginIfEnabled() : null;
+	}
+
+	/**
+	 * Begins a {@link ClientLookupEvent}.
+	 *
+	 * @return the {@link ClientLookupEvent}, or {@code null} if not enabled
+	 */
+	@Nullable
+	public static ClientLookupEvent beginClientLookup() {
+		return FLIGHT_RECORDER_PRESENT ? ClientLookupEvent.beginIfEnabled() : null;
+	}
+}
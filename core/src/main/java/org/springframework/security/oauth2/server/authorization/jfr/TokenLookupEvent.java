@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+
+/**
+ * A Flight Recorder event for the lookup of an authorization by one of its tokens.
+ *
+ * @since 0.0.1
+ * @see FlightRecorderEvents#beginTokenLookup()
+ */
+@Name("org.springframework.security.oauth2.server.authorization.TokenLookup")
+@Label("Token Lookup")
+@Description("The lookup of an authorization by one of its tokens")
+@Category({ "Spring Security", "OAuth 2.0 Authorization Server" })
+@StackTrace(false)
+public final class TokenLookupEvent extends Event {
+	private static final TokenLookupEvent PROTOTYPE = new TokenLookupEvent();
+
+	@Label("Token Type")
+	private String tokenType;
+
+	@Label("Registered Client Id")
+	private String registeredClientId;
+
+	@Label("Found")
+	private boolean found;
+
+	TokenLookupEvent() {
+	}
+
+	static TokenLookupEvent beginIfEnabled() {
+		if (!PROTOTYPE.isEnabled()) {
+			return null;
+		}
+		TokenLookupEvent event = new TokenLookupEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event, and commits it with the provided values if it is recorded.
+	 *
+	 * @param tokenType the token type
+	 * @param authorization the authorization found, or {@code null} if not found
+	 */
+	public void record(String tokenType, OAuth2Authorization authorization) {
+		end();
+		if (shouldCommit()) {
+			this.tokenType = tokenType;
+			this.registeredClientId = authorization != null ? authorization.getRegisteredClientId() : null;
+			this.found = authorization != null;
+			commit();
+		}
+	}
+}
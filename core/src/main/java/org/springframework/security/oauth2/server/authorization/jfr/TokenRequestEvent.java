@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for an access token request processed by the token endpoint,
+ * such as the exchange of an authorization code.
+ *
+ * @since 0.0.1
+ * @see FlightRecorderEvents#beginTokenRequest()
+ */
+@Name("org.springframework.security.oauth2.server.authorization.TokenRequest")
+@Label("Token Request")
+@Description("An access token request processed by the token endpoint")
+@Category({ "Spring Security", "OAuth 2.0 Authorization Server" })
+@StackTrace(false)
+public final class TokenRequestEvent extends Event {
+	private static final TokenRequestEvent PROTOTYPE = new TokenRequestEvent();
+
+	@Label("Client Id")
+	private String clientId;
+
+	@Label("Grant Type")
+	private String grantType;
+
+	@Label("Error")
+	@Description("The error code, if the request was rejected")
+	private String error;
+
+	TokenRequestEvent() {
+	}
+
+	static TokenRequestEvent beginIfEnabled() {
+		if (!PROTOTYPE.isEnabled()) {
+			return null;
+		}
+		TokenRequestEvent event = new TokenRequestEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event, and commits it with the provided values if it is recorded.
+	 *
+	 * @param clientId the client identifier, or {@code null} if not authenticated
+	 * @param grantType the grant type, or {@code null} if not provided
+	 * @param error the error code, or {@code null} if an access token was issued
+	 */
+	public void record(String clientId, String grantType, String error) {
+		end();
+		if (shouldCommit()) {
+			this.clientId = clientId;
+			this.grantType = grantType;
+			this.error = error;
+			commit();
+		}
+	}
+}
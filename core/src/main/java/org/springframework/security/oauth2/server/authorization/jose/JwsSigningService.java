@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jose;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * A service for computing JSON Web Signatures (JWS), which allows the signing to be
+ * performed on a thread other than the caller's.
+ *
+ * @since 0.0.1
+ * @see PooledJwsSigningService
+ */
+@FunctionalInterface
+public interface JwsSigningService {
+
+	/**
+	 * Signs the signing input with the provided {@code JWSSigner}.
+	 *
+	 * @param signer the {@code JWSSigner}
+	 * @param header the JWS header
+	 * @param signingInput the signing input
+	 * @return the signature
+	 * @throws JOSEException if the signing failed
+	 */
+	Base64URL sign(JWSSigner signer, JWSHeader header, byte[] signingInput) throws JOSEException;
+
+	/**
+	 * Returns a {@code JwsSigningService} signing on the caller's thread.
+	 *
+	 * @return a {@code JwsSigningService} signing on the caller's thread
+	 */
+	static JwsSigningService direct() {
+		return (signer, header, signingInput) -> signer.sign(header, signingInput);
+	}
+}
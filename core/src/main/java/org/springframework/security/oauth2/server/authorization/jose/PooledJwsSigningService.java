@@ -0,0 +1,274 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jose;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link JwsSigningService} that signs on a bounded pool of worker threads.
+ *
+ * <p>
+ * Signing with an RSA key is CPU bound, so bounding the number of threads signing concurrently
+ * (by default, to the number of processors) keeps a burst of token requests from oversubscribing
+ * the CPU with request threads. Each worker takes the pending signing requests in batches,
+ * signing them back to back without waiting for the queue in between.
+ * When the queue is full for longer than the maximum queue wait, the signing request is rejected
+ * with a {@code RejectedExecutionException}, rather than piling up behind the burst.
+ *
+ * <p>
+ * The time spent waiting in the queue and signing is recorded in the {@link #getStatistics() statistics},
+ * which tell a saturated pool (queue time dominates) from slow keys (sign time dominates).
+ *
+ * @since 0.0.1
+ * @see JwsSigningService
+ */
+public final class PooledJwsSigningService implements JwsSigningService, Closeable {
+	private final BlockingQueue<SigningRequest> queue;
+	private final Thread[] workers;
+	private final int batchSize;
+	private final LongAdder signedCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final LongAdder queueTimeNanos = new LongAdder();
+	private final LongAdder signTimeNanos = new LongAdder();
+	private volatile boolean closed;
+	private long maximumQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+	/**
+	 * Constructs a {@code PooledJwsSigningService} with a worker per processor,
+	 * a queue of 1024 signing requests and batches of up to 16 signing requests.
+	 */
+	public PooledJwsSigningService() {
+		this(Runtime.getRuntime().availableProcessors(), 1024, 16);
+	}
+
+	/**
+	 * Constructs a {@code PooledJwsSigningService} using the provided parameters.
+	 *
+	 * @param workerCount the number of worker threads
+	 * @param queueCapacity the maximum number of pending signing requests
+	 * @param batchSize the maximum number of signing requests a worker takes at once
+	 */
+	public PooledJwsSigningService(int workerCount, int queueCapacity, int batchSize) {
+		Assert.isTrue(workerCount > 0, "workerCount must be greater than 0");
+		Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0");
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.workers = new Thread[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			Thread worker = new Thread(this::work, "jws-signing-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			this.workers[i] = worker;
+		}
+	}
+
+	/**
+	 * Sets the maximum duration a caller waits for room in the queue, before the signing request is rejected.
+	 * The default is 50 milliseconds, and {@code Duration.ZERO} rejects as soon as the queue is full.
+	 *
+	 * @param maximumQueueWait the maximum duration a caller waits for room in the queue
+	 */
+	public void setMaximumQueueWait(Duration maximumQueueWait) {
+		Assert.notNull(maximumQueueWait, "maximumQueueWait cannot be null");
+		Assert.isTrue(!maximumQueueWait.isNegative(), "maximumQueueWait cannot be negative");
+		this.maximumQueueWaitNanos = maximumQueueWait.toNanos();
+	}
+
+	@Override
+	public Base64URL sign(JWSSigner signer, JWSHeader header, byte[] signingInput) throws JOSEException {
+		Assert.notNull(signer, "signer cannot be null");
+		Assert.notNull(header, "header cannot be null");
+		Assert.notNull(signingInput, "signingInput cannot be null");
+		if (this.closed) {
+			throw new RejectedExecutionException("The signing service is closed");
+		}
+		SigningRequest request = new SigningRequest(signer, header, signingInput);
+		try {
+			if (!this.queue.offer(request, this.maximumQueueWaitNanos, TimeUnit.NANOSECONDS)) {
+				this.rejectedCount.increment();
+				throw new RejectedExecutionException("The signing queue is full");
+			}
+			if (this.closed && this.queue.remove(request)) {
+				throw new RejectedExecutionException("The signing service is closed");
+			}
+			return request.result.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new JOSEException("Interrupted while signing", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof JOSEException) {
+				throw (JOSEException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new JOSEException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the statistics of the signing requests processed so far.
+	 *
+	 * @return a snapshot of the statistics
+	 */
+	public Statistics getStatistics() {
+		return new Statistics(this.signedCount.sum(), this.rejectedCount.sum(),
+				Duration.ofNanos(this.queueTimeNanos.sum()), Duration.ofNanos(this.signTimeNanos.sum()),
+				this.queue.size());
+	}
+
+	/**
+	 * Stops the worker threads, rejecting the pending signing requests.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		for (Thread worker : this.workers) {
+			worker.interrupt();
+		}
+		SigningRequest request;
+		while ((request = this.queue.poll()) != null) {
+			request.result.completeExceptionally(new RejectedExecutionException("The signing service is closed"));
+		}
+	}
+
+	private void work() {
+		List<SigningRequest> batch = new ArrayList<>(this.batchSize);
+		while (!this.closed) {
+			try {
+				batch.add(this.queue.take());
+			} catch (InterruptedException ex) {
+				continue;
+			}
+			this.queue.drainTo(batch, this.batchSize - 1);
+			for (SigningRequest request : batch) {
+				long startedAt = System.nanoTime();
+				this.queueTimeNanos.add(startedAt - request.enqueuedAt);
+				Base64URL signature = null;
+				Throwable failure = null;
+				try {
+					signature = request.signer.sign(request.header, request.signingInput);
+				} catch (Throwable ex) {
+					failure = ex;
+				}
+				// Recorded before completing, so the statistics include the request once the caller resumes
+				this.signTimeNanos.add(System.nanoTime() - startedAt);
+				this.signedCount.increment();
+				if (failure != null) {
+					request.result.completeExceptionally(failure);
+				} else {
+					request.result.complete(signature);
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	private static final class SigningRequest {
+		private final JWSSigner signer;
+		private final JWSHeader header;
+		private final byte[] signingInput;
+		private final long enqueuedAt = System.nanoTime();
+		private final CompletableFuture<Base64URL> result = new CompletableFuture<>();
+
+		private SigningRequest(JWSSigner signer, JWSHeader header, byte[] signingInput) {
+			this.signer = signer;
+			this.header = header;
+			this.signingInput = signingInput;
+		}
+	}
+
+	/**
+	 * A snapshot of the statistics of a {@link PooledJwsSigningService}.
+	 */
+	public static final class Statistics {
+		private final long signedCount;
+		private final long rejectedCount;
+		private final Duration queueTime;
+		private final Duration signTime;
+		private final int queueSize;
+
+		private Statistics(long signedCount, long rejectedCount, Duration queueTime, Duration signTime, int queueSize) {
+			this.signedCount = signedCount;
+			this.rejectedCount = rejectedCount;
+			this.queueTime = queueTime;
+			this.signTime = signTime;
+			this.queueSize = queueSize;
+		}
+
+		/**
+		 * Returns the number of signing requests processed.
+		 *
+		 * @return the number of signing requests processed
+		 */
+		public long getSignedCount() {
+			return this.signedCount;
+		}
+
+		/**
+		 * Returns the number of signing requests rejected because the queue was full.
+		 *
+		 * @return the number of signing requests rejected
+		 */
+		public long getRejectedCount() {
+			return this.rejectedCount;
+		}
+
+		/**
+		 * Returns the total time the processed signing requests waited in the queue.
+		 *
+		 * @return the total time spent in the queue
+		 */
+		public Duration getQueueTime() {
+			return this.queueTime;
+		}
+
+		/**
+		 * Returns the total time spent signing the processed signing requests.
+		 *
+		 * @return the total time spent signing
+		 */
+		public Duration getSignTime() {
+			return this.signTime;
+		}
+
+		/**
+		 * Returns the number of signing requests pending in the queue.
+		 *
+		 * @return the number of pending signing requests
+		 */
+		public int getQueueSize() {
+			return this.queueSize;
+		}
+	}
+}
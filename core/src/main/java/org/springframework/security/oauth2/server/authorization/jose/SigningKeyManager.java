@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jose;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.oauth2.server.authorization.token.JwtAccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.web.JwkSetEndpointFilter;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Manages the rotation of the key used for signing access tokens.
+ *
+ * <p>
+ * The next signing key is generated ahead of time on a background thread, since generating a key
+ * (such as an RSA key) may be slow, and is published in the {@link #getJwkSet() JWK Set} for at least
+ * the publication lead time before it becomes active, so that resource servers already know it
+ * when the first token signed with it is presented. Once a key is no longer active, it remains
+ * published for the maximum token lifetime, so that the tokens it signed can still be verified.
+ *
+ * <p>
+ * The first key is generated and the rotation is scheduled by {@link #start()}, once configured.
+ * The keys are swapped atomically, so {@link #getSigningKey()} never blocks on key generation.
+ * Both the signing key and the JWK Set only change instance when the keys change, which allows
+ * {@link JwtAccessTokenGenerator} and {@link JwkSetEndpointFilter} to prepare them once per key change:
+ *
+ * <pre>
+ * signingKeyManager.start();
+ * new JwtAccessTokenGenerator(signingKeyManager::getSigningKey);
+ * new JwkSetEndpointFilter(signingKeyManager::getJwkSet);
+ * </pre>
+ *
+ * @since 0.0.1
+ * @see JwtAccessTokenGenerator
+ * @see JwkSetEndpointFilter
+ */
+public final class SigningKeyManager implements Closeable {
+	private final Log logger = LogFactory.getLog(getClass());
+	private final Supplier<JWK> keyGenerator;
+	private final Duration checkInterval;
+	private ScheduledExecutorService scheduler;
+	private volatile SigningKeys signingKeys;
+	private Duration rotationInterval = Duration.ofDays(7);
+	private Duration publicationLeadTime = Duration.ofHours(1);
+	private Duration maximumTokenLifetime = Duration.ofHours(1);
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs a {@code SigningKeyManager} generating 2048-bit RSA keys,
+	 * which checks for rotation every minute once started.
+	 */
+	public SigningKeyManager() {
+		this(SigningKeyManager::generateRsaKey);
+	}
+
+	/**
+	 * Constructs a {@code SigningKeyManager} using the provided parameters,
+	 * which checks for rotation every minute once started.
+	 *
+	 * @param keyGenerator the generator of signing keys, which must set a unique key ID
+	 */
+	public SigningKeyManager(Supplier<JWK> keyGenerator) {
+		this(keyGenerator, Duration.ofMinutes(1));
+	}
+
+	/**
+	 * Constructs a {@code SigningKeyManager} using the provided parameters,
+	 * which checks for rotation at the provided interval once started.
+	 *
+	 * @param keyGenerator the generator of signing keys, which must set a unique key ID
+	 * @param checkInterval the interval at which rotation is checked for
+	 */
+	public SigningKeyManager(Supplier<JWK> keyGenerator, Duration checkInterval) {
+		Assert.notNull(keyGenerator, "keyGenerator cannot be null");
+		Assert.notNull(checkInterval, "checkInterval cannot be null");
+		Assert.isTrue(!checkInterval.isNegative() && !checkInterval.isZero(), "checkInterval must be positive");
+		this.keyGenerator = keyGenerator;
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Sets the duration a signing key is active for. The default is 7 days.
+	 *
+	 * @param rotationInterval the duration a signing key is active for
+	 */
+	public synchronized void setRotationInterval(Duration rotationInterval) {
+		Assert.notNull(rotationInterval, "rotationInterval cannot be null");
+		Assert.isTrue(!rotationInterval.isNegative() && !rotationInterval.isZero(), "rotationInterval must be positive");
+		this.rotationInterval = rotationInterval;
+	}
+
+	/**
+	 * Sets the minimum duration the next signing key is published for before it becomes active,
+	 * which should exceed the duration resource servers cache the JWK Set for. The default is 1 hour.
+	 *
+	 * @param publicationLeadTime the minimum duration the next signing key is published for before it becomes active
+	 */
+	public synchronized void setPublicationLeadTime(Duration publicationLeadTime) {
+		Assert.notNull(publicationLeadTime, "publicationLeadTime cannot be null");
+		Assert.isTrue(!publicationLeadTime.isNegative(), "publicationLeadTime cannot be negative");
+		this.publicationLeadTime = publicationLeadTime;
+	}
+
+	/**
+	 * Sets the maximum lifetime of a token signed with a signing key, which is the duration
+	 * a signing key remains published for once it is no longer active. The default is 1 hour.
+	 *
+	 * @param maximumTokenLifetime the maximum lifetime of a signed token
+	 */
+	public synchronized void setMaximumTokenLifetime(Duration maximumTokenLifetime) {
+		Assert.notNull(maximumTokenLifetime, "maximumTokenLifetime cannot be null");
+		Assert.isTrue(!maximumTokenLifetime.isNegative(), "maximumTokenLifetime cannot be negative");
+		this.maximumTokenLifetime = maximumTokenLifetime;
+	}
+
+	/**
+	 * Sets the {@code Clock} used when determining whether a key is due for rotation or retirement.
+	 *
+	 * @param clock the {@code Clock}
+	 */
+	public synchronized void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Generates the first signing key and starts checking for rotation.
+	 * This is a no-op if already started.
+	 */
+	public synchronized void start() {
+		if (this.scheduler != null) {
+			return;
+		}
+		this.signingKeys = new SigningKeys(generateKey(), this.clock.instant(), null, null, Collections.emptyList());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "signing-key-rotation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::rotateQuietly,
+				this.checkInterval.toMillis(), this.checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the key currently used for signing.
+	 *
+	 * @return the key currently used for signing
+	 * @throws IllegalStateException if not started
+	 */
+	public JWK getSigningKey() {
+		return getSigningKeys().active;
+	}
+
+	/**
+	 * Returns the JWK Set of the published keys, which are the active key,
+	 * the next key (if generated) and the keys retired within the maximum token lifetime.
+	 *
+	 * @return the JWK Set of the published keys
+	 * @throws IllegalStateException if not started
+	 */
+	public JWKSet getJwkSet() {
+		return getSigningKeys().jwkSet;
+	}
+
+	/**
+	 * Generates the next key, activates it or retires previous keys, if due.
+	 * This is invoked periodically on a background thread.
+	 *
+	 * @throws IllegalStateException if not started
+	 */
+	public synchronized void rotate() {
+		Instant now = this.clock.instant();
+		SigningKeys signingKeys = getSigningKeys();
+		JWK active = signingKeys.active;
+		Instant activatedAt = signingKeys.activatedAt;
+		JWK next = signingKeys.next;
+		Instant nextPublishedAt = signingKeys.nextPublishedAt;
+		List<RetiredKey> retired = new ArrayList<>(signingKeys.retired);
+		boolean changed = retired.removeIf(retiredKey -> !retiredKey.retiredUntil.isAfter(now));
+
+		if (next == null) {
+			next = generateKey();
+			nextPublishedAt = now;
+			changed = true;
+		} else if (!now.isBefore(activatedAt.plus(this.rotationInterval)) &&
+				!now.isBefore(nextPublishedAt.plus(this.publicationLeadTime))) {
+			retired.add(0, new RetiredKey(active, now.plus(this.maximumTokenLifetime)));
+			active = next;
+			activatedAt = now;
+			next = null;
+			nextPublishedAt = null;
+			changed = true;
+		}
+
+		if (changed) {
+			this.signingKeys = new SigningKeys(active, activatedAt, next, nextPublishedAt, retired);
+		}
+	}
+
+	/**
+	 * Stops checking for rotation.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+		}
+	}
+
+	private SigningKeys getSigningKeys() {
+		SigningKeys signingKeys = this.signingKeys;
+		Assert.state(signingKeys != null, "SigningKeyManager has not been started");
+		return signingKeys;
+	}
+
+	private void rotateQuietly() {
+		try {
+			rotate();
+		} catch (RuntimeException ex) {
+			// The current keys remain in use, rotation is attempted again on the next check
+			this.logger.warn("Failed to rotate the signing key", ex);
+		}
+	}
+
+	private JWK generateKey() {
+		JWK key = this.keyGenerator.get();
+		Assert.notNull(key, "key cannot be null");
+		Assert.isTrue(key.isPrivate(), "key must contain a private key");
+		Assert.hasText(key.getKeyID(), "key must have a key ID");
+		return key;
+	}
+
+	private static JWK generateRsaKey() {
+		try {
+			return new RSAKeyGenerator(2048)
+					.keyID(UUID.randomUUID().toString())
+					.keyUse(KeyUse.SIGNATURE)
+					.generate();
+		} catch (JOSEException ex) {
+			throw new IllegalStateException("Failed to generate the signing key: " + ex.getMessage(), ex);
+		}
+	}
+
+	private static final class SigningKeys {
+		private final JWK active;
+		private final Instant activatedAt;
+		private final JWK next;
+		private final Instant nextPublishedAt;
+		private final List<RetiredKey> retired;
+		private final JWKSet jwkSet;
+
+		private SigningKeys(JWK active, Instant activatedAt, JWK next, Instant nextPublishedAt, List<RetiredKey> retired) {
+			this.active = active;
+			this.activatedAt = activatedAt;
+			this.next = next;
+			this.nextPublishedAt = nextPublishedAt;
+			this.retired = Collections.unmodifiableList(retired);
+			List<JWK> keys = new ArrayList<>();
+			keys.add(active);
+			if (next != null) {
+				keys.add(next);
+			}
+			retired.forEach(retiredKey -> keys.add(retiredKey.key));
+			this.jwkSet = new JWKSet(keys);
+		}
+	}
+
+	private static final class RetiredKey {
+		private final JWK key;
+		private final Instant retiredUntil;
+
+		private RetiredKey(JWK key, Instant retiredUntil) {
+			this.key = key;
+			this.retiredUntil = retiredUntil;
+		}
+	}
+}
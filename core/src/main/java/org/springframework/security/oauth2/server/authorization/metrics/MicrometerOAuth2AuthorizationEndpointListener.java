@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2AuthorizationEndpointFilter;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2AuthorizationEndpointListener;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link OAuth2AuthorizationEndpointListener} that records the authorization requests with Micrometer.
+ *
+ * <p>
+ * The requests are recorded by {@code oauth2.authorization.endpoint.requests} timers, tagged with the
+ * {@code outcome} ({@code success}, {@code error} or {@code authentication_required}) and the
+ * {@code error} code, or {@code none}. A timer is registered upfront for each of the {@link OAuth2ErrorCodes},
+ * so that recording a request does not allocate tags or look up meters in the {@link MeterRegistry}.
+ *
+ * @since 0.0.1
+ * @see OAuth2AuthorizationEndpointFilter#setAuthorizationEndpointListener(OAuth2AuthorizationEndpointListener)
+ */
+public final class MicrometerOAuth2AuthorizationEndpointListener implements OAuth2AuthorizationEndpointListener {
+	private static final String METER_NAME = "oauth2.authorization.endpoint.requests";
+	private final MeterRegistry meterRegistry;
+	private final Timer authorizationCodeIssuedTimer;
+	private final Timer authenticationRequiredTimer;
+	private final Map<String, Timer> authorizationErrorTimers = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a {@code MicrometerOAuth2AuthorizationEndpointListener} using the provided parameters.
+	 *
+	 * @param meterRegistry the {@link MeterRegistry} the meters are registered with
+	 */
+	public MicrometerOAuth2AuthorizationEndpointListener(MeterRegistry meterRegistry) {
+		Assert.notNull(meterRegistry, "meterRegistry cannot be null");
+		this.meterRegistry = meterRegistry;
+		this.authorizationCodeIssuedTimer = registerTimer("success", "none", meterRegistry);
+		this.authenticationRequiredTimer = registerTimer("authentication_required", "none", meterRegistry);
+		for (Field field : OAuth2ErrorCodes.class.getFields()) {
+			if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+				String errorCode = (String) getValue(field);
+				this.authorizationErrorTimers.put(errorCode, registerTimer("error", errorCode, meterRegistry));
+			}
+		}
+	}
+
+	@Override
+	public void onAuthorizationCodeIssued(long durationNanos) {
+		this.authorizationCodeIssuedTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void onAuthorizationError(OAuth2Error error, long durationNanos) {
+		Timer timer = this.authorizationErrorTimers.get(error.getErrorCode());
+		if (timer == null) {
+			timer = this.authorizationErrorTimers.computeIfAbsent(error.getErrorCode(),
+					errorCode -> registerTimer("error", errorCode, this.meterRegistry));
+		}
+		timer.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void onAuthenticationRequired(long durationNanos) {
+		this.authenticationRequiredTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static Timer registerTimer(String outcome, String errorCode, MeterRegistry meterRegistry) {
+		return Timer.builder(METER_NAME)
+				.tag("outcome", outcome)
+				.tag("error", errorCode)
+				.register(meterRegistry);
+	}
+
+	private static Object getValue(Field field) {
+		try {
+			return field.get(null);
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link OAuth2AuthorizationService} that records the calls to another {@link OAuth2AuthorizationService}
+ * with Micrometer.
+ *
+ * <p>
+ * The following meters are registered:
+ * <ul>
+ * <li>{@code oauth2.authorization.service} timers, tagged with the {@code operation}
+ * ({@code save}, {@code replace}, {@code remove}, {@code revoke} or {@code find}) and the {@code token.type}
+ * looked up or replaced, or {@code none}</li>
+ * <li>{@code oauth2.authorization.service.lookups} counters, tagged with the {@code token.type}
+ * and the {@code result} ({@code hit} or {@code miss})</li>
+ * <li>{@code oauth2.authorization.service.size} gauges, tagged with the {@code token.type},
+ * when the delegate is an {@link InMemoryOAuth2AuthorizationService}</li>
+ * </ul>
+ *
+ * <p>
+ * The meters are registered upfront, so that recording a call does not allocate tags or look up meters
+ * in the {@link MeterRegistry}.
+ *
+ * @since 0.0.1
+ * @see OAuth2AuthorizationService
+ */
+public final class MicrometerOAuth2AuthorizationService implements OAuth2AuthorizationService {
+	private static final String METER_NAME = "oauth2.authorization.service";
+	private static final TokenType[] TOKEN_TYPES = {
+			TokenType.AUTHORIZATION_CODE, TokenType.ACCESS_TOKEN, TokenType.REFRESH_TOKEN };
+	private final OAuth2AuthorizationService delegate;
+	private final MeterRegistry meterRegistry;
+	private final Timer saveTimer;
+	private final Timer replaceRefreshTokenTimer;
+	private final Timer replaceAuthorizationCodeTimer;
+	private final Timer removeTimer;
+	private final Timer revokeTimer;
+	private final Map<TokenType, LookupMeters> lookupMeters = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a {@code MicrometerOAuth2AuthorizationService} using the provided parameters.
+	 *
+	 * @param delegate the {@link OAuth2AuthorizationService} the calls are delegated to
+	 * @param meterRegistry the {@link MeterRegistry} the meters are registered with
+	 */
+	public MicrometerOAuth2AuthorizationService(OAuth2AuthorizationService delegate, MeterRegistry meterRegistry) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		Assert.notNull(meterRegistry, "meterRegistry cannot be null");
+		this.delegate = delegate;
+		this.meterRegistry = meterRegistry;
+		this.saveTimer = Timer.builder(METER_NAME)
+				.tag("operation", "save")
+				.tag("token.type", "none")
+				.register(meterRegistry);
+		this.replaceRefreshTokenTimer = Timer.builder(METER_NAME)
+				.tag("operation", "replace")
+				.tag("token.type", TokenType.REFRESH_TOKEN.getValue())
+				.register(meterRegistry);
+		this.replaceAuthorizationCodeTimer = Timer.builder(METER_NAME)
+				.tag("operation", "replace")
+				.tag("token.type", TokenType.AUTHORIZATION_CODE.getValue())
+				.register(meterRegistry);
+		this.removeTimer = Timer.builder(METER_NAME)
+				.tag("operation", "remove")
+				.tag("token.type", "none")
+				.register(meterRegistry);
+		this.revokeTimer = Timer.builder(METER_NAME)
+				.tag("operation", "revoke")
+				.tag("token.type", "none")
+				.register(meterRegistry);
+		for (TokenType tokenType : TOKEN_TYPES) {
+			this.lookupMeters.put(tokenType, new LookupMeters(tokenType, meterRegistry));
+		}
+		if (delegate instanceof InMemoryOAuth2AuthorizationService) {
+			InMemoryOAuth2AuthorizationService authorizationService = (InMemoryOAuth2AuthorizationService) delegate;
+			for (TokenType tokenType : TOKEN_TYPES) {
+				Gauge.builder(METER_NAME + ".size", authorizationService, service -> service.size(tokenType))
+						.tag("token.type", tokenType.getValue())
+						.register(meterRegistry);
+			}
+		}
+	}
+
+	@Override
+	public void save(OAuth2Authorization authorization) {
+		long startTime = System.nanoTime();
+		try {
+			this.delegate.save(authorization);
+		} finally {
+			this.saveTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public boolean replace(String refreshToken, OAuth2Authorization authorization) {
+		long startTime = System.nanoTime();
+		try {
+			return this.delegate.replace(refreshToken, authorization);
+		} finally {
+			this.replaceRefreshTokenTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public boolean replace(OAuth2Authorization authorization) {
+		long startTime = System.nanoTime();
+		try {
+			return this.delegate.replace(authorization);
+		} finally {
+			this.replaceAuthorizationCodeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void remove(OAuth2Authorization authorization) {
+		long startTime = System.nanoTime();
+		try {
+			this.delegate.remove(authorization);
+		} finally {
+			this.removeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public TokenRevocation revoke(OAuth2Authorization authorization) {
+		long startTime = System.nanoTime();
+		try {
+			return this.delegate.revoke(authorization);
+		} finally {
+			this.revokeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public OAuth2Authorization findByTokenAndTokenType(String token, TokenType tokenType) {
+		if (tokenType == null) {
+			return this.delegate.findByTokenAndTokenType(token, tokenType);
+		}
+		LookupMeters meters = this.lookupMeters.get(tokenType);
+		if (meters == null) {
+			meters = this.lookupMeters.computeIfAbsent(tokenType, type -> new LookupMeters(type, this.meterRegistry));
+		}
+		long startTime = System.nanoTime();
+		OAuth2Authorization authorization;
+		try {
+			authorization = this.delegate.findByTokenAndTokenType(token, tokenType);
+		} finally {
+			meters.timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+		(authorization != null ? meters.hits : meters.misses).increment();
+		return authorization;
+	}
+
+	private static final class LookupMeters {
+		private final Timer timer;
+		private final Counter hits;
+		private final Counter misses;
+
+		private LookupMeters(TokenType tokenType, MeterRegistry meterRegistry) {
+			this.timer = Timer.builder(METER_NAME)
+					.tag("operation", "find")
+					.tag("token.type", tokenType.getValue())
+					.register(meterRegistry);
+			this.hits = Counter.builder(METER_NAME + ".lookups")
+					.tag("token.type", tokenType.getValue())
+					.tag("result", "hit")
+					.register(meterRegistry);
+			this.misses = Counter.builder(METER_NAME + ".lookups")
+					.tag("token.type", tokenType.getValue())
+					.tag("result", "miss")
+					.register(meterRegistry);
+		}
+	}
+}
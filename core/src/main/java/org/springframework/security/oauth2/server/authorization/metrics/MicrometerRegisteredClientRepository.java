@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RegisteredClientRepository} that records the calls to another {@link RegisteredClientRepository}
+ * with Micrometer.
+ *
+ * <p>
+ * The following meters are registered:
+ * <ul>
+ * <li>{@code oauth2.client.repository} timers, tagged with the {@code operation}
+ * ({@code findById}, {@code findByClientId} or {@code findByX509CertificateThumbprint})</li>
+ * <li>{@code oauth2.client.repository.lookups} counters, tagged with the {@code operation}
+ * and the {@code result} ({@code hit} or {@code miss})</li>
+ * <li>an {@code oauth2.client.repository.size} gauge, when the delegate is an
+ * {@link InMemoryRegisteredClientRepository}</li>
+ * </ul>
+ *
+ * <p>
+ * The meters are registered upfront, so that recording a call does not allocate tags or look up meters
+ * in the {@link MeterRegistry}.
+ *
+ * @since 0.0.1
+ * @see RegisteredClientRepository
+ */
+public final class MicrometerRegisteredClientRepository implements RegisteredClientRepository {
+	private static final String METER_NAME = "oauth2.client.repository";
+	private final RegisteredClientRepository delegate;
+	private final LookupMeters findByIdMeters;
+	private final LookupMeters findByClientIdMeters;
+	private final LookupMeters findByX509CertificateThumbprintMeters;
+
+	/**
+	 * Constructs a {@code MicrometerRegisteredClientRepository} using the provided parameters.
+	 *
+	 * @param delegate the {@link RegisteredClientRepository} the calls are delegated to
+	 * @param meterRegistry the {@link MeterRegistry} the meters are registered with
+	 */
+	public MicrometerRegisteredClientRepository(RegisteredClientRepository delegate, MeterRegistry meterRegistry) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		Assert.notNull(meterRegistry, "meterRegistry cannot be null");
+		this.delegate = delegate;
+		this.findByIdMeters = new LookupMeters("findById", meterRegistry);
+		this.findByClientIdMeters = new LookupMeters("findByClientId", meterRegistry);
+		this.findByX509CertificateThumbprintMeters = new LookupMeters("findByX509CertificateThumbprint", meterRegistry);
+		if (delegate instanceof InMemoryRegisteredClientRepository) {
+			Gauge.builder(METER_NAME + ".size", (InMemoryRegisteredClientRepository) delegate,
+					InMemoryRegisteredClientRepository::size)
+					.register(meterRegistry);
+		}
+	}
+
+	@Override
+	public RegisteredClient findById(String id) {
+		long startTime = System.nanoTime();
+		try {
+			return this.findByIdMeters.count(this.delegate.findById(id));
+		} finally {
+			this.findByIdMeters.stop(startTime);
+		}
+	}
+
+	@Override
+	public RegisteredClient findByClientId(String clientId) {
+		long startTime = System.nanoTime();
+		try {
+			return this.findByClientIdMeters.count(this.delegate.findByClientId(clientId));
+		} finally {
+			this.findByClientIdMeters.stop(startTime);
+		}
+	}
+
+	@Override
+	public RegisteredClient findByX509CertificateThumbprint(String x509CertificateThumbprint) {
+		long startTime = System.nanoTime();
+		try {
+			return this.findByX509CertificateThumbprintMeters.count(
+					this.delegate.findByX509CertificateThumbprint(x509CertificateThumbprint));
+		} finally {
+			this.findByX509CertificateThumbprintMeters.stop(startTime);
+		}
+	}
+
+	private static final class LookupMeters {
+		private final Timer timer;
+		private final Counter hits;
+		private final Counter misses;
+
+		private LookupMeters(String operation, MeterRegistry meterRegistry) {
+			this.timer = Timer.builder(METER_NAME)
+					.tag("operation", operation)
+					.register(meterRegistry);
+			this.hits = Counter.builder(METER_NAME + ".lookups")
+					.tag("operation", operation)
+					.tag("result", "hit")
+					.register(meterRegistry);
+			this.misses = Counter.builder(METER_NAME + ".lookups")
+					.tag("operation", operation)
+					.tag("result", "miss")
+					.register(meterRegistry);
+		}
+
+		private RegisteredClient count(RegisteredClient registeredClient) {
+			(registeredClient != null ? this.hits : this.misses).increment();
+			return registeredClient;
+		}
+
+		private void stop(long startTime) {
+			this.timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+}
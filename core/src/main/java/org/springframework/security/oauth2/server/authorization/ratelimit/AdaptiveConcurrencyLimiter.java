@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.ratelimit;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests processed concurrently, adapting the limit to the latency of the requests
+ * in the style of TCP Vegas congestion control.
+ *
+ * <p>
+ * The latency of the requests processed without queueing, the baseline, is the lowest latency observed.
+ * The number of requests queued is estimated from how much the latency of each request exceeds the baseline:
+ * the limit grows while few requests are queued, and shrinks once too many are, so that the latency of the
+ * admitted requests stays close to the baseline rather than growing with the load.
+ * The baseline is measured again over each window of samples, without lowering the limit, so that it follows
+ * a lasting increase of the latency: at the end of a window, the lowest latency observed over the window
+ * while less than half of the limit was in use is the new baseline. The latency observed closer to the limit is left out,
+ * as it includes the queueing the limit itself allows, and would let the baseline, and then the limit, grow with it.
+ *
+ * <p>
+ * Acquiring a permit is a compare-and-set on the number of requests in flight.
+ * The limit is updated under a lock when a permit is released, which only involves a few arithmetic operations.
+ *
+ * @since 0.0.1
+ * @see <a target="_blank" href="https://doi.org/10.1109/49.464716">TCP Vegas: End to End Congestion Avoidance on a Global Internet</a>
+ */
+public final class AdaptiveConcurrencyLimiter {
+	private static final int DEFAULT_INITIAL_LIMIT = 20;
+	private static final int DEFAULT_MAX_LIMIT = 1000;
+	private static final int WINDOW_MULTIPLIER = 100;
+	private final int maxLimit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile int limit;
+	private double estimatedLimit;
+	private long baselineLatency;
+	private long windowMinLatency = Long.MAX_VALUE;
+	private long windowCountdown;
+
+	/**
+	 * Constructs an {@code AdaptiveConcurrencyLimiter} with an initial limit of 20 and a maximum limit of 1000.
+	 */
+	public AdaptiveConcurrencyLimiter() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT);
+	}
+
+	/**
+	 * Constructs an {@code AdaptiveConcurrencyLimiter} using the provided parameters.
+	 *
+	 * @param initialLimit the initial number of requests processed concurrently
+	 * @param maxLimit the maximum number of requests processed concurrently
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+		Assert.isTrue(initialLimit > 0, "initialLimit must be greater than 0");
+		Assert.isTrue(maxLimit >= initialLimit, "maxLimit must be greater than or equal to initialLimit");
+		this.maxLimit = maxLimit;
+		this.limit = initialLimit;
+		this.estimatedLimit = initialLimit;
+		this.windowCountdown = nextWindowCountdown(initialLimit);
+	}
+
+	/**
+	 * Acquires a permit to process a request, unless the limit is reached.
+	 * A permit acquired must be released with {@link #release(long)} once the request is processed.
+	 *
+	 * @return {@code true} if a permit was acquired, {@code false} if the request should be rejected
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = this.inFlight.get();
+			if (current >= this.limit) {
+				return false;
+			}
+			if (this.inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases a permit, updating the limit with the latency of the request processed.
+	 *
+	 * @param latencyNanos the time spent processing the request, in nanoseconds
+	 */
+	public void release(long latencyNanos) {
+		int inFlight = this.inFlight.getAndDecrement();
+		if (latencyNanos > 0) {
+			update(latencyNanos, inFlight);
+		}
+	}
+
+	/**
+	 * Returns the current number of requests processed concurrently.
+	 *
+	 * @return the current limit
+	 */
+	public int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * Returns the number of requests being processed.
+	 *
+	 * @return the number of requests being processed
+	 */
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	private synchronized void update(long latency, int inFlight) {
+		boolean limited = inFlight * 2 >= this.estimatedLimit;
+		if (!limited) {
+			this.windowMinLatency = Math.min(this.windowMinLatency, latency);
+		}
+		if (--this.windowCountdown <= 0) {
+			// measure the baseline again, in case the latency without queueing has grown
+			if (this.windowMinLatency != Long.MAX_VALUE) {
+				this.baselineLatency = this.windowMinLatency;
+			}
+			this.windowMinLatency = Long.MAX_VALUE;
+			this.windowCountdown = nextWindowCountdown(this.estimatedLimit);
+			return;
+		}
+		if (this.baselineLatency == 0 || latency < this.baselineLatency) {
+			this.baselineLatency = latency;
+			return;
+		}
+		if (!limited) {
+			// the limit is not the bottleneck, and the latency says nothing about it
+			return;
+		}
+
+		double log = Math.max(1, Math.log10(this.estimatedLimit));
+		double queued = Math.ceil(this.estimatedLimit * (1 - (double) this.baselineLatency / latency));
+		double newLimit;
+		if (queued <= log) {
+			newLimit = this.estimatedLimit + 6 * log;
+		} else if (queued < 3 * log) {
+			newLimit = this.estimatedLimit + log;
+		} else if (queued > 6 * log) {
+			newLimit = this.estimatedLimit - log;
+		} else {
+			return;
+		}
+		this.estimatedLimit = Math.max(1, Math.min(this.maxLimit, newLimit));
+		this.limit = (int) this.estimatedLimit;
+	}
+
+	private static long nextWindowCountdown(double limit) {
+		return (long) (WINDOW_MULTIPLIER * limit);
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.ratelimit;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the rate of the requests of each {@link RegisteredClient} to its {@link RateLimit},
+ * or to the default {@link RateLimit} when the client does not register one.
+ *
+ * <p>
+ * A client is only charged for its requests once authenticated, so that a request claiming
+ * the identifier of another client cannot exhaust the rate limit of that client.
+ * The failed client authentications are limited separately, by remote address and claimed client identifier,
+ * so that the clients sharing a remote address, such as behind a NAT gateway or a proxy,
+ * are not throttled by the failed authentications of another client.
+ *
+ * <p>
+ * Each client has a token bucket, held as a single atomic word with the Generic Cell Rate Algorithm:
+ * the word is the time at which the bucket will be full again, and acquiring a permit moves it forward
+ * by the time needed to refill one permit, unless it would then exceed the burst capacity.
+ * Acquiring a permit is a compare-and-set on the bucket of the client, in a {@link ConcurrentHashMap},
+ * and never acquires a lock.
+ *
+ * <p>
+ * A full bucket is indistinguishable from a new one, so the buckets that have been idle
+ * long enough to be full again are evicted periodically, without losing any state.
+ *
+ * @since 0.0.1
+ * @see RateLimit
+ * @see <a target="_blank" href="https://en.wikipedia.org/wiki/Generic_cell_rate_algorithm">Generic Cell Rate Algorithm</a>
+ */
+public final class ClientRateLimiter {
+	private static final long EVICTED = Long.MIN_VALUE;
+	private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, AtomicLong> failedAuthenticationBuckets = new ConcurrentHashMap<>();
+	private final AtomicLong nextEvictionTime = new AtomicLong();
+	private RateLimit defaultRateLimit;
+	private RateLimit failedAuthenticationRateLimit = RateLimit.of(60, Duration.ofMinutes(1));
+	private long evictionIntervalNanos = Duration.ofMinutes(1).toNanos();
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Sets the {@link RateLimit} of the clients that do not register one.
+	 * By default, the requests of these clients are not limited.
+	 *
+	 * @param defaultRateLimit the default {@link RateLimit}
+	 */
+	public void setDefaultRateLimit(RateLimit defaultRateLimit) {
+		Assert.notNull(defaultRateLimit, "defaultRateLimit cannot be null");
+		this.defaultRateLimit = defaultRateLimit;
+	}
+
+	/**
+	 * Sets the {@link RateLimit} of the failed client authentications from a remote address for a client identifier.
+	 * The default is 60 failed authentications per minute.
+	 *
+	 * @param failedAuthenticationRateLimit the {@link RateLimit} of the failed client authentications
+	 */
+	public void setFailedAuthenticationRateLimit(RateLimit failedAuthenticationRateLimit) {
+		Assert.notNull(failedAuthenticationRateLimit, "failedAuthenticationRateLimit cannot be null");
+		this.failedAuthenticationRateLimit = failedAuthenticationRateLimit;
+	}
+
+	/**
+	 * Sets the interval between two evictions of the idle buckets. The default is 1 minute.
+	 *
+	 * @param evictionInterval the interval between two evictions
+	 */
+	public void setEvictionInterval(Duration evictionInterval) {
+		Assert.notNull(evictionInterval, "evictionInterval cannot be null");
+		Assert.isTrue(!evictionInterval.isNegative() && !evictionInterval.isZero(), "evictionInterval must be positive");
+		this.evictionIntervalNanos = evictionInterval.toNanos();
+	}
+
+	/**
+	 * Sets the {@link Clock} used for refilling the buckets.
+	 *
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Acquires a permit for a request of the authenticated client.
+	 *
+	 * @param registeredClient the authenticated client
+	 * @return {@code 0} if a permit was acquired, or else the number of nanoseconds until a permit is available
+	 */
+	public long tryAcquire(RegisteredClient registeredClient) {
+		Assert.notNull(registeredClient, "registeredClient cannot be null");
+		RateLimit rateLimit = getRateLimit(registeredClient);
+		if (rateLimit == null) {
+			return 0;
+		}
+		return tryAcquire(this.buckets, registeredClient.getClientId(), rateLimit);
+	}
+
+	/**
+	 * Returns the time until a client authentication from the remote address for the client identifier
+	 * may be attempted, once the failed authentications from the remote address for the client identifier
+	 * have exceeded their rate limit.
+	 *
+	 * @param remoteAddress the remote address
+	 * @param clientId the client identifier claimed by the request, or {@code null} if none
+	 * @return {@code 0} if a client authentication may be attempted, or else the number of nanoseconds until it may
+	 */
+	public long getFailedAuthenticationWaitTime(String remoteAddress, @Nullable String clientId) {
+		Assert.hasText(remoteAddress, "remoteAddress cannot be empty");
+		AtomicLong bucket = this.failedAuthenticationBuckets.get(getFailedAuthenticationKey(remoteAddress, clientId));
+		long fullTime = bucket != null ? bucket.get() : EVICTED;
+		if (fullTime == EVICTED) {
+			return 0;
+		}
+		long now = nanoTime();
+		long interval = getInterval(this.failedAuthenticationRateLimit);
+		long capacity = saturatedMultiply(interval, this.failedAuthenticationRateLimit.getBurstCapacity());
+		return Math.max(0, Math.max(fullTime, now) + interval - now - capacity);
+	}
+
+	/**
+	 * Records a failed client authentication from the remote address for the client identifier.
+	 *
+	 * @param remoteAddress the remote address
+	 * @param clientId the client identifier claimed by the request, or {@code null} if none
+	 */
+	public void recordFailedAuthentication(String remoteAddress, @Nullable String clientId) {
+		Assert.hasText(remoteAddress, "remoteAddress cannot be empty");
+		tryAcquire(this.failedAuthenticationBuckets, getFailedAuthenticationKey(remoteAddress, clientId),
+				this.failedAuthenticationRateLimit);
+	}
+
+	private long tryAcquire(ConcurrentMap<String, AtomicLong> buckets, String key, RateLimit rateLimit) {
+		long now = nanoTime();
+		evictIdleBuckets(now);
+
+		long interval = getInterval(rateLimit);
+		long capacity = saturatedMultiply(interval, rateLimit.getBurstCapacity());
+		AtomicLong bucket = getBucket(buckets, key, now);
+		while (true) {
+			long fullTime = bucket.get();
+			if (fullTime == EVICTED) {
+				bucket = getBucket(buckets, key, now);
+				continue;
+			}
+			long nextFullTime = Math.max(fullTime, now) + interval;
+			long waitTime = nextFullTime - now - capacity;
+			if (waitTime > 0) {
+				return waitTime;
+			}
+			if (bucket.compareAndSet(fullTime, nextFullTime)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of clients with a bucket that is not full,
+	 * not including the buckets of the failed client authentications.
+	 *
+	 * @return the number of clients with a bucket
+	 */
+	public int size() {
+		return this.buckets.size();
+	}
+
+	@Nullable
+	private RateLimit getRateLimit(RegisteredClient registeredClient) {
+		return registeredClient.getRateLimit() != null ? registeredClient.getRateLimit() : this.defaultRateLimit;
+	}
+
+	private static String getFailedAuthenticationKey(String remoteAddress, @Nullable String clientId) {
+		// a remote address never contains a space, so the key is unambiguous
+		return clientId != null ? remoteAddress + ' ' + clientId : remoteAddress;
+	}
+
+	private static long getInterval(RateLimit rateLimit) {
+		return rateLimit.getPeriod().toNanos() / rateLimit.getPermits();
+	}
+
+	private static AtomicLong getBucket(ConcurrentMap<String, AtomicLong> buckets, String key, long now) {
+		while (true) {
+			AtomicLong bucket = buckets.get(key);
+			if (bucket != null && bucket.get() != EVICTED) {
+				return bucket;
+			}
+			AtomicLong newBucket = new AtomicLong(now);
+			boolean added = (bucket == null) ?
+					buckets.putIfAbsent(key, newBucket) == null :
+					buckets.replace(key, bucket, newBucket);
+			if (added) {
+				return newBucket;
+			}
+		}
+	}
+
+	private void evictIdleBuckets(long now) {
+		long evictionTime = this.nextEvictionTime.get();
+		if (now - evictionTime < 0 || !this.nextEvictionTime.compareAndSet(evictionTime, now + this.evictionIntervalNanos)) {
+			return;
+		}
+		evictIdleBuckets(this.buckets, now);
+		evictIdleBuckets(this.failedAuthenticationBuckets, now);
+	}
+
+	private static void evictIdleBuckets(ConcurrentMap<String, AtomicLong> buckets, long now) {
+		buckets.forEach((key, bucket) -> {
+			// a full bucket is marked evicted first, so that a concurrent acquisition does not update a removed bucket
+			long fullTime = bucket.get();
+			if (fullTime != EVICTED && fullTime - now <= 0 && bucket.compareAndSet(fullTime, EVICTED)) {
+				buckets.remove(key, bucket);
+			}
+		});
+	}
+
+	private long nanoTime() {
+		Instant now = this.clock.instant();
+		return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+	}
+
+	private static long saturatedMultiply(long a, long b) {
+		long product = a * b;
+		return (a != 0 && product / a != b) ? Long.MAX_VALUE : product;
+	}
+}
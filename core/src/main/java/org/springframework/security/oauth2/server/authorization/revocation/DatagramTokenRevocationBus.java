@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.util.Assert;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link TokenRevocationBus} propagating {@link TokenRevocation}'s to its peers as UDP datagrams.
+ *
+ * <p>
+ * Each revocation is sent as a single fixed-size datagram holding the {@link TokenDigest} of the token
+ * and its expiry, to every peer, and delivered to the local listeners directly.
+ * Delivery to the peers is best-effort, which means the bus must be complemented by a bounded
+ * lifetime of the locally cached token state.
+ *
+ * <p>
+ * Every datagram is authenticated with an HMAC-SHA256 computed with a key shared by the nodes of the deployment,
+ * and datagrams failing verification are dropped, so that only the nodes holding the key can revoke tokens.
+ * Nonetheless, the socket should only be reachable from the nodes of the deployment,
+ * such as on a loopback or private interface.
+ *
+ * @since 0.0.1
+ * @see TokenRevocationBus
+ */
+public final class DatagramTokenRevocationBus implements TokenRevocationBus, Closeable {
+	private static final byte VERSION = 2;
+	private static final int PAYLOAD_LENGTH = 1 + 16 + 8;
+	private static final int MAC_LENGTH = 32;
+	private static final int PACKET_LENGTH = PAYLOAD_LENGTH + MAC_LENGTH;
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private final Log logger = LogFactory.getLog(getClass());
+	private final List<TokenRevocationListener> listeners = new CopyOnWriteArrayList<>();
+	private final List<SocketAddress> peers;
+	private final SecretKey key;
+	private final DatagramSocket socket;
+	private final Thread receiver;
+
+	/**
+	 * Constructs a {@code DatagramTokenRevocationBus} using the provided parameters,
+	 * and starts receiving revocations from its peers.
+	 *
+	 * @param bindAddress the local address to receive revocations on, with port 0 for an ephemeral port
+	 * @param peers the addresses of the peers to send revocations to
+	 * @param key the key shared by the peers, for authenticating the datagrams with HMAC-SHA256
+	 */
+	public DatagramTokenRevocationBus(InetSocketAddress bindAddress, Collection<InetSocketAddress> peers,
+			SecretKey key) {
+		Assert.notNull(bindAddress, "bindAddress cannot be null");
+		Assert.notNull(peers, "peers cannot be null");
+		Assert.notNull(key, "key cannot be null");
+		Assert.isTrue(key.getEncoded() != null && key.getEncoded().length >= MAC_LENGTH,
+				"key must be at least 256 bits");
+		this.peers = new ArrayList<>(peers);
+		this.key = key;
+		// Fail fast if the key cannot be used for HMAC-SHA256
+		createMac();
+		try {
+			this.socket = new DatagramSocket(bindAddress);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		this.receiver = new Thread(this::receive, "token-revocation-bus-" + this.socket.getLocalPort());
+		this.receiver.setDaemon(true);
+		this.receiver.start();
+	}
+
+	/**
+	 * Returns the local address revocations are received on.
+	 *
+	 * @return the local address revocations are received on
+	 */
+	public InetSocketAddress getLocalAddress() {
+		return (InetSocketAddress) this.socket.getLocalSocketAddress();
+	}
+
+	@Override
+	public void publish(TokenRevocation revocation) {
+		Assert.notNull(revocation, "revocation cannot be null");
+		ByteBuffer packet = ByteBuffer.allocate(PACKET_LENGTH)
+				.put(VERSION)
+				.put(revocation.getTokenDigest().toByteArray())
+				.putLong(revocation.getExpiresAt().getEpochSecond());
+		Mac mac = createMac();
+		mac.update(packet.array(), 0, PAYLOAD_LENGTH);
+		byte[] bytes = packet.put(mac.doFinal()).array();
+		for (SocketAddress peer : this.peers) {
+			try {
+				this.socket.send(new DatagramPacket(bytes, bytes.length, peer));
+			} catch (IOException ex) {
+				this.logger.warn("Failed to send token revocation to " + peer, ex);
+			}
+		}
+		deliver(revocation);
+	}
+
+	@Override
+	public void subscribe(TokenRevocationListener listener) {
+		Assert.notNull(listener, "listener cannot be null");
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Stops receiving revocations and releases the socket.
+	 */
+	@Override
+	public void close() {
+		this.socket.close();
+	}
+
+	private void receive() {
+		byte[] buffer = new byte[PACKET_LENGTH];
+		Mac mac = createMac();
+		while (!this.socket.isClosed()) {
+			DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+			try {
+				this.socket.receive(packet);
+			} catch (IOException ex) {
+				if (!this.socket.isClosed()) {
+					this.logger.warn("Failed to receive token revocation", ex);
+				}
+				continue;
+			}
+			if (packet.getLength() != PACKET_LENGTH || buffer[0] != VERSION) {
+				continue;
+			}
+			mac.update(buffer, 0, PAYLOAD_LENGTH);
+			if (!MessageDigest.isEqual(mac.doFinal(), Arrays.copyOfRange(buffer, PAYLOAD_LENGTH, PACKET_LENGTH))) {
+				if (this.logger.isDebugEnabled()) {
+					this.logger.debug("Dropped unauthenticated token revocation from " + packet.getSocketAddress());
+				}
+				continue;
+			}
+			TokenDigest tokenDigest = TokenDigest.fromByteArray(Arrays.copyOfRange(buffer, 1, 17));
+			Instant expiresAt = Instant.ofEpochSecond(ByteBuffer.wrap(buffer).getLong(17));
+			try {
+				deliver(new TokenRevocation(tokenDigest, expiresAt));
+			} catch (RuntimeException ex) {
+				this.logger.warn("Failed to handle token revocation", ex);
+			}
+		}
+	}
+
+	private Mac createMac() {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(this.key);
+			return mac;
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalArgumentException("Invalid key: " + ex.getMessage(), ex);
+		}
+	}
+
+	private void deliver(TokenRevocation revocation) {
+		this.listeners.forEach(listener -> listener.onRevocation(revocation));
+	}
+}
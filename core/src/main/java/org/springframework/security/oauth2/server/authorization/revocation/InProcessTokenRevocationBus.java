@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link TokenRevocationBus} delivering {@link TokenRevocation}'s to the listeners of the same process,
+ * for single node deployments and testing.
+ *
+ * @since 0.0.1
+ * @see TokenRevocationBus
+ */
+public final class InProcessTokenRevocationBus implements TokenRevocationBus {
+	private final List<TokenRevocationListener> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void publish(TokenRevocation revocation) {
+		Assert.notNull(revocation, "revocation cannot be null");
+		this.listeners.forEach(listener -> listener.onRevocation(revocation));
+	}
+
+	@Override
+	public void subscribe(TokenRevocationListener listener) {
+		Assert.notNull(listener, "listener cannot be null");
+		this.listeners.add(listener);
+	}
+}
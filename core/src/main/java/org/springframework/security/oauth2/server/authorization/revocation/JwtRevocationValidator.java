@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link OAuth2TokenValidator} rejecting the JWT access tokens present in the {@link TokenRevocationList},
+ * for resource servers validating self-contained access tokens locally.
+ *
+ * @since 0.0.1
+ * @see TokenRevocationList
+ */
+public final class JwtRevocationValidator implements OAuth2TokenValidator<Jwt> {
+	private static final OAuth2Error REVOKED = new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN,
+			"The token has been revoked", null);
+	private final TokenRevocationList revocationList;
+
+	/**
+	 * Constructs a {@code JwtRevocationValidator} using the provided parameters.
+	 *
+	 * @param revocationList the {@link TokenRevocationList}
+	 */
+	public JwtRevocationValidator(TokenRevocationList revocationList) {
+		Assert.notNull(revocationList, "revocationList cannot be null");
+		this.revocationList = revocationList;
+	}
+
+	@Override
+	public OAuth2TokenValidatorResult validate(Jwt jwt) {
+		return this.revocationList.isRevoked(jwt.getTokenValue()) ?
+				OAuth2TokenValidatorResult.failure(REVOKED) :
+				OAuth2TokenValidatorResult.success();
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.security.oauth2.server.authorization.Version;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * The revocation of a token, identified by its {@link TokenDigest},
+ * which needs to be respected until the token would have expired anyway.
+ *
+ * @since 0.0.1
+ * @see TokenRevocationBus
+ * @see TokenRevocationList
+ */
+public final class TokenRevocation implements Serializable {
+	private static final long serialVersionUID = Version.SERIAL_VERSION_UID;
+	private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(1);
+	private final TokenDigest tokenDigest;
+	private final Instant expiresAt;
+
+	/**
+	 * Constructs a {@code TokenRevocation} using the provided parameters.
+	 *
+	 * @param tokenDigest the digest of the revoked token
+	 * @param expiresAt the time at which the revoked token expires
+	 */
+	public TokenRevocation(TokenDigest tokenDigest, Instant expiresAt) {
+		Assert.notNull(tokenDigest, "tokenDigest cannot be null");
+		Assert.notNull(expiresAt, "expiresAt cannot be null");
+		this.tokenDigest = tokenDigest;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * Returns the revocation of the token with the provided digest, which is retained until the token expires,
+	 * or for one day if the token does not expire.
+	 *
+	 * @param tokenDigest the digest of the revoked token
+	 * @param expiresAt the time at which the revoked token expires, or {@code null} if it does not expire
+	 * @return the {@link TokenRevocation}
+	 */
+	public static TokenRevocation of(TokenDigest tokenDigest, Instant expiresAt) {
+		return new TokenRevocation(tokenDigest, expiresAt != null ?
+				expiresAt : Instant.now().plus(DEFAULT_TIME_TO_LIVE));
+	}
+
+	/**
+	 * Returns the digest of the revoked token.
+	 *
+	 * @return the digest of the revoked token
+	 */
+	public TokenDigest getTokenDigest() {
+		return this.tokenDigest;
+	}
+
+	/**
+	 * Returns the time at which the revoked token expires,
+	 * after which the revocation no longer needs to be retained.
+	 *
+	 * @return the time at which the revoked token expires
+	 */
+	public Instant getExpiresAt() {
+		return this.expiresAt;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		TokenRevocation that = (TokenRevocation) obj;
+		return this.tokenDigest.equals(that.tokenDigest) &&
+				this.expiresAt.equals(that.expiresAt);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.tokenDigest, this.expiresAt);
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+/**
+ * Propagates {@link TokenRevocation}'s to every node of the authorization server (and resource servers),
+ * so that locally cached token state is invalidated when a token is revoked on any node.
+ *
+ * <p>
+ * Implementations deliver published revocations to the listeners subscribed on the local node,
+ * as well as to the listeners subscribed on the other nodes.
+ *
+ * @since 0.0.1
+ * @see InProcessTokenRevocationBus
+ * @see DatagramTokenRevocationBus
+ * @see TokenRevocationList
+ */
+public interface TokenRevocationBus {
+
+	/**
+	 * Publishes the {@link TokenRevocation}.
+	 *
+	 * @param revocation the {@link TokenRevocation}
+	 */
+	void publish(TokenRevocation revocation);
+
+	/**
+	 * Subscribes the {@link TokenRevocationListener} to the published {@link TokenRevocation}'s.
+	 *
+	 * @param listener the {@link TokenRevocationListener}
+	 */
+	void subscribe(TokenRevocationListener listener);
+
+}
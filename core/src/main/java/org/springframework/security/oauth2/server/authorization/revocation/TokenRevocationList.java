@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The list of the revoked tokens not yet expired, held by each node and kept up to date
+ * by subscribing it to the {@link TokenRevocationBus}.
+ * Components caching token state locally consult it to reject tokens revoked since they were cached.
+ *
+ * <p>
+ * A revocation is retained until the token expires, and is held as its {@link TokenDigest}
+ * and expiry in epoch seconds.
+ *
+ * @since 0.0.1
+ * @see TokenRevocationBus#subscribe(TokenRevocationListener)
+ */
+public final class TokenRevocationList implements TokenRevocationListener {
+	private static final int PURGE_INTERVAL = 1024;
+	private final Map<TokenDigest, Long> revocations = new ConcurrentHashMap<>();
+	private final AtomicInteger revocationCount = new AtomicInteger();
+	private Clock clock = Clock.systemUTC();
+
+	@Override
+	public void onRevocation(TokenRevocation revocation) {
+		Assert.notNull(revocation, "revocation cannot be null");
+		this.revocations.put(revocation.getTokenDigest(), revocation.getExpiresAt().getEpochSecond());
+		if (this.revocationCount.incrementAndGet() % PURGE_INTERVAL == 0) {
+			purge();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the token has been revoked and has not yet expired.
+	 *
+	 * @param tokenDigest the digest of the token
+	 * @return {@code true} if the token has been revoked, {@code false} otherwise
+	 */
+	public boolean isRevoked(TokenDigest tokenDigest) {
+		Assert.notNull(tokenDigest, "tokenDigest cannot be null");
+		Long expiresAt = this.revocations.get(tokenDigest);
+		return expiresAt != null && currentEpochSecond() < expiresAt;
+	}
+
+	/**
+	 * Returns {@code true} if the token has been revoked and has not yet expired.
+	 *
+	 * @param token the token value
+	 * @return {@code true} if the token has been revoked, {@code false} otherwise
+	 */
+	public boolean isRevoked(String token) {
+		return isRevoked(TokenDigest.of(token));
+	}
+
+	/**
+	 * Returns the number of revocations retained.
+	 *
+	 * @return the number of revocations retained
+	 */
+	public int size() {
+		return this.revocations.size();
+	}
+
+	/**
+	 * Removes the revocations of the tokens that have expired.
+	 */
+	public void purge() {
+		long now = currentEpochSecond();
+		this.revocations.values().removeIf(expiresAt -> now >= expiresAt);
+	}
+
+	/**
+	 * Sets the {@code Clock} used when determining whether a revoked token has expired.
+	 *
+	 * @param clock the {@code Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private long currentEpochSecond() {
+		return this.clock.millis() / 1000;
+	}
+}
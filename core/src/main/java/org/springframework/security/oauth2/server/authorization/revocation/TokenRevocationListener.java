@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+/**
+ * A listener notified of the {@link TokenRevocation}'s published on a {@link TokenRevocationBus}.
+ *
+ * @since 0.0.1
+ * @see TokenRevocationBus#subscribe(TokenRevocationListener)
+ */
+@FunctionalInterface
+public interface TokenRevocationListener {
+
+	/**
+	 * Handles the revocation of a token.
+	 *
+	 * @param revocation the {@link TokenRevocation}
+	 */
+	void onRevocation(TokenRevocation revocation);
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.stats;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-client request statistics for the authorization and token endpoints, kept at a constant memory cost
+ * regardless of the number of clients.
+ *
+ * <p>
+ * The number of requests of each client is estimated with a {@link CountMinSketch}, and the clients
+ * with the highest estimates are tracked as the top clients. An estimate is never lower than the actual
+ * number of requests, and exceeds it by at most {@link #getMaximumOverestimate()} with high probability.
+ *
+ * <p>
+ * The statistics accumulate until {@link #reset()} is called, which may be scheduled to observe
+ * the traffic over fixed periods of time.
+ *
+ * @since 0.0.1
+ * @see CountMinSketch
+ */
+public final class ClientTrafficStatistics {
+	private static final int DEFAULT_WIDTH = 2048;
+	private static final int DEFAULT_DEPTH = 4;
+	private static final int DEFAULT_MAX_TOP_CLIENTS = 20;
+	private final CountMinSketch authorizationRequests;
+	private final CountMinSketch tokenRequests;
+	private final CountMinSketch totalRequests;
+	private final TopClients topClients;
+
+	/**
+	 * Constructs a {@code ClientTrafficStatistics} tracking the top 20 clients,
+	 * with sketches of 4 rows of 2048 counters.
+	 */
+	public ClientTrafficStatistics() {
+		this(DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_MAX_TOP_CLIENTS);
+	}
+
+	/**
+	 * Constructs a {@code ClientTrafficStatistics} using the provided parameters.
+	 *
+	 * @param width the number of counters per row of the sketches
+	 * @param depth the number of rows of the sketches
+	 * @param maxTopClients the maximum number of top clients tracked
+	 */
+	public ClientTrafficStatistics(int width, int depth, int maxTopClients) {
+		Assert.isTrue(maxTopClients > 0, "maxTopClients must be greater than 0");
+		this.authorizationRequests = new CountMinSketch(width, depth);
+		this.tokenRequests = new CountMinSketch(width, depth);
+		this.totalRequests = new CountMinSketch(width, depth);
+		this.topClients = new TopClients(maxTopClients);
+	}
+
+	/**
+	 * Records an authorization request of the client.
+	 *
+	 * @param clientId the client identifier
+	 */
+	public void recordAuthorizationRequest(String clientId) {
+		Assert.hasText(clientId, "clientId cannot be empty");
+		this.authorizationRequests.add(clientId);
+		this.topClients.offer(clientId, this.totalRequests.add(clientId));
+	}
+
+	/**
+	 * Records an access token request of the client.
+	 *
+	 * @param clientId the client identifier
+	 */
+	public void recordTokenRequest(String clientId) {
+		Assert.hasText(clientId, "clientId cannot be empty");
+		this.tokenRequests.add(clientId);
+		this.topClients.offer(clientId, this.totalRequests.add(clientId));
+	}
+
+	/**
+	 * Returns the number of authorization requests recorded, across all clients.
+	 *
+	 * @return the number of authorization requests
+	 */
+	public long getAuthorizationRequestCount() {
+		return this.authorizationRequests.getTotalCount();
+	}
+
+	/**
+	 * Returns the number of access token requests recorded, across all clients.
+	 *
+	 * @return the number of access token requests
+	 */
+	public long getTokenRequestCount() {
+		return this.tokenRequests.getTotalCount();
+	}
+
+	/**
+	 * Returns the maximum amount by which the number of requests of a client is overestimated,
+	 * with a probability of at least {@code 1 - e^-depth}.
+	 *
+	 * @return the maximum overestimate of the number of requests of a client
+	 */
+	public long getMaximumOverestimate() {
+		return (long) Math.ceil(Math.E / this.totalRequests.getWidth() * this.totalRequests.getTotalCount());
+	}
+
+	/**
+	 * Returns the estimated statistics of the client.
+	 *
+	 * @param clientId the client identifier
+	 * @return the {@link ClientStatistics}
+	 */
+	public ClientStatistics getClientStatistics(String clientId) {
+		Assert.hasText(clientId, "clientId cannot be empty");
+		return new ClientStatistics(clientId,
+				this.authorizationRequests.estimate(clientId), this.tokenRequests.estimate(clientId));
+	}
+
+	/**
+	 * Returns the estimated statistics of the top clients, ordered by decreasing number of requests.
+	 *
+	 * @return the {@link ClientStatistics} of the top clients
+	 */
+	public List<ClientStatistics> getTopClients() {
+		List<ClientStatistics> topClients = new ArrayList<>();
+		for (String clientId : this.topClients.clientIds()) {
+			topClients.add(getClientStatistics(clientId));
+		}
+		topClients.sort(Comparator.comparingLong(ClientStatistics::getTotalRequests).reversed());
+		return topClients;
+	}
+
+	/**
+	 * Resets the statistics of all the clients.
+	 */
+	public void reset() {
+		this.topClients.clear();
+		this.authorizationRequests.reset();
+		this.tokenRequests.reset();
+		this.totalRequests.reset();
+	}
+
+	/**
+	 * The estimated request statistics of a client.
+	 */
+	public static final class ClientStatistics {
+		private final String clientId;
+		private final long authorizationRequests;
+		private final long tokenRequests;
+
+		private ClientStatistics(String clientId, long authorizationRequests, long tokenRequests) {
+			this.clientId = clientId;
+			this.authorizationRequests = authorizationRequests;
+			this.tokenRequests = tokenRequests;
+		}
+
+		/**
+		 * Returns the client identifier.
+		 *
+		 * @return the client identifier
+		 */
+		public String getClientId() {
+			return this.clientId;
+		}
+
+		/**
+		 * Returns the estimated number of authorization requests.
+		 *
+		 * @return the estimated number of authorization requests
+		 */
+		public long getAuthorizationRequests() {
+			return this.authorizationRequests;
+		}
+
+		/**
+		 * Returns the estimated number of access token requests.
+		 *
+		 * @return the estimated number of access token requests
+		 */
+		public long getTokenRequests() {
+			return this.tokenRequests;
+		}
+
+		/**
+		 * Returns the estimated number of requests to both endpoints.
+		 *
+		 * @return the estimated number of requests
+		 */
+		public long getTotalRequests() {
+			return this.authorizationRequests + this.tokenRequests;
+		}
+	}
+
+	/**
+	 * The clients with the highest estimated number of requests. A client is only admitted
+	 * once its estimate exceeds the lowest estimate tracked, so that recording a request of
+	 * any other client does not acquire the lock.
+	 */
+	private static final class TopClients {
+		private final int maxSize;
+		private final Map<String, Long> counts = new ConcurrentHashMap<>();
+		private volatile long admissionThreshold;
+
+		private TopClients(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		private void offer(String clientId, long count) {
+			if (count <= this.admissionThreshold) {
+				return;
+			}
+			Long trackedCount = this.counts.get(clientId);
+			if (trackedCount != null) {
+				if (count > trackedCount) {
+					this.counts.replace(clientId, trackedCount, count);
+				}
+				return;
+			}
+			synchronized (this) {
+				if (count <= this.admissionThreshold) {
+					return;
+				}
+				this.counts.merge(clientId, count, Math::max);
+				if (this.counts.size() > this.maxSize) {
+					this.counts.remove(lowest().getKey());
+				}
+				if (this.counts.size() == this.maxSize) {
+					this.admissionThreshold = lowest().getValue();
+				}
+			}
+		}
+
+		private Map.Entry<String, Long> lowest() {
+			Map.Entry<String, Long> lowest = null;
+			for (Map.Entry<String, Long> entry : this.counts.entrySet()) {
+				if (lowest == null || entry.getValue() < lowest.getValue()) {
+					lowest = entry;
+				}
+			}
+			return lowest;
+		}
+
+		private List<String> clientIds() {
+			return new ArrayList<>(this.counts.keySet());
+		}
+
+		private synchronized void clear() {
+			this.counts.clear();
+			this.admissionThreshold = 0;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.stats;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Count-Min Sketch, which estimates the number of occurrences of each item in a stream
+ * using a fixed amount of memory, regardless of the number of distinct items.
+ *
+ * <p>
+ * An estimate is never lower than the actual count, and exceeds it by more than
+ * {@code e / width} times the total count with a probability of at most {@code e^-depth}.
+ *
+ * <p>
+ * This implementation is thread-safe, and adding an item does not acquire any lock.
+ *
+ * @since 0.0.1
+ * @see <a target="_blank" href="https://doi.org/10.1016/j.jalgor.2003.12.001">An Improved Data Stream Summary: The Count-Min Sketch and its Applications</a>
+ */
+public final class CountMinSketch {
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private final int width;
+	private final int depth;
+	private final AtomicLongArray counters;
+	private final LongAdder totalCount = new LongAdder();
+
+	/**
+	 * Constructs a {@code CountMinSketch} using the provided parameters.
+	 *
+	 * @param width the number of counters per row, which bounds the estimation error
+	 * @param depth the number of rows, which bounds the probability of exceeding the estimation error
+	 */
+	public CountMinSketch(int width, int depth) {
+		Assert.isTrue(width > 0, "width must be greater than 0");
+		Assert.isTrue(depth > 0, "depth must be greater than 0");
+		Assert.isTrue((long) width * depth <= Integer.MAX_VALUE, "width * depth must not exceed " + Integer.MAX_VALUE);
+		this.width = width;
+		this.depth = depth;
+		this.counters = new AtomicLongArray(width * depth);
+	}
+
+	/**
+	 * Returns the number of counters per row.
+	 *
+	 * @return the number of counters per row
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Adds an occurrence of the item, and returns the estimated number of occurrences including this one.
+	 *
+	 * @param item the item
+	 * @return the estimated number of occurrences of the item
+	 */
+	public long add(String item) {
+		Assert.notNull(item, "item cannot be null");
+		long hash = hash(item);
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < this.depth; row++) {
+			long count = this.counters.incrementAndGet(index(row, hash1, hash2));
+			estimate = Math.min(estimate, count);
+		}
+		this.totalCount.increment();
+		return estimate;
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of the item.
+	 *
+	 * @param item the item
+	 * @return the estimated number of occurrences of the item
+	 */
+	public long estimate(String item) {
+		Assert.notNull(item, "item cannot be null");
+		long hash = hash(item);
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < this.depth; row++) {
+			estimate = Math.min(estimate, this.counters.get(index(row, hash1, hash2)));
+		}
+		return estimate;
+	}
+
+	/**
+	 * Returns the total number of occurrences added, across all items.
+	 *
+	 * @return the total number of occurrences added
+	 */
+	public long getTotalCount() {
+		return this.totalCount.sum();
+	}
+
+	/**
+	 * Resets all the counters. Occurrences added concurrently may or may not be retained.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.counters.length(); i++) {
+			this.counters.set(i, 0);
+		}
+		this.totalCount.reset();
+	}
+
+	private int index(int row, int hash1, int hash2) {
+		// Kirsch-Mitzenmacher: derive the hash of each row from two independent hashes
+		int combinedHash = hash1 + row * hash2;
+		return row * this.width + ((combinedHash & Integer.MAX_VALUE) % this.width);
+	}
+
+	private static long hash(String item) {
+		// FNV-1a over the characters, followed by the MurmurHash3 finalizer to spread the bits
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < item.length(); i++) {
+			hash ^= item.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.jose.JwsSigningService;
+import org.springframework.security.oauth2.server.authorization.jose.PooledJwsSigningService;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * An {@link OAuth2AccessTokenGenerator} that generates self-contained access tokens
+ * in the JSON Web Token (JWT) format, signed with JSON Web Signature (JWS),
+ * allowing resource servers to validate them locally.
+ *
+ * <p>
+ * The {@code JWSSigner} and the encoded JWS header are prepared once per signing key
+ * and reused for every token signed with that key.
+ *
+ * <p>
+ * An access token issued to a client authenticated with a certificate is bound to that certificate
+ * with the {@code cnf} claim, so that resource servers can validate the binding locally.
+ *
+ * <p>
+ * The signature is computed by the configured {@link JwsSigningService}, which may bound
+ * the number of tokens signed concurrently. A signing request it rejects fails the token request
+ * with the {@code temporarily_unavailable} error, so that the client may retry later.
+ *
+ * @since 0.0.1
+ * @see OAuth2AccessTokenGenerator
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7519">JSON Web Token (JWT)</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7515">JSON Web Signature (JWS)</a>
+ */
+public final class JwtAccessTokenGenerator implements OAuth2AccessTokenGenerator {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private final Supplier<JWK> signingKeySupplier;
+	private volatile PreparedSigner preparedSigner;
+	private JwsSigningService signingService = JwsSigningService.direct();
+	private String issuer;
+
+	/**
+	 * Constructs a {@code JwtAccessTokenGenerator} using the provided parameters.
+	 *
+	 * @param signingKey the private key used for signing the access tokens
+	 */
+	public JwtAccessTokenGenerator(JWK signingKey) {
+		Assert.notNull(signingKey, "signingKey cannot be null");
+		this.preparedSigner = prepareSigner(signingKey);
+		this.signingKeySupplier = () -> signingKey;
+	}
+
+	/**
+	 * Constructs a {@code JwtAccessTokenGenerator} using the provided parameters.
+	 *
+	 * @param signingKeySupplier the supplier of the private key currently used for signing the access tokens
+	 */
+	public JwtAccessTokenGenerator(Supplier<JWK> signingKeySupplier) {
+		Assert.notNull(signingKeySupplier, "signingKeySupplier cannot be null");
+		this.signingKeySupplier = signingKeySupplier;
+	}
+
+	/**
+	 * Sets the issuer identifier, used for the {@code iss} claim.
+	 *
+	 * @param issuer the issuer identifier
+	 */
+	public void setIssuer(String issuer) {
+		Assert.hasText(issuer, "issuer cannot be empty");
+		this.issuer = issuer;
+	}
+
+	/**
+	 * Sets the {@link JwsSigningService} used for signing the access tokens.
+	 * The default signs on the caller's thread.
+	 *
+	 * @param signingService the {@link JwsSigningService}
+	 * @see PooledJwsSigningService
+	 */
+	public void setSigningService(JwsSigningService signingService) {
+		Assert.notNull(signingService, "signingService cannot be null");
+		this.signingService = signingService;
+	}
+
+	@Override
+	public OAuth2AccessToken generate(OAuth2TokenContext context) {
+		Assert.notNull(context, "context cannot be null");
+		PreparedSigner signer = getPreparedSigner();
+
+		byte[] payload = BASE64_URL_ENCODER.encode(writeClaims(context));
+		byte[] signingInput = new byte[signer.encodedHeader.length + payload.length];
+		System.arraycopy(signer.encodedHeader, 0, signingInput, 0, signer.encodedHeader.length);
+		System.arraycopy(payload, 0, signingInput, signer.encodedHeader.length, payload.length);
+
+		Base64URL signature;
+		try {
+			signature = this.signingService.sign(signer.signer, signer.header, signingInput);
+		} catch (JOSEException ex) {
+			throw new IllegalStateException("Failed to sign the access token: " + ex.getMessage(), ex);
+		} catch (RejectedExecutionException ex) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+					"The access token cannot be signed at this time", null), ex);
+		}
+
+		String tokenValue = new String(signingInput, StandardCharsets.US_ASCII) + '.' + signature.toString();
+		return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue,
+				context.getIssuedAt(), context.getExpiresAt(), context.getScopes());
+	}
+
+	@Override
+	public boolean isSelfContained() {
+		return true;
+	}
+
+	private PreparedSigner getPreparedSigner() {
+		JWK signingKey = this.signingKeySupplier.get();
+		Assert.notNull(signingKey, "signingKey cannot be null");
+		PreparedSigner signer = this.preparedSigner;
+		if (signer == null || signer.signingKey != signingKey) {
+			signer = prepareSigner(signingKey);
+			this.preparedSigner = signer;
+		}
+		return signer;
+	}
+
+	private byte[] writeClaims(OAuth2TokenContext context) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			generator.writeStartObject();
+			if (this.issuer != null) {
+				generator.writeStringField("iss", this.issuer);
+			}
+			generator.writeStringField("sub", context.getPrincipalName());
+			generator.writeStringField("aud", context.getRegisteredClient().getClientId());
+			generator.writeStringField("client_id", context.getRegisteredClient().getClientId());
+			generator.writeNumberField("iat", context.getIssuedAt().getEpochSecond());
+			generator.writeNumberField("nbf", context.getIssuedAt().getEpochSecond());
+			generator.writeNumberField("exp", context.getExpiresAt().getEpochSecond());
+			generator.writeStringField("jti", UUID.randomUUID().toString());
+			if (!context.getScopes().isEmpty()) {
+				generator.writeStringField("scope",
+						StringUtils.collectionToDelimitedString(context.getScopes(), " "));
+			}
+			if (context.getX509CertificateThumbprint() != null) {
+				generator.writeObjectFieldStart("cnf");
+				generator.writeStringField("x5t#S256", context.getX509CertificateThumbprint());
+				generator.writeEndObject();
+			}
+			generator.writeEndObject();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	private static PreparedSigner prepareSigner(JWK signingKey) {
+		Assert.isTrue(signingKey.isPrivate(), "signingKey must contain a private key");
+		JWSAlgorithm algorithm;
+		JWSSigner signer;
+		try {
+			if (signingKey instanceof RSAKey) {
+				algorithm = JWSAlgorithm.RS256;
+				signer = new RSASSASigner((RSAKey) signingKey);
+			} else if (signingKey instanceof ECKey) {
+				algorithm = resolveAlgorithm(((ECKey) signingKey).getCurve());
+				signer = new ECDSASigner((ECKey) signingKey);
+			} else if (signingKey instanceof OctetSequenceKey) {
+				algorithm = JWSAlgorithm.HS256;
+				signer = new MACSigner((OctetSequenceKey) signingKey);
+			} else {
+				throw new IllegalArgumentException("Unsupported signingKey type " + signingKey.getKeyType());
+			}
+		} catch (JOSEException ex) {
+			throw new IllegalArgumentException("Invalid signingKey: " + ex.getMessage(), ex);
+		}
+		if (signingKey.getAlgorithm() != null) {
+			algorithm = JWSAlgorithm.parse(signingKey.getAlgorithm().getName());
+		}
+		Assert.isTrue(signer.supportedJWSAlgorithms().contains(algorithm),
+				"signingKey does not support the algorithm " + algorithm);
+
+		JWSHeader header = new JWSHeader.Builder(algorithm)
+				.type(JOSEObjectType.JWT)
+				.keyID(signingKey.getKeyID())
+				.build();
+		byte[] encodedHeader = (header.toBase64URL().toString() + '.').getBytes(StandardCharsets.US_ASCII);
+		return new PreparedSigner(signingKey, header, encodedHeader, signer);
+	}
+
+	private static JWSAlgorithm resolveAlgorithm(Curve curve) {
+		if (Curve.P_256.equals(curve)) {
+			return JWSAlgorithm.ES256;
+		} else if (Curve.P_384.equals(curve)) {
+			return JWSAlgorithm.ES384;
+		} else if (Curve.P_521.equals(curve)) {
+			return JWSAlgorithm.ES512;
+		}
+		throw new IllegalArgumentException("Unsupported curve " + curve);
+	}
+
+	private static final class PreparedSigner {
+		private final JWK signingKey;
+		private final JWSHeader header;
+		private final byte[] encodedHeader;
+		private final JWSSigner signer;
+
+		private PreparedSigner(JWK signingKey, JWSHeader header, byte[] encodedHeader, JWSSigner signer) {
+			this.signingKey = signingKey;
+			this.header = header;
+			this.encodedHeader = encodedHeader;
+			this.signer = signer;
+		}
+	}
+}
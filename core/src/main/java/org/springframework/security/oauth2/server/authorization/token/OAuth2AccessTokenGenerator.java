@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+/**
+ * Implementations of this interface are responsible for generating
+ * the {@link OAuth2AccessToken access token} credential issued to a client.
+ *
+ * @since 0.0.1
+ * @see OAuth2TokenContext
+ * @see JwtAccessTokenGenerator
+ * @see OpaqueAccessTokenGenerator
+ */
+@FunctionalInterface
+public interface OAuth2AccessTokenGenerator {
+
+	/**
+	 * Generates an {@link OAuth2AccessToken access token} for the provided {@link OAuth2TokenContext}.
+	 *
+	 * @param context the context holding the information to issue the access token for
+	 * @return the {@link OAuth2AccessToken}
+	 */
+	OAuth2AccessToken generate(OAuth2TokenContext context);
+
+	/**
+	 * Returns {@code true} if the generated access tokens are self-contained,
+	 * meaning they can be validated without the state held by the authorization server,
+	 * in which case they do not need to be stored. The default is {@code false}.
+	 *
+	 * @return {@code true} if the generated access tokens are self-contained, {@code false} otherwise
+	 */
+	default boolean isSelfContained() {
+		return false;
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The information an {@link OAuth2AccessTokenGenerator} generates an access token for.
+ *
+ * @since 0.0.1
+ * @see OAuth2AccessTokenGenerator
+ */
+public final class OAuth2TokenContext {
+	private RegisteredClient registeredClient;
+	private String principalName;
+	private Set<String> scopes;
+	private Instant issuedAt;
+	private Instant expiresAt;
+	private String x509CertificateThumbprint;
+
+	private OAuth2TokenContext() {
+	}
+
+	/**
+	 * Returns the {@link RegisteredClient registered client} the token is issued to.
+	 *
+	 * @return the {@link RegisteredClient}
+	 */
+	public RegisteredClient getRegisteredClient() {
+		return this.registeredClient;
+	}
+
+	/**
+	 * Returns the {@code Principal} name the token is issued on behalf of.
+	 *
+	 * @return the {@code Principal} name
+	 */
+	public String getPrincipalName() {
+		return this.principalName;
+	}
+
+	/**
+	 * Returns the scope(s) granted to the token.
+	 *
+	 * @return the {@code Set} of scope(s)
+	 */
+	public Set<String> getScopes() {
+		return this.scopes;
+	}
+
+	/**
+	 * Returns the time at which the token is issued.
+	 *
+	 * @return the time at which the token is issued
+	 */
+	public Instant getIssuedAt() {
+		return this.issuedAt;
+	}
+
+	/**
+	 * Returns the time at which the token expires.
+	 *
+	 * @return the time at which the token expires
+	 */
+	public Instant getExpiresAt() {
+		return this.expiresAt;
+	}
+
+	/**
+	 * Returns the SHA-256 thumbprint of the client {@code X.509} certificate the token is bound to,
+	 * or {@code null} if the token is not certificate-bound.
+	 *
+	 * @return the {@code X.509} certificate SHA-256 thumbprint, or {@code null}
+	 */
+	public @Nullable String getX509CertificateThumbprint() {
+		return this.x509CertificateThumbprint;
+	}
+
+	/**
+	 * Returns a new {@link Builder}, initialized with the provided {@link RegisteredClient}.
+	 *
+	 * @param registeredClient the {@link RegisteredClient}
+	 * @return the {@link Builder}
+	 */
+	public static Builder withRegisteredClient(RegisteredClient registeredClient) {
+		Assert.notNull(registeredClient, "registeredClient cannot be null");
+		return new Builder(registeredClient);
+	}
+
+	/**
+	 * A builder for {@link OAuth2TokenContext}.
+	 */
+	public static final class Builder {
+		private final RegisteredClient registeredClient;
+		private String principalName;
+		private Set<String> scopes = new LinkedHashSet<>();
+		private Instant issuedAt;
+		private Instant expiresAt;
+		private String x509CertificateThumbprint;
+
+		private Builder(RegisteredClient registeredClient) {
+			this.registeredClient = registeredClient;
+		}
+
+		/**
+		 * Sets the {@code Principal} name the token is issued on behalf of.
+		 *
+		 * @param principalName the {@code Principal} name
+		 * @return the {@link Builder}
+		 */
+		public Builder principalName(String principalName) {
+			this.principalName = principalName;
+			return this;
+		}
+
+		/**
+		 * A {@code Consumer} of the scope(s) granted to the token
+		 * allowing the ability to add, replace, or remove.
+		 *
+		 * @param scopesConsumer a {@link Consumer} of the scope(s)
+		 * @return the {@link Builder}
+		 */
+		public Builder scopes(Consumer<Set<String>> scopesConsumer) {
+			scopesConsumer.accept(this.scopes);
+			return this;
+		}
+
+		/**
+		 * Sets the time at which the token is issued.
+		 *
+		 * @param issuedAt the time at which the token is issued
+		 * @return the {@link Builder}
+		 */
+		public Builder issuedAt(Instant issuedAt) {
+			this.issuedAt = issuedAt;
+			return this;
+		}
+
+		/**
+		 * Sets the time at which the token expires.
+		 *
+		 * @param expiresAt the time at which the token expires
+		 * @return the {@link Builder}
+		 */
+		public Builder expiresAt(Instant expiresAt) {
+			this.expiresAt = expiresAt;
+			return this;
+		}
+
+		/**
+		 * Sets the SHA-256 thumbprint of the client {@code X.509} certificate the token is bound to.
+		 *
+		 * @param x509CertificateThumbprint the {@code X.509} certificate SHA-256 thumbprint, or {@code null}
+		 * @return the {@link Builder}
+		 */
+		public Builder x509CertificateThumbprint(@Nullable String x509CertificateThumbprint) {
+			this.x509CertificateThumbprint = x509CertificateThumbprint;
+			return this;
+		}
+
+		/**
+		 * Builds a new {@link OAuth2TokenContext}.
+		 *
+		 * @return the {@link OAuth2TokenContext}
+		 */
+		public OAuth2TokenContext build() {
+			Assert.hasText(this.principalName, "principalName cannot be empty");
+			Assert.notNull(this.issuedAt, "issuedAt cannot be null");
+			Assert.notNull(this.expiresAt, "expiresAt cannot be null");
+			Assert.isTrue(this.expiresAt.isAfter(this.issuedAt), "expiresAt must be after issuedAt");
+
+			OAuth2TokenContext context = new OAuth2TokenContext();
+			context.registeredClient = this.registeredClient;
+			context.principalName = this.principalName;
+			context.scopes = Collections.unmodifiableSet(this.scopes);
+			context.issuedAt = this.issuedAt;
+			context.expiresAt = this.expiresAt;
+			context.x509CertificateThumbprint = this.x509CertificateThumbprint;
+			return context;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import org.springframework.security.crypto.keygen.Base64StringKeyGenerator;
+import org.springframework.security.crypto.keygen.StringKeyGenerator;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.util.Assert;
+
+import java.util.Base64;
+
+/**
+ * An {@link OAuth2AccessTokenGenerator} that generates opaque (reference) access tokens,
+ * which reveal nothing about the authorization to the client.
+ * The token value is a random key, encoded in Base64url without padding,
+ * and resource servers resolve it by token introspection.
+ *
+ * @since 0.0.1
+ * @see OAuth2AccessTokenGenerator
+ * @see org.springframework.security.oauth2.server.authorization.TokenDigest
+ */
+public final class OpaqueAccessTokenGenerator implements OAuth2AccessTokenGenerator {
+	private static final int DEFAULT_KEY_LENGTH = 32;
+	private final StringKeyGenerator tokenValueGenerator;
+
+	/**
+	 * Constructs an {@code OpaqueAccessTokenGenerator} generating 256-bit random token values.
+	 */
+	public OpaqueAccessTokenGenerator() {
+		this(DEFAULT_KEY_LENGTH);
+	}
+
+	/**
+	 * Constructs an {@code OpaqueAccessTokenGenerator} using the provided parameters.
+	 *
+	 * @param keyLength the number of random bytes of the token value, at least 16
+	 */
+	public OpaqueAccessTokenGenerator(int keyLength) {
+		Assert.isTrue(keyLength >= 16, "keyLength must be greater than or equal to 16");
+		this.tokenValueGenerator = new Base64StringKeyGenerator(Base64.getUrlEncoder().withoutPadding(), keyLength);
+	}
+
+	@Override
+	public OAuth2AccessToken generate(OAuth2TokenContext context) {
+		Assert.notNull(context, "context cannot be null");
+		return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, this.tokenValueGenerator.generateKey(),
+				context.getIssuedAt(), context.getExpiresAt(), context.getScopes());
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics.ClientStatistics;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher.MatchResult;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A {@code Filter} that exposes the {@link ClientTrafficStatistics} to operators, in the style of
+ * a Spring Boot Actuator endpoint:
+ * <ul>
+ * <li>{@code GET} on the endpoint {@code URI} returns the request counts and the top clients</li>
+ * <li>{@code GET} on the endpoint {@code URI} followed by {@code /{clientId}} returns the estimated counts of the client</li>
+ * <li>{@code DELETE} on the endpoint {@code URI} resets the statistics</li>
+ * </ul>
+ *
+ * <p>
+ * The endpoint reveals the identifiers of the registered clients, and must only be accessible to operators:
+ * a request is processed only for an authenticated principal granted the required authority,
+ * and answered with {@code 403 Forbidden} otherwise.
+ *
+ * @since 0.0.1
+ * @see ClientTrafficStatistics
+ */
+public class ClientTrafficStatisticsEndpointFilter extends OncePerRequestFilter {
+	/**
+	 * The default endpoint {@code URI} for client traffic statistics requests.
+	 */
+	public static final String DEFAULT_CLIENT_TRAFFIC_STATISTICS_ENDPOINT_URI = "/actuator/oauth2-clients";
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final ClientTrafficStatistics clientTrafficStatistics;
+	private final String requiredAuthority;
+	private final AuthenticationTrustResolver authenticationTrustResolver = new AuthenticationTrustResolverImpl();
+	private final RequestMatcher statisticsEndpointMatcher;
+	private final RequestMatcher clientStatisticsEndpointMatcher;
+	private final RequestMatcher resetEndpointMatcher;
+
+	/**
+	 * Constructs a {@code ClientTrafficStatisticsEndpointFilter} using the provided parameters.
+	 *
+	 * @param clientTrafficStatistics the client traffic statistics
+	 * @param requiredAuthority the authority an operator must be granted, for example, {@code ROLE_ACTUATOR}
+	 */
+	public ClientTrafficStatisticsEndpointFilter(ClientTrafficStatistics clientTrafficStatistics,
+			String requiredAuthority) {
+		this(clientTrafficStatistics, DEFAULT_CLIENT_TRAFFIC_STATISTICS_ENDPOINT_URI, requiredAuthority);
+	}
+
+	/**
+	 * Constructs a {@code ClientTrafficStatisticsEndpointFilter} using the provided parameters.
+	 *
+	 * @param clientTrafficStatistics the client traffic statistics
+	 * @param clientTrafficStatisticsEndpointUri the endpoint {@code URI} for client traffic statistics requests
+	 * @param requiredAuthority the authority an operator must be granted, for example, {@code ROLE_ACTUATOR}
+	 */
+	public ClientTrafficStatisticsEndpointFilter(ClientTrafficStatistics clientTrafficStatistics,
+			String clientTrafficStatisticsEndpointUri, String requiredAuthority) {
+		Assert.notNull(clientTrafficStatistics, "clientTrafficStatistics cannot be null");
+		Assert.hasText(clientTrafficStatisticsEndpointUri, "clientTrafficStatisticsEndpointUri cannot be empty");
+		Assert.hasText(requiredAuthority, "requiredAuthority cannot be empty");
+		this.clientTrafficStatistics = clientTrafficStatistics;
+		this.requiredAuthority = requiredAuthority;
+		this.statisticsEndpointMatcher = new AntPathRequestMatcher(
+				clientTrafficStatisticsEndpointUri, HttpMethod.GET.name());
+		this.clientStatisticsEndpointMatcher = new AntPathRequestMatcher(
+				clientTrafficStatisticsEndpointUri + "/{clientId}", HttpMethod.GET.name());
+		this.resetEndpointMatcher = new AntPathRequestMatcher(
+				clientTrafficStatisticsEndpointUri, HttpMethod.DELETE.name());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		MatchResult clientStatisticsMatch = this.clientStatisticsEndpointMatcher.matcher(request);
+		boolean statisticsRequest = this.statisticsEndpointMatcher.matches(request);
+		boolean resetRequest = this.resetEndpointMatcher.matches(request);
+		if (!statisticsRequest && !clientStatisticsMatch.isMatch() && !resetRequest) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		if (!isOperator()) {
+			response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		if (statisticsRequest) {
+			sendResponse(response, writeStatistics());
+		} else if (clientStatisticsMatch.isMatch()) {
+			ClientStatistics clientStatistics = this.clientTrafficStatistics.getClientStatistics(
+					clientStatisticsMatch.getVariables().get("clientId"));
+			sendResponse(response, writeClientStatistics(clientStatistics));
+		} else {
+			this.clientTrafficStatistics.reset();
+			response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+		}
+	}
+
+	private boolean isOperator() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if (authentication == null || !authentication.isAuthenticated() ||
+				this.authenticationTrustResolver.isAnonymous(authentication)) {
+			return false;
+		}
+		for (GrantedAuthority authority : authentication.getAuthorities()) {
+			if (this.requiredAuthority.equals(authority.getAuthority())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private byte[] writeStatistics() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			generator.writeStartObject();
+			generator.writeNumberField("authorizationRequests", this.clientTrafficStatistics.getAuthorizationRequestCount());
+			generator.writeNumberField("tokenRequests", this.clientTrafficStatistics.getTokenRequestCount());
+			generator.writeNumberField("maximumOverestimate", this.clientTrafficStatistics.getMaximumOverestimate());
+			generator.writeArrayFieldStart("topClients");
+			for (ClientStatistics clientStatistics : this.clientTrafficStatistics.getTopClients()) {
+				writeClientStatistics(generator, clientStatistics);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] writeClientStatistics(ClientStatistics clientStatistics) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			writeClientStatistics(generator, clientStatistics);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	private static void writeClientStatistics(JsonGenerator generator, ClientStatistics clientStatistics)
+			throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("clientId", clientStatistics.getClientId());
+		generator.writeNumberField("authorizationRequests", clientStatistics.getAuthorizationRequests());
+		generator.writeNumberField("tokenRequests", clientStatistics.getTokenRequests());
+		generator.writeNumberField("totalRequests", clientStatistics.getTotalRequests());
+		generator.writeEndObject();
+	}
+
+	private static void sendResponse(HttpServletResponse response, byte[] body) throws IOException {
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Supplier;
+
+/**
+ * A {@code Filter} that processes JWK Set requests, returning the public keys
+ * used by resource servers to verify the signature of access tokens.
+ *
+ * <p>
+ * The public JWK Set is serialized once per key change, and served from the serialized bytes
+ * along with an {@code ETag} and a {@code Cache-Control max-age}.
+ * A conditional request with a matching {@code If-None-Match} is answered with {@code 304 Not Modified}.
+ *
+ * @since 0.0.1
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7517#section-5">Section 5 JWK Set Format</a>
+ */
+public class JwkSetEndpointFilter extends OncePerRequestFilter {
+	/**
+	 * The default endpoint {@code URI} for JWK Set requests.
+	 */
+	public static final String DEFAULT_JWK_SET_ENDPOINT_URI = "/oauth2/jwks";
+
+	private final Supplier<JWKSet> jwkSetSupplier;
+	private final RequestMatcher jwkSetEndpointMatcher;
+	private volatile SerializedJwkSet serializedJwkSet;
+	private String cacheControl = cacheControl(Duration.ofMinutes(5));
+
+	/**
+	 * Constructs a {@code JwkSetEndpointFilter} using the provided parameters.
+	 *
+	 * @param jwkSet the JWK Set
+	 */
+	public JwkSetEndpointFilter(JWKSet jwkSet) {
+		this(jwkSet, DEFAULT_JWK_SET_ENDPOINT_URI);
+	}
+
+	/**
+	 * Constructs a {@code JwkSetEndpointFilter} using the provided parameters.
+	 *
+	 * @param jwkSet the JWK Set
+	 * @param jwkSetEndpointUri the endpoint {@code URI} for JWK Set requests
+	 */
+	public JwkSetEndpointFilter(JWKSet jwkSet, String jwkSetEndpointUri) {
+		this(supplier(jwkSet), jwkSetEndpointUri);
+	}
+
+	/**
+	 * Constructs a {@code JwkSetEndpointFilter} using the provided parameters.
+	 * The JWK Set is serialized again whenever the supplier returns a different instance.
+	 *
+	 * @param jwkSetSupplier the supplier of the current JWK Set
+	 */
+	public JwkSetEndpointFilter(Supplier<JWKSet> jwkSetSupplier) {
+		this(jwkSetSupplier, DEFAULT_JWK_SET_ENDPOINT_URI);
+	}
+
+	/**
+	 * Constructs a {@code JwkSetEndpointFilter} using the provided parameters.
+	 * The JWK Set is serialized again whenever the supplier returns a different instance.
+	 *
+	 * @param jwkSetSupplier the supplier of the current JWK Set
+	 * @param jwkSetEndpointUri the endpoint {@code URI} for JWK Set requests
+	 */
+	public JwkSetEndpointFilter(Supplier<JWKSet> jwkSetSupplier, String jwkSetEndpointUri) {
+		Assert.notNull(jwkSetSupplier, "jwkSetSupplier cannot be null");
+		Assert.hasText(jwkSetEndpointUri, "jwkSetEndpointUri cannot be empty");
+		this.jwkSetSupplier = jwkSetSupplier;
+		this.jwkSetEndpointMatcher = new AntPathRequestMatcher(jwkSetEndpointUri, HttpMethod.GET.name());
+	}
+
+	/**
+	 * Sets the duration a JWK Set response may be cached for by the client.
+	 * The default is 5 minutes, and {@code Duration.ZERO} requires the client to revalidate every time.
+	 *
+	 * @param cacheMaxAge the duration a JWK Set response may be cached for
+	 */
+	public void setCacheMaxAge(Duration cacheMaxAge) {
+		Assert.notNull(cacheMaxAge, "cacheMaxAge cannot be null");
+		Assert.isTrue(!cacheMaxAge.isNegative(), "cacheMaxAge cannot be negative");
+		this.cacheControl = cacheControl(cacheMaxAge);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		if (!this.jwkSetEndpointMatcher.matches(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		SerializedJwkSet jwkSet = getSerializedJwkSet();
+		response.setHeader(HttpHeaders.ETAG, jwkSet.etag);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, this.cacheControl);
+		if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), jwkSet.etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(jwkSet.content.length);
+		response.getOutputStream().write(jwkSet.content);
+	}
+
+	private SerializedJwkSet getSerializedJwkSet() {
+		JWKSet jwkSet = this.jwkSetSupplier.get();
+		Assert.notNull(jwkSet, "jwkSet cannot be null");
+		SerializedJwkSet serializedJwkSet = this.serializedJwkSet;
+		if (serializedJwkSet == null || serializedJwkSet.jwkSet != jwkSet) {
+			serializedJwkSet = new SerializedJwkSet(jwkSet);
+			this.serializedJwkSet = serializedJwkSet;
+		}
+		return serializedJwkSet;
+	}
+
+	private static boolean etagMatches(String ifNoneMatch, String etag) {
+		if (!StringUtils.hasText(ifNoneMatch)) {
+			return false;
+		}
+		// If-None-Match uses the weak comparison function
+		return Arrays.stream(StringUtils.tokenizeToStringArray(ifNoneMatch, ","))
+				.anyMatch(candidate -> candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag));
+	}
+
+	private static String cacheControl(Duration cacheMaxAge) {
+		return "public, max-age=" + cacheMaxAge.getSeconds();
+	}
+
+	private static Supplier<JWKSet> supplier(JWKSet jwkSet) {
+		Assert.notNull(jwkSet, "jwkSet cannot be null");
+		return () -> jwkSet;
+	}
+
+	private static final class SerializedJwkSet {
+		private final JWKSet jwkSet;
+		private final byte[] content;
+		private final String etag;
+
+		private SerializedJwkSet(JWKSet jwkSet) {
+			this.jwkSet = jwkSet;
+			this.content = jwkSet.toPublicJWKSet().toJSONObject().toJSONString().getBytes(StandardCharsets.UTF_8);
+			byte[] digest;
+			try {
+				digest = MessageDigest.getInstance("SHA-256").digest(this.content);
+			} catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException(ex);
+			}
+			this.etag = '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + '"';
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.ratelimit.AdaptiveConcurrencyLimiter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * A {@code Filter} that sheds the requests to the protocol endpoints exceeding the number of requests
+ * the {@link AdaptiveConcurrencyLimiter} admits concurrently, rejecting them early with
+ * {@code 503 Service Unavailable}, a {@code Retry-After} header and the {@code temporarily_unavailable} error,
+ * rather than letting them queue until the clients time out.
+ *
+ * <p>
+ * This {@code Filter} should be placed before the {@link OAuth2ClientAuthenticationFilter},
+ * so that a request shed does not verify the client credentials.
+ *
+ * @since 0.0.1
+ * @see AdaptiveConcurrencyLimiter
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+	private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+	private final RequestMatcher requestMatcher;
+	private final HttpMessageConverter<OAuth2Error> errorHttpResponseConverter =
+			new OAuth2ErrorHttpMessageConverter();
+	private final OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+			"The server is temporarily overloaded", null);
+	private String retryAfter = "1";
+
+	/**
+	 * Constructs a {@code LoadSheddingFilter} using the provided parameters.
+	 *
+	 * @param concurrencyLimiter the concurrency limiter
+	 * @param requestMatcher the {@link RequestMatcher} used for matching the requests to limit
+	 */
+	public LoadSheddingFilter(AdaptiveConcurrencyLimiter concurrencyLimiter, RequestMatcher requestMatcher) {
+		Assert.notNull(concurrencyLimiter, "concurrencyLimiter cannot be null");
+		Assert.notNull(requestMatcher, "requestMatcher cannot be null");
+		this.concurrencyLimiter = concurrencyLimiter;
+		this.requestMatcher = requestMatcher;
+	}
+
+	/**
+	 * Sets the duration a client is asked to wait before retrying a request shed,
+	 * used for the {@code Retry-After} header. The default is 1 second.
+	 *
+	 * @param retryAfter the duration to wait before retrying
+	 */
+	public void setRetryAfter(Duration retryAfter) {
+		Assert.notNull(retryAfter, "retryAfter cannot be null");
+		Assert.isTrue(retryAfter.getSeconds() > 0, "retryAfter must be at least 1 second");
+		this.retryAfter = String.valueOf(retryAfter.getSeconds());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		if (!this.requestMatcher.matches(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		if (!this.concurrencyLimiter.tryAcquire()) {
+			sendErrorResponse(response);
+			return;
+		}
+		long startTime = System.nanoTime();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			this.concurrencyLimiter.release(System.nanoTime() - startTime);
+		}
+	}
+
+	private void sendErrorResponse(HttpServletResponse response) throws IOException {
+		ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+		httpResponse.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+		httpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER, this.retryAfter);
+		httpResponse.getHeaders().set(HttpHeaders.CACHE_CONTROL, "no-store");
+		this.errorHttpResponseConverter.write(this.error, null, httpResponse);
+	}
+}
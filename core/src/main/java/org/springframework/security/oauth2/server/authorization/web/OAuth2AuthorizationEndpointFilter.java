@@ -28,11 +28,16 @@ import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponseType;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.endpoint.PkceParameterNames;
 import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.jfr.AuthorizationCodeIssuedEvent;
+import org.springframework.security.oauth2.server.authorization.jfr.FlightRecorderEvents;
+import org.springframework.security.oauth2.server.authorization.ratelimit.ClientRateLimiter;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics;
 import org.springframework.security.web.DefaultRedirectStrategy;
 import org.springframework.security.web.RedirectStrategy;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
@@ -49,6 +54,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
@@ -66,8 +72,10 @@ import java.util.Set;
  * @see RegisteredClientRepository
  * @see OAuth2AuthorizationService
  * @see OAuth2Authorization
+ * @see OAuth2AuthorizationEndpointListener
  * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.1">Section 4.1 Authorization Code Grant</a>
  * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.1.1">Section 4.1.1 Authorization Request</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7636#section-4.3">Section 4.3 Client Sends the Code Challenge with the Authorization Request</a>
  */
 public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 	/**
@@ -75,11 +83,17 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 	 */
 	public static final String DEFAULT_AUTHORIZATION_ENDPOINT_URI = "/oauth2/authorize";
 
+	private static final String CODE_CHALLENGE_METHOD_S256 = "S256";
+	private static final String CODE_CHALLENGE_METHOD_PLAIN = "plain";
+
 	private final RegisteredClientRepository registeredClientRepository;
 	private final OAuth2AuthorizationService authorizationService;
 	private final RequestMatcher authorizationEndpointMatcher;
 	private final StringKeyGenerator codeGenerator = new Base64StringKeyGenerator(Base64.getUrlEncoder());
 	private final RedirectStrategy redirectStrategy = new DefaultRedirectStrategy();
+	private OAuth2AuthorizationEndpointListener authorizationEndpointListener;
+	private ClientTrafficStatistics clientTrafficStatistics;
+	private ClientRateLimiter clientRateLimiter;
 
 	/**
 	 * Constructs an {@code OAuth2AuthorizationEndpointFilter} using the provided parameters.
@@ -110,6 +124,38 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 				authorizationEndpointUri, HttpMethod.GET.name());
 	}
 
+	/**
+	 * Sets the {@link OAuth2AuthorizationEndpointListener} notified of the outcome of each authorization request.
+	 *
+	 * @param authorizationEndpointListener the {@link OAuth2AuthorizationEndpointListener}
+	 */
+	public void setAuthorizationEndpointListener(OAuth2AuthorizationEndpointListener authorizationEndpointListener) {
+		Assert.notNull(authorizationEndpointListener, "authorizationEndpointListener cannot be null");
+		this.authorizationEndpointListener = authorizationEndpointListener;
+	}
+
+	/**
+	 * Sets the {@link ClientTrafficStatistics} recording the authorization requests of each registered client.
+	 *
+	 * @param clientTrafficStatistics the {@link ClientTrafficStatistics}
+	 */
+	public void setClientTrafficStatistics(ClientTrafficStatistics clientTrafficStatistics) {
+		Assert.notNull(clientTrafficStatistics, "clientTrafficStatistics cannot be null");
+		this.clientTrafficStatistics = clientTrafficStatistics;
+	}
+
+	/**
+	 * Sets the {@link ClientRateLimiter} limiting the rate of the authorization requests of each registered client.
+	 * A request exceeding the rate limit is rejected with the {@code temporarily_unavailable} error,
+	 * before the authorization code is generated and stored.
+	 *
+	 * @param clientRateLimiter the {@link ClientRateLimiter}
+	 */
+	public void setClientRateLimiter(ClientRateLimiter clientRateLimiter) {
+		Assert.notNull(clientRateLimiter, "clientRateLimiter cannot be null");
+		this.clientRateLimiter = clientRateLimiter;
+	}
+
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
@@ -119,6 +165,9 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 			return;
 		}
 
+		long startTime = System.nanoTime();
+		AuthorizationCodeIssuedEvent authorizationCodeIssuedEvent = FlightRecorderEvents.beginAuthorizationCodeIssued();
+
 		// ---------------
 		// Validate the request to ensure that all required parameters are present and valid
 		// ---------------
@@ -131,17 +180,21 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 		if (!StringUtils.hasText(clientId) ||
 				parameters.get(OAuth2ParameterNames.CLIENT_ID).size() != 1) {
 			OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, OAuth2ParameterNames.CLIENT_ID);
-			sendErrorResponse(request, response, error, stateParameter, null);	// when redirectUri is null then don't redirect
+			sendErrorResponse(request, response, error, stateParameter, null, startTime);	// when redirectUri is null then don't redirect
 			return;
 		}
 		RegisteredClient registeredClient = this.registeredClientRepository.findByClientId(clientId);
 		if (registeredClient == null) {
 			OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, OAuth2ParameterNames.CLIENT_ID);
-			sendErrorResponse(request, response, error, stateParameter, null);	// when redirectUri is null then don't redirect
+			sendErrorResponse(request, response, error, stateParameter, null, startTime);	// when redirectUri is null then don't redirect
 			return;
-		} else if (!registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.AUTHORIZATION_CODE)) {
+		}
+		if (this.clientTrafficStatistics != null) {
+			this.clientTrafficStatistics.recordAuthorizationRequest(registeredClient.getClientId());
+		}
+		if (!registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.AUTHORIZATION_CODE)) {
 			OAuth2Error error = createError(OAuth2ErrorCodes.UNAUTHORIZED_CLIENT, OAuth2ParameterNames.CLIENT_ID);
-			sendErrorResponse(request, response, error, stateParameter, null);	// when redirectUri is null then don't redirect
+			sendErrorResponse(request, response, error, stateParameter, null, startTime);	// when redirectUri is null then don't redirect
 			return;
 		}
 
@@ -151,31 +204,63 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 			if (!registeredClient.getRedirectUris().contains(redirectUriParameter) ||
 					parameters.get(OAuth2ParameterNames.REDIRECT_URI).size() != 1) {
 				OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, OAuth2ParameterNames.REDIRECT_URI);
-				sendErrorResponse(request, response, error, stateParameter, null);	// when redirectUri is null then don't redirect
+				sendErrorResponse(request, response, error, stateParameter, null, startTime);	// when redirectUri is null then don't redirect
 				return;
 			}
 		} else if (registeredClient.getRedirectUris().size() != 1) {
 			OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, OAuth2ParameterNames.REDIRECT_URI);
-			sendErrorResponse(request, response, error, stateParameter, null);	// when redirectUri is null then don't redirect
+			sendErrorResponse(request, response, error, stateParameter, null, startTime);	// when redirectUri is null then don't redirect
 			return;
 		}
 
 		String redirectUri = StringUtils.hasText(redirectUriParameter) ?
 				redirectUriParameter : registeredClient.getRedirectUris().iterator().next();
 
+		if (this.clientRateLimiter != null && this.clientRateLimiter.tryAcquire(registeredClient) > 0) {
+			OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+					"The client has exceeded its rate limit", "https://tools.ietf.org/html/rfc6749#section-4.1.2.1");
+			sendErrorResponse(request, response, error, stateParameter, redirectUri, startTime);
+			return;
+		}
+
 		// response_type (REQUIRED)
 		String responseType = parameters.getFirst(OAuth2ParameterNames.RESPONSE_TYPE);
 		if (!StringUtils.hasText(responseType) ||
 				parameters.get(OAuth2ParameterNames.RESPONSE_TYPE).size() != 1) {
 			OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, OAuth2ParameterNames.RESPONSE_TYPE);
-			sendErrorResponse(request, response, error, stateParameter, redirectUri);
+			sendErrorResponse(request, response, error, stateParameter, redirectUri, startTime);
 			return;
 		} else if (!responseType.equals(OAuth2AuthorizationResponseType.CODE.getValue())) {
 			OAuth2Error error = createError(OAuth2ErrorCodes.UNSUPPORTED_RESPONSE_TYPE, OAuth2ParameterNames.RESPONSE_TYPE);
-			sendErrorResponse(request, response, error, stateParameter, redirectUri);
+			sendErrorResponse(request, response, error, stateParameter, redirectUri, startTime);
 			return;
 		}
 
+		// code_challenge (REQUIRED for PKCE)
+		String codeChallenge = parameters.getFirst(PkceParameterNames.CODE_CHALLENGE);
+		if (StringUtils.hasText(codeChallenge)) {
+			if (parameters.get(PkceParameterNames.CODE_CHALLENGE).size() != 1) {
+				OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, PkceParameterNames.CODE_CHALLENGE);
+				sendErrorResponse(request, response, error, stateParameter, redirectUri, startTime);
+				return;
+			}
+		}
+
+		// code_challenge_method (OPTIONAL for PKCE)
+		String codeChallengeMethod = parameters.getFirst(PkceParameterNames.CODE_CHALLENGE_METHOD);
+		if (StringUtils.hasText(codeChallengeMethod)) {
+			if (!StringUtils.hasText(codeChallenge) ||
+					parameters.get(PkceParameterNames.CODE_CHALLENGE_METHOD).size() != 1 ||
+					(!CODE_CHALLENGE_METHOD_S256.equals(codeChallengeMethod) &&
+							!CODE_CHALLENGE_METHOD_PLAIN.equals(codeChallengeMethod))) {
+				OAuth2Error error = createError(OAuth2ErrorCodes.INVALID_REQUEST, PkceParameterNames.CODE_CHALLENGE_METHOD);
+				sendErrorResponse(request, response, error, stateParameter, redirectUri, startTime);
+				return;
+			}
+		} else if (StringUtils.hasText(codeChallenge)) {
+			codeChallengeMethod = CODE_CHALLENGE_METHOD_PLAIN;
+		}
+
 		// ---------------
 		// The request is valid - ensure the resource owner is authenticated
 		// ---------------
@@ -185,29 +270,40 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 			// Pass through the chain with the expectation that the authentication process
 			// will commence via AuthenticationEntryPoint
 			filterChain.doFilter(request, response);
+			if (this.authorizationEndpointListener != null) {
+				this.authorizationEndpointListener.onAuthenticationRequired(System.nanoTime() - startTime);
+			}
 			return;
 		}
 
 		String code = this.codeGenerator.generateKey();
 		OAuth2AuthorizationRequest authorizationRequest = convertAuthorizationRequest(request);
 
-		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(registeredClient)
+		OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
 				.principalName(principal.getName())
 				.attribute(OAuth2AuthorizationAttributeNames.CODE, code)
-				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest)
-				.build();
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT, Instant.now())
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest);
+		if (StringUtils.hasText(codeChallenge)) {
+			// Stored alongside the authorization code, so that the code verifier is verified
+			// with the same lookup that retrieves the authorization code
+			builder.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE, codeChallenge)
+					.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD, codeChallengeMethod);
+		}
+		OAuth2Authorization authorization = builder.build();
 
 		this.authorizationService.save(authorization);
 
-//		TODO security checks for code parameter
-//		The authorization code MUST expire shortly after it is issued to mitigate the risk of leaks.
-//		A maximum authorization code lifetime of 10 minutes is RECOMMENDED.
-//		The client MUST NOT use the authorization code more than once.
-//		If an authorization code is used more than once, the authorization server MUST deny the request
-//		and SHOULD revoke (when possible) all tokens previously issued based on that authorization code.
-//		The authorization code is bound to the client identifier and redirection URI.
+		// The authorization code lifetime, single use, binding to the client identifier
+		// and redirection URI, and the PKCE code verifier are enforced by OAuth2AuthorizationCodeAuthenticationProvider
 
 		sendAuthorizationResponse(request, response, authorizationRequest, code, redirectUri);
+		if (authorizationCodeIssuedEvent != null) {
+			authorizationCodeIssuedEvent.record(registeredClient.getClientId());
+		}
+		if (this.authorizationEndpointListener != null) {
+			this.authorizationEndpointListener.onAuthorizationCodeIssued(System.nanoTime() - startTime);
+		}
 	}
 
 	private void sendAuthorizationResponse(HttpServletRequest request, HttpServletResponse response,
@@ -222,6 +318,15 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 		this.redirectStrategy.sendRedirect(request, response, uriBuilder.toUriString());
 	}
 
+	private void sendErrorResponse(HttpServletRequest request, HttpServletResponse response,
+			OAuth2Error error, String state, String redirectUri, long startTime) throws IOException {
+
+		sendErrorResponse(request, response, error, state, redirectUri);
+		if (this.authorizationEndpointListener != null) {
+			this.authorizationEndpointListener.onAuthorizationError(error, System.nanoTime() - startTime);
+		}
+	}
+
 	private void sendErrorResponse(HttpServletRequest request, HttpServletResponse response,
 			OAuth2Error error, String state, String redirectUri) throws IOException {
 
@@ -278,7 +383,9 @@ public class OAuth2AuthorizationEndpointFilter extends OncePerRequestFilter {
 										!e.getKey().equals(OAuth2ParameterNames.CLIENT_ID) &&
 										!e.getKey().equals(OAuth2ParameterNames.REDIRECT_URI) &&
 										!e.getKey().equals(OAuth2ParameterNames.SCOPE) &&
-										!e.getKey().equals(OAuth2ParameterNames.STATE))
+										!e.getKey().equals(OAuth2ParameterNames.STATE) &&
+										!e.getKey().equals(PkceParameterNames.CODE_CHALLENGE) &&
+										!e.getKey().equals(PkceParameterNames.CODE_CHALLENGE_METHOD))
 								.forEach(e -> additionalParameters.put(e.getKey(), e.getValue().get(0))))
 				.build();
 	}
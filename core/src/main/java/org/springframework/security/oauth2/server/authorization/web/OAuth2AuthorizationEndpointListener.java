@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.springframework.security.oauth2.core.OAuth2Error;
+
+/**
+ * A listener notified of the outcome of each authorization request processed by the
+ * {@link OAuth2AuthorizationEndpointFilter}, along with the time spent processing it.
+ *
+ * <p>
+ * The listener is called on the request thread, and should not block.
+ *
+ * @since 0.0.1
+ * @see OAuth2AuthorizationEndpointFilter#setAuthorizationEndpointListener(OAuth2AuthorizationEndpointListener)
+ */
+public interface OAuth2AuthorizationEndpointListener {
+
+	/**
+	 * Called when an authorization code is issued.
+	 *
+	 * @param durationNanos the time spent processing the request, in nanoseconds
+	 */
+	void onAuthorizationCodeIssued(long durationNanos);
+
+	/**
+	 * Called when the authorization request is rejected with an error response.
+	 *
+	 * @param error the {@link OAuth2Error}
+	 * @param durationNanos the time spent processing the request, in nanoseconds
+	 */
+	void onAuthorizationError(OAuth2Error error, long durationNanos);
+
+	/**
+	 * Called when the resource owner is not authenticated, and the request was passed
+	 * down the chain to commence the authentication.
+	 *
+	 * @param durationNanos the time spent processing the request, including the rest of the chain, in nanoseconds
+	 */
+	void onAuthenticationRequired(long durationNanos);
+
+}
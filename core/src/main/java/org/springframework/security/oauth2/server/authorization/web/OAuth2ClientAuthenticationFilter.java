@@ -15,7 +15,29 @@
  */
 package org.springframework.security.oauth2.server.authorization.web;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.Version;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.jfr.ClientAuthenticationEvent;
+import org.springframework.security.oauth2.server.authorization.jfr.FlightRecorderEvents;
+import org.springframework.security.oauth2.server.authorization.ratelimit.ClientRateLimiter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
@@ -23,18 +45,262 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * A {@code Filter} that authenticates the OAuth 2.0 Client on requests to the protocol endpoints,
+ * using the client credentials provided either in the HTTP Basic {@code Authorization} header
+ * ({@code client_secret_basic}), in the request body ({@code client_secret_post}),
+ * as a signed JWT assertion in the request body ({@code private_key_jwt}),
+ * or, failing any of these, the certificate presented during the mutual-TLS handshake ({@code tls_client_auth}).
+ *
+ * <p>
+ * Requests without client credentials proceed unauthenticated, leaving it to the endpoint to deny them.
+ * On successful authentication, the {@link OAuth2ClientAuthenticationToken} is made available
+ * as the {@link Authentication} in the {@link SecurityContextHolder}.
+ *
  * @author Joe Grandja
+ * @since 0.0.1
+ * @see AuthenticationManager
+ * @see OAuth2ClientAuthenticationProvider
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-2.3.1">Section 2.3.1 Client Password</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7523#section-2.2">Section 2.2 Using JWTs for Client Authentication</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc8705#section-2.1">Section 2.1 PKI Mutual-TLS Method</a>
  */
 public class OAuth2ClientAuthenticationFilter extends OncePerRequestFilter {
-	private AuthenticationManager authenticationManager;
+	private static final String BASIC_PREFIX = "basic ";
+	private static final String CLIENT_ASSERTION = "client_assertion";
+	private static final String CLIENT_ASSERTION_TYPE = "client_assertion_type";
+	private static final String X509_CERTIFICATE_ATTRIBUTE = "javax.servlet.request.X509Certificate";
+	private static final String JWT_BEARER_CLIENT_ASSERTION_TYPE = "urn:ietf:params:oauth:client-assertion-type:jwt-bearer";
+	private final AuthenticationManager authenticationManager;
+	private final RequestMatcher requestMatcher;
+	private final HttpMessageConverter<OAuth2Error> errorHttpResponseConverter =
+			new OAuth2ErrorHttpMessageConverter();
+	private ClientRateLimiter clientRateLimiter;
+
+	/**
+	 * Constructs an {@code OAuth2ClientAuthenticationFilter} using the provided parameters.
+	 *
+	 * @param authenticationManager the authentication manager
+	 * @param requestMatcher the {@link RequestMatcher} used for matching the requests to authenticate
+	 */
+	public OAuth2ClientAuthenticationFilter(AuthenticationManager authenticationManager, RequestMatcher requestMatcher) {
+		Assert.notNull(authenticationManager, "authenticationManager cannot be null");
+		Assert.notNull(requestMatcher, "requestMatcher cannot be null");
+		this.authenticationManager = authenticationManager;
+		this.requestMatcher = requestMatcher;
+	}
+
+	/**
+	 * Sets the {@link ClientRateLimiter} limiting the rate of the requests of each registered client.
+	 * A request exceeding the rate limit is rejected with {@code 429 Too Many Requests} and a {@code Retry-After} header.
+	 *
+	 * <p>
+	 * A client is charged for its request once authenticated. A failed client authentication is charged
+	 * to the remote address of the request and the client identifier it claims, and once the failed authentications
+	 * from a remote address for a client identifier exceed their rate limit, the requests from that address
+	 * for that client identifier are rejected before the client credentials are verified.
+	 * A {@code private_key_jwt} or {@code tls_client_auth} request without a {@code client_id} parameter
+	 * is charged to its remote address only.
+	 *
+	 * <p>
+	 * The remote address is {@link HttpServletRequest#getRemoteAddr()}. Behind a reverse proxy or a load balancer,
+	 * it is the address of the proxy, unless the client address is restored from the forwarded headers,
+	 * for example, with the {@code ForwardedHeaderFilter} or the {@code RemoteIpValve} of Tomcat.
+	 *
+	 * @param clientRateLimiter the {@link ClientRateLimiter}
+	 */
+	public void setClientRateLimiter(ClientRateLimiter clientRateLimiter) {
+		Assert.notNull(clientRateLimiter, "clientRateLimiter cannot be null");
+		this.clientRateLimiter = clientRateLimiter;
+	}
 
 	@Override
-	protected void doFilterInternal(HttpServletRequest request,
-			HttpServletResponse response, FilterChain filterChain)
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 
+		if (this.requestMatcher.matches(request)) {
+			ClientAuthenticationEvent clientAuthenticationEvent = FlightRecorderEvents.beginClientAuthentication();
+			Authentication clientAuthentication = null;
+			try {
+				clientAuthentication = convert(request);
+				if (clientAuthentication != null) {
+					if (this.clientRateLimiter != null) {
+						checkRateLimit(this.clientRateLimiter.getFailedAuthenticationWaitTime(
+								request.getRemoteAddr(), getClaimedClientId(clientAuthentication)));
+					}
+					Authentication authenticatedClient;
+					try {
+						authenticatedClient = this.authenticationManager.authenticate(clientAuthentication);
+					} catch (OAuth2AuthenticationException ex) {
+						if (this.clientRateLimiter != null) {
+							this.clientRateLimiter.recordFailedAuthentication(
+									request.getRemoteAddr(), getClaimedClientId(clientAuthentication));
+						}
+						throw ex;
+					}
+					if (this.clientRateLimiter != null) {
+						checkRateLimit(this.clientRateLimiter.tryAcquire(
+								((OAuth2ClientAuthenticationToken) authenticatedClient).getRegisteredClient()));
+					}
+					SecurityContext context = SecurityContextHolder.createEmptyContext();
+					context.setAuthentication(authenticatedClient);
+					SecurityContextHolder.setContext(context);
+					if (clientAuthenticationEvent != null) {
+						clientAuthenticationEvent.record(authenticatedClient.getName(),
+								getClientAuthenticationMethod(clientAuthentication), null);
+					}
+				}
+			} catch (OAuth2AuthenticationException ex) {
+				if (clientAuthenticationEvent != null) {
+					clientAuthenticationEvent.record(clientAuthentication != null ? clientAuthentication.getName() : null,
+							getClientAuthenticationMethod(clientAuthentication), ex.getError().getErrorCode());
+				}
+				SecurityContextHolder.clearContext();
+				if (ex instanceof RateLimitExceededException) {
+					response.setHeader(HttpHeaders.RETRY_AFTER,
+							String.valueOf(((RateLimitExceededException) ex).getRetryAfterSeconds()));
+				}
+				sendErrorResponse(response, ex.getError());
+				return;
+			}
+		}
+
+		filterChain.doFilter(request, response);
+	}
+
+	private static String getClaimedClientId(Authentication clientAuthentication) {
+		Object principal = clientAuthentication.getPrincipal();
+		return principal instanceof String ? (String) principal : null;
+	}
+
+	private static String getClientAuthenticationMethod(Authentication clientAuthentication) {
+		if (clientAuthentication instanceof OAuth2ClientAuthenticationToken) {
+			ClientAuthenticationMethod clientAuthenticationMethod =
+					((OAuth2ClientAuthenticationToken) clientAuthentication).getClientAuthenticationMethod();
+			return clientAuthenticationMethod != null ? clientAuthenticationMethod.getValue() : null;
+		}
+		return null;
+	}
+
+	private void sendErrorResponse(HttpServletResponse response, OAuth2Error error) throws IOException {
+		ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+		if (OAuth2ErrorCodes.INVALID_CLIENT.equals(error.getErrorCode())) {
+			httpResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
+		} else if (OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE.equals(error.getErrorCode())) {
+			httpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		} else {
+			httpResponse.setStatusCode(HttpStatus.BAD_REQUEST);
+		}
+		httpResponse.getHeaders().set(HttpHeaders.CACHE_CONTROL, "no-store");
+		this.errorHttpResponseConverter.write(error, null, httpResponse);
+	}
+
+	private static void checkRateLimit(long waitTime) {
+		if (waitTime > 0) {
+			throw new RateLimitExceededException(waitTime);
+		}
 	}
 
+	private static Authentication convert(HttpServletRequest request) {
+		String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+		boolean basic = header != null && header.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length());
+		String[] clientIds = request.getParameterValues(OAuth2ParameterNames.CLIENT_ID);
+		String[] clientSecrets = request.getParameterValues(OAuth2ParameterNames.CLIENT_SECRET);
+		String[] clientAssertions = request.getParameterValues(CLIENT_ASSERTION);
+
+		// The client MUST NOT use more than one authentication method in each request
+		int authenticationMethods = (basic ? 1 : 0) + (clientSecrets != null ? 1 : 0) + (clientAssertions != null ? 1 : 0);
+		if (authenticationMethods == 0) {
+			X509Certificate[] clientCertificates = (X509Certificate[]) request.getAttribute(X509_CERTIFICATE_ATTRIBUTE);
+			if (clientCertificates == null || clientCertificates.length == 0) {
+				return null;
+			}
+			if (clientIds != null && (clientIds.length != 1 || !StringUtils.hasText(clientIds[0]))) {
+				throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+			}
+			// The client certificate is the first in the chain presented during the mutual-TLS handshake
+			return new OAuth2ClientAuthenticationToken(clientIds != null ? clientIds[0] : null,
+					clientCertificates[0], OAuth2ClientAuthenticationProvider.TLS_CLIENT_AUTH);
+		}
+		if (authenticationMethods > 1) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+		}
+
+		if (basic) {
+			return convertBasic(header.substring(BASIC_PREFIX.length()).trim());
+		}
+
+		if (clientIds != null && (clientIds.length != 1 || !StringUtils.hasText(clientIds[0]))) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+		}
+		String clientId = clientIds != null ? clientIds[0] : null;
+
+		if (clientAssertions != null) {
+			String[] clientAssertionTypes = request.getParameterValues(CLIENT_ASSERTION_TYPE);
+			if (clientAssertions.length != 1 || !StringUtils.hasText(clientAssertions[0]) ||
+					clientAssertionTypes == null || clientAssertionTypes.length != 1 ||
+					!JWT_BEARER_CLIENT_ASSERTION_TYPE.equals(clientAssertionTypes[0])) {
+				throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+			}
+			return new OAuth2ClientAuthenticationToken(clientId, clientAssertions[0],
+					OAuth2ClientAuthenticationProvider.PRIVATE_KEY_JWT);
+		}
+
+		if (clientId == null || clientSecrets.length != 1) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+		}
+		return new OAuth2ClientAuthenticationToken(clientId, clientSecrets[0], ClientAuthenticationMethod.POST);
+	}
+
+	private static Authentication convertBasic(String encodedCredentials) {
+		String credentials = null;
+		try {
+			credentials = new String(Base64.getDecoder().decode(encodedCredentials), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException ex) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+		}
+		int delimiter = credentials.indexOf(':');
+		if (delimiter <= 0) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+		}
+		// The client identifier and secret are form-encoded prior to the HTTP Basic encoding
+		return new OAuth2ClientAuthenticationToken(formDecode(credentials.substring(0, delimiter)),
+				formDecode(credentials.substring(delimiter + 1)), ClientAuthenticationMethod.BASIC);
+	}
+
+	private static String formDecode(String value) {
+		try {
+			return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException | IllegalArgumentException ex) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST);
+			return null;
+		}
+	}
+
+	private static void throwError(String errorCode) {
+		OAuth2Error error = new OAuth2Error(errorCode, "OAuth 2.0 Client Authentication",
+				"https://tools.ietf.org/html/rfc6749#section-2.3.1");
+		throw new OAuth2AuthenticationException(error);
+	}
+
+	private static final class RateLimitExceededException extends OAuth2AuthenticationException {
+		private static final long serialVersionUID = Version.SERIAL_VERSION_UID;
+		private final long waitTime;
+
+		private RateLimitExceededException(long waitTime) {
+			super(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE, "The client has exceeded its rate limit", null));
+			this.waitTime = waitTime;
+		}
+
+		private long getRetryAfterSeconds() {
+			return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(this.waitTime + TimeUnit.SECONDS.toNanos(1) - 1));
+		}
+	}
 }
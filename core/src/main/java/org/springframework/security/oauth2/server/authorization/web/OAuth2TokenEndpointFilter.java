@@ -15,30 +15,338 @@
  */
 package org.springframework.security.oauth2.server.authorization.web;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.endpoint.PkceParameterNames;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AuthorizationCodeAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AuthorizationCodeAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.jfr.FlightRecorderEvents;
+import org.springframework.security.oauth2.server.authorization.jfr.TokenRequestEvent;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
+ * A {@code Filter} for the OAuth 2.0 Token endpoint,
+ * which handles the processing of the OAuth 2.0 Access Token Request.
+ *
+ * <p>
+ * The client is expected to be authenticated prior to this {@code Filter},
+ * and available as the {@link Authentication} in the {@link SecurityContextHolder}.
+ *
+ * <p>
+ * The Access Token Response is written with a streaming {@code JsonGenerator}.
+ *
  * @author Joe Grandja
+ * @since 0.0.1
+ * @see AuthenticationManager
+ * @see OAuth2AuthorizationCodeAuthenticationProvider
+ * @see OAuth2RefreshTokenAuthenticationProvider
+ * @see OAuth2ClientCredentialsAuthenticationProvider
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-3.2">Section 3.2 Token Endpoint</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.1.3">Section 4.1.3 Access Token Request</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-4.4.2">Section 4.4.2 Access Token Request</a>
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc6749#section-6">Section 6 Refreshing an Access Token</a>
  */
 public class OAuth2TokenEndpointFilter extends OncePerRequestFilter {
-	private Converter<HttpServletRequest, Authentication> authorizationGrantConverter;
-	private AuthenticationManager authenticationManager;
-	private OAuth2AuthorizationService authorizationService;
+	/**
+	 * The default endpoint {@code URI} for access token requests.
+	 */
+	public static final String DEFAULT_TOKEN_ENDPOINT_URI = "/oauth2/token";
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final AuthenticationManager authenticationManager;
+	private final RequestMatcher tokenEndpointMatcher;
+	private final Map<String, Converter<HttpServletRequest, Authentication>> authorizationGrantConverters = new HashMap<>();
+	private final HttpMessageConverter<OAuth2Error> errorHttpResponseConverter =
+			new OAuth2ErrorHttpMessageConverter();
+	private ClientTrafficStatistics clientTrafficStatistics;
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs an {@code OAuth2TokenEndpointFilter} using the provided parameters.
+	 *
+	 * @param authenticationManager the authentication manager
+	 */
+	public OAuth2TokenEndpointFilter(AuthenticationManager authenticationManager) {
+		this(authenticationManager, DEFAULT_TOKEN_ENDPOINT_URI);
+	}
+
+	/**
+	 * Constructs an {@code OAuth2TokenEndpointFilter} using the provided parameters.
+	 *
+	 * @param authenticationManager the authentication manager
+	 * @param tokenEndpointUri the endpoint {@code URI} for access token requests
+	 */
+	public OAuth2TokenEndpointFilter(AuthenticationManager authenticationManager, String tokenEndpointUri) {
+		Assert.notNull(authenticationManager, "authenticationManager cannot be null");
+		Assert.hasText(tokenEndpointUri, "tokenEndpointUri cannot be empty");
+		this.authenticationManager = authenticationManager;
+		this.tokenEndpointMatcher = new AntPathRequestMatcher(tokenEndpointUri, HttpMethod.POST.name());
+		this.authorizationGrantConverters.put(
+				AuthorizationGrantType.AUTHORIZATION_CODE.getValue(), new AuthorizationCodeAuthenticationConverter());
+		this.authorizationGrantConverters.put(
+				AuthorizationGrantType.REFRESH_TOKEN.getValue(), new RefreshTokenAuthenticationConverter());
+		this.authorizationGrantConverters.put(
+				AuthorizationGrantType.CLIENT_CREDENTIALS.getValue(), new ClientCredentialsAuthenticationConverter());
+	}
+
+	/**
+	 * Sets the {@link ClientTrafficStatistics} recording the access token requests of each authenticated client.
+	 *
+	 * @param clientTrafficStatistics the {@link ClientTrafficStatistics}
+	 */
+	public void setClientTrafficStatistics(ClientTrafficStatistics clientTrafficStatistics) {
+		Assert.notNull(clientTrafficStatistics, "clientTrafficStatistics cannot be null");
+		this.clientTrafficStatistics = clientTrafficStatistics;
+	}
+
+	/**
+	 * Sets the {@code Clock} used when computing the remaining lifetime of the access token, returned as {@code expires_in}.
+	 *
+	 * @param clock the {@code Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
 
 	@Override
-	protected void doFilterInternal(HttpServletRequest request,
-			HttpServletResponse response, FilterChain filterChain)
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 
+		if (!this.tokenEndpointMatcher.matches(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		TokenRequestEvent tokenRequestEvent = FlightRecorderEvents.beginTokenRequest();
+		if (this.clientTrafficStatistics != null) {
+			Authentication clientPrincipal = SecurityContextHolder.getContext().getAuthentication();
+			if (clientPrincipal instanceof OAuth2ClientAuthenticationToken && clientPrincipal.isAuthenticated()) {
+				this.clientTrafficStatistics.recordTokenRequest(clientPrincipal.getName());
+			}
+		}
+		try {
+			String[] grantTypes = request.getParameterValues(OAuth2ParameterNames.GRANT_TYPE);
+			if (grantTypes == null || grantTypes.length != 1) {
+				throwError(OAuth2ErrorCodes.INVALID_REQUEST, OAuth2ParameterNames.GRANT_TYPE);
+			}
+			Converter<HttpServletRequest, Authentication> authorizationGrantConverter =
+					this.authorizationGrantConverters.get(grantTypes[0]);
+			if (authorizationGrantConverter == null) {
+				throwError(OAuth2ErrorCodes.UNSUPPORTED_GRANT_TYPE, OAuth2ParameterNames.GRANT_TYPE);
+			}
+
+			Authentication authorizationGrantAuthentication = authorizationGrantConverter.convert(request);
+			OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+					(OAuth2AccessTokenAuthenticationToken) this.authenticationManager.authenticate(authorizationGrantAuthentication);
+			sendAccessTokenResponse(response, accessTokenAuthentication.getAccessToken(),
+					accessTokenAuthentication.getRefreshToken());
+			if (tokenRequestEvent != null) {
+				tokenRequestEvent.record(accessTokenAuthentication.getRegisteredClient().getClientId(),
+						grantTypes[0], null);
+			}
+		} catch (OAuth2AuthenticationException ex) {
+			if (tokenRequestEvent != null) {
+				Authentication clientPrincipal = SecurityContextHolder.getContext().getAuthentication();
+				tokenRequestEvent.record(clientPrincipal != null ? clientPrincipal.getName() : null,
+						request.getParameter(OAuth2ParameterNames.GRANT_TYPE), ex.getError().getErrorCode());
+			}
+			SecurityContextHolder.clearContext();
+			sendErrorResponse(response, ex.getError());
+		}
+	}
+
+	private void sendAccessTokenResponse(HttpServletResponse response, OAuth2AccessToken accessToken,
+			OAuth2RefreshToken refreshToken) throws IOException {
+		byte[] body = writeAccessTokenResponse(accessToken, refreshToken);
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+		response.setHeader(HttpHeaders.PRAGMA, "no-cache");
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	private byte[] writeAccessTokenResponse(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(accessToken.getTokenValue().length() + 128);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			generator.writeStartObject();
+			generator.writeStringField(OAuth2ParameterNames.ACCESS_TOKEN, accessToken.getTokenValue());
+			generator.writeStringField(OAuth2ParameterNames.TOKEN_TYPE, accessToken.getTokenType().getValue());
+			if (accessToken.getExpiresAt() != null) {
+				// The remaining lifetime, as an access token may be reused after it was issued
+				generator.writeNumberField(OAuth2ParameterNames.EXPIRES_IN,
+						Math.max(0, ChronoUnit.SECONDS.between(this.clock.instant(), accessToken.getExpiresAt())));
+			}
+			if (!accessToken.getScopes().isEmpty()) {
+				generator.writeStringField(OAuth2ParameterNames.SCOPE,
+						StringUtils.collectionToDelimitedString(accessToken.getScopes(), " "));
+			}
+			if (refreshToken != null) {
+				generator.writeStringField(OAuth2ParameterNames.REFRESH_TOKEN, refreshToken.getTokenValue());
+			}
+			generator.writeEndObject();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	private void sendErrorResponse(HttpServletResponse response, OAuth2Error error) throws IOException {
+		ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+		if (OAuth2ErrorCodes.INVALID_CLIENT.equals(error.getErrorCode())) {
+			httpResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
+		} else if (OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE.equals(error.getErrorCode())) {
+			httpResponse.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+			httpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+		} else {
+			httpResponse.setStatusCode(HttpStatus.BAD_REQUEST);
+		}
+		httpResponse.getHeaders().set(HttpHeaders.CACHE_CONTROL, "no-store");
+		this.errorHttpResponseConverter.write(error, null, httpResponse);
+	}
+
+	private static void throwError(String errorCode, String parameterName) {
+		OAuth2Error error = new OAuth2Error(errorCode, "OAuth 2.0 Parameter: " + parameterName,
+				"https://tools.ietf.org/html/rfc6749#section-5.2");
+		throw new OAuth2AuthenticationException(error);
+	}
+
+	private static MultiValueMap<String, String> getParameters(HttpServletRequest request) {
+		Map<String, String[]> parameterMap = request.getParameterMap();
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>(parameterMap.size());
+		parameterMap.forEach((key, values) -> {
+			if (values.length > 0) {
+				for (String value : values) {
+					parameters.add(key, value);
+				}
+			}
+		});
+		return parameters;
+	}
+
+	private static String getSingleParameter(MultiValueMap<String, String> parameters, String name, boolean required) {
+		List<String> values = parameters.get(name);
+		if (values == null || !StringUtils.hasText(values.get(0))) {
+			if (required) {
+				throwError(OAuth2ErrorCodes.INVALID_REQUEST, name);
+			}
+			return null;
+		}
+		if (values.size() != 1) {
+			throwError(OAuth2ErrorCodes.INVALID_REQUEST, name);
+		}
+		return values.get(0);
+	}
+
+	private static Set<String> getScopes(MultiValueMap<String, String> parameters) {
+		String scope = getSingleParameter(parameters, OAuth2ParameterNames.SCOPE, false);
+		if (scope == null) {
+			return Collections.emptySet();
+		}
+		return new LinkedHashSet<>(Arrays.asList(StringUtils.delimitedListToStringArray(scope, " ")));
+	}
+
+	private static class AuthorizationCodeAuthenticationConverter implements Converter<HttpServletRequest, Authentication> {
+
+		@Override
+		public Authentication convert(HttpServletRequest request) {
+			MultiValueMap<String, String> parameters = getParameters(request);
+
+			// code (REQUIRED)
+			String code = getSingleParameter(parameters, OAuth2ParameterNames.CODE, true);
+
+			// redirect_uri (REQUIRED)
+			// Required only if the "redirect_uri" parameter was included in the authorization request
+			String redirectUri = getSingleParameter(parameters, OAuth2ParameterNames.REDIRECT_URI, false);
+
+			// code_verifier (REQUIRED)
+			// Required only if the "code_challenge" parameter was included in the authorization request
+			String codeVerifier = getSingleParameter(parameters, PkceParameterNames.CODE_VERIFIER, false);
+
+			Authentication clientPrincipal = SecurityContextHolder.getContext().getAuthentication();
+			return new OAuth2AuthorizationCodeAuthenticationToken(code, clientPrincipal, redirectUri, codeVerifier);
+		}
+	}
+
+	private static class RefreshTokenAuthenticationConverter implements Converter<HttpServletRequest, Authentication> {
+
+		@Override
+		public Authentication convert(HttpServletRequest request) {
+			MultiValueMap<String, String> parameters = getParameters(request);
+
+			// refresh_token (REQUIRED)
+			String refreshToken = getSingleParameter(parameters, OAuth2ParameterNames.REFRESH_TOKEN, true);
+
+			// scope (OPTIONAL)
+			Set<String> scopes = getScopes(parameters);
+
+			Authentication clientPrincipal = SecurityContextHolder.getContext().getAuthentication();
+			return new OAuth2RefreshTokenAuthenticationToken(refreshToken, clientPrincipal, scopes);
+		}
+	}
+
+	private static class ClientCredentialsAuthenticationConverter implements Converter<HttpServletRequest, Authentication> {
+
+		@Override
+		public Authentication convert(HttpServletRequest request) {
+			MultiValueMap<String, String> parameters = getParameters(request);
+
+			// scope (OPTIONAL)
+			Set<String> scopes = getScopes(parameters);
+
+			Authentication clientPrincipal = SecurityContextHolder.getContext().getAuthentication();
+			return new OAuth2ClientCredentialsAuthenticationToken(clientPrincipal, scopes);
+		}
 	}
 }
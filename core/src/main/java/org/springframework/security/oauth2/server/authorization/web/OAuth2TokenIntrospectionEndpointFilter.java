@@ -0,0 +1,310 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.ExpiringCache;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationList;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A {@code Filter} for the OAuth 2.0 Token Introspection endpoint,
+ * which allows protected resources to query the state of an access token.
+ *
+ * <p>
+ * The caller is expected to be authenticated prior to this {@code Filter},
+ * and available as the {@link Authentication} in the {@link SecurityContextHolder}.
+ *
+ * <p>
+ * Introspection responses are cached, keyed by the {@link TokenDigest} of the token,
+ * and kept as serialized JSON so that a cache hit is written out without a lookup nor serialization.
+ * Responses for active tokens are cached until the cache time-to-live or the token expires, whichever comes first.
+ * Responses for unknown tokens are cached for the (shorter) negative cache time-to-live.
+ * As a consequence, a revoked access token may still be reported as active for up to the cache time-to-live,
+ * unless a {@link TokenRevocationList} is {@link #setTokenRevocationList(TokenRevocationList) configured}.
+ *
+ * @since 0.0.1
+ * @see OAuth2AuthorizationService
+ * @see TokenRevocationList
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7662#section-2">Section 2 Introspection Endpoint</a>
+ */
+public class OAuth2TokenIntrospectionEndpointFilter extends OncePerRequestFilter {
+	/**
+	 * The default endpoint {@code URI} for token introspection requests.
+	 */
+	public static final String DEFAULT_TOKEN_INTROSPECTION_ENDPOINT_URI = "/oauth2/introspect";
+
+	private static final String TOKEN = "token";
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final byte[] INACTIVE_RESPONSE = "{\"active\":false}".getBytes(StandardCharsets.UTF_8);
+	private final OAuth2AuthorizationService authorizationService;
+	private final RegisteredClientRepository registeredClientRepository;
+	private final RequestMatcher tokenIntrospectionEndpointMatcher;
+	private final HttpMessageConverter<OAuth2Error> errorHttpResponseConverter =
+			new OAuth2ErrorHttpMessageConverter();
+	private ExpiringCache<TokenDigest, byte[]> responseCache = new ExpiringCache<>(10000);
+	private Duration cacheTimeToLive = Duration.ofSeconds(30);
+	private Duration negativeCacheTimeToLive = Duration.ofSeconds(5);
+	private TokenRevocationList revocationList;
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs an {@code OAuth2TokenIntrospectionEndpointFilter} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 * @param registeredClientRepository the repository of registered clients
+	 */
+	public OAuth2TokenIntrospectionEndpointFilter(OAuth2AuthorizationService authorizationService,
+			RegisteredClientRepository registeredClientRepository) {
+		this(authorizationService, registeredClientRepository, DEFAULT_TOKEN_INTROSPECTION_ENDPOINT_URI);
+	}
+
+	/**
+	 * Constructs an {@code OAuth2TokenIntrospectionEndpointFilter} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 * @param registeredClientRepository the repository of registered clients
+	 * @param tokenIntrospectionEndpointUri the endpoint {@code URI} for token introspection requests
+	 */
+	public OAuth2TokenIntrospectionEndpointFilter(OAuth2AuthorizationService authorizationService,
+			RegisteredClientRepository registeredClientRepository, String tokenIntrospectionEndpointUri) {
+		Assert.notNull(authorizationService, "authorizationService cannot be null");
+		Assert.notNull(registeredClientRepository, "registeredClientRepository cannot be null");
+		Assert.hasText(tokenIntrospectionEndpointUri, "tokenIntrospectionEndpointUri cannot be empty");
+		this.authorizationService = authorizationService;
+		this.registeredClientRepository = registeredClientRepository;
+		this.tokenIntrospectionEndpointMatcher = new AntPathRequestMatcher(
+				tokenIntrospectionEndpointUri, HttpMethod.POST.name());
+	}
+
+	/**
+	 * Sets the maximum duration an introspection response for an active token is cached for.
+	 * The default is 30 seconds, and {@code Duration.ZERO} disables caching.
+	 *
+	 * @param cacheTimeToLive the maximum duration an introspection response is cached for
+	 */
+	public void setCacheTimeToLive(Duration cacheTimeToLive) {
+		Assert.notNull(cacheTimeToLive, "cacheTimeToLive cannot be null");
+		Assert.isTrue(!cacheTimeToLive.isNegative(), "cacheTimeToLive cannot be negative");
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
+	/**
+	 * Sets the duration an introspection response for an unknown token is cached for.
+	 * The default is 5 seconds, and {@code Duration.ZERO} disables caching.
+	 *
+	 * @param negativeCacheTimeToLive the duration an introspection response for an unknown token is cached for
+	 */
+	public void setNegativeCacheTimeToLive(Duration negativeCacheTimeToLive) {
+		Assert.notNull(negativeCacheTimeToLive, "negativeCacheTimeToLive cannot be null");
+		Assert.isTrue(!negativeCacheTimeToLive.isNegative(), "negativeCacheTimeToLive cannot be negative");
+		this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+	}
+
+	/**
+	 * Sets the maximum number of introspection responses cached. The default is 10000.
+	 * Once reached, the least recently used response is evicted.
+	 *
+	 * @param maximumCacheSize the maximum number of introspection responses cached
+	 */
+	public void setMaximumCacheSize(int maximumCacheSize) {
+		Assert.isTrue(maximumCacheSize >= 0, "maximumCacheSize cannot be negative");
+		this.responseCache = new ExpiringCache<>(maximumCacheSize);
+	}
+
+	/**
+	 * Sets the {@link TokenRevocationList} consulted before the cached introspection responses,
+	 * so that tokens revoked on any node are reported as inactive.
+	 *
+	 * @param revocationList the {@link TokenRevocationList}
+	 */
+	public void setTokenRevocationList(TokenRevocationList revocationList) {
+		Assert.notNull(revocationList, "revocationList cannot be null");
+		this.revocationList = revocationList;
+	}
+
+	/**
+	 * Sets the {@code Clock} used when determining whether a token or a cached response has expired.
+	 *
+	 * @param clock the {@code Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		if (!this.tokenIntrospectionEndpointMatcher.matches(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		try {
+			Authentication principal = SecurityContextHolder.getContext().getAuthentication();
+			if (principal == null || !principal.isAuthenticated()) {
+				throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+			}
+
+			// token (REQUIRED)
+			String[] tokens = request.getParameterValues(TOKEN);
+			if (tokens == null || tokens.length != 1 || !StringUtils.hasText(tokens[0])) {
+				OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.INVALID_REQUEST,
+						"OAuth 2.0 Parameter: " + TOKEN,
+						"https://tools.ietf.org/html/rfc7662#section-2.1");
+				throw new OAuth2AuthenticationException(error);
+			}
+
+			sendIntrospectionResponse(response, introspect(tokens[0]));
+		} catch (OAuth2AuthenticationException ex) {
+			SecurityContextHolder.clearContext();
+			sendErrorResponse(response, ex.getError());
+		}
+	}
+
+	private byte[] introspect(String token) {
+		TokenDigest tokenDigest = TokenDigest.of(token);
+		if (this.revocationList != null && this.revocationList.isRevoked(tokenDigest)) {
+			this.responseCache.remove(tokenDigest);
+			return INACTIVE_RESPONSE;
+		}
+		Instant now = this.clock.instant();
+		byte[] cachedResponse = this.responseCache.get(tokenDigest, now);
+		if (cachedResponse != null) {
+			return cachedResponse;
+		}
+
+		OAuth2Authorization authorization = this.authorizationService.findByTokenAndTokenType(
+				token, TokenType.ACCESS_TOKEN);
+		OAuth2AccessToken accessToken = authorization != null ? authorization.getAccessToken() : null;
+		if (accessToken == null) {
+			cache(tokenDigest, INACTIVE_RESPONSE, now.plus(this.negativeCacheTimeToLive), now);
+			return INACTIVE_RESPONSE;
+		}
+		if (accessToken.getExpiresAt() != null && !now.isBefore(accessToken.getExpiresAt())) {
+			return INACTIVE_RESPONSE;
+		}
+
+		byte[] body = writeActiveResponse(authorization, accessToken);
+		Instant expiresAt = now.plus(this.cacheTimeToLive);
+		if (accessToken.getExpiresAt() != null && accessToken.getExpiresAt().isBefore(expiresAt)) {
+			expiresAt = accessToken.getExpiresAt();
+		}
+		cache(tokenDigest, body, expiresAt, now);
+		return body;
+	}
+
+	private void cache(TokenDigest tokenDigest, byte[] body, Instant expiresAt, Instant now) {
+		if (now.isBefore(expiresAt)) {
+			this.responseCache.put(tokenDigest, body, expiresAt);
+		}
+	}
+
+	private byte[] writeActiveResponse(OAuth2Authorization authorization, OAuth2AccessToken accessToken) {
+		RegisteredClient registeredClient = this.registeredClientRepository.findById(authorization.getRegisteredClientId());
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			generator.writeStartObject();
+			generator.writeBooleanField("active", true);
+			if (!accessToken.getScopes().isEmpty()) {
+				generator.writeStringField(OAuth2ParameterNames.SCOPE,
+						StringUtils.collectionToDelimitedString(accessToken.getScopes(), " "));
+			}
+			if (registeredClient != null) {
+				generator.writeStringField(OAuth2ParameterNames.CLIENT_ID, registeredClient.getClientId());
+			}
+			generator.writeStringField(OAuth2ParameterNames.USERNAME, authorization.getPrincipalName());
+			generator.writeStringField(OAuth2ParameterNames.TOKEN_TYPE, accessToken.getTokenType().getValue());
+			if (accessToken.getIssuedAt() != null) {
+				generator.writeNumberField("iat", accessToken.getIssuedAt().getEpochSecond());
+			}
+			if (accessToken.getExpiresAt() != null) {
+				generator.writeNumberField("exp", accessToken.getExpiresAt().getEpochSecond());
+			}
+			generator.writeStringField("sub", authorization.getPrincipalName());
+			String x509CertificateThumbprint = authorization.getAttribute(
+					OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT);
+			if (x509CertificateThumbprint != null) {
+				generator.writeObjectFieldStart("cnf");
+				generator.writeStringField("x5t#S256", x509CertificateThumbprint);
+				generator.writeEndObject();
+			}
+			generator.writeEndObject();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	private static void sendIntrospectionResponse(HttpServletResponse response, byte[] body) throws IOException {
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader("Cache-Control", "no-store");
+		response.setHeader("Pragma", "no-cache");
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	private void sendErrorResponse(HttpServletResponse response, OAuth2Error error) throws IOException {
+		ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+		if (OAuth2ErrorCodes.INVALID_CLIENT.equals(error.getErrorCode())) {
+			httpResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
+		} else {
+			httpResponse.setStatusCode(HttpStatus.BAD_REQUEST);
+		}
+		this.errorHttpResponseConverter.write(error, null, httpResponse);
+	}
+}
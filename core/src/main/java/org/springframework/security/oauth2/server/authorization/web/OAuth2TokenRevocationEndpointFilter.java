@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationBus;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * A {@code Filter} for the OAuth 2.0 Token Revocation endpoint,
+ * which allows clients to notify the authorization server that a token is no longer needed.
+ *
+ * <p>
+ * The client is expected to be authenticated prior to this {@code Filter},
+ * and available as the {@link Authentication} in the {@link SecurityContextHolder}.
+ *
+ * <p>
+ * The {@link OAuth2Authorization} of the access token or refresh token is removed from the
+ * {@link OAuth2AuthorizationService}. A {@link TokenRevocation} of the access token, whether the access token
+ * or the refresh token it was issued with is revoked, is also published on the {@link TokenRevocationBus},
+ * so that every node stops accepting the access token it may have cached.
+ *
+ * @since 0.0.1
+ * @see OAuth2AuthorizationService#revoke(OAuth2Authorization)
+ * @see TokenRevocationBus
+ * @see <a target="_blank" href="https://tools.ietf.org/html/rfc7009#section-2">Section 2 Token Revocation</a>
+ */
+public class OAuth2TokenRevocationEndpointFilter extends OncePerRequestFilter {
+	/**
+	 * The default endpoint {@code URI} for token revocation requests.
+	 */
+	public static final String DEFAULT_TOKEN_REVOCATION_ENDPOINT_URI = "/oauth2/revoke";
+
+	private static final String TOKEN = "token";
+	private final OAuth2AuthorizationService authorizationService;
+	private final TokenRevocationBus revocationBus;
+	private final RequestMatcher tokenRevocationEndpointMatcher;
+	private final HttpMessageConverter<OAuth2Error> errorHttpResponseConverter =
+			new OAuth2ErrorHttpMessageConverter();
+
+	/**
+	 * Constructs an {@code OAuth2TokenRevocationEndpointFilter} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 * @param revocationBus the bus the revocations are published on
+	 */
+	public OAuth2TokenRevocationEndpointFilter(OAuth2AuthorizationService authorizationService,
+			TokenRevocationBus revocationBus) {
+		this(authorizationService, revocationBus, DEFAULT_TOKEN_REVOCATION_ENDPOINT_URI);
+	}
+
+	/**
+	 * Constructs an {@code OAuth2TokenRevocationEndpointFilter} using the provided parameters.
+	 *
+	 * @param authorizationService the authorization service
+	 * @param revocationBus the bus the revocations are published on
+	 * @param tokenRevocationEndpointUri the endpoint {@code URI} for token revocation requests
+	 */
+	public OAuth2TokenRevocationEndpointFilter(OAuth2AuthorizationService authorizationService,
+			TokenRevocationBus revocationBus, String tokenRevocationEndpointUri) {
+		Assert.notNull(authorizationService, "authorizationService cannot be null");
+		Assert.notNull(revocationBus, "revocationBus cannot be null");
+		Assert.hasText(tokenRevocationEndpointUri, "tokenRevocationEndpointUri cannot be empty");
+		this.authorizationService = authorizationService;
+		this.revocationBus = revocationBus;
+		this.tokenRevocationEndpointMatcher = new AntPathRequestMatcher(
+				tokenRevocationEndpointUri, HttpMethod.POST.name());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		if (!this.tokenRevocationEndpointMatcher.matches(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		try {
+			Authentication principal = SecurityContextHolder.getContext().getAuthentication();
+			if (!(principal instanceof OAuth2ClientAuthenticationToken) || !principal.isAuthenticated()) {
+				throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+			}
+			RegisteredClient registeredClient = ((OAuth2ClientAuthenticationToken) principal).getRegisteredClient();
+
+			// token (REQUIRED)
+			String[] tokens = request.getParameterValues(TOKEN);
+			if (tokens == null || tokens.length != 1 || !StringUtils.hasText(tokens[0])) {
+				OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.INVALID_REQUEST,
+						"OAuth 2.0 Parameter: " + TOKEN, "https://tools.ietf.org/html/rfc7009#section-2.1");
+				throw new OAuth2AuthenticationException(error);
+			}
+
+			revoke(tokens[0], registeredClient);
+			response.setStatus(HttpStatus.OK.value());
+		} catch (OAuth2AuthenticationException ex) {
+			SecurityContextHolder.clearContext();
+			sendErrorResponse(response, ex.getError());
+		}
+	}
+
+	private void revoke(String token, RegisteredClient registeredClient) {
+		OAuth2Authorization authorization = this.authorizationService.findByTokenAndTokenType(
+				token, TokenType.ACCESS_TOKEN);
+		if (authorization == null) {
+			authorization = this.authorizationService.findByTokenAndTokenType(token, TokenType.REFRESH_TOKEN);
+		}
+		if (authorization == null) {
+			// Invalid tokens do not cause an error response
+			return;
+		}
+		if (registeredClient == null || !registeredClient.getId().equals(authorization.getRegisteredClientId())) {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT));
+		}
+		TokenRevocation revocation = this.authorizationService.revoke(authorization);
+		if (revocation != null) {
+			// The access token, also when issued with the revoked refresh token, may be cached by any node
+			this.revocationBus.publish(revocation);
+		}
+	}
+
+	private void sendErrorResponse(HttpServletResponse response, OAuth2Error error) throws IOException {
+		ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+		if (OAuth2ErrorCodes.INVALID_CLIENT.equals(error.getErrorCode())) {
+			httpResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
+		} else {
+			httpResponse.setStatusCode(HttpStatus.BAD_REQUEST);
+		}
+		this.errorHttpResponseConverter.write(error, null, httpResponse);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ExpiringCache}.
+ */
+public class ExpiringCacheTests {
+	private final Instant now = Instant.now();
+
+	@Test
+	public void constructorWhenMaximumSizeNegativeThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new ExpiringCache<String, String>(-1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("maximumSize cannot be negative");
+	}
+
+	@Test
+	public void getWhenNotExpiredThenReturnValue() {
+		ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+		cache.put("key", "value", this.now.plusSeconds(10));
+
+		assertThat(cache.get("key", this.now)).isEqualTo("value");
+	}
+
+	@Test
+	public void getWhenExpiredThenReturnNullAndRemoved() {
+		ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+		cache.put("key", "value", this.now.plusSeconds(10));
+
+		assertThat(cache.get("key", this.now.plusSeconds(10))).isNull();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void putWhenFullThenLeastRecentlyUsedEvicted() {
+		ExpiringCache<String, String> cache = new ExpiringCache<>(2);
+		cache.put("key-1", "value-1", this.now.plusSeconds(10));
+		cache.put("key-2", "value-2", this.now.plusSeconds(10));
+		cache.get("key-1", this.now);
+
+		cache.put("key-3", "value-3", this.now.plusSeconds(10));
+
+		assertThat(cache.get("key-1", this.now)).isEqualTo("value-1");
+		assertThat(cache.get("key-2", this.now)).isNull();
+		assertThat(cache.get("key-3", this.now)).isEqualTo("value-3");
+	}
+
+	@Test
+	public void putWhenManyValuesThenSizeBounded() {
+		ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(1000);
+		for (int i = 0; i < 100_000; i++) {
+			cache.put(i, i, this.now.plusSeconds(10));
+		}
+
+		assertThat(cache.size()).isBetween(1, 1000);
+		assertThat(cache.get(99_999, this.now)).isEqualTo(99_999);
+	}
+
+	@Test
+	public void putWhenMaximumSizeZeroThenNotCached() {
+		ExpiringCache<String, String> cache = new ExpiringCache<>(0);
+		cache.put("key", "value", this.now.plusSeconds(10));
+
+		assertThat(cache.get("key", this.now)).isNull();
+	}
+
+	@Test
+	public void removeWhenCachedThenReturnValue() {
+		ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+		cache.put("key", "value", this.now.plusSeconds(10));
+
+		assertThat(cache.remove("key")).isEqualTo("value");
+		assertThat(cache.get("key", this.now)).isNull();
+	}
+
+	@Test
+	public void clearWhenCachedThenEmpty() {
+		ExpiringCache<String, String> cache = new ExpiringCache<>(1000);
+		cache.put("key-1", "value-1", this.now.plusSeconds(10));
+		cache.put("key-2", "value-2", this.now.plusSeconds(10));
+
+		cache.clear();
+
+		assertThat(cache.size()).isEqualTo(0);
+	}
+}
@@ -18,11 +18,15 @@ package org.springframework.security.oauth2.server.authorization;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
-import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -120,4 +124,342 @@ public class InMemoryOAuth2AuthorizationServiceTests {
 				"access-token", TokenType.ACCESS_TOKEN);
 		assertThat(result).isNull();
 	}
+
+	@Test
+	public void saveWhenAuthorizationExistsThenUpdated() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.build();
+		this.authorizationService.save(authorization);
+
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now().minusSeconds(60), Instant.now());
+		OAuth2Authorization updatedAuthorization = OAuth2Authorization.from(authorization)
+				.accessToken(accessToken)
+				.build();
+		this.authorizationService.save(updatedAuthorization);
+
+		OAuth2Authorization result = this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN);
+		assertThat(result).isEqualTo(updatedAuthorization);
+	}
+
+	@Test
+	public void saveWhenAccessTokenReplacedThenPreviousAccessTokenNotFound() {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now().minusSeconds(60), Instant.now());
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.accessToken(accessToken)
+				.build();
+		this.authorizationService.save(authorization);
+
+		OAuth2AccessToken newAccessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"new-access-token", Instant.now().minusSeconds(60), Instant.now());
+		this.authorizationService.save(OAuth2Authorization.from(authorization).accessToken(newAccessToken).build());
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"new-access-token", TokenType.ACCESS_TOKEN).getAccessToken()).isEqualTo(newAccessToken);
+	}
+
+	@Test
+	public void findByTokenAndTokenTypeWhenTokenTypeAuthorizationCodeThenAccessTokenNotRetained() {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now().minusSeconds(60), Instant.now());
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.accessToken(accessToken)
+				.build();
+		this.authorizationService.save(authorization);
+
+		OAuth2Authorization result = this.authorizationService.findByTokenAndTokenType(
+				AUTHORIZATION_CODE, TokenType.AUTHORIZATION_CODE);
+		assertThat(result.getPrincipalName()).isEqualTo(PRINCIPAL_NAME);
+		assertThat(result.getAttributes()).isEqualTo(authorization.getAttributes());
+		assertThat(result.getAccessToken()).isNull();
+	}
+
+	@Test
+	public void removeWhenAuthorizationNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.authorizationService.remove(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorization cannot be null");
+	}
+
+	@Test
+	public void removeWhenAuthorizationProvidedThenRemoved() {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now().minusSeconds(60), Instant.now());
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.accessToken(accessToken)
+				.build();
+		this.authorizationService.save(authorization);
+
+		this.authorizationService.remove(authorization);
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				AUTHORIZATION_CODE, TokenType.AUTHORIZATION_CODE)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isNull();
+	}
+
+	@Test
+	public void findByTokenAndTokenTypeWhenTokenTypeRefreshTokenThenFound() {
+		OAuth2RefreshToken refreshToken = new OAuth2RefreshToken("refresh-token", Instant.now());
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.refreshToken(refreshToken)
+				.build();
+		this.authorizationService.save(authorization);
+
+		OAuth2Authorization result = this.authorizationService.findByTokenAndTokenType(
+				"refresh-token", TokenType.REFRESH_TOKEN);
+		assertThat(result).isEqualTo(authorization);
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"refresh-token", TokenType.ACCESS_TOKEN)).isNull();
+	}
+
+	@Test
+	public void saveWhenRefreshTokenRotatedThenPreviousRefreshTokenNotFound() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		this.authorizationService.save(authorization);
+
+		OAuth2RefreshToken rotatedRefreshToken = new OAuth2RefreshToken("rotated-refresh-token", Instant.now());
+		this.authorizationService.save(OAuth2Authorization.from(authorization).refreshToken(rotatedRefreshToken).build());
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"refresh-token", TokenType.REFRESH_TOKEN)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"rotated-refresh-token", TokenType.REFRESH_TOKEN).getRefreshToken()).isEqualTo(rotatedRefreshToken);
+	}
+
+	@Test
+	public void revokeWhenFoundByRefreshTokenThenAccessTokenRevocationReturned() {
+		Instant expiresAt = Instant.now().plusSeconds(300);
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"access-token", Instant.now(), expiresAt))
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		this.authorizationService.save(authorization);
+		OAuth2Authorization result = this.authorizationService.findByTokenAndTokenType(
+				"refresh-token", TokenType.REFRESH_TOKEN);
+
+		TokenRevocation revocation = this.authorizationService.revoke(result);
+
+		assertThat(result.getAccessToken()).isNull();
+		assertThat(revocation).isEqualTo(new TokenRevocation(TokenDigest.of("access-token"), expiresAt));
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isNull();
+	}
+
+	@Test
+	public void replaceWhenRefreshTokenCurrentThenReplaced() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		this.authorizationService.save(authorization);
+		OAuth2RefreshToken rotatedRefreshToken = new OAuth2RefreshToken("rotated-refresh-token", Instant.now());
+
+		boolean replaced = this.authorizationService.replace("refresh-token",
+				OAuth2Authorization.from(authorization).refreshToken(rotatedRefreshToken).build());
+
+		assertThat(replaced).isTrue();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"refresh-token", TokenType.REFRESH_TOKEN)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"rotated-refresh-token", TokenType.REFRESH_TOKEN)).isNotNull();
+	}
+
+	@Test
+	public void replaceWhenRefreshTokenAlreadyReplacedThenNotReplaced() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		this.authorizationService.save(authorization);
+		this.authorizationService.replace("refresh-token", OAuth2Authorization.from(authorization)
+				.refreshToken(new OAuth2RefreshToken("refresh-token-1", Instant.now())).build());
+
+		boolean replaced = this.authorizationService.replace("refresh-token", OAuth2Authorization.from(authorization)
+				.refreshToken(new OAuth2RefreshToken("refresh-token-2", Instant.now())).build());
+
+		assertThat(replaced).isFalse();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"refresh-token-1", TokenType.REFRESH_TOKEN)).isNotNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"refresh-token-2", TokenType.REFRESH_TOKEN)).isNull();
+	}
+
+	@Test
+	public void replaceWhenAuthorizationCodeCurrentThenReplaced() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.build();
+		this.authorizationService.save(authorization);
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now(), Instant.now().plusSeconds(300));
+
+		boolean replaced = this.authorizationService.replace(
+				OAuth2Authorization.from(authorization).accessToken(accessToken).build());
+
+		assertThat(replaced).isTrue();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isNotNull();
+	}
+
+	@Test
+	public void replaceWhenAuthorizationRevokedThenNotSavedAgain() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.build();
+		this.authorizationService.save(authorization);
+		// the authorization code is presented again while being exchanged
+		this.authorizationService.revoke(authorization);
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now(), Instant.now().plusSeconds(300));
+
+		boolean replaced = this.authorizationService.replace(
+				OAuth2Authorization.from(authorization).accessToken(accessToken).build());
+
+		assertThat(replaced).isFalse();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				AUTHORIZATION_CODE, TokenType.AUTHORIZATION_CODE)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isNull();
+	}
+
+	@Test
+	public void saveWhenAuthorizationWithoutCodeThenFoundByAccessTokenAndRemoved() {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"access-token", Instant.now().minusSeconds(60), Instant.now());
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(REGISTERED_CLIENT.getClientId())
+				.accessToken(accessToken)
+				.build();
+		this.authorizationService.save(authorization);
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isEqualTo(authorization);
+
+		this.authorizationService.remove(authorization);
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"access-token", TokenType.ACCESS_TOKEN)).isNull();
+	}
+
+	@Test
+	public void setEvictionIntervalWhenNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.authorizationService.setEvictionInterval(Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("evictionInterval must be positive");
+	}
+
+	@Test
+	public void saveWhenAuthorizationsExpiredThenEvicted() {
+		Instant now = Instant.parse("2020-10-01T00:00:00Z");
+		this.authorizationService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(REGISTERED_CLIENT.getClientId())
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"client-credentials-access-token", now, now.plusSeconds(300)))
+				.build());
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code-1")
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"access-token", now, now.plusSeconds(300)))
+				.build());
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code-2")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT, now)
+				.build());
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code-3")
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"refreshed-access-token", now, now.plusSeconds(300)))
+				.refreshToken(new OAuth2RefreshToken("refresh-token", now))
+				.build());
+
+		this.authorizationService.setClock(Clock.fixed(now.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(REGISTERED_CLIENT.getClientId())
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"new-access-token", now, now.plus(Duration.ofMinutes(15))))
+				.build());
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"client-credentials-access-token", TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType("code-1", TokenType.AUTHORIZATION_CODE)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType("access-token", TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType("code-2", TokenType.AUTHORIZATION_CODE)).isNull();
+		// the refresh token does not expire
+		assertThat(this.authorizationService.findByTokenAndTokenType("code-3", TokenType.AUTHORIZATION_CODE)).isNotNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"refresh-token", TokenType.REFRESH_TOKEN)).isNotNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"new-access-token", TokenType.ACCESS_TOKEN)).isNotNull();
+		assertThat(this.authorizationService.size(TokenType.ACCESS_TOKEN)).isEqualTo(2);
+	}
+
+	@Test
+	public void saveWhenEvictionIntervalNotElapsedThenExpiredAuthorizationsKept() {
+		Instant now = Instant.parse("2020-10-01T00:00:00Z");
+		this.authorizationService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(REGISTERED_CLIENT.getClientId())
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"access-token-1", now, now.plusSeconds(1)))
+				.build());
+
+		this.authorizationService.setClock(Clock.fixed(now.plusSeconds(30), ZoneOffset.UTC));
+		this.authorizationService.save(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(REGISTERED_CLIENT.getClientId())
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"access-token-2", now, now.plusSeconds(300)))
+				.build());
+
+		assertThat(this.authorizationService.size(TokenType.ACCESS_TOKEN)).isEqualTo(2);
+	}
+
+	@Test
+	public void sizeWhenAuthorizationsSavedThenCountedByTokenType() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+						"access-token", Instant.now().minusSeconds(60), Instant.now()))
+				.build();
+		this.authorizationService.save(authorization);
+
+		assertThat(this.authorizationService.size(TokenType.AUTHORIZATION_CODE)).isEqualTo(1);
+		assertThat(this.authorizationService.size(TokenType.ACCESS_TOKEN)).isEqualTo(1);
+		assertThat(this.authorizationService.size(TokenType.REFRESH_TOKEN)).isEqualTo(0);
+
+		this.authorizationService.remove(authorization);
+
+		assertThat(this.authorizationService.size(TokenType.AUTHORIZATION_CODE)).isEqualTo(0);
+		assertThat(this.authorizationService.size(TokenType.ACCESS_TOKEN)).isEqualTo(0);
+	}
 }
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.junit.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link OAuth2AuthorizationCodec}.
+ */
+public class OAuth2AuthorizationCodecTests {
+	private static final RegisteredClient REGISTERED_CLIENT = TestRegisteredClients.registeredClient().build();
+	private final OAuth2AuthorizationCodec codec = new OAuth2AuthorizationCodec();
+
+	@Test
+	public void encodeWhenAuthorizationNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.codec.encode(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorization cannot be null");
+	}
+
+	@Test
+	public void decodeWhenAuthorizationCodeIssuedThenDecoded() {
+		OAuth2AuthorizationRequest authorizationRequest = authorizationRequest();
+		Instant codeIssuedAt = Instant.now();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT, codeIssuedAt)
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE, "E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD, "S256")
+				.build();
+
+		OAuth2Authorization decoded = this.codec.decode(this.codec.encode(authorization));
+
+		assertThat(decoded.getRegisteredClientId()).isEqualTo(authorization.getRegisteredClientId());
+		assertThat(decoded.getPrincipalName()).isEqualTo(authorization.getPrincipalName());
+		assertThat(decoded.getAccessToken()).isNull();
+		assertThat(decoded.getRefreshToken()).isNull();
+		assertThat(decoded.getAttributes()).hasSize(5);
+		assertThat((String) decoded.getAttribute(OAuth2AuthorizationAttributeNames.CODE)).isEqualTo("code");
+		assertThat((Instant) decoded.getAttribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT)).isEqualTo(codeIssuedAt);
+		assertThat((String) decoded.getAttribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD)).isEqualTo("S256");
+
+		OAuth2AuthorizationRequest decodedRequest = decoded.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		assertThat(decodedRequest.getGrantType()).isEqualTo(authorizationRequest.getGrantType());
+		assertThat(decodedRequest.getResponseType()).isEqualTo(authorizationRequest.getResponseType());
+		assertThat(decodedRequest.getAuthorizationUri()).isEqualTo(authorizationRequest.getAuthorizationUri());
+		assertThat(decodedRequest.getClientId()).isEqualTo(authorizationRequest.getClientId());
+		assertThat(decodedRequest.getRedirectUri()).isEqualTo(authorizationRequest.getRedirectUri());
+		assertThat(decodedRequest.getScopes()).containsExactlyElementsOf(authorizationRequest.getScopes());
+		assertThat(decodedRequest.getState()).isEqualTo(authorizationRequest.getState());
+		assertThat(decodedRequest.getAdditionalParameters()).isEqualTo(authorizationRequest.getAdditionalParameters());
+		assertThat(decodedRequest.getAttributes()).isEqualTo(authorizationRequest.getAttributes());
+		assertThat(decodedRequest.getAuthorizationRequestUri()).isEqualTo(authorizationRequest.getAuthorizationRequestUri());
+	}
+
+	@Test
+	public void decodeWhenTokensIssuedThenEqualsAuthorization() {
+		Instant issuedAt = Instant.now();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+						issuedAt, issuedAt.plus(Duration.ofMinutes(5)), new LinkedHashSet<>(Arrays.asList("read", "write"))))
+				.refreshToken(new OAuth2RefreshToken("refresh-token", issuedAt))
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT, "thumbprint")
+				.attribute("custom-string", "value")
+				.attribute("custom-int", -1)
+				.attribute("custom-long", Long.MAX_VALUE)
+				.attribute("custom-boolean", true)
+				.attribute("custom-serializable", new HashSet<>(Collections.singleton("value")))
+				.build();
+
+		OAuth2Authorization decoded = this.codec.decode(this.codec.encode(authorization));
+
+		assertThat(decoded).isEqualTo(authorization);
+		assertThat(decoded.getAccessToken().getTokenType()).isSameAs(OAuth2AccessToken.TokenType.BEARER);
+		assertThat(decoded.getAccessToken().getScopes()).containsExactly("read", "write");
+	}
+
+	@Test
+	public void decodeWhenRefreshTokenWithoutIssuedAtThenDecoded() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.refreshToken(new OAuth2RefreshToken("refresh-token", null))
+				.build();
+
+		OAuth2Authorization decoded = this.codec.decode(this.codec.encode(authorization));
+
+		assertThat(decoded.getRefreshToken().getTokenValue()).isEqualTo("refresh-token");
+		assertThat(decoded.getRefreshToken().getIssuedAt()).isNull();
+	}
+
+	@Test
+	public void decodeWhenDecodedTwiceThenClientIdAndScopesShared() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest())
+				.build();
+		byte[] bytes = this.codec.encode(authorization);
+
+		OAuth2Authorization first = this.codec.decode(bytes);
+		OAuth2Authorization second = this.codec.decode(bytes);
+
+		assertThat(second.getRegisteredClientId()).isSameAs(first.getRegisteredClientId());
+		OAuth2AuthorizationRequest firstRequest = first.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		OAuth2AuthorizationRequest secondRequest = second.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		assertThat(secondRequest.getClientId()).isSameAs(firstRequest.getClientId());
+		assertThat(secondRequest.getScopes().iterator().next()).isSameAs(firstRequest.getScopes().iterator().next());
+	}
+
+	@Test
+	public void decodeWhenSerializedAttributeThenDeserializedOnFirstAccess() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute("counting", new DeserializationCounting())
+				.build();
+		byte[] bytes = this.codec.encode(authorization);
+		DeserializationCounting.count.set(0);
+
+		OAuth2Authorization decoded = this.codec.decode(bytes);
+		OAuth2Authorization copied = OAuth2Authorization.from(decoded).build();
+
+		assertThat(DeserializationCounting.count.get()).isEqualTo(0);
+		assertThat((Object) copied.getAttribute("counting")).isInstanceOf(DeserializationCounting.class);
+		assertThat((Object) decoded.getAttribute("counting")).isSameAs(copied.getAttribute("counting"));
+		assertThat(DeserializationCounting.count.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void encodeWhenDecodedThenLazyAttributesCopiedWithoutMaterializing() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest())
+				.attribute("counting", new DeserializationCounting())
+				.build();
+		byte[] bytes = this.codec.encode(authorization);
+		DeserializationCounting.count.set(0);
+		OAuth2Authorization decoded = this.codec.decode(bytes);
+
+		byte[] encoded = this.codec.encode(decoded);
+		byte[] updated = this.codec.encode(OAuth2Authorization.from(decoded).build());
+
+		assertThat(DeserializationCounting.count.get()).isEqualTo(0);
+		assertThat(encoded).isEqualTo(bytes);
+		assertThat(updated).isEqualTo(bytes);
+		OAuth2Authorization encodedDecoded = this.codec.decode(encoded);
+		assertThat((Object) encodedDecoded.getAttribute("counting")).isInstanceOf(DeserializationCounting.class);
+		assertThat((Object) encodedDecoded.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST))
+				.isEqualToComparingFieldByField(authorization.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST));
+	}
+
+	@Test
+	public void decodeWhenAuthorizationRequestMalformedThenThrowIllegalArgumentExceptionOnFirstAccess() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest())
+				.build();
+		byte[] bytes = this.codec.encode(authorization);
+		int grantTypeOffset = new String(bytes, StandardCharsets.ISO_8859_1)
+				.indexOf(AuthorizationGrantType.AUTHORIZATION_CODE.getValue());
+		bytes[grantTypeOffset] = 'X';
+
+		OAuth2Authorization decoded = this.codec.decode(bytes);
+
+		assertThat(decoded.getPrincipalName()).isEqualTo("principal");
+		assertThatThrownBy(() -> decoded.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Malformed authorization: unknown grant type Xuthorization_code");
+	}
+
+	@Test
+	public void encodeWhenAuthorizationRequestThenSmallerThanJavaSerialization() throws Exception {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+						Instant.now(), Instant.now().plusSeconds(300), REGISTERED_CLIENT.getScopes()))
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest())
+				.build();
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+			out.writeObject(authorization);
+		}
+
+		assertThat(this.codec.encode(authorization).length).isLessThan(serialized.size() / 4);
+	}
+
+	@Test
+	public void decodeWhenUnsupportedVersionThenThrowIllegalArgumentException() {
+		byte[] bytes = this.codec.encode(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.build());
+		bytes[0] = 2;
+
+		assertThatThrownBy(() -> this.codec.decode(bytes))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Unsupported version 2");
+	}
+
+	@Test
+	public void decodeWhenTruncatedThenThrowIllegalArgumentException() {
+		byte[] bytes = this.codec.encode(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.build());
+
+		assertThatThrownBy(() -> this.codec.decode(Arrays.copyOf(bytes, bytes.length - 1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageStartingWith("Malformed authorization");
+	}
+
+	@Test
+	public void decodeWhenCountExceedsInputThenThrowIllegalArgumentException() {
+		byte[] bytes = this.codec.encode(OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.build());
+		// The attribute count, followed by the 7 bytes of the code attribute, replaced with 2^28
+		int countOffset = bytes.length - 8;
+		byte[] malformed = new byte[bytes.length + 4];
+		System.arraycopy(bytes, 0, malformed, 0, countOffset);
+		System.arraycopy(new byte[] { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x02 }, 0,
+				malformed, countOffset, 5);
+		System.arraycopy(bytes, countOffset + 1, malformed, countOffset + 5, 7);
+
+		assertThatThrownBy(() -> this.codec.decode(malformed))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Malformed authorization: invalid count 268435456");
+	}
+
+	private static final class DeserializationCounting implements Serializable {
+		private static final AtomicInteger count = new AtomicInteger();
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			count.incrementAndGet();
+		}
+	}
+
+	private static OAuth2AuthorizationRequest authorizationRequest() {
+		return OAuth2AuthorizationRequest.authorizationCode()
+				.authorizationUri("https://provider.com/oauth2/authorize")
+				.clientId(REGISTERED_CLIENT.getClientId())
+				.redirectUri(REGISTERED_CLIENT.getRedirectUris().iterator().next())
+				.scopes(REGISTERED_CLIENT.getScopes())
+				.state("state")
+				.additionalParameters(Collections.singletonMap("prompt", "consent"))
+				.attributes(Collections.singletonMap("attribute", "value"))
+				.build();
+	}
+}
@@ -17,11 +17,17 @@ package org.springframework.security.oauth2.server.authorization;
 
 import org.junit.Test;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -37,6 +43,7 @@ public class OAuth2AuthorizationTests {
 	private static final String PRINCIPAL_NAME = "principal";
 	private static final OAuth2AccessToken ACCESS_TOKEN = new OAuth2AccessToken(
 			OAuth2AccessToken.TokenType.BEARER, "access-token", Instant.now().minusSeconds(60), Instant.now());
+	private static final OAuth2RefreshToken REFRESH_TOKEN = new OAuth2RefreshToken("refresh-token", Instant.now());
 	private static final String AUTHORIZATION_CODE = "code";
 
 	@Test
@@ -62,6 +69,17 @@ public class OAuth2AuthorizationTests {
 				.hasMessage("authorization code cannot be null");
 	}
 
+	@Test
+	public void buildWhenAccessTokenProvidedWithoutAuthorizationCodeThenBuilt() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.accessToken(ACCESS_TOKEN)
+				.build();
+
+		assertThat(authorization.getAccessToken()).isEqualTo(ACCESS_TOKEN);
+		assertThat(authorization.getAttributes()).isEmpty();
+	}
+
 	@Test
 	public void attributeWhenNameNullThenThrowIllegalArgumentException() {
 		assertThatThrownBy(() ->
@@ -85,13 +103,153 @@ public class OAuth2AuthorizationTests {
 		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
 				.principalName(PRINCIPAL_NAME)
 				.accessToken(ACCESS_TOKEN)
+				.refreshToken(REFRESH_TOKEN)
 				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
 				.build();
 
 		assertThat(authorization.getRegisteredClientId()).isEqualTo(REGISTERED_CLIENT.getId());
 		assertThat(authorization.getPrincipalName()).isEqualTo(PRINCIPAL_NAME);
 		assertThat(authorization.getAccessToken()).isEqualTo(ACCESS_TOKEN);
+		assertThat(authorization.getRefreshToken()).isEqualTo(REFRESH_TOKEN);
 		assertThat(authorization.getAttributes()).containsExactly(
 				entry(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE));
 	}
+
+	@Test
+	public void fromWhenAuthorizationNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> OAuth2Authorization.from(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorization cannot be null");
+	}
+
+	@Test
+	public void fromWhenAuthorizationProvidedThenCopied() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.accessToken(ACCESS_TOKEN)
+				.refreshToken(REFRESH_TOKEN)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.build();
+
+		assertThat(OAuth2Authorization.from(authorization).build()).isEqualTo(authorization);
+	}
+
+	@Test
+	public void lazyAttributeWhenValueSupplierNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() ->
+				OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+						.lazyAttribute(OAuth2AuthorizationAttributeNames.CODE, null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("valueSupplier cannot be null");
+	}
+
+	@Test
+	public void getAttributeWhenLazyAttributeThenMaterializedOnce() {
+		AtomicInteger materializeCount = new AtomicInteger();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.accessToken(ACCESS_TOKEN)
+				.lazyAttribute("lazy", () -> "value" + materializeCount.incrementAndGet())
+				.build();
+
+		assertThat(authorization.getAttributes()).containsKey("lazy");
+		assertThat(materializeCount.get()).isEqualTo(0);
+		assertThat((String) authorization.getAttribute("lazy")).isEqualTo("value1");
+		assertThat((String) authorization.getAttribute("lazy")).isEqualTo("value1");
+		assertThat(authorization.getAttributes()).containsExactly(entry("lazy", "value1"));
+		assertThat(materializeCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void fromWhenLazyAttributeThenNotMaterialized() {
+		AtomicInteger materializeCount = new AtomicInteger();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.lazyAttribute("lazy", () -> "value" + materializeCount.incrementAndGet())
+				.build();
+
+		OAuth2Authorization updatedAuthorization = OAuth2Authorization.from(authorization)
+				.accessToken(ACCESS_TOKEN)
+				.attributes(attributes -> attributes.remove(OAuth2AuthorizationAttributeNames.CODE))
+				.build();
+
+		assertThat(materializeCount.get()).isEqualTo(0);
+		assertThat(updatedAuthorization.getAttributes()).containsOnlyKeys("lazy");
+		assertThat((String) updatedAuthorization.getAttribute("lazy")).isEqualTo("value1");
+		assertThat((String) authorization.getAttribute("lazy")).isEqualTo("value1");
+		assertThat(materializeCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void attributesWhenLazyAttributeReplacedOrRemovedThenNotMaterialized() {
+		AtomicInteger materializeCount = new AtomicInteger();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.lazyAttribute("lazy-1", () -> "value" + materializeCount.incrementAndGet())
+				.lazyAttribute("lazy-2", () -> "value" + materializeCount.incrementAndGet())
+				.build();
+
+		OAuth2Authorization updatedAuthorization = OAuth2Authorization.from(authorization)
+				.attributes(attributes -> {
+					assertThat(attributes.put("lazy-1", "replaced")).isNull();
+					assertThat(attributes.remove("lazy-2")).isNull();
+				})
+				.build();
+
+		assertThat(materializeCount.get()).isEqualTo(0);
+		assertThat((String) updatedAuthorization.getAttribute("lazy-1")).isEqualTo("replaced");
+		assertThat(updatedAuthorization.getAttributes()).doesNotContainKey("lazy-2");
+	}
+
+	@Test
+	public void getAttributesWhenIteratedThenMaterializedOnValueAccess() {
+		AtomicInteger materializeCount = new AtomicInteger();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.lazyAttribute("lazy", () -> "value" + materializeCount.incrementAndGet())
+				.build();
+
+		assertThat(authorization.getAttributes().keySet())
+				.containsOnly(OAuth2AuthorizationAttributeNames.CODE, "lazy");
+		assertThat(materializeCount.get()).isEqualTo(0);
+		assertThat(authorization.getAttributes().values()).contains("value1");
+		assertThat(materializeCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void getAttributesWhenModifiedThenThrowUnsupportedOperationException() {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.build();
+
+		assertThatThrownBy(() -> authorization.getAttributes().put("name", "value"))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> authorization.getAttributes().remove(OAuth2AuthorizationAttributeNames.CODE))
+				.isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void serializeWhenLazyAttributeThenMaterialized() throws Exception {
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(REGISTERED_CLIENT)
+				.principalName(PRINCIPAL_NAME)
+				.accessToken(ACCESS_TOKEN)
+				.lazyAttribute("lazy", () -> "value")
+				.build();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(authorization);
+		}
+
+		OAuth2Authorization deserializedAuthorization;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserializedAuthorization = (OAuth2Authorization) in.readObject();
+		}
+
+		assertThat(deserializedAuthorization).isEqualTo(authorization);
+		assertThat(deserializedAuthorization.getAttributes()).containsExactly(entry("lazy", "value"));
+	}
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+public class TestX509Certificates {
+	private static final String CLIENT_1_CERTIFICATE =
+			"-----BEGIN CERTIFICATE-----\n" +
+			"MIIBfTCCASOgAwIBAgIUfaXVSfwPbVpYAaUg7upIo/Fci14wCgYIKoZIzj0EAwIw\n" +
+			"EzERMA8GA1UEAwwIY2xpZW50LTEwIBcNMjYxMDE4MjA1NDU5WhgPMjEyNjA5MjQy\n" +
+			"MDU0NTlaMBMxETAPBgNVBAMMCGNsaWVudC0xMFkwEwYHKoZIzj0CAQYIKoZIzj0D\n" +
+			"AQcDQgAErbqH9ZywAajKUAzk3Qli5iZlKF8AgTpVyoHQVfCnE/vap3MyZ7TGKI/L\n" +
+			"iAt9f+qJ0puUem+e63Wb6zDeLhJiFaNTMFEwHQYDVR0OBBYEFD0PWWQaVqDFN5Eo\n" +
+			"UfsGUO1dNIorMB8GA1UdIwQYMBaAFD0PWWQaVqDFN5EoUfsGUO1dNIorMA8GA1Ud\n" +
+			"EwEB/wQFMAMBAf8wCgYIKoZIzj0EAwIDSAAwRQIgILfy3v95J2MXIpJg+x9aDHP6\n" +
+			"grjGIaeRdIzBBUcPRQYCIQDlgz0zVGeywmAVicGQyhRmfSRG1OB/VYHFgFiGkUFQ\n" +
+			"Cg==\n" +
+			"-----END CERTIFICATE-----\n";
+	private static final String CLIENT_2_CERTIFICATE =
+			"-----BEGIN CERTIFICATE-----\n" +
+			"MIIBfjCCASOgAwIBAgIUN4+/ucKfvdIKE2Yfg/+sJU36hjAwCgYIKoZIzj0EAwIw\n" +
+			"EzERMA8GA1UEAwwIY2xpZW50LTIwIBcNMjYxMDE4MjA1NDU5WhgPMjEyNjA5MjQy\n" +
+			"MDU0NTlaMBMxETAPBgNVBAMMCGNsaWVudC0yMFkwEwYHKoZIzj0CAQYIKoZIzj0D\n" +
+			"AQcDQgAEztywyEgh+6NszoJfCOIJ0tZ8XjmJVmbdj5cNoVDqWQw/cVF8fu8k6Q3T\n" +
+			"WI6I05rndaa9KUPAXUimyJmsRaQuV6NTMFEwHQYDVR0OBBYEFFEc2YgxaUXpcgn/\n" +
+			"xvVwK9j1mmygMB8GA1UdIwQYMBaAFFEc2YgxaUXpcgn/xvVwK9j1mmygMA8GA1Ud\n" +
+			"EwEB/wQFMAMBAf8wCgYIKoZIzj0EAwIDSQAwRgIhAP5qsjLgkrbyu97OBSdbEHnm\n" +
+			"gjJP5Qu4+drV+GEY84zIAiEAy1Wx/1CkD0RDYf/hNsh0NraUGXH+TMKnu0Ixt2dl\n" +
+			"Wog=\n" +
+			"-----END CERTIFICATE-----\n";
+
+	public static X509Certificate clientCertificate() {
+		return certificate(CLIENT_1_CERTIFICATE);
+	}
+
+	public static X509Certificate clientCertificate2() {
+		return certificate(CLIENT_2_CERTIFICATE);
+	}
+
+	private static X509Certificate certificate(String pem) {
+		try {
+			return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+					new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII)));
+		} catch (CertificateException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link TokenDigest}.
+ */
+public class TokenDigestTests {
+
+	@Test
+	public void ofWhenTokenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> TokenDigest.of(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("token cannot be empty");
+	}
+
+	@Test
+	public void ofWhenSameTokenThenEqual() {
+		TokenDigest digest = TokenDigest.of("token");
+		assertThat(digest).isEqualTo(TokenDigest.of("token"));
+		assertThat(digest.hashCode()).isEqualTo(TokenDigest.of("token").hashCode());
+	}
+
+	@Test
+	public void ofWhenDifferentTokenThenNotEqual() {
+		assertThat(TokenDigest.of("token")).isNotEqualTo(TokenDigest.of("token2"));
+	}
+
+	@Test
+	public void toStringWhenTokenThenTruncatedSha256() {
+		// SHA-256("abc") = ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad
+		assertThat(TokenDigest.of("abc").toString()).isEqualTo("ba7816bf8f01cfea414140de5dae2223");
+	}
+
+	@Test
+	public void fromByteArrayWhenToByteArrayThenEqual() {
+		TokenDigest digest = TokenDigest.of("token");
+		assertThat(TokenDigest.fromByteArray(digest.toByteArray())).isEqualTo(digest);
+	}
+
+	@Test
+	public void fromByteArrayWhenInvalidLengthThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> TokenDigest.fromByteArray(new byte[8]))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("bytes must be 16 bytes long");
+	}
+}
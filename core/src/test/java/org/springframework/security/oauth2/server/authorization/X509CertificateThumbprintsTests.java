@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link X509CertificateThumbprints}.
+ */
+public class X509CertificateThumbprintsTests {
+
+	@Test
+	public void sha256WhenCertificateNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> X509CertificateThumbprints.sha256(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("certificate cannot be null");
+	}
+
+	@Test
+	public void sha256WhenCertificateThenBase64UrlEncodedSha256OfDerEncoding() {
+		assertThat(X509CertificateThumbprints.sha256(TestX509Certificates.clientCertificate()))
+				.isEqualTo("u93pnYpSvzR8Bf-slsMMGOJt8dhOa0LO4l3NMGhnKtk");
+	}
+}
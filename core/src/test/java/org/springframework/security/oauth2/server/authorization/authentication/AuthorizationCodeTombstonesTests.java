@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link AuthorizationCodeTombstones}.
+ */
+public class AuthorizationCodeTombstonesTests {
+	private static final Instant NOW = Instant.parse("2020-06-01T10:00:00Z");
+	private AuthorizationCodeTombstones tombstones;
+
+	@Before
+	public void setUp() {
+		this.tombstones = new AuthorizationCodeTombstones(Duration.ofHours(1), Duration.ofMinutes(10), 100);
+		this.tombstones.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenExactRetentionGreaterThanRetentionThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new AuthorizationCodeTombstones(Duration.ofMinutes(10), Duration.ofHours(1), 100))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("exactRetention must be between 0 and retention");
+	}
+
+	@Test
+	public void consumeWhenCodeNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.tombstones.consume(null, NOW))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("code cannot be empty");
+	}
+
+	@Test
+	public void consumeWhenFirstUseThenTrue() {
+		assertThat(this.tombstones.isConsumed("code", NOW)).isFalse();
+		assertThat(this.tombstones.consume("code", NOW)).isTrue();
+		assertThat(this.tombstones.isConsumed("code", NOW)).isTrue();
+	}
+
+	@Test
+	public void consumeWhenUsedMoreThanOnceThenFalse() {
+		assertThat(this.tombstones.consume("code", NOW)).isTrue();
+		assertThat(this.tombstones.consume("code", NOW)).isFalse();
+		assertThat(this.tombstones.consume("other-code", NOW)).isTrue();
+	}
+
+	@Test
+	public void consumeWhenUsedAgainWithinRetentionThenFalse() {
+		Instant issuedAt = NOW.minusSeconds(30);
+		assertThat(this.tombstones.consume("code", issuedAt)).isTrue();
+
+		this.tombstones.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(45)), ZoneOffset.UTC));
+		assertThat(this.tombstones.consume("code", issuedAt)).isFalse();
+	}
+
+	@Test
+	public void consumeWhenUsedAgainAfterRetentionThenTrue() {
+		assertThat(this.tombstones.consume("code", NOW)).isTrue();
+
+		this.tombstones.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(61)), ZoneOffset.UTC));
+		assertThat(this.tombstones.isConsumed("code", NOW)).isFalse();
+	}
+
+	@Test
+	public void isConsumedWhenIssuedAfterConsumedCodesThenOlderBucketsNotConsulted() {
+		for (int i = 0; i < 10000; i++) {
+			this.tombstones.consume("code-" + i, NOW);
+		}
+
+		Instant later = NOW.plus(Duration.ofMinutes(20));
+		this.tombstones.setClock(Clock.fixed(later, ZoneOffset.UTC));
+		// The saturated bloom filter of the older bucket would report a false positive
+		for (int i = 0; i < 1000; i++) {
+			assertThat(this.tombstones.isConsumed("new-code-" + i, later)).isFalse();
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ClientJwkSetCache}.
+ */
+public class ClientJwkSetCacheTests {
+	private final Instant now = Instant.parse("2020-08-01T10:00:00Z");
+	private MockWebServer server;
+	private String jwkSetUrl;
+	private RSAKey key1;
+	private RSAKey key2;
+	private ClientJwkSetCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+		this.jwkSetUrl = this.server.url("/jwks").toString();
+		this.key1 = new RSAKeyGenerator(2048).keyID("key-1").generate();
+		this.key2 = new RSAKeyGenerator(2048).keyID("key-2").generate();
+		this.cache = new ClientJwkSetCache();
+		this.cache.setRefreshExecutor(Runnable::run);
+		setClock(this.now);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Test
+	public void getWhenCachedThenNotFetchedAgain() {
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1));
+
+		this.cache.get(this.jwkSetUrl);
+		setClock(this.now.plusSeconds(200));
+		JWKSet jwkSet = this.cache.get(this.jwkSetUrl);
+
+		assertThat(jwkSet.getKeyByKeyId("key-1")).isNotNull();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenMaxAgeElapsedThenFetchedAgain() {
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1));
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key2));
+
+		this.cache.get(this.jwkSetUrl);
+		setClock(this.now.plusSeconds(300));
+		JWKSet jwkSet = this.cache.get(this.jwkSetUrl);
+
+		assertThat(jwkSet.getKeyByKeyId("key-2")).isNotNull();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenRefreshAheadThenCachedReturnedAndRefreshed() {
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1));
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key2));
+		List<Runnable> refreshes = new ArrayList<>();
+		this.cache.setRefreshExecutor(refreshes::add);
+
+		this.cache.get(this.jwkSetUrl);
+		setClock(this.now.plusSeconds(250));
+		JWKSet jwkSet = this.cache.get(this.jwkSetUrl);
+		this.cache.get(this.jwkSetUrl);
+
+		assertThat(jwkSet.getKeyByKeyId("key-1")).isNotNull();
+		assertThat(refreshes).hasSize(1);
+		refreshes.get(0).run();
+		assertThat(this.cache.get(this.jwkSetUrl).getKeyByKeyId("key-2")).isNotNull();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenNoStoreThenMinimumTimeToLive() {
+		this.server.enqueue(jwkSetResponse("no-store", this.key1));
+		this.server.enqueue(jwkSetResponse("no-store", this.key1));
+
+		this.cache.get(this.jwkSetUrl);
+		setClock(this.now.plusSeconds(20));
+		this.cache.get(this.jwkSetUrl);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+
+		setClock(this.now.plusSeconds(30));
+		this.cache.get(this.jwkSetUrl);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenConcurrentColdFetchesThenSingleFetch() throws Exception {
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1)
+				.setBodyDelay(200, TimeUnit.MILLISECONDS));
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<JWKSet>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return this.cache.get(this.jwkSetUrl);
+				}));
+			}
+			start.countDown();
+			for (Future<JWKSet> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS).getKeyByKeyId("key-1")).isNotNull();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void refreshWhenFetchedWithinMinimumTimeToLiveThenNotFetchedAgain() {
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1));
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1, this.key2));
+
+		this.cache.get(this.jwkSetUrl);
+		this.cache.refresh(this.jwkSetUrl);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+
+		setClock(this.now.plusSeconds(30));
+		JWKSet jwkSet = this.cache.refresh(this.jwkSetUrl);
+		assertThat(jwkSet.getKeyByKeyId("key-2")).isNotNull();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenErrorResponseThenThrowIllegalStateException() {
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+
+		assertThatThrownBy(() -> this.cache.get(this.jwkSetUrl))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void getWhenFetchFailedWithinFailureBackoffThenNotFetchedAgain() {
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		this.server.enqueue(jwkSetResponse("max-age=300", this.key1));
+
+		assertThatThrownBy(() -> this.cache.get(this.jwkSetUrl))
+				.isInstanceOf(IllegalStateException.class);
+		setClock(this.now.plusSeconds(5));
+		assertThatThrownBy(() -> this.cache.get(this.jwkSetUrl))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> this.cache.refresh(this.jwkSetUrl))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+
+		setClock(this.now.plusSeconds(10));
+		JWKSet jwkSet = this.cache.get(this.jwkSetUrl);
+		assertThat(jwkSet.getKeyByKeyId("key-1")).isNotNull();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void setFailureBackoffWhenNegativeThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.cache.setFailureBackoff(Duration.ofSeconds(-1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("failureBackoff cannot be negative");
+	}
+
+	private void setClock(Instant instant) {
+		this.cache.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+	}
+
+	private static MockResponse jwkSetResponse(String cacheControl, RSAKey... keys) {
+		List<JWK> publicKeys = new ArrayList<>();
+		for (RSAKey key : keys) {
+			publicKeys.add(key.toPublicJWK());
+		}
+		return new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl)
+				.setBody(new JWKSet(publicKeys).toString());
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link JtiReplayCache}.
+ */
+public class JtiReplayCacheTests {
+	private final Instant now = Instant.parse("2020-08-01T10:00:00Z");
+	private JtiReplayCache cache;
+
+	@Before
+	public void setUp() {
+		this.cache = new JtiReplayCache(Duration.ofMinutes(1));
+		this.cache.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenBucketDurationZeroThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new JtiReplayCache(Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("bucketDuration must be positive");
+	}
+
+	@Test
+	public void consumeWhenFirstUseThenTrue() {
+		assertThat(this.cache.consume("client-1", "jti-1", this.now.plusSeconds(60))).isTrue();
+	}
+
+	@Test
+	public void consumeWhenReplayedThenFalse() {
+		this.cache.consume("client-1", "jti-1", this.now.plusSeconds(60));
+
+		assertThat(this.cache.consume("client-1", "jti-1", this.now.plusSeconds(60))).isFalse();
+		assertThat(this.cache.consume("client-1", "jti-1", this.now.plusSeconds(300))).isFalse();
+	}
+
+	@Test
+	public void consumeWhenSameJtiAnotherClientThenTrue() {
+		this.cache.consume("client-1", "jti-1", this.now.plusSeconds(60));
+
+		assertThat(this.cache.consume("client-2", "jti-1", this.now.plusSeconds(60))).isTrue();
+	}
+
+	@Test
+	public void consumeWhenBucketElapsedThenPurged() {
+		this.cache.consume("client-1", "jti-1", this.now.plusSeconds(30));
+		this.cache.consume("client-1", "jti-2", this.now.plusSeconds(150));
+
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(59), ZoneOffset.UTC));
+		this.cache.consume("client-1", "jti-3", this.now.plusSeconds(150));
+		assertThat(this.cache.size()).isEqualTo(3);
+
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(60), ZoneOffset.UTC));
+		this.cache.consume("client-1", "jti-4", this.now.plusSeconds(150));
+		assertThat(this.cache.size()).isEqualTo(3);
+		assertThat(this.cache.consume("client-1", "jti-2", this.now.plusSeconds(150))).isFalse();
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TestOAuth2Authorizations;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationBus;
+import org.springframework.security.oauth2.server.authorization.token.OpaqueAccessTokenGenerator;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2AuthorizationCodeAuthenticationProvider}.
+ */
+public class OAuth2AuthorizationCodeAuthenticationProviderTests {
+	// https://tools.ietf.org/html/rfc7636#appendix-B
+	private static final String CODE_VERIFIER = "dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk";
+	private static final String S256_CODE_CHALLENGE = "E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM";
+	private RegisteredClient registeredClient;
+	private OAuth2AuthorizationService authorizationService;
+	private OAuth2AuthorizationCodeAuthenticationProvider authenticationProvider;
+
+	@Before
+	public void setUp() {
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+		this.authorizationService = mock(OAuth2AuthorizationService.class);
+		when(this.authorizationService.replace(any(OAuth2Authorization.class))).thenReturn(true);
+		this.authenticationProvider = new OAuth2AuthorizationCodeAuthenticationProvider(this.authorizationService);
+	}
+
+	@Test
+	public void constructorWhenAuthorizationServiceNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2AuthorizationCodeAuthenticationProvider(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorizationService cannot be null");
+	}
+
+	@Test
+	public void supportsWhenTypeOAuth2AuthorizationCodeAuthenticationTokenThenReturnTrue() {
+		assertThat(this.authenticationProvider.supports(OAuth2AuthorizationCodeAuthenticationToken.class)).isTrue();
+	}
+
+	@Test
+	public void authenticateWhenClientPrincipalNotAuthenticatedThenThrowOAuth2AuthenticationException() {
+		TestingAuthenticationToken clientPrincipal = new TestingAuthenticationToken("client-1", "secret");
+		OAuth2AuthorizationCodeAuthenticationToken authentication =
+				new OAuth2AuthorizationCodeAuthenticationToken("code", clientPrincipal, null);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authentication))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenInvalidCodeThenThrowOAuth2AuthenticationException() {
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("invalid")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	@Test
+	public void authenticateWhenCodeIssuedToAnotherClientThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(
+				TestRegisteredClients.registeredClient2().build()).build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("code")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	@Test
+	public void authenticateWhenCodeExpiredThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT, Instant.now().minus(Duration.ofMinutes(11)))
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("code")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+		verify(this.authorizationService, never()).replace(any(OAuth2Authorization.class));
+	}
+
+	@Test
+	public void authenticateWhenValidCodeThenReturnAccessToken() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient).build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						authorizationCodeAuthentication("code"));
+
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).replace(authorizationCaptor.capture());
+		OAuth2Authorization updatedAuthorization = authorizationCaptor.getValue();
+
+		assertThat(accessTokenAuthentication.getRegisteredClient()).isEqualTo(this.registeredClient);
+		assertThat(accessTokenAuthentication.getAccessToken()).isNotNull();
+		assertThat(accessTokenAuthentication.getAccessToken().getScopes()).isEqualTo(this.registeredClient.getScopes());
+		assertThat(updatedAuthorization.getAccessToken()).isEqualTo(accessTokenAuthentication.getAccessToken());
+		assertThat(updatedAuthorization.getAttributes()).containsAllEntriesOf(authorization.getAttributes());
+		assertThat(accessTokenAuthentication.getRefreshToken()).isNull();
+	}
+
+	@Test
+	public void authenticateWhenValidCodeAndRefreshTokenGrantThenReturnRefreshToken() {
+		this.registeredClient = TestRegisteredClients.registeredClient()
+				.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+				.build();
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient).build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						authorizationCodeAuthentication("code"));
+
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).replace(authorizationCaptor.capture());
+		assertThat(accessTokenAuthentication.getRefreshToken()).isNotNull();
+		assertThat(authorizationCaptor.getValue().getRefreshToken()).isEqualTo(accessTokenAuthentication.getRefreshToken());
+	}
+
+	@Test
+	public void setTokenRevocationBusWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.authenticationProvider.setTokenRevocationBus(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("revocationBus cannot be null");
+	}
+
+	@Test
+	public void authenticateWhenCodeUsedMoreThanOnceThenRevokeAuthorizationAndThrowOAuth2AuthenticationException() {
+		TokenRevocationBus revocationBus = mock(TokenRevocationBus.class);
+		this.authenticationProvider.setTokenRevocationBus(revocationBus);
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient).build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+		TokenRevocation revocation = TokenRevocation.of(TokenDigest.of("access-token"), Instant.now().plusSeconds(300));
+		when(this.authorizationService.revoke(authorization)).thenReturn(revocation);
+
+		this.authenticationProvider.authenticate(authorizationCodeAuthentication("code"));
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("code")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+		verify(this.authorizationService).revoke(authorization);
+		verify(revocationBus).publish(revocation);
+	}
+
+	@Test
+	public void authenticateWhenAuthorizationRevokedWhileExchangingCodeThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient).build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+		// the authorization code was presented again once consumed, and the authorization revoked before being saved
+		when(this.authorizationService.replace(any(OAuth2Authorization.class))).thenReturn(false);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("code")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+		verify(this.authorizationService, never()).save(any());
+	}
+
+	@Test
+	public void authenticateWhenAccessTokenTemporarilyUnavailableThenCodeNotConsumed() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient).build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+		this.authenticationProvider.setAccessTokenGenerator(context -> {
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE));
+		});
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("code")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE);
+
+		this.authenticationProvider.setAccessTokenGenerator(new OpaqueAccessTokenGenerator());
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						authorizationCodeAuthentication("code"));
+
+		assertThat(accessTokenAuthentication.getAccessToken()).isNotNull();
+		verify(this.authorizationService, never()).revoke(any());
+	}
+
+	@Test
+	public void authenticateWhenS256CodeVerifierValidThenReturnAccessToken() {
+		OAuth2Authorization authorization = authorizationWithCodeChallenge(S256_CODE_CHALLENGE, "S256");
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						authorizationCodeAuthentication("code", CODE_VERIFIER));
+
+		assertThat(accessTokenAuthentication.getAccessToken()).isNotNull();
+		verify(this.authorizationService).findByTokenAndTokenType(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenPlainCodeVerifierValidThenReturnAccessToken() {
+		OAuth2Authorization authorization = authorizationWithCodeChallenge(CODE_VERIFIER, "plain");
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						authorizationCodeAuthentication("code", CODE_VERIFIER));
+
+		assertThat(accessTokenAuthentication.getAccessToken()).isNotNull();
+	}
+
+	@Test
+	public void authenticateWhenCodeVerifierInvalidThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = authorizationWithCodeChallenge(S256_CODE_CHALLENGE, "S256");
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(
+				authorizationCodeAuthentication("code", CODE_VERIFIER.replace('d', 'e'))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+		verify(this.authorizationService, never()).replace(any(OAuth2Authorization.class));
+		verify(this.authorizationService, never()).revoke(any());
+	}
+
+	@Test
+	public void authenticateWhenCodeVerifierMissingThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = authorizationWithCodeChallenge(S256_CODE_CHALLENGE, "S256");
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authorizationCodeAuthentication("code")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	@Test
+	public void authenticateWhenCodeVerifierTooShortThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = authorizationWithCodeChallenge("verifier", "plain");
+		when(this.authorizationService.findByTokenAndTokenType(eq("code"), eq(TokenType.AUTHORIZATION_CODE)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(
+				authorizationCodeAuthentication("code", "verifier")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	private OAuth2Authorization authorizationWithCodeChallenge(String codeChallenge, String codeChallengeMethod) {
+		return TestOAuth2Authorizations.authorization(this.registeredClient)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE, codeChallenge)
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD, codeChallengeMethod)
+				.build();
+	}
+
+	private OAuth2AuthorizationCodeAuthenticationToken authorizationCodeAuthentication(String code) {
+		return authorizationCodeAuthentication(code, null);
+	}
+
+	private OAuth2AuthorizationCodeAuthenticationToken authorizationCodeAuthentication(String code, String codeVerifier) {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		return new OAuth2AuthorizationCodeAuthenticationToken(code, clientPrincipal,
+				this.registeredClient.getRedirectUris().iterator().next(), codeVerifier);
+	}
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.TestX509Certificates;
+import org.springframework.security.oauth2.server.authorization.X509CertificateThumbprints;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2ClientAuthenticationProvider}.
+ */
+public class OAuth2ClientAuthenticationProviderTests {
+	private static final String TOKEN_ENDPOINT_URL = "https://provider.com/oauth2/token";
+	private RegisteredClient registeredClient;
+	private RegisteredClientRepository registeredClientRepository;
+	private PasswordEncoder passwordEncoder;
+	private OAuth2ClientAuthenticationProvider authenticationProvider;
+	private MockWebServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+		this.registeredClientRepository = mock(RegisteredClientRepository.class);
+		when(this.registeredClientRepository.findByClientId(eq(this.registeredClient.getClientId())))
+				.thenReturn(this.registeredClient);
+		this.passwordEncoder = mock(PasswordEncoder.class);
+		when(this.passwordEncoder.matches(any(), any())).thenAnswer(invocation ->
+				invocation.getArgument(0).equals(invocation.getArgument(1)));
+		this.authenticationProvider = new OAuth2ClientAuthenticationProvider(this.registeredClientRepository);
+		this.authenticationProvider.setPasswordEncoder(this.passwordEncoder);
+		this.authenticationProvider.setClientAssertionAudiences(Collections.singleton(TOKEN_ENDPOINT_URL));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Test
+	public void constructorWhenRegisteredClientRepositoryNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2ClientAuthenticationProvider(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("registeredClientRepository cannot be null");
+	}
+
+	@Test
+	public void supportsWhenTypeOAuth2ClientAuthenticationTokenThenReturnTrue() {
+		assertThat(this.authenticationProvider.supports(OAuth2ClientAuthenticationToken.class)).isTrue();
+	}
+
+	@Test
+	public void authenticateWhenUnknownClientThenThrowOAuth2AuthenticationException() {
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(
+				new OAuth2ClientAuthenticationToken("unknown", "secret")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenInvalidClientSecretThenThrowOAuth2AuthenticationException() {
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(
+				new OAuth2ClientAuthenticationToken(this.registeredClient.getClientId(), "invalid")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenValidClientSecretThenAuthenticated() {
+		OAuth2ClientAuthenticationToken authentication = (OAuth2ClientAuthenticationToken)
+				this.authenticationProvider.authenticate(clientAuthentication(this.registeredClient.getClientSecret()));
+
+		assertThat(authentication.isAuthenticated()).isTrue();
+		assertThat(authentication.getRegisteredClient()).isEqualTo(this.registeredClient);
+	}
+
+	@Test
+	public void authenticateWhenAuthenticatedAgainThenClientSecretVerifiedOnce() {
+		String clientSecret = this.registeredClient.getClientSecret();
+
+		this.authenticationProvider.authenticate(clientAuthentication(clientSecret));
+		this.authenticationProvider.authenticate(clientAuthentication(clientSecret));
+
+		verify(this.passwordEncoder, times(1)).matches(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenClientSecretRotatedThenPreviousClientSecretVerifiedAgain() {
+		String clientSecret = this.registeredClient.getClientSecret();
+		this.authenticationProvider.authenticate(clientAuthentication(clientSecret));
+
+		RegisteredClient rotatedClient = RegisteredClient.withRegisteredClient(this.registeredClient)
+				.clientSecret("rotated").build();
+		when(this.registeredClientRepository.findByClientId(eq(this.registeredClient.getClientId())))
+				.thenReturn(rotatedClient);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAuthentication(clientSecret)))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+		verify(this.passwordEncoder, times(2)).matches(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenClientSecretPostNotRegisteredThenThrowOAuth2AuthenticationException() {
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(new OAuth2ClientAuthenticationToken(
+				this.registeredClient.getClientId(), this.registeredClient.getClientSecret(), ClientAuthenticationMethod.POST)))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+		verify(this.passwordEncoder, never()).matches(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenClientNotRegisteredForClientSecretThenThrowOAuth2AuthenticationException() {
+		this.registeredClient = RegisteredClient.withRegisteredClient(this.registeredClient)
+				.clientAuthenticationMethods(clientAuthenticationMethods -> {
+					clientAuthenticationMethods.clear();
+					clientAuthenticationMethods.add(OAuth2ClientAuthenticationProvider.PRIVATE_KEY_JWT);
+				})
+				.build();
+		when(this.registeredClientRepository.findByClientId(eq(this.registeredClient.getClientId())))
+				.thenReturn(this.registeredClient);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(
+				clientAuthentication(this.registeredClient.getClientSecret())))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+		verify(this.passwordEncoder, never()).matches(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenDefaultPasswordEncoderThenEncodedClientSecretVerified() {
+		this.registeredClient = RegisteredClient.withRegisteredClient(this.registeredClient)
+				.clientSecret(PasswordEncoderFactories.createDelegatingPasswordEncoder().encode("secret"))
+				.build();
+		when(this.registeredClientRepository.findByClientId(eq(this.registeredClient.getClientId())))
+				.thenReturn(this.registeredClient);
+		OAuth2ClientAuthenticationProvider authenticationProvider =
+				new OAuth2ClientAuthenticationProvider(this.registeredClientRepository);
+
+		assertThat(authenticationProvider.authenticate(clientAuthentication("secret")).isAuthenticated()).isTrue();
+		assertThatThrownBy(() -> authenticationProvider.authenticate(clientAuthentication(this.registeredClient.getClientSecret())))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	private OAuth2ClientAuthenticationToken clientAuthentication(String clientSecret) {
+		return new OAuth2ClientAuthenticationToken(this.registeredClient.getClientId(), clientSecret);
+	}
+
+	@Test
+	public void authenticateWhenValidClientAssertionThenAuthenticated() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+
+		OAuth2ClientAuthenticationToken authentication = (OAuth2ClientAuthenticationToken)
+				this.authenticationProvider.authenticate(clientAssertionAuthentication(
+						clientAssertion(key, TOKEN_ENDPOINT_URL, Instant.now().plusSeconds(60))));
+
+		assertThat(authentication.isAuthenticated()).isTrue();
+		assertThat(authentication.getRegisteredClient()).isEqualTo(this.registeredClient);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionReplayedThenThrowOAuth2AuthenticationException() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+		String clientAssertion = clientAssertion(key, TOKEN_ENDPOINT_URL, Instant.now().plusSeconds(60));
+		this.authenticationProvider.authenticate(clientAssertionAuthentication(clientAssertion));
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAssertionAuthentication(clientAssertion)))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionAnotherAudienceThenThrowOAuth2AuthenticationException() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAssertionAuthentication(
+				clientAssertion(key, "https://other.com/oauth2/token", Instant.now().plusSeconds(60)))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionExpiredThenThrowOAuth2AuthenticationException() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAssertionAuthentication(
+				clientAssertion(key, TOKEN_ENDPOINT_URL, Instant.now().minusSeconds(120)))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionExpiresAfterMaximumLifetimeThenThrowOAuth2AuthenticationException() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAssertionAuthentication(
+				clientAssertion(key, TOKEN_ENDPOINT_URL, Instant.now().plus(Duration.ofDays(365))))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionIssuedLongerThanMaximumLifetimeThenThrowOAuth2AuthenticationException() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+		Instant now = Instant.now();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAssertionAuthentication(
+				clientAssertion(key, TOKEN_ENDPOINT_URL, now.minus(Duration.ofMinutes(10)), now.plusSeconds(60)))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionWithinMaximumLifetimeThenAuthenticated() throws Exception {
+		RSAKey key = registerPrivateKeyJwtClient();
+		this.authenticationProvider.setMaximumClientAssertionLifetime(Duration.ofHours(1));
+		Instant now = Instant.now();
+
+		OAuth2ClientAuthenticationToken authentication = (OAuth2ClientAuthenticationToken)
+				this.authenticationProvider.authenticate(clientAssertionAuthentication(
+						clientAssertion(key, TOKEN_ENDPOINT_URL, now, now.plus(Duration.ofMinutes(30)))));
+
+		assertThat(authentication.isAuthenticated()).isTrue();
+	}
+
+	@Test
+	public void setMaximumClientAssertionLifetimeWhenNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.authenticationProvider.setMaximumClientAssertionLifetime(Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("maximumClientAssertionLifetime must be positive");
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionSignedWithUnregisteredKeyThenThrowOAuth2AuthenticationException() throws Exception {
+		registerPrivateKeyJwtClient();
+		RSAKey otherKey = new RSAKeyGenerator(2048).keyID("client-key").generate();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientAssertionAuthentication(
+				clientAssertion(otherKey, TOKEN_ENDPOINT_URL, Instant.now().plusSeconds(60)))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenClientAssertionSignedWithRotatedKeyThenJwkSetRefreshed() throws Exception {
+		registerPrivateKeyJwtClient();
+		ClientJwkSetCache clientJwkSetCache = new ClientJwkSetCache();
+		clientJwkSetCache.setMinimumTimeToLive(Duration.ZERO);
+		this.authenticationProvider.setClientJwkSetCache(clientJwkSetCache);
+		RSAKey rotatedKey = new RSAKeyGenerator(2048).keyID("rotated-key").generate();
+		this.server.enqueue(new MockResponse().setBody(new JWKSet(rotatedKey.toPublicJWK()).toString()));
+
+		OAuth2ClientAuthenticationToken authentication = (OAuth2ClientAuthenticationToken)
+				this.authenticationProvider.authenticate(clientAssertionAuthentication(
+						clientAssertion(rotatedKey, TOKEN_ENDPOINT_URL, Instant.now().plusSeconds(60))));
+
+		assertThat(authentication.isAuthenticated()).isTrue();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void authenticateWhenRegisteredClientCertificateThenAuthenticatedWithThumbprint() {
+		X509Certificate clientCertificate = TestX509Certificates.clientCertificate();
+		registerTlsClientAuthClient(clientCertificate);
+
+		OAuth2ClientAuthenticationToken authentication = (OAuth2ClientAuthenticationToken)
+				this.authenticationProvider.authenticate(new OAuth2ClientAuthenticationToken(
+						this.registeredClient.getClientId(), clientCertificate,
+						OAuth2ClientAuthenticationProvider.TLS_CLIENT_AUTH));
+
+		assertThat(authentication.getRegisteredClient()).isEqualTo(this.registeredClient);
+		assertThat(authentication.getX509CertificateThumbprint())
+				.isEqualTo(X509CertificateThumbprints.sha256(clientCertificate));
+		verify(this.passwordEncoder, never()).matches(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenClientCertificateWithoutClientIdThenFoundByThumbprint() {
+		X509Certificate clientCertificate = TestX509Certificates.clientCertificate();
+		registerTlsClientAuthClient(clientCertificate);
+		when(this.registeredClientRepository.findByX509CertificateThumbprint(
+				eq(X509CertificateThumbprints.sha256(clientCertificate)))).thenReturn(this.registeredClient);
+
+		OAuth2ClientAuthenticationToken authentication = (OAuth2ClientAuthenticationToken)
+				this.authenticationProvider.authenticate(new OAuth2ClientAuthenticationToken(
+						null, clientCertificate, OAuth2ClientAuthenticationProvider.TLS_CLIENT_AUTH));
+
+		assertThat(authentication.getRegisteredClient()).isEqualTo(this.registeredClient);
+	}
+
+	@Test
+	public void authenticateWhenUnregisteredClientCertificateThenThrowOAuth2AuthenticationException() {
+		registerTlsClientAuthClient(TestX509Certificates.clientCertificate());
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(new OAuth2ClientAuthenticationToken(
+				this.registeredClient.getClientId(), TestX509Certificates.clientCertificate2(),
+				OAuth2ClientAuthenticationProvider.TLS_CLIENT_AUTH)))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	private void registerTlsClientAuthClient(X509Certificate clientCertificate) {
+		this.registeredClient = RegisteredClient.withRegisteredClient(this.registeredClient)
+				.clientAuthenticationMethod(OAuth2ClientAuthenticationProvider.TLS_CLIENT_AUTH)
+				.x509CertificateThumbprint(X509CertificateThumbprints.sha256(clientCertificate))
+				.build();
+		when(this.registeredClientRepository.findByClientId(eq(this.registeredClient.getClientId())))
+				.thenReturn(this.registeredClient);
+	}
+
+	private RSAKey registerPrivateKeyJwtClient() throws Exception {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("client-key").generate();
+		this.server.enqueue(new MockResponse()
+				.setHeader("Cache-Control", "max-age=300")
+				.setBody(new JWKSet(key.toPublicJWK()).toString()));
+		this.registeredClient = RegisteredClient.withRegisteredClient(this.registeredClient)
+				.clientAuthenticationMethod(OAuth2ClientAuthenticationProvider.PRIVATE_KEY_JWT)
+				.jwkSetUrl(this.server.url("/jwks").toString())
+				.build();
+		when(this.registeredClientRepository.findByClientId(eq(this.registeredClient.getClientId())))
+				.thenReturn(this.registeredClient);
+		return key;
+	}
+
+	private String clientAssertion(RSAKey key, String audience, Instant expiresAt) throws Exception {
+		return clientAssertion(key, audience, null, expiresAt);
+	}
+
+	private String clientAssertion(RSAKey key, String audience, Instant issuedAt, Instant expiresAt) throws Exception {
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.issuer(this.registeredClient.getClientId())
+				.subject(this.registeredClient.getClientId())
+				.audience(audience)
+				.issueTime(issuedAt != null ? Date.from(issuedAt) : null)
+				.expirationTime(Date.from(expiresAt))
+				.jwtID(UUID.randomUUID().toString())
+				.build();
+		SignedJWT clientAssertion = new SignedJWT(
+				new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+		clientAssertion.sign(new RSASSASigner(key));
+		return clientAssertion.serialize();
+	}
+
+	private OAuth2ClientAuthenticationToken clientAssertionAuthentication(String clientAssertion) {
+		return new OAuth2ClientAuthenticationToken(null, clientAssertion,
+				OAuth2ClientAuthenticationProvider.PRIVATE_KEY_JWT);
+	}
+}
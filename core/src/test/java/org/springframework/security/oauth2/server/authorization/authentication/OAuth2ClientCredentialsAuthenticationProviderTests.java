@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.token.JwtAccessTokenGenerator;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link OAuth2ClientCredentialsAuthenticationProvider}.
+ */
+public class OAuth2ClientCredentialsAuthenticationProviderTests {
+	private RegisteredClient registeredClient;
+	private OAuth2AuthorizationService authorizationService;
+	private OAuth2ClientCredentialsAuthenticationProvider authenticationProvider;
+
+	@Before
+	public void setUp() {
+		this.registeredClient = TestRegisteredClients.registeredClient()
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.build();
+		this.authorizationService = mock(OAuth2AuthorizationService.class);
+		this.authenticationProvider = new OAuth2ClientCredentialsAuthenticationProvider(this.authorizationService);
+	}
+
+	@Test
+	public void constructorWhenAuthorizationServiceNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2ClientCredentialsAuthenticationProvider(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorizationService cannot be null");
+	}
+
+	@Test
+	public void supportsWhenTypeOAuth2ClientCredentialsAuthenticationTokenThenReturnTrue() {
+		assertThat(this.authenticationProvider.supports(OAuth2ClientCredentialsAuthenticationToken.class)).isTrue();
+	}
+
+	@Test
+	public void authenticateWhenClientPrincipalNullThenThrowOAuth2AuthenticationException() {
+		OAuth2ClientCredentialsAuthenticationToken authentication =
+				new OAuth2ClientCredentialsAuthenticationToken(null, Collections.emptySet());
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authentication))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenClientNotAllowedClientCredentialsGrantThenThrowOAuth2AuthenticationException() {
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(clientCredentialsAuthentication(Collections.emptySet())))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.UNAUTHORIZED_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenScopeNotRegisteredThenThrowOAuth2AuthenticationException() {
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(
+				clientCredentialsAuthentication(Collections.singleton("admin"))))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_SCOPE);
+	}
+
+	@Test
+	public void authenticateWhenOpaqueAccessTokenThenAuthorizationSaved() {
+		Set<String> scopes = Collections.singleton("openid");
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						clientCredentialsAuthentication(scopes));
+
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).save(authorizationCaptor.capture());
+		OAuth2Authorization authorization = authorizationCaptor.getValue();
+		assertThat(accessTokenAuthentication.getAccessToken().getScopes()).isEqualTo(scopes);
+		assertThat(accessTokenAuthentication.getRefreshToken()).isNull();
+		assertThat(authorization.getPrincipalName()).isEqualTo(this.registeredClient.getClientId());
+		assertThat(authorization.getAccessToken()).isEqualTo(accessTokenAuthentication.getAccessToken());
+	}
+
+	@Test
+	public void authenticateWhenClientAuthenticatedWithCertificateThenAccessTokenCertificateBound() {
+		OAuth2ClientAuthenticationToken clientPrincipal =
+				new OAuth2ClientAuthenticationToken(this.registeredClient, "thumbprint");
+
+		this.authenticationProvider.authenticate(
+				new OAuth2ClientCredentialsAuthenticationToken(clientPrincipal, Collections.emptySet()));
+
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).save(authorizationCaptor.capture());
+		assertThat(authorizationCaptor.getValue().<String>getAttribute(
+				OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT)).isEqualTo("thumbprint");
+	}
+
+	@Test
+	public void authenticateWhenScopeNotRequestedThenRegisteredScopes() {
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						clientCredentialsAuthentication(Collections.emptySet()));
+
+		assertThat(accessTokenAuthentication.getAccessToken().getScopes()).isEqualTo(this.registeredClient.getScopes());
+	}
+
+	@Test
+	public void authenticateWhenSelfContainedAccessTokenThenAuthorizationNotSaved() throws Exception {
+		this.authenticationProvider.setAccessTokenGenerator(
+				new JwtAccessTokenGenerator(new ECKeyGenerator(Curve.P_256).generate()));
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						clientCredentialsAuthentication(Collections.emptySet()));
+
+		assertThat(accessTokenAuthentication.getAccessToken()).isNotNull();
+		verifyNoInteractions(this.authorizationService);
+	}
+
+	@Test
+	public void authenticateWhenReuseAccessTokensThenSameAccessTokenForSameScopes() {
+		this.authenticationProvider = new OAuth2ClientCredentialsAuthenticationProvider(
+				new InMemoryOAuth2AuthorizationService());
+		this.authenticationProvider.setReuseAccessTokens(true);
+
+		OAuth2AccessToken accessToken1 = authenticate(Collections.singleton("openid"));
+		OAuth2AccessToken accessToken2 = authenticate(Collections.singleton("openid"));
+		OAuth2AccessToken accessToken3 = authenticate(Collections.singleton("profile"));
+
+		assertThat(accessToken2).isSameAs(accessToken1);
+		assertThat(accessToken3.getTokenValue()).isNotEqualTo(accessToken1.getTokenValue());
+	}
+
+	@Test
+	public void authenticateWhenReusableAccessTokenRevokedThenNewAccessToken() {
+		InMemoryOAuth2AuthorizationService authorizationService = new InMemoryOAuth2AuthorizationService();
+		this.authenticationProvider = new OAuth2ClientCredentialsAuthenticationProvider(authorizationService);
+		this.authenticationProvider.setReuseAccessTokens(true);
+		OAuth2AccessToken accessToken1 = authenticate(Collections.singleton("openid"));
+
+		authorizationService.revoke(authorizationService.findByTokenAndTokenType(
+				accessToken1.getTokenValue(), TokenType.ACCESS_TOKEN));
+		OAuth2AccessToken accessToken2 = authenticate(Collections.singleton("openid"));
+
+		assertThat(accessToken2.getTokenValue()).isNotEqualTo(accessToken1.getTokenValue());
+		assertThat(authenticate(Collections.singleton("openid"))).isSameAs(accessToken2);
+	}
+
+	@Test
+	public void authenticateWhenReuseSelfContainedAccessTokensThenSameAccessTokenWithoutLookup() throws Exception {
+		this.authenticationProvider.setAccessTokenGenerator(
+				new JwtAccessTokenGenerator(new ECKeyGenerator(Curve.P_256).generate()));
+		this.authenticationProvider.setReuseAccessTokens(true);
+
+		OAuth2AccessToken accessToken1 = authenticate(Collections.singleton("openid"));
+		OAuth2AccessToken accessToken2 = authenticate(Collections.singleton("openid"));
+
+		assertThat(accessToken2).isSameAs(accessToken1);
+		verifyNoInteractions(this.authorizationService);
+	}
+
+	@Test
+	public void authenticateWhenNotReuseAccessTokensThenNewAccessToken() {
+		OAuth2AccessToken accessToken1 = authenticate(Collections.singleton("openid"));
+		OAuth2AccessToken accessToken2 = authenticate(Collections.singleton("openid"));
+
+		assertThat(accessToken2.getTokenValue()).isNotEqualTo(accessToken1.getTokenValue());
+	}
+
+	private OAuth2AccessToken authenticate(Set<String> scopes) {
+		return ((OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+				clientCredentialsAuthentication(scopes))).getAccessToken();
+	}
+
+	private OAuth2ClientCredentialsAuthenticationToken clientCredentialsAuthentication(Set<String> scopes) {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		return new OAuth2ClientCredentialsAuthenticationToken(clientPrincipal, scopes);
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TestOAuth2Authorizations;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2RefreshTokenAuthenticationProvider}.
+ */
+public class OAuth2RefreshTokenAuthenticationProviderTests {
+	private RegisteredClient registeredClient;
+	private OAuth2AuthorizationService authorizationService;
+	private OAuth2RefreshTokenAuthenticationProvider authenticationProvider;
+
+	@Before
+	public void setUp() {
+		this.registeredClient = TestRegisteredClients.registeredClient()
+				.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+				.build();
+		this.authorizationService = mock(OAuth2AuthorizationService.class);
+		this.authenticationProvider = new OAuth2RefreshTokenAuthenticationProvider(this.authorizationService);
+	}
+
+	@Test
+	public void constructorWhenAuthorizationServiceNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2RefreshTokenAuthenticationProvider(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorizationService cannot be null");
+	}
+
+	@Test
+	public void supportsWhenTypeOAuth2RefreshTokenAuthenticationTokenThenReturnTrue() {
+		assertThat(this.authenticationProvider.supports(OAuth2RefreshTokenAuthenticationToken.class)).isTrue();
+	}
+
+	@Test
+	public void authenticateWhenClientNotAllowedRefreshTokenGrantThenThrowOAuth2AuthenticationException() {
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(refreshTokenAuthentication("refresh-token")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.UNAUTHORIZED_CLIENT);
+	}
+
+	@Test
+	public void authenticateWhenInvalidRefreshTokenThenThrowOAuth2AuthenticationException() {
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(refreshTokenAuthentication("invalid")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	@Test
+	public void authenticateWhenRefreshTokenIssuedToAnotherClientThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(
+				TestRegisteredClients.registeredClient2().build())
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("refresh-token"), eq(TokenType.REFRESH_TOKEN)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(refreshTokenAuthentication("refresh-token")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	@Test
+	public void authenticateWhenRefreshTokenExpiredThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now().minus(Duration.ofMinutes(61))))
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("refresh-token"), eq(TokenType.REFRESH_TOKEN)))
+				.thenReturn(authorization);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(refreshTokenAuthentication("refresh-token")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+		verify(this.authorizationService, never()).replace(any(), any());
+	}
+
+	@Test
+	public void authenticateWhenScopeNotGrantedThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("refresh-token"), eq(TokenType.REFRESH_TOKEN)))
+				.thenReturn(authorization);
+		OAuth2RefreshTokenAuthenticationToken authentication = new OAuth2RefreshTokenAuthenticationToken("refresh-token",
+				new OAuth2ClientAuthenticationToken(this.registeredClient), Collections.singleton("admin"));
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(authentication))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_SCOPE);
+	}
+
+	@Test
+	public void authenticateWhenValidRefreshTokenThenReturnAccessTokenAndRotatedRefreshToken() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("refresh-token"), eq(TokenType.REFRESH_TOKEN)))
+				.thenReturn(authorization);
+		when(this.authorizationService.replace(eq("refresh-token"), any())).thenReturn(true);
+		Set<String> scopes = Collections.singleton("openid");
+		OAuth2RefreshTokenAuthenticationToken authentication = new OAuth2RefreshTokenAuthenticationToken("refresh-token",
+				new OAuth2ClientAuthenticationToken(this.registeredClient), scopes);
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(authentication);
+
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).replace(eq("refresh-token"), authorizationCaptor.capture());
+		OAuth2Authorization updatedAuthorization = authorizationCaptor.getValue();
+
+		assertThat(accessTokenAuthentication.getAccessToken().getScopes()).isEqualTo(scopes);
+		assertThat(accessTokenAuthentication.getRefreshToken().getTokenValue()).isNotEqualTo("refresh-token");
+		assertThat(updatedAuthorization.getAccessToken()).isEqualTo(accessTokenAuthentication.getAccessToken());
+		assertThat(updatedAuthorization.getRefreshToken()).isEqualTo(accessTokenAuthentication.getRefreshToken());
+	}
+
+	@Test
+	public void authenticateWhenRefreshTokenReplacedConcurrentlyThenThrowOAuth2AuthenticationException() {
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("refresh-token"), eq(TokenType.REFRESH_TOKEN)))
+				.thenReturn(authorization);
+		when(this.authorizationService.replace(eq("refresh-token"), any())).thenReturn(false);
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(refreshTokenAuthentication("refresh-token")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+	}
+
+	@Test
+	public void authenticateWhenSameRefreshTokenPresentedConcurrentlyThenOnlyOneSucceeds() throws Exception {
+		InMemoryOAuth2AuthorizationService authorizationService = new InMemoryOAuth2AuthorizationService();
+		authorizationService.save(TestOAuth2Authorizations.authorization(this.registeredClient)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build());
+		this.authenticationProvider = new OAuth2RefreshTokenAuthenticationProvider(authorizationService);
+		int threads = 8;
+		CyclicBarrier barrier = new CyclicBarrier(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<String>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					barrier.await();
+					try {
+						OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+								(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+										refreshTokenAuthentication("refresh-token"));
+						return accessTokenAuthentication.getRefreshToken().getTokenValue();
+					} catch (OAuth2AuthenticationException ex) {
+						return null;
+					}
+				}));
+			}
+			List<String> rotatedRefreshTokens = new ArrayList<>();
+			for (Future<String> result : results) {
+				String rotatedRefreshToken = result.get(10, TimeUnit.SECONDS);
+				if (rotatedRefreshToken != null) {
+					rotatedRefreshTokens.add(rotatedRefreshToken);
+				}
+			}
+
+			assertThat(rotatedRefreshTokens).hasSize(1);
+			assertThat(authorizationService.findByTokenAndTokenType(
+					rotatedRefreshTokens.get(0), TokenType.REFRESH_TOKEN)).isNotNull();
+			assertThat(authorizationService.size(TokenType.ACCESS_TOKEN)).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void authenticateWhenRotatedRefreshTokenUsedAgainThenThrowOAuth2AuthenticationException() {
+		InMemoryOAuth2AuthorizationService authorizationService = new InMemoryOAuth2AuthorizationService();
+		authorizationService.save(TestOAuth2Authorizations.authorization(this.registeredClient)
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build());
+		this.authenticationProvider = new OAuth2RefreshTokenAuthenticationProvider(authorizationService);
+
+		OAuth2AccessTokenAuthenticationToken accessTokenAuthentication =
+				(OAuth2AccessTokenAuthenticationToken) this.authenticationProvider.authenticate(
+						refreshTokenAuthentication("refresh-token"));
+
+		assertThatThrownBy(() -> this.authenticationProvider.authenticate(refreshTokenAuthentication("refresh-token")))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.INVALID_GRANT);
+		assertThat(this.authenticationProvider.authenticate(refreshTokenAuthentication(
+				accessTokenAuthentication.getRefreshToken().getTokenValue()))).isNotNull();
+	}
+
+	private OAuth2RefreshTokenAuthenticationToken refreshTokenAuthentication(String refreshToken) {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		return new OAuth2RefreshTokenAuthenticationToken(refreshToken, clientPrincipal, Collections.emptySet());
+	}
+}
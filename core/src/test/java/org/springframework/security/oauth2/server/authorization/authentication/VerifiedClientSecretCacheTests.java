@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link VerifiedClientSecretCache}.
+ */
+public class VerifiedClientSecretCacheTests {
+	private VerifiedClientSecretCache cache;
+
+	@Before
+	public void setUp() {
+		this.cache = new VerifiedClientSecretCache();
+	}
+
+	@Test
+	public void setTimeToLiveWhenNegativeThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.cache.setTimeToLive(Duration.ofSeconds(-1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("timeToLive cannot be negative");
+	}
+
+	@Test
+	public void isVerifiedWhenNotPutThenFalse() {
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}hash")).isFalse();
+	}
+
+	@Test
+	public void isVerifiedWhenPutThenTrue() {
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}hash")).isTrue();
+	}
+
+	@Test
+	public void isVerifiedWhenDifferentClientSecretThenFalse() {
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+
+		assertThat(this.cache.isVerified("client-1", "other", "{bcrypt}hash")).isFalse();
+	}
+
+	@Test
+	public void isVerifiedWhenStoredClientSecretRotatedThenFalse() {
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}rotated")).isFalse();
+	}
+
+	@Test
+	public void isVerifiedWhenInvalidatedThenFalse() {
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+		this.cache.put("client-2", "secret", "{bcrypt}hash");
+
+		this.cache.invalidate("client-1");
+
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}hash")).isFalse();
+		assertThat(this.cache.isVerified("client-2", "secret", "{bcrypt}hash")).isTrue();
+	}
+
+	@Test
+	public void isVerifiedWhenExpiredThenFalse() {
+		Instant now = Instant.now();
+		this.cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+
+		this.cache.setClock(Clock.fixed(now.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}hash")).isFalse();
+	}
+
+	@Test
+	public void putWhenMaximumSizeReachedThenLeastRecentlyUsedEvicted() {
+		this.cache.setMaximumSize(2);
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+		this.cache.put("client-2", "secret", "{bcrypt}hash");
+		this.cache.isVerified("client-1", "secret", "{bcrypt}hash");
+
+		this.cache.put("client-3", "secret", "{bcrypt}hash");
+
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}hash")).isTrue();
+		assertThat(this.cache.isVerified("client-2", "secret", "{bcrypt}hash")).isFalse();
+		assertThat(this.cache.isVerified("client-3", "secret", "{bcrypt}hash")).isTrue();
+	}
+
+	@Test
+	public void putWhenMaximumSizeZeroThenNotCached() {
+		this.cache.setMaximumSize(0);
+		this.cache.put("client-1", "secret", "{bcrypt}hash");
+
+		assertThat(this.cache.isVerified("client-1", "secret", "{bcrypt}hash")).isFalse();
+	}
+}
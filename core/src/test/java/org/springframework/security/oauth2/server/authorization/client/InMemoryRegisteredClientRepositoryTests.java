@@ -112,4 +112,36 @@ public class InMemoryRegisteredClientRepositoryTests {
 	public void findByClientIdWhenNullThenThrowIllegalArgumentException() {
 		assertThatThrownBy(() -> this.clients.findByClientId(null)).isInstanceOf(IllegalArgumentException.class);
 	}
+
+	@Test
+	public void findByX509CertificateThumbprintWhenFoundThenFound() {
+		RegisteredClient registration = TestRegisteredClients.registeredClient2()
+				.x509CertificateThumbprint("thumbprint")
+				.build();
+		InMemoryRegisteredClientRepository clients = new InMemoryRegisteredClientRepository(this.registration, registration);
+
+		assertThat(clients.findByX509CertificateThumbprint("thumbprint")).isEqualTo(registration);
+		assertThat(clients.findByX509CertificateThumbprint("other")).isNull();
+	}
+
+	@Test
+	public void constructorListRegisteredClientWhenDuplicateX509CertificateThumbprintThenThrowIllegalArgumentException() {
+		RegisteredClient registration1 = TestRegisteredClients.registeredClient()
+				.x509CertificateThumbprint("thumbprint")
+				.build();
+		RegisteredClient registration2 = TestRegisteredClients.registeredClient2()
+				.x509CertificateThumbprint("thumbprint")
+				.build();
+
+		assertThatThrownBy(() -> new InMemoryRegisteredClientRepository(registration1, registration2))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void sizeWhenRegisteredClientsThenCounted() {
+		RegisteredClient registration = TestRegisteredClients.registeredClient2().build();
+		InMemoryRegisteredClientRepository clients = new InMemoryRegisteredClientRepository(this.registration, registration);
+
+		assertThat(clients.size()).isEqualTo(2);
+	}
 }
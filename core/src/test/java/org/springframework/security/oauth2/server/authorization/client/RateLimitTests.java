@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.client;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link RateLimit}.
+ */
+public class RateLimitTests {
+
+	@Test
+	public void ofWhenPermitsNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> RateLimit.of(0, Duration.ofSeconds(1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("permits must be greater than 0");
+	}
+
+	@Test
+	public void ofWhenPeriodNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> RateLimit.of(10, null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("period cannot be null");
+	}
+
+	@Test
+	public void ofWhenPeriodZeroThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> RateLimit.of(10, Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("period must be positive");
+	}
+
+	@Test
+	public void ofWhenBurstCapacityNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> RateLimit.of(10, Duration.ofSeconds(1), 0))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("burstCapacity must be greater than 0");
+	}
+
+	@Test
+	public void ofWhenBurstCapacityNotProvidedThenPermits() {
+		RateLimit rateLimit = RateLimit.of(10, Duration.ofSeconds(1));
+
+		assertThat(rateLimit.getPermits()).isEqualTo(10);
+		assertThat(rateLimit.getPeriod()).isEqualTo(Duration.ofSeconds(1));
+		assertThat(rateLimit.getBurstCapacity()).isEqualTo(10);
+		assertThat(rateLimit).isEqualTo(RateLimit.of(10, Duration.ofSeconds(1), 10));
+	}
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -371,4 +372,33 @@ public class RegisteredClientTests {
 		assertThat(registration.getRedirectUris()).doesNotContain(newRedirectUri);
 		assertThat(updated.getRedirectUris()).containsExactly(newRedirectUri);
 	}
+
+	@Test
+	public void buildWhenJwkSetUrlProvidedThenClientSecretNotRequired() {
+		RegisteredClient registration = RegisteredClient.withId(ID)
+				.clientId(CLIENT_ID)
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.redirectUris(redirectUris -> redirectUris.addAll(REDIRECT_URIS))
+				.jwkSetUrl("https://client.example.com/jwks")
+				.build();
+
+		assertThat(registration.getClientSecret()).isNull();
+		assertThat(registration.getJwkSetUrl()).isEqualTo("https://client.example.com/jwks");
+		assertThat(RegisteredClient.withRegisteredClient(registration).build().getJwkSetUrl())
+				.isEqualTo(registration.getJwkSetUrl());
+	}
+
+	@Test
+	public void buildWhenRateLimitProvidedThenSetAndCopied() {
+		RateLimit rateLimit = RateLimit.of(10, Duration.ofSeconds(1), 20);
+		RegisteredClient registration = RegisteredClient.withId(ID)
+				.clientId(CLIENT_ID)
+				.clientSecret(CLIENT_SECRET)
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.rateLimit(rateLimit)
+				.build();
+
+		assertThat(registration.getRateLimit()).isEqualTo(rateLimit);
+		assertThat(RegisteredClient.withRegisteredClient(registration).build().getRateLimit()).isEqualTo(rateLimit);
+	}
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jackson2;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link OAuth2AuthorizationServerJackson2Module}.
+ */
+public class OAuth2AuthorizationServerJackson2ModuleTests {
+	private ObjectMapper objectMapper;
+
+	@Before
+	public void setUp() {
+		this.objectMapper = new ObjectMapper();
+		this.objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+	}
+
+	@Test
+	public void readValueWhenRegisteredClientWrittenThenEqual() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient()
+				.clientAuthenticationMethod(ClientAuthenticationMethod.POST)
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.jwkSetUrl("https://client.example.com/jwks")
+				.x509CertificateThumbprint("thumbprint")
+				.rateLimit(RateLimit.of(10, Duration.ofSeconds(1), 20))
+				.build();
+
+		String json = this.objectMapper.writeValueAsString(registeredClient);
+		RegisteredClient readClient = this.objectMapper.readValue(json, RegisteredClient.class);
+
+		assertThat(json).contains("\"clientId\":\"" + registeredClient.getClientId() + "\"");
+		assertThat(readClient.getId()).isEqualTo(registeredClient.getId());
+		assertThat(readClient.getClientId()).isEqualTo(registeredClient.getClientId());
+		assertThat(readClient.getClientSecret()).isEqualTo(registeredClient.getClientSecret());
+		assertThat(readClient.getClientAuthenticationMethods()).isEqualTo(registeredClient.getClientAuthenticationMethods());
+		assertThat(readClient.getAuthorizationGrantTypes()).isEqualTo(registeredClient.getAuthorizationGrantTypes());
+		assertThat(readClient.getRedirectUris()).isEqualTo(registeredClient.getRedirectUris());
+		assertThat(readClient.getScopes()).isEqualTo(registeredClient.getScopes());
+		assertThat(readClient.getJwkSetUrl()).isEqualTo(registeredClient.getJwkSetUrl());
+		assertThat(readClient.getX509CertificateThumbprints()).isEqualTo(registeredClient.getX509CertificateThumbprints());
+		assertThat(readClient.getRateLimit()).isEqualTo(registeredClient.getRateLimit());
+	}
+
+	@Test
+	public void readValueWhenAuthorizationWrittenThenEqual() throws Exception {
+		Instant issuedAt = Instant.now();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(TestRegisteredClients.registeredClient().build())
+				.principalName("principal")
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+						issuedAt, issuedAt.plusSeconds(300), Collections.singleton("scope1")))
+				.refreshToken(new OAuth2RefreshToken("refresh-token", issuedAt))
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE_ISSUED_AT, issuedAt)
+				.attribute(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT, "thumbprint")
+				.attribute("custom-int", 1)
+				.attribute("custom-long", Long.MAX_VALUE)
+				.attribute("custom-boolean", true)
+				.build();
+
+		String json = this.objectMapper.writeValueAsString(authorization);
+		OAuth2Authorization readAuthorization = this.objectMapper.readValue(json, OAuth2Authorization.class);
+
+		assertThat(json).contains("\"issuedAt\":\"" + issuedAt + "\"");
+		assertThat(readAuthorization).isEqualTo(authorization);
+	}
+
+	@Test
+	public void readValueWhenAuthorizationRequestWrittenThenEqual() throws Exception {
+		OAuth2AuthorizationRequest authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+				.authorizationUri("https://provider.com/oauth2/authorize")
+				.clientId("client-1")
+				.redirectUri("https://example.com")
+				.scopes(Collections.singleton("scope1"))
+				.state("state")
+				.additionalParameters(Collections.singletonMap("prompt", "consent"))
+				.build();
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(TestRegisteredClients.registeredClient().build())
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.attribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST, authorizationRequest)
+				.build();
+
+		OAuth2Authorization readAuthorization = this.objectMapper.readValue(
+				this.objectMapper.writeValueAsString(authorization), OAuth2Authorization.class);
+
+		OAuth2AuthorizationRequest readRequest = readAuthorization.getAttribute(
+				OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		assertThat(readRequest.getGrantType()).isEqualTo(AuthorizationGrantType.AUTHORIZATION_CODE);
+		assertThat(readRequest.getAuthorizationUri()).isEqualTo(authorizationRequest.getAuthorizationUri());
+		assertThat(readRequest.getClientId()).isEqualTo(authorizationRequest.getClientId());
+		assertThat(readRequest.getRedirectUri()).isEqualTo(authorizationRequest.getRedirectUri());
+		assertThat(readRequest.getScopes()).isEqualTo(authorizationRequest.getScopes());
+		assertThat(readRequest.getState()).isEqualTo(authorizationRequest.getState());
+		assertThat(readRequest.getAdditionalParameters()).isEqualTo(authorizationRequest.getAdditionalParameters());
+		assertThat(readRequest.getAttributes()).isEmpty();
+		assertThat(readRequest.getAuthorizationRequestUri()).isEqualTo(authorizationRequest.getAuthorizationRequestUri());
+	}
+
+	@Test
+	public void readValueWhenAuthorizationRequestMalformedThenThrowIllegalArgumentExceptionOnFirstAccess() throws Exception {
+		String json = "{\"registeredClientId\":\"registration-1\",\"principalName\":\"principal\","
+				+ "\"attributes\":{\"" + OAuth2AuthorizationAttributeNames.CODE + "\":\"code\","
+				+ "\"" + OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST + "\":{\"authorizationGrantType\":\"unknown\"}}}";
+
+		OAuth2Authorization authorization = this.objectMapper.readValue(json, OAuth2Authorization.class);
+
+		assertThat(authorization.getAttributes()).containsKey(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		assertThatThrownBy(() -> authorization.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Unsupported authorization grant type");
+	}
+
+	@Test
+	public void readValueWhenAuthorizationRequestImplicitThenThrowIllegalArgumentExceptionOnFirstAccess() throws Exception {
+		String json = "{\"registeredClientId\":\"registration-1\",\"principalName\":\"principal\","
+				+ "\"attributes\":{\"" + OAuth2AuthorizationAttributeNames.CODE + "\":\"code\","
+				+ "\"" + OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST + "\":{\"authorizationGrantType\":\"implicit\","
+				+ "\"authorizationUri\":\"https://provider.com/oauth2/authorize\",\"clientId\":\"client-1\"}}}";
+
+		OAuth2Authorization authorization = this.objectMapper.readValue(json, OAuth2Authorization.class);
+
+		assertThatThrownBy(() -> authorization.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Unsupported authorization grant type");
+	}
+
+	@Test
+	public void writeValueWhenAuthorizationRequestNotMaterializedThenWrittenAsRead() throws Exception {
+		String json = "{\"registeredClientId\":\"registration-1\",\"principalName\":\"principal\","
+				+ "\"attributes\":{\"" + OAuth2AuthorizationAttributeNames.CODE + "\":\"code\","
+				+ "\"" + OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST + "\":{\"authorizationGrantType\":\"unknown\"}}}";
+		OAuth2Authorization authorization = this.objectMapper.readValue(json, OAuth2Authorization.class);
+
+		String writtenJson = this.objectMapper.writeValueAsString(authorization);
+
+		assertThat(OAuth2AuthorizationDeserializer.getBufferedAttribute(
+				authorization, OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST)).isNotNull();
+		assertThat(writtenJson).contains("{\"authorizationGrantType\":\"unknown\"}");
+	}
+
+	@Test
+	public void readValueWhenUnknownFieldsThenIgnored() throws Exception {
+		String json = "{\"registeredClientId\":\"registration-1\",\"principalName\":\"principal\","
+				+ "\"unknown\":{\"nested\":[1,2]},"
+				+ "\"attributes\":{\"" + OAuth2AuthorizationAttributeNames.CODE + "\":\"code\"}}";
+
+		OAuth2Authorization authorization = this.objectMapper.readValue(json, OAuth2Authorization.class);
+
+		assertThat(authorization.getRegisteredClientId()).isEqualTo("registration-1");
+		assertThat((String) authorization.getAttribute(OAuth2AuthorizationAttributeNames.CODE)).isEqualTo("code");
+	}
+
+	@Test
+	public void readValueWhenPrincipalNameMissingThenThrowJsonMappingException() {
+		String json = "{\"registeredClientId\":\"registration-1\","
+				+ "\"attributes\":{\"" + OAuth2AuthorizationAttributeNames.CODE + "\":\"code\"}}";
+
+		assertThatThrownBy(() -> this.objectMapper.readValue(json, OAuth2Authorization.class))
+				.isInstanceOf(JsonMappingException.class)
+				.hasMessageContaining("principalName cannot be empty");
+	}
+}
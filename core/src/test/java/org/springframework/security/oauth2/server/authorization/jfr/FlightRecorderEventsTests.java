@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2TokenEndpointFilter;
+
+import javax.servlet.FilterChain;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link FlightRecorderEvents}.
+ */
+public class FlightRecorderEventsTests {
+	private static final String EVENT_NAME_PREFIX = "org.springframework.security.oauth2.server.authorization.";
+	private Recording recording;
+	private Path recordingFile;
+
+	@Before
+	public void setUp() throws IOException {
+		this.recording = new Recording();
+		this.recordingFile = Files.createTempFile("authorization-server", ".jfr");
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		this.recording.close();
+		Files.deleteIfExists(this.recordingFile);
+	}
+
+	@Test
+	public void beginWhenNotRecordingThenNull() {
+		assertThat(FlightRecorderEvents.beginAuthorizationCodeIssued()).isNull();
+		assertThat(FlightRecorderEvents.beginTokenRequest()).isNull();
+		assertThat(FlightRecorderEvents.beginClientAuthentication()).isNull();
+		assertThat(FlightRecorderEvents.beginTokenLookup()).isNull();
+		assertThat(FlightRecorderEvents.beginClientLookup()).isNull();
+	}
+
+	@Test
+	public void beginWhenRecordingThenEventCommitted() throws IOException {
+		this.recording.enable(EVENT_NAME_PREFIX + "AuthorizationCodeIssued").withoutThreshold();
+		this.recording.start();
+
+		AuthorizationCodeIssuedEvent event = FlightRecorderEvents.beginAuthorizationCodeIssued();
+		assertThat(event).isNotNull();
+		event.record("client-1");
+
+		List<RecordedEvent> events = stopRecording("AuthorizationCodeIssued");
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getString("clientId")).isEqualTo("client-1");
+	}
+
+	@Test
+	public void findWhenRecordingThenLookupEventsCommitted() throws IOException {
+		this.recording.enable(EVENT_NAME_PREFIX + "TokenLookup").withoutThreshold();
+		this.recording.enable(EVENT_NAME_PREFIX + "ClientLookup").withoutThreshold();
+		this.recording.start();
+
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		InMemoryRegisteredClientRepository registeredClientRepository = new InMemoryRegisteredClientRepository(registeredClient);
+		registeredClientRepository.findByClientId(registeredClient.getClientId());
+		registeredClientRepository.findById("other");
+
+		InMemoryOAuth2AuthorizationService authorizationService = new InMemoryOAuth2AuthorizationService();
+		authorizationService.save(OAuth2Authorization.withRegisteredClient(registeredClient)
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, "code")
+				.build());
+		authorizationService.findByTokenAndTokenType("code", TokenType.AUTHORIZATION_CODE);
+
+		List<RecordedEvent> clientLookupEvents = stopRecording("ClientLookup");
+		assertThat(clientLookupEvents).hasSize(2);
+		assertThat(clientLookupEvents.get(0).getString("lookup")).isEqualTo("clientId");
+		assertThat(clientLookupEvents.get(0).getString("clientId")).isEqualTo(registeredClient.getClientId());
+		assertThat(clientLookupEvents.get(0).getBoolean("found")).isTrue();
+		assertThat(clientLookupEvents.get(1).getString("lookup")).isEqualTo("id");
+		assertThat(clientLookupEvents.get(1).getBoolean("found")).isFalse();
+
+		List<RecordedEvent> tokenLookupEvents = readEvents("TokenLookup");
+		assertThat(tokenLookupEvents).hasSize(1);
+		assertThat(tokenLookupEvents.get(0).getString("tokenType")).isEqualTo("authorization_code");
+		assertThat(tokenLookupEvents.get(0).getString("registeredClientId")).isEqualTo(registeredClient.getId());
+		assertThat(tokenLookupEvents.get(0).getBoolean("found")).isTrue();
+	}
+
+	@Test
+	public void doFilterWhenTokenRequestInvalidThenTokenRequestEventCommitted() throws Exception {
+		this.recording.enable(EVENT_NAME_PREFIX + "TokenRequest").withoutThreshold();
+		this.recording.start();
+
+		OAuth2TokenEndpointFilter filter = new OAuth2TokenEndpointFilter(mock(AuthenticationManager.class));
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI);
+		request.setServletPath(OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI);
+		request.addParameter(OAuth2ParameterNames.GRANT_TYPE, "unsupported");
+		filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		List<RecordedEvent> events = stopRecording("TokenRequest");
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getString("grantType")).isEqualTo("unsupported");
+		assertThat(events.get(0).getString("error")).isEqualTo(OAuth2ErrorCodes.UNSUPPORTED_GRANT_TYPE);
+	}
+
+	private List<RecordedEvent> stopRecording(String eventName) throws IOException {
+		this.recording.stop();
+		this.recording.dump(this.recordingFile);
+		return readEvents(eventName);
+	}
+
+	private List<RecordedEvent> readEvents(String eventName) throws IOException {
+		return RecordingFile.readAllEvents(this.recordingFile).stream()
+				.filter(event -> event.getEventType().getName().equals(EVENT_NAME_PREFIX + eventName))
+				.sorted((event1, event2) -> event1.getStartTime().compareTo(event2.getStartTime()))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jose;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.util.Base64URL;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PooledJwsSigningService}.
+ */
+public class PooledJwsSigningServiceTests {
+	private static final JWSHeader HEADER = new JWSHeader(JWSAlgorithm.HS256);
+	private static final byte[] SIGNING_INPUT = "header.payload".getBytes(StandardCharsets.US_ASCII);
+	private PooledJwsSigningService signingService;
+
+	@After
+	public void tearDown() {
+		if (this.signingService != null) {
+			this.signingService.close();
+		}
+	}
+
+	@Test
+	public void constructorWhenWorkerCountZeroThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new PooledJwsSigningService(0, 1, 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("workerCount must be greater than 0");
+	}
+
+	@Test
+	public void signWhenSignerThenSameSignatureAsDirect() throws Exception {
+		this.signingService = new PooledJwsSigningService(2, 16, 4);
+		MACSigner signer = new MACSigner(new byte[32]);
+
+		Base64URL signature = this.signingService.sign(signer, HEADER, SIGNING_INPUT);
+
+		assertThat(signature).isEqualTo(JwsSigningService.direct().sign(signer, HEADER, SIGNING_INPUT));
+		PooledJwsSigningService.Statistics statistics = this.signingService.getStatistics();
+		assertThat(statistics.getSignedCount()).isEqualTo(1);
+		assertThat(statistics.getRejectedCount()).isZero();
+		assertThat(statistics.getSignTime()).isGreaterThan(Duration.ZERO);
+	}
+
+	@Test
+	public void signWhenSignerFailsThenThrowJOSEException() throws Exception {
+		this.signingService = new PooledJwsSigningService(1, 16, 4);
+		JWSSigner signer = mock(JWSSigner.class);
+		when(signer.sign(any(), any())).thenThrow(new JOSEException("failed"));
+
+		assertThatThrownBy(() -> this.signingService.sign(signer, HEADER, SIGNING_INPUT))
+				.isInstanceOf(JOSEException.class)
+				.hasMessage("failed");
+	}
+
+	@Test
+	public void signWhenManyConcurrentRequestsThenAllSigned() throws Exception {
+		this.signingService = new PooledJwsSigningService(2, 256, 8);
+		MACSigner signer = new MACSigner(new byte[32]);
+		Base64URL expected = signer.sign(HEADER, SIGNING_INPUT);
+
+		List<CompletableFuture<Base64URL>> signatures = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			signatures.add(CompletableFuture.supplyAsync(() -> sign(signer)));
+		}
+
+		for (CompletableFuture<Base64URL> signature : signatures) {
+			assertThat(signature.get(10, TimeUnit.SECONDS)).isEqualTo(expected);
+		}
+		assertThat(this.signingService.getStatistics().getSignedCount()).isEqualTo(100);
+	}
+
+	@Test
+	public void signWhenQueueFullThenRejected() throws Exception {
+		this.signingService = new PooledJwsSigningService(1, 1, 1);
+		this.signingService.setMaximumQueueWait(Duration.ZERO);
+		CountDownLatch signing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		JWSSigner blockingSigner = mock(JWSSigner.class);
+		when(blockingSigner.sign(any(), any())).thenAnswer(invocation -> {
+			signing.countDown();
+			release.await();
+			return Base64URL.encode("signature");
+		});
+
+		CompletableFuture<Base64URL> first = CompletableFuture.supplyAsync(() -> sign(blockingSigner));
+		assertThat(signing.await(10, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Base64URL> second = CompletableFuture.supplyAsync(() -> sign(blockingSigner));
+		while (this.signingService.getStatistics().getQueueSize() == 0) {
+			Thread.yield();
+		}
+
+		assertThatThrownBy(() -> this.signingService.sign(blockingSigner, HEADER, SIGNING_INPUT))
+				.isInstanceOf(RejectedExecutionException.class);
+		assertThat(this.signingService.getStatistics().getRejectedCount()).isEqualTo(1);
+
+		release.countDown();
+		assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(Base64URL.encode("signature"));
+		assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo(Base64URL.encode("signature"));
+		assertThat(this.signingService.getStatistics().getQueueTime()).isGreaterThan(Duration.ZERO);
+	}
+
+	@Test
+	public void signWhenClosedThenRejected() throws Exception {
+		this.signingService = new PooledJwsSigningService(1, 1, 1);
+		this.signingService.close();
+
+		assertThatThrownBy(() -> this.signingService.sign(new MACSigner(new byte[32]), HEADER, SIGNING_INPUT))
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+	private Base64URL sign(JWSSigner signer) {
+		try {
+			return this.signingService.sign(signer, HEADER, SIGNING_INPUT);
+		} catch (JOSEException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.jose;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link SigningKeyManager}.
+ */
+public class SigningKeyManagerTests {
+	private final AtomicInteger keyCount = new AtomicInteger();
+	private Instant now;
+	private SigningKeyManager signingKeyManager;
+
+	@Before
+	public void setUp() {
+		this.now = Instant.now();
+		this.signingKeyManager = new SigningKeyManager(this::generateKey, Duration.ofDays(1));
+		this.signingKeyManager.setRotationInterval(Duration.ofDays(1));
+		this.signingKeyManager.setPublicationLeadTime(Duration.ofHours(1));
+		this.signingKeyManager.setMaximumTokenLifetime(Duration.ofHours(1));
+		setClock(this.now);
+		this.signingKeyManager.start();
+	}
+
+	@After
+	public void tearDown() {
+		this.signingKeyManager.close();
+	}
+
+	@Test
+	public void constructorWhenKeyGeneratorNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new SigningKeyManager(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("keyGenerator cannot be null");
+	}
+
+	@Test
+	public void startWhenKeyWithoutKeyIdThenThrowIllegalArgumentException() {
+		SigningKeyManager signingKeyManager = new SigningKeyManager(() -> generateKey(null));
+
+		assertThatThrownBy(signingKeyManager::start)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("key must have a key ID");
+	}
+
+	@Test
+	public void getSigningKeyWhenNotStartedThenThrowIllegalStateException() {
+		SigningKeyManager signingKeyManager = new SigningKeyManager(this::generateKey);
+
+		assertThatThrownBy(signingKeyManager::getSigningKey)
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("SigningKeyManager has not been started");
+		assertThat(this.keyCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void startWhenClockSetThenFirstKeyActivatedAtClockTime() {
+		SigningKeyManager signingKeyManager = new SigningKeyManager(this::generateKey, Duration.ofDays(1));
+		Instant startedAt = Instant.parse("2020-01-01T00:00:00Z");
+		signingKeyManager.setRotationInterval(Duration.ofDays(1));
+		signingKeyManager.setPublicationLeadTime(Duration.ZERO);
+		signingKeyManager.setClock(Clock.fixed(startedAt, ZoneOffset.UTC));
+		try {
+			signingKeyManager.start();
+			signingKeyManager.rotate();
+
+			signingKeyManager.setClock(Clock.fixed(startedAt.plus(Duration.ofDays(1)), ZoneOffset.UTC));
+			signingKeyManager.rotate();
+
+			assertThat(signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-3");
+		} finally {
+			signingKeyManager.close();
+		}
+	}
+
+	@Test
+	public void getSigningKeyWhenStartedThenActiveKeyPublished() {
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-1");
+		assertThat(keyIds(this.signingKeyManager.getJwkSet())).containsExactly("key-1");
+	}
+
+	@Test
+	public void rotateWhenNoNextKeyThenNextKeyPublishedButNotActive() {
+		this.signingKeyManager.rotate();
+
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-1");
+		assertThat(keyIds(this.signingKeyManager.getJwkSet())).containsExactly("key-1", "key-2");
+	}
+
+	@Test
+	public void rotateWhenNotDueThenKeysUnchanged() {
+		this.signingKeyManager.rotate();
+		JWKSet jwkSet = this.signingKeyManager.getJwkSet();
+
+		setClock(this.now.plus(Duration.ofHours(12)));
+		this.signingKeyManager.rotate();
+
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-1");
+		assertThat(this.signingKeyManager.getJwkSet()).isSameAs(jwkSet);
+		assertThat(this.keyCount.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void rotateWhenDueThenNextKeyActiveAndPreviousKeyStillPublished() {
+		this.signingKeyManager.rotate();
+
+		setClock(this.now.plus(Duration.ofDays(1)).plusSeconds(1));
+		this.signingKeyManager.rotate();
+
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-2");
+		assertThat(keyIds(this.signingKeyManager.getJwkSet())).containsExactly("key-2", "key-1");
+	}
+
+	@Test
+	public void rotateWhenDueButNextKeyNotPublishedForLeadTimeThenNotActivated() {
+		setClock(this.now.plus(Duration.ofDays(1)).plusSeconds(1));
+		this.signingKeyManager.rotate();
+		this.signingKeyManager.rotate();
+
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-1");
+
+		setClock(this.now.plus(Duration.ofDays(1)).plus(Duration.ofHours(1)).plusSeconds(1));
+		this.signingKeyManager.rotate();
+
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-2");
+	}
+
+	@Test
+	public void rotateWhenMaximumTokenLifetimeElapsedThenPreviousKeyRetired() {
+		this.signingKeyManager.rotate();
+		Instant rotatedAt = this.now.plus(Duration.ofDays(1)).plusSeconds(1);
+		setClock(rotatedAt);
+		this.signingKeyManager.rotate();
+
+		setClock(rotatedAt.plus(Duration.ofHours(1)));
+		this.signingKeyManager.rotate();
+
+		assertThat(this.signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-2");
+		assertThat(keyIds(this.signingKeyManager.getJwkSet())).containsExactly("key-2", "key-3");
+	}
+
+	@Test
+	public void rotateWhenKeyGeneratorFailsThenCurrentKeysRemain() {
+		AtomicInteger generatedKeyCount = new AtomicInteger();
+		SigningKeyManager signingKeyManager = new SigningKeyManager(() -> {
+			if (generatedKeyCount.incrementAndGet() > 1) {
+				throw new IllegalStateException("unavailable");
+			}
+			return generateKey("key-1");
+		}, Duration.ofDays(1));
+		try {
+			signingKeyManager.start();
+			assertThatThrownBy(signingKeyManager::rotate).isInstanceOf(IllegalStateException.class);
+			assertThat(signingKeyManager.getSigningKey().getKeyID()).isEqualTo("key-1");
+			assertThat(keyIds(signingKeyManager.getJwkSet())).containsExactly("key-1");
+		} finally {
+			signingKeyManager.close();
+		}
+	}
+
+	private JWK generateKey() {
+		return generateKey("key-" + this.keyCount.incrementAndGet());
+	}
+
+	private static JWK generateKey(String keyId) {
+		try {
+			return new ECKeyGenerator(Curve.P_256).keyID(keyId).generate();
+		} catch (JOSEException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private void setClock(Instant instant) {
+		this.signingKeyManager.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+	}
+
+	private static Iterable<String> keyIds(JWKSet jwkSet) {
+		return jwkSet.getKeys().stream().map(JWK::getKeyID).collect(Collectors.toList());
+	}
+}
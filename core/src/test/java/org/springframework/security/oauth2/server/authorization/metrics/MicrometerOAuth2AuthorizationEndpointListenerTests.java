@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link MicrometerOAuth2AuthorizationEndpointListener}.
+ */
+public class MicrometerOAuth2AuthorizationEndpointListenerTests {
+	private MeterRegistry meterRegistry;
+	private MicrometerOAuth2AuthorizationEndpointListener listener;
+
+	@Before
+	public void setUp() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.listener = new MicrometerOAuth2AuthorizationEndpointListener(this.meterRegistry);
+	}
+
+	@Test
+	public void constructorWhenMeterRegistryNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new MicrometerOAuth2AuthorizationEndpointListener(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("meterRegistry cannot be null");
+	}
+
+	@Test
+	public void constructorWhenCreatedThenTimerRegisteredForEachErrorCode() {
+		assertThat(this.meterRegistry.get("oauth2.authorization.endpoint.requests")
+				.tags("outcome", "error", "error", OAuth2ErrorCodes.INVALID_REQUEST).timer()).isNotNull();
+		assertThat(this.meterRegistry.get("oauth2.authorization.endpoint.requests")
+				.tags("outcome", "error", "error", OAuth2ErrorCodes.UNSUPPORTED_RESPONSE_TYPE).timer()).isNotNull();
+	}
+
+	@Test
+	public void onAuthorizationOutcomeThenRecordedByOutcome() {
+		this.listener.onAuthorizationCodeIssued(TimeUnit.MILLISECONDS.toNanos(2));
+		this.listener.onAuthorizationError(new OAuth2Error(OAuth2ErrorCodes.INVALID_REQUEST), 1000);
+		this.listener.onAuthorizationError(new OAuth2Error(OAuth2ErrorCodes.INVALID_REQUEST), 1000);
+		this.listener.onAuthenticationRequired(1000);
+
+		assertThat(this.meterRegistry.get("oauth2.authorization.endpoint.requests")
+				.tags("outcome", "success", "error", "none").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(2);
+		assertThat(this.meterRegistry.get("oauth2.authorization.endpoint.requests")
+				.tags("outcome", "error", "error", OAuth2ErrorCodes.INVALID_REQUEST).timer().count()).isEqualTo(2);
+		assertThat(this.meterRegistry.get("oauth2.authorization.endpoint.requests")
+				.tags("outcome", "authentication_required", "error", "none").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void onAuthorizationErrorWhenCustomErrorCodeThenTimerRegistered() {
+		this.listener.onAuthorizationError(new OAuth2Error("custom_error"), 1000);
+
+		assertThat(this.meterRegistry.get("oauth2.authorization.endpoint.requests")
+				.tags("outcome", "error", "error", "custom_error").timer().count()).isEqualTo(1);
+	}
+}
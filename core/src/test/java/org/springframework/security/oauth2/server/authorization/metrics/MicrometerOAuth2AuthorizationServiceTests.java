@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link MicrometerOAuth2AuthorizationService}.
+ */
+public class MicrometerOAuth2AuthorizationServiceTests {
+	private static final String AUTHORIZATION_CODE = "code";
+	private MeterRegistry meterRegistry;
+	private MicrometerOAuth2AuthorizationService authorizationService;
+	private OAuth2Authorization authorization;
+
+	@Before
+	public void setUp() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.authorizationService = new MicrometerOAuth2AuthorizationService(
+				new InMemoryOAuth2AuthorizationService(), this.meterRegistry);
+		this.authorization = OAuth2Authorization.withRegisteredClient(TestRegisteredClients.registeredClient().build())
+				.principalName("principal")
+				.attribute(OAuth2AuthorizationAttributeNames.CODE, AUTHORIZATION_CODE)
+				.build();
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new MicrometerOAuth2AuthorizationService(null, this.meterRegistry))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void constructorWhenMeterRegistryNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new MicrometerOAuth2AuthorizationService(
+				mock(OAuth2AuthorizationService.class), null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("meterRegistry cannot be null");
+	}
+
+	@Test
+	public void saveAndRemoveWhenCalledThenTimed() {
+		this.authorizationService.save(this.authorization);
+		this.authorizationService.remove(this.authorization);
+
+		assertThat(this.meterRegistry.get("oauth2.authorization.service")
+				.tag("operation", "save").timer().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.authorization.service")
+				.tag("operation", "remove").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void replaceWhenRefreshTokenThenDelegatedAndTimed() {
+		OAuth2AuthorizationService delegate = mock(OAuth2AuthorizationService.class);
+		when(delegate.replace(eq("refresh-token"), any(OAuth2Authorization.class))).thenReturn(true);
+		MicrometerOAuth2AuthorizationService authorizationService =
+				new MicrometerOAuth2AuthorizationService(delegate, this.meterRegistry);
+
+		assertThat(authorizationService.replace("refresh-token", this.authorization)).isTrue();
+
+		verify(delegate).replace("refresh-token", this.authorization);
+		verify(delegate, never()).save(any());
+		assertThat(this.meterRegistry.get("oauth2.authorization.service")
+				.tags("operation", "replace", "token.type", "refresh_token").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void replaceWhenAuthorizationCodeThenDelegatedAndTimed() {
+		OAuth2AuthorizationService delegate = mock(OAuth2AuthorizationService.class);
+		when(delegate.replace(any(OAuth2Authorization.class))).thenReturn(false);
+		MicrometerOAuth2AuthorizationService authorizationService =
+				new MicrometerOAuth2AuthorizationService(delegate, this.meterRegistry);
+
+		assertThat(authorizationService.replace(this.authorization)).isFalse();
+
+		verify(delegate).replace(this.authorization);
+		verify(delegate, never()).save(any());
+		assertThat(this.meterRegistry.get("oauth2.authorization.service")
+				.tags("operation", "replace", "token.type", "authorization_code").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void revokeWhenCalledThenDelegatedAndTimed() {
+		OAuth2AuthorizationService delegate = mock(OAuth2AuthorizationService.class);
+		TokenRevocation revocation = TokenRevocation.of(TokenDigest.of("access-token"), Instant.now().plusSeconds(300));
+		when(delegate.revoke(any(OAuth2Authorization.class))).thenReturn(revocation);
+		MicrometerOAuth2AuthorizationService authorizationService =
+				new MicrometerOAuth2AuthorizationService(delegate, this.meterRegistry);
+
+		assertThat(authorizationService.revoke(this.authorization)).isSameAs(revocation);
+
+		verify(delegate).revoke(this.authorization);
+		verify(delegate, never()).remove(any());
+		assertThat(this.meterRegistry.get("oauth2.authorization.service")
+				.tag("operation", "revoke").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void findByTokenAndTokenTypeWhenCalledThenTimedAndHitsAndMissesCounted() {
+		this.authorizationService.save(this.authorization);
+
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				AUTHORIZATION_CODE, TokenType.AUTHORIZATION_CODE)).isEqualTo(this.authorization);
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"other", TokenType.AUTHORIZATION_CODE)).isNull();
+		assertThat(this.authorizationService.findByTokenAndTokenType(
+				"other", TokenType.ACCESS_TOKEN)).isNull();
+
+		assertThat(this.meterRegistry.get("oauth2.authorization.service")
+				.tags("operation", "find", "token.type", "authorization_code").timer().count()).isEqualTo(2);
+		assertThat(this.meterRegistry.get("oauth2.authorization.service.lookups")
+				.tags("token.type", "authorization_code", "result", "hit").counter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.authorization.service.lookups")
+				.tags("token.type", "authorization_code", "result", "miss").counter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.authorization.service.lookups")
+				.tags("token.type", "access_token", "result", "miss").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void findByTokenAndTokenTypeWhenCustomTokenTypeThenMetersRegistered() {
+		TokenType tokenType = new TokenType("custom");
+		this.authorizationService.findByTokenAndTokenType(AUTHORIZATION_CODE, tokenType);
+
+		assertThat(this.meterRegistry.get("oauth2.authorization.service.lookups")
+				.tags("token.type", "custom", "result", "miss").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void constructorWhenInMemoryDelegateThenSizeGauged() {
+		this.authorizationService.save(this.authorization);
+
+		assertThat(this.meterRegistry.get("oauth2.authorization.service.size")
+				.tag("token.type", "authorization_code").gauge().value()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.authorization.service.size")
+				.tag("token.type", "access_token").gauge().value()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link MicrometerRegisteredClientRepository}.
+ */
+public class MicrometerRegisteredClientRepositoryTests {
+	private final RegisteredClient registeredClient = TestRegisteredClients.registeredClient()
+			.x509CertificateThumbprint("thumbprint")
+			.build();
+	private MeterRegistry meterRegistry;
+	private MicrometerRegisteredClientRepository registeredClientRepository;
+
+	@Before
+	public void setUp() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.registeredClientRepository = new MicrometerRegisteredClientRepository(
+				new InMemoryRegisteredClientRepository(this.registeredClient), this.meterRegistry);
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new MicrometerRegisteredClientRepository(null, this.meterRegistry))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void constructorWhenMeterRegistryNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new MicrometerRegisteredClientRepository(
+				mock(RegisteredClientRepository.class), null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("meterRegistry cannot be null");
+	}
+
+	@Test
+	public void findWhenCalledThenTimedAndHitsAndMissesCounted() {
+		assertThat(this.registeredClientRepository.findById(this.registeredClient.getId()))
+				.isEqualTo(this.registeredClient);
+		assertThat(this.registeredClientRepository.findByClientId(this.registeredClient.getClientId()))
+				.isEqualTo(this.registeredClient);
+		assertThat(this.registeredClientRepository.findByClientId("other")).isNull();
+		assertThat(this.registeredClientRepository.findByX509CertificateThumbprint("thumbprint"))
+				.isEqualTo(this.registeredClient);
+
+		assertThat(this.meterRegistry.get("oauth2.client.repository")
+				.tag("operation", "findById").timer().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.client.repository")
+				.tag("operation", "findByClientId").timer().count()).isEqualTo(2);
+		assertThat(this.meterRegistry.get("oauth2.client.repository.lookups")
+				.tags("operation", "findByClientId", "result", "hit").counter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.client.repository.lookups")
+				.tags("operation", "findByClientId", "result", "miss").counter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("oauth2.client.repository.lookups")
+				.tags("operation", "findByX509CertificateThumbprint", "result", "hit").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void constructorWhenInMemoryDelegateThenSizeGauged() {
+		assertThat(this.meterRegistry.get("oauth2.client.repository.size").gauge().value()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.ratelimit;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link AdaptiveConcurrencyLimiter}.
+ */
+public class AdaptiveConcurrencyLimiterTests {
+	private static final long BASELINE_LATENCY = TimeUnit.MILLISECONDS.toNanos(5);
+
+	@Test
+	public void constructorWhenInitialLimitNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(0, 100))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("initialLimit must be greater than 0");
+	}
+
+	@Test
+	public void constructorWhenMaxLimitLowerThanInitialLimitThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(20, 10))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("maxLimit must be greater than or equal to initialLimit");
+	}
+
+	@Test
+	public void tryAcquireWhenLimitReachedThenRejectedUntilReleased() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 100);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+
+		limiter.release(BASELINE_LATENCY);
+
+		assertThat(limiter.getInFlight()).isEqualTo(1);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void releaseWhenLatencyAtBaselineAndLimitReachedThenLimitIncreased() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 100);
+
+		processAtLimit(limiter, BASELINE_LATENCY, 10);
+
+		assertThat(limiter.getLimit()).isGreaterThan(20);
+	}
+
+	@Test
+	public void releaseWhenLatencyAboveBaselineThenLimitDecreased() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 100);
+		processAtLimit(limiter, BASELINE_LATENCY, 1);
+
+		processAtLimit(limiter, BASELINE_LATENCY * 4, 10);
+
+		assertThat(limiter.getLimit()).isLessThan(20);
+	}
+
+	@Test
+	public void releaseWhenFewRequestsInFlightThenLimitUnchanged() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 100);
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire();
+			limiter.release(BASELINE_LATENCY);
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(20);
+	}
+
+	@Test
+	public void releaseWhenServiceSaturatedThenExcessShedAndLatencyBounded() {
+		// 32 clients share a service processing 4 requests at a time in 5 ms each:
+		// without shedding, the requests queue for about 32 / 4 * 5 = 40 ms
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 100);
+		Simulation simulation = new Simulation(limiter, 4, BASELINE_LATENCY);
+		simulation.addClients(32);
+
+		simulation.run(Duration.ofSeconds(60));
+
+		assertThat(simulation.shed).isGreaterThan(0);
+		assertThat(simulation.admitted).isGreaterThan(0);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(simulation.admittedLatency / simulation.admitted)).isLessThan(20);
+		assertThat(limiter.getLimit()).isLessThan(32);
+	}
+
+	@Test
+	public void releaseWhenServiceNotSaturatedThenNoneShed() {
+		// 16 clients share a service processing 64 requests at a time, so that no request ever queues
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 100);
+		Simulation simulation = new Simulation(limiter, 64, BASELINE_LATENCY);
+		simulation.addClients(16);
+
+		simulation.run(Duration.ofSeconds(60));
+
+		assertThat(simulation.shed).isEqualTo(0);
+		assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(20);
+	}
+
+	@Test
+	public void releaseWhenLatencyIncreasedLastinglyThenBaselineMeasuredAgain() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 100);
+		Simulation simulation = new Simulation(limiter, 64, BASELINE_LATENCY);
+		simulation.addClients(16);
+		simulation.run(Duration.ofSeconds(10));
+		simulation.serviceTime = BASELINE_LATENCY * 4;
+		simulation.run(Duration.ofSeconds(10));
+
+		// with the baseline of the former latency, the requests would seem queued, and the limit would collapse
+		simulation.addClients(14);
+		simulation.run(Duration.ofSeconds(10));
+
+		assertThat(simulation.shed).isEqualTo(0);
+		assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(30);
+	}
+
+	private static void processAtLimit(AdaptiveConcurrencyLimiter limiter, long latency, int requests) {
+		while (limiter.tryAcquire()) {
+			// acquire all the permits, so that the limit is the bottleneck
+		}
+		for (int i = 0; i < requests; i++) {
+			limiter.release(latency);
+			limiter.tryAcquire();
+		}
+		while (limiter.getInFlight() > 0) {
+			limiter.release(0);
+		}
+	}
+
+	/**
+	 * A simulation, on a virtual clock, of clients sending their requests one after the other
+	 * to a service processing a limited number of requests at a time, each taking a fixed time,
+	 * and queueing the others. A client backs off for 1 ms before retrying a request shed.
+	 */
+	private static final class Simulation {
+		private static final long BACKOFF = TimeUnit.MILLISECONDS.toNanos(1);
+		private final AdaptiveConcurrencyLimiter limiter;
+		private final PriorityQueue<Long> workers = new PriorityQueue<>();
+		// each event is the time at which it occurs, and the time at which the request processed was sent,
+		// or -1 when the event is a client sending a request
+		private final PriorityQueue<long[]> events = new PriorityQueue<>((e1, e2) -> Long.compare(e1[0], e2[0]));
+		private long serviceTime;
+		private long now;
+		private long admitted;
+		private long admittedLatency;
+		private long shed;
+
+		private Simulation(AdaptiveConcurrencyLimiter limiter, int concurrency, long serviceTime) {
+			this.limiter = limiter;
+			this.serviceTime = serviceTime;
+			for (int i = 0; i < concurrency; i++) {
+				this.workers.add(0L);
+			}
+		}
+
+		private void addClients(int clients) {
+			for (int i = 0; i < clients; i++) {
+				this.events.add(new long[] { this.now, -1 });
+			}
+		}
+
+		private void run(Duration duration) {
+			long endTime = this.now + duration.toNanos();
+			while (this.events.peek()[0] < endTime) {
+				long[] event = this.events.poll();
+				this.now = event[0];
+				if (event[1] >= 0) {
+					long latency = this.now - event[1];
+					this.limiter.release(latency);
+					this.admitted++;
+					this.admittedLatency += latency;
+					this.events.add(new long[] { this.now, -1 });
+				} else if (this.limiter.tryAcquire()) {
+					long startTime = Math.max(this.now, this.workers.poll());
+					this.workers.add(startTime + this.serviceTime);
+					this.events.add(new long[] { startTime + this.serviceTime, this.now });
+				} else {
+					this.shed++;
+					this.events.add(new long[] { this.now + BACKOFF, -1 });
+				}
+			}
+			this.now = endTime;
+		}
+	}
+}
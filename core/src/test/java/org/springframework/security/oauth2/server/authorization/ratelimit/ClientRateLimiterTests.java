@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.ratelimit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ClientRateLimiter}.
+ */
+public class ClientRateLimiterTests {
+	private static final Instant NOW = Instant.parse("2020-10-01T00:00:00Z");
+	private RegisteredClient limitedClient;
+	private RegisteredClient unlimitedClient;
+	private ClientRateLimiter rateLimiter;
+
+	@Before
+	public void setUp() {
+		this.limitedClient = TestRegisteredClients.registeredClient()
+				.rateLimit(RateLimit.of(10, Duration.ofSeconds(1), 2))
+				.build();
+		this.unlimitedClient = TestRegisteredClients.registeredClient2()
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.build();
+		this.rateLimiter = new ClientRateLimiter();
+		this.rateLimiter.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void setFailedAuthenticationRateLimitWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.rateLimiter.setFailedAuthenticationRateLimit(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("failedAuthenticationRateLimit cannot be null");
+	}
+
+	@Test
+	public void tryAcquireWhenBurstCapacityExceededThenWaitTimeUntilRefilled() {
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(0);
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(0);
+
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
+	@Test
+	public void tryAcquireWhenRefilledThenAcquired() {
+		this.rateLimiter.tryAcquire(this.limitedClient);
+		this.rateLimiter.tryAcquire(this.limitedClient);
+
+		this.rateLimiter.setClock(Clock.fixed(NOW.plusMillis(100), ZoneOffset.UTC));
+
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(0);
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isGreaterThan(0);
+	}
+
+	@Test
+	public void getFailedAuthenticationWaitTimeWhenRateLimitExceededThenWaitTimeUntilRefilled() {
+		this.rateLimiter.setFailedAuthenticationRateLimit(RateLimit.of(10, Duration.ofSeconds(1), 2));
+		this.rateLimiter.recordFailedAuthentication("192.0.2.1", "client-1");
+		assertThat(this.rateLimiter.getFailedAuthenticationWaitTime("192.0.2.1", "client-1")).isEqualTo(0);
+		this.rateLimiter.recordFailedAuthentication("192.0.2.1", "client-1");
+
+		assertThat(this.rateLimiter.getFailedAuthenticationWaitTime("192.0.2.1", "client-1")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(this.rateLimiter.getFailedAuthenticationWaitTime("192.0.2.2", "client-1")).isEqualTo(0);
+		// the clients sharing the remote address are not throttled
+		assertThat(this.rateLimiter.getFailedAuthenticationWaitTime("192.0.2.1", "client-2")).isEqualTo(0);
+		assertThat(this.rateLimiter.getFailedAuthenticationWaitTime("192.0.2.1", null)).isEqualTo(0);
+		// the failed authentications are not charged to the clients
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(0);
+		assertThat(this.rateLimiter.size()).isEqualTo(1);
+
+		this.rateLimiter.setClock(Clock.fixed(NOW.plusMillis(100), ZoneOffset.UTC));
+
+		assertThat(this.rateLimiter.getFailedAuthenticationWaitTime("192.0.2.1", "client-1")).isEqualTo(0);
+	}
+
+	@Test
+	public void tryAcquireWhenNoRateLimitThenNotLimited() {
+		for (int i = 0; i < 100; i++) {
+			assertThat(this.rateLimiter.tryAcquire(this.unlimitedClient)).isEqualTo(0);
+		}
+		assertThat(this.rateLimiter.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void tryAcquireWhenDefaultRateLimitThenApplied() {
+		this.rateLimiter.setDefaultRateLimit(RateLimit.of(1, Duration.ofMinutes(1)));
+
+		assertThat(this.rateLimiter.tryAcquire(this.unlimitedClient)).isEqualTo(0);
+		assertThat(this.rateLimiter.tryAcquire(this.unlimitedClient)).isEqualTo(Duration.ofMinutes(1).toNanos());
+	}
+
+	@Test
+	public void tryAcquireWhenBucketsIdleThenEvicted() {
+		this.rateLimiter.setEvictionInterval(Duration.ofSeconds(1));
+		this.rateLimiter.setDefaultRateLimit(RateLimit.of(1, Duration.ofMinutes(1)));
+		this.rateLimiter.tryAcquire(this.limitedClient);
+		this.rateLimiter.tryAcquire(this.limitedClient);
+		assertThat(this.rateLimiter.size()).isEqualTo(1);
+
+		this.rateLimiter.setClock(Clock.fixed(NOW.plusSeconds(2), ZoneOffset.UTC));
+		this.rateLimiter.tryAcquire(this.unlimitedClient);
+
+		// the bucket of the limited client was full again, and only the bucket of the other client remains
+		assertThat(this.rateLimiter.size()).isEqualTo(1);
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(0);
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isEqualTo(0);
+		assertThat(this.rateLimiter.tryAcquire(this.limitedClient)).isGreaterThan(0);
+	}
+
+	@Test
+	public void tryAcquireWhenConcurrentThenBurstCapacityAcquired() throws Exception {
+		RegisteredClient registeredClient = RegisteredClient.withRegisteredClient(this.limitedClient)
+				.rateLimit(RateLimit.of(1, Duration.ofHours(1), 1000))
+				.build();
+		int threads = 8;
+		AtomicInteger acquired = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					if (this.rateLimiter.tryAcquire(registeredClient) == 0) {
+						acquired.incrementAndGet();
+					}
+				}
+				done.countDown();
+			});
+		}
+		assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+
+		assertThat(acquired.get()).isEqualTo(1000);
+	}
+}
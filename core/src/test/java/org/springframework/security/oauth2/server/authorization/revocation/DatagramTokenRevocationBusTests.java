@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link DatagramTokenRevocationBus}.
+ */
+public class DatagramTokenRevocationBusTests {
+	private DatagramTokenRevocationBus receivingBus;
+	private DatagramTokenRevocationBus publishingBus;
+	private InetSocketAddress loopback;
+
+	@Before
+	public void setUp() {
+		this.loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		SecretKey key = key();
+		this.receivingBus = new DatagramTokenRevocationBus(this.loopback, Collections.emptyList(), key);
+		this.publishingBus = new DatagramTokenRevocationBus(this.loopback,
+				Collections.singletonList(this.receivingBus.getLocalAddress()), key);
+	}
+
+	@After
+	public void cleanup() {
+		this.publishingBus.close();
+		this.receivingBus.close();
+	}
+
+	@Test
+	public void constructorWhenKeyNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new DatagramTokenRevocationBus(this.loopback, Collections.emptyList(), null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("key cannot be null");
+	}
+
+	@Test
+	public void constructorWhenKeyTooShortThenThrowIllegalArgumentException() {
+		SecretKey key = new SecretKeySpec(new byte[16], "HmacSHA256");
+		assertThatThrownBy(() -> new DatagramTokenRevocationBus(this.loopback, Collections.emptyList(), key))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("key must be at least 256 bits");
+	}
+
+	@Test
+	public void publishWhenRevocationThenDeliveredToLocalAndPeerListeners() throws Exception {
+		BlockingQueue<TokenRevocation> local = new LinkedBlockingQueue<>();
+		BlockingQueue<TokenRevocation> peer = new LinkedBlockingQueue<>();
+		this.publishingBus.subscribe(local::add);
+		this.receivingBus.subscribe(peer::add);
+		TokenRevocation revocation = new TokenRevocation(TokenDigest.of("token"),
+				Instant.ofEpochSecond(Instant.now().plusSeconds(60).getEpochSecond()));
+
+		this.publishingBus.publish(revocation);
+
+		assertThat(local.poll(5, TimeUnit.SECONDS)).isEqualTo(revocation);
+		assertThat(peer.poll(5, TimeUnit.SECONDS)).isEqualTo(revocation);
+	}
+
+	@Test
+	public void publishWhenPeerSubscribedRevocationListThenRevoked() throws Exception {
+		TokenRevocationList revocationList = new TokenRevocationList();
+		BlockingQueue<TokenRevocation> peer = new LinkedBlockingQueue<>();
+		this.receivingBus.subscribe(revocationList);
+		this.receivingBus.subscribe(peer::add);
+
+		this.publishingBus.publish(new TokenRevocation(TokenDigest.of("token"), Instant.now().plusSeconds(60)));
+
+		assertThat(peer.poll(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(revocationList.isRevoked("token")).isTrue();
+	}
+
+	@Test
+	public void receiveWhenDatagramNotAuthenticatedThenDropped() throws Exception {
+		BlockingQueue<TokenRevocation> peer = new LinkedBlockingQueue<>();
+		this.receivingBus.subscribe(peer::add);
+		TokenRevocation revocation = new TokenRevocation(TokenDigest.of("token"),
+				Instant.ofEpochSecond(Instant.now().plusSeconds(60).getEpochSecond()));
+		try (DatagramTokenRevocationBus forgingBus = new DatagramTokenRevocationBus(this.loopback,
+				Collections.singletonList(this.receivingBus.getLocalAddress()), key())) {
+			forgingBus.publish(new TokenRevocation(TokenDigest.of("forged"), revocation.getExpiresAt()));
+		}
+
+		this.publishingBus.publish(revocation);
+
+		assertThat(peer.poll(5, TimeUnit.SECONDS)).isEqualTo(revocation);
+		assertThat(peer).isEmpty();
+	}
+
+	private static SecretKey key() {
+		byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		return new SecretKeySpec(key, "HmacSHA256");
+	}
+}
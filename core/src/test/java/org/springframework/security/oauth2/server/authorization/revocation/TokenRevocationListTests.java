@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.revocation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TokenRevocationList}.
+ */
+public class TokenRevocationListTests {
+	private TokenRevocationList revocationList;
+	private Instant now;
+
+	@Before
+	public void setUp() {
+		this.revocationList = new TokenRevocationList();
+		this.now = Instant.now();
+		this.revocationList.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void isRevokedWhenNotRevokedThenFalse() {
+		assertThat(this.revocationList.isRevoked("token")).isFalse();
+	}
+
+	@Test
+	public void isRevokedWhenRevokedThenTrue() {
+		this.revocationList.onRevocation(new TokenRevocation(TokenDigest.of("token"), this.now.plusSeconds(60)));
+
+		assertThat(this.revocationList.isRevoked("token")).isTrue();
+		assertThat(this.revocationList.isRevoked("other-token")).isFalse();
+	}
+
+	@Test
+	public void isRevokedWhenRevokedTokenExpiredThenFalse() {
+		this.revocationList.onRevocation(new TokenRevocation(TokenDigest.of("token"), this.now.plusSeconds(60)));
+		this.revocationList.setClock(Clock.fixed(this.now.plusSeconds(60), ZoneOffset.UTC));
+
+		assertThat(this.revocationList.isRevoked("token")).isFalse();
+	}
+
+	@Test
+	public void purgeWhenRevokedTokenExpiredThenRemoved() {
+		this.revocationList.onRevocation(new TokenRevocation(TokenDigest.of("token1"), this.now.plusSeconds(60)));
+		this.revocationList.onRevocation(new TokenRevocation(TokenDigest.of("token2"), this.now.plusSeconds(120)));
+		this.revocationList.setClock(Clock.fixed(this.now.plusSeconds(60), ZoneOffset.UTC));
+
+		this.revocationList.purge();
+
+		assertThat(this.revocationList.size()).isEqualTo(1);
+		assertThat(this.revocationList.isRevoked("token2")).isTrue();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.stats;
+
+import org.junit.Test;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics.ClientStatistics;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ClientTrafficStatistics}.
+ */
+public class ClientTrafficStatisticsTests {
+
+	@Test
+	public void constructorWhenMaxTopClientsNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new ClientTrafficStatistics(1024, 4, 0))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("maxTopClients must be greater than 0");
+	}
+
+	@Test
+	public void recordAuthorizationRequestWhenClientIdEmptyThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new ClientTrafficStatistics().recordAuthorizationRequest(""))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientId cannot be empty");
+	}
+
+	@Test
+	public void recordWhenRequestsThenCountedPerEndpoint() {
+		ClientTrafficStatistics statistics = new ClientTrafficStatistics();
+
+		statistics.recordAuthorizationRequest("client-1");
+		statistics.recordTokenRequest("client-1");
+		statistics.recordTokenRequest("client-1");
+		statistics.recordTokenRequest("client-2");
+
+		assertThat(statistics.getAuthorizationRequestCount()).isEqualTo(1);
+		assertThat(statistics.getTokenRequestCount()).isEqualTo(3);
+		ClientStatistics clientStatistics = statistics.getClientStatistics("client-1");
+		assertThat(clientStatistics.getAuthorizationRequests()).isEqualTo(1);
+		assertThat(clientStatistics.getTokenRequests()).isEqualTo(2);
+		assertThat(clientStatistics.getTotalRequests()).isEqualTo(3);
+		assertThat(statistics.getTopClients()).extracting(ClientStatistics::getClientId)
+				.containsExactly("client-1", "client-2");
+	}
+
+	@Test
+	public void getTopClientsWhenManyClientsThenHeavyHittersTracked() {
+		ClientTrafficStatistics statistics = new ClientTrafficStatistics(2048, 4, 5);
+		Random random = new Random(42);
+		for (int i = 0; i < 200_000; i++) {
+			statistics.recordTokenRequest("client-" + random.nextInt(100_000));
+			if (i % 10 == 0) {
+				statistics.recordTokenRequest("heavy-" + (i / 10) % 3);
+			}
+		}
+
+		List<ClientStatistics> topClients = statistics.getTopClients();
+		assertThat(topClients).hasSize(5)
+				.extracting(ClientStatistics::getClientId)
+				.doesNotHaveDuplicates();
+		assertThat(topClients.subList(0, 3)).extracting(ClientStatistics::getClientId)
+				.containsExactlyInAnyOrder("heavy-0", "heavy-1", "heavy-2");
+		assertThat(statistics.getClientStatistics("heavy-0").getTokenRequests())
+				.isBetween(6667L, 6667L + statistics.getMaximumOverestimate());
+	}
+
+	@Test
+	public void getTopClientsWhenRecordedConcurrentlyThenHeavyHittersTracked() throws Exception {
+		ClientTrafficStatistics statistics = new ClientTrafficStatistics(2048, 4, 3);
+		int threads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			int seed = t;
+			executor.execute(() -> {
+				Random random = new Random(seed);
+				for (int i = 0; i < 50_000; i++) {
+					statistics.recordAuthorizationRequest("client-" + random.nextInt(10_000));
+					statistics.recordTokenRequest("heavy-" + i % 2);
+				}
+				done.countDown();
+			});
+		}
+		assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+
+		assertThat(statistics.getTokenRequestCount()).isEqualTo(200_000);
+		assertThat(statistics.getTopClients().subList(0, 2)).extracting(ClientStatistics::getClientId)
+				.containsExactlyInAnyOrder("heavy-0", "heavy-1");
+		assertThat(statistics.getClientStatistics("heavy-0").getTokenRequests()).isGreaterThanOrEqualTo(100_000);
+	}
+
+	@Test
+	public void resetWhenRequestsRecordedThenCleared() {
+		ClientTrafficStatistics statistics = new ClientTrafficStatistics();
+		statistics.recordAuthorizationRequest("client-1");
+
+		statistics.reset();
+
+		assertThat(statistics.getAuthorizationRequestCount()).isEqualTo(0);
+		assertThat(statistics.getClientStatistics("client-1").getTotalRequests()).isEqualTo(0);
+		assertThat(statistics.getTopClients()).isEmpty();
+	}
+}
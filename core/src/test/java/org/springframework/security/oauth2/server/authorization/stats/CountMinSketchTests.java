@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.stats;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CountMinSketch}.
+ */
+public class CountMinSketchTests {
+
+	@Test
+	public void constructorWhenWidthNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new CountMinSketch(0, 4))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("width must be greater than 0");
+	}
+
+	@Test
+	public void constructorWhenDepthNotPositiveThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new CountMinSketch(1024, 0))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("depth must be greater than 0");
+	}
+
+	@Test
+	public void addWhenItemNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new CountMinSketch(1024, 4).add(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("item cannot be null");
+	}
+
+	@Test
+	public void addWhenFewItemsThenEstimatesExact() {
+		CountMinSketch sketch = new CountMinSketch(1024, 4);
+
+		assertThat(sketch.add("client-1")).isEqualTo(1);
+		assertThat(sketch.add("client-1")).isEqualTo(2);
+		assertThat(sketch.add("client-2")).isEqualTo(1);
+
+		assertThat(sketch.estimate("client-1")).isEqualTo(2);
+		assertThat(sketch.estimate("client-2")).isEqualTo(1);
+		assertThat(sketch.estimate("client-3")).isEqualTo(0);
+		assertThat(sketch.getTotalCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void estimateWhenManyItemsThenNotUnderestimatedAndWithinErrorBound() {
+		CountMinSketch sketch = new CountMinSketch(1024, 4);
+		Map<String, Integer> counts = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 200_000; i++) {
+			String item = "client-" + random.nextInt(50_000);
+			sketch.add(item);
+			counts.merge(item, 1, Integer::sum);
+		}
+
+		long errorBound = (long) Math.ceil(Math.E / sketch.getWidth() * sketch.getTotalCount());
+		int exceedingErrorBound = 0;
+		for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+			long estimate = sketch.estimate(entry.getKey());
+			assertThat(estimate).isGreaterThanOrEqualTo(entry.getValue());
+			if (estimate - entry.getValue() > errorBound) {
+				exceedingErrorBound++;
+			}
+		}
+		// at most e^-depth (~1.8%) of the estimates may exceed the error bound
+		assertThat(exceedingErrorBound).isLessThan(counts.size() / 50);
+	}
+
+	@Test
+	public void resetWhenItemsAddedThenCountersCleared() {
+		CountMinSketch sketch = new CountMinSketch(1024, 4);
+		sketch.add("client-1");
+
+		sketch.reset();
+
+		assertThat(sketch.estimate("client-1")).isEqualTo(0);
+		assertThat(sketch.getTotalCount()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.jose.PooledJwsSigningService;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link JwtAccessTokenGenerator}.
+ */
+public class JwtAccessTokenGeneratorTests {
+	private static RSAKey rsaKey;
+	private static ECKey ecKey;
+	private final RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+
+	@BeforeClass
+	public static void generateKeys() throws Exception {
+		rsaKey = new RSAKeyGenerator(2048).keyID("rsa-key").generate();
+		ecKey = new ECKeyGenerator(Curve.P_256).keyID("ec-key").generate();
+	}
+
+	@Test
+	public void constructorWhenSigningKeyNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new JwtAccessTokenGenerator((RSAKey) null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("signingKey cannot be null");
+	}
+
+	@Test
+	public void constructorWhenPublicKeyThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new JwtAccessTokenGenerator(rsaKey.toPublicJWK()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("signingKey must contain a private key");
+	}
+
+	@Test
+	public void generateWhenRsaKeyThenSignedWithRs256() throws Exception {
+		JwtAccessTokenGenerator generator = new JwtAccessTokenGenerator(rsaKey);
+		generator.setIssuer("https://provider.com");
+		OAuth2TokenContext context = tokenContext();
+
+		OAuth2AccessToken accessToken = generator.generate(context);
+
+		assertThat(accessToken.getTokenType()).isEqualTo(OAuth2AccessToken.TokenType.BEARER);
+		assertThat(accessToken.getIssuedAt()).isEqualTo(context.getIssuedAt());
+		assertThat(accessToken.getExpiresAt()).isEqualTo(context.getExpiresAt());
+		assertThat(accessToken.getScopes()).isEqualTo(this.registeredClient.getScopes());
+
+		SignedJWT jwt = SignedJWT.parse(accessToken.getTokenValue());
+		assertThat(jwt.getHeader().getAlgorithm()).isEqualTo(JWSAlgorithm.RS256);
+		assertThat(jwt.getHeader().getKeyID()).isEqualTo("rsa-key");
+		assertThat(jwt.verify(new RSASSAVerifier(rsaKey.toPublicJWK()))).isTrue();
+
+		JWTClaimsSet claims = jwt.getJWTClaimsSet();
+		assertThat(claims.getIssuer()).isEqualTo("https://provider.com");
+		assertThat(claims.getSubject()).isEqualTo("principal");
+		assertThat(claims.getAudience()).containsExactly(this.registeredClient.getClientId());
+		assertThat(claims.getStringClaim("client_id")).isEqualTo(this.registeredClient.getClientId());
+		assertThat(claims.getIssueTime()).isEqualTo(Date.from(context.getIssuedAt()));
+		assertThat(claims.getExpirationTime()).isEqualTo(Date.from(context.getExpiresAt()));
+		assertThat(claims.getJWTID()).isNotEmpty();
+		assertThat(claims.getStringClaim("scope")).isEqualTo("openid profile email");
+	}
+
+	@Test
+	public void generateWhenEcKeyThenSignedWithEs256() throws Exception {
+		JwtAccessTokenGenerator generator = new JwtAccessTokenGenerator(ecKey);
+
+		OAuth2AccessToken accessToken = generator.generate(tokenContext());
+
+		SignedJWT jwt = SignedJWT.parse(accessToken.getTokenValue());
+		assertThat(jwt.getHeader().getAlgorithm()).isEqualTo(JWSAlgorithm.ES256);
+		assertThat(jwt.verify(new ECDSAVerifier(ecKey.toPublicJWK()))).isTrue();
+		assertThat(jwt.getJWTClaimsSet().getIssuer()).isNull();
+	}
+
+	@Test
+	public void generateWhenSigningKeyChangesThenSignedWithNewKey() throws Exception {
+		AtomicReference<com.nimbusds.jose.jwk.JWK> signingKey = new AtomicReference<>(rsaKey);
+		JwtAccessTokenGenerator generator = new JwtAccessTokenGenerator(signingKey::get);
+
+		assertThat(SignedJWT.parse(generator.generate(tokenContext()).getTokenValue())
+				.getHeader().getKeyID()).isEqualTo("rsa-key");
+
+		signingKey.set(ecKey);
+		assertThat(SignedJWT.parse(generator.generate(tokenContext()).getTokenValue())
+				.getHeader().getKeyID()).isEqualTo("ec-key");
+	}
+
+	@Test
+	public void generateWhenX509CertificateThumbprintThenCertificateBound() throws Exception {
+		JwtAccessTokenGenerator generator = new JwtAccessTokenGenerator(ecKey);
+		OAuth2TokenContext tokenContext = OAuth2TokenContext.withRegisteredClient(this.registeredClient)
+				.principalName("principal")
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plus(Duration.ofMinutes(5)))
+				.x509CertificateThumbprint("thumbprint")
+				.build();
+
+		SignedJWT jwt = SignedJWT.parse(generator.generate(tokenContext).getTokenValue());
+
+		assertThat(jwt.getJWTClaimsSet().getJSONObjectClaim("cnf")).containsEntry("x5t#S256", "thumbprint");
+	}
+
+	@Test
+	public void generateWhenPooledSigningServiceThenSignedByPool() throws Exception {
+		JwtAccessTokenGenerator generator = new JwtAccessTokenGenerator(rsaKey);
+		PooledJwsSigningService signingService = new PooledJwsSigningService(2, 16, 4);
+		generator.setSigningService(signingService);
+		try {
+			SignedJWT jwt = SignedJWT.parse(generator.generate(tokenContext()).getTokenValue());
+
+			assertThat(jwt.verify(new RSASSAVerifier(rsaKey.toRSAPublicKey()))).isTrue();
+			assertThat(signingService.getStatistics().getSignedCount()).isEqualTo(1);
+		} finally {
+			signingService.close();
+		}
+	}
+
+	@Test
+	public void generateWhenSigningRejectedThenThrowTemporarilyUnavailable() {
+		JwtAccessTokenGenerator generator = new JwtAccessTokenGenerator(rsaKey);
+		generator.setSigningService((signer, header, signingInput) -> {
+			throw new RejectedExecutionException("The signing queue is full");
+		});
+
+		assertThatThrownBy(() -> generator.generate(tokenContext()))
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.extracting(ex -> ((OAuth2AuthenticationException) ex).getError().getErrorCode())
+				.isEqualTo(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE);
+	}
+
+	private OAuth2TokenContext tokenContext() {
+		Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		return OAuth2TokenContext.withRegisteredClient(this.registeredClient)
+				.principalName("principal")
+				.scopes(scopes -> scopes.addAll(this.registeredClient.getScopes()))
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plus(Duration.ofMinutes(5)))
+				.build();
+	}
+}
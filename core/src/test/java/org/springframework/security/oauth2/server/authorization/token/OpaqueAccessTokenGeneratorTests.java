@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.token;
+
+import org.junit.Test;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link OpaqueAccessTokenGenerator}.
+ */
+public class OpaqueAccessTokenGeneratorTests {
+
+	@Test
+	public void constructorWhenKeyLengthTooShortThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OpaqueAccessTokenGenerator(8))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("keyLength must be greater than or equal to 16");
+	}
+
+	@Test
+	public void generateWhenContextThenOpaqueAccessToken() {
+		Instant issuedAt = Instant.now();
+		OAuth2TokenContext context = OAuth2TokenContext.withRegisteredClient(TestRegisteredClients.registeredClient().build())
+				.principalName("principal")
+				.scopes(scopes -> scopes.add("openid"))
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plus(Duration.ofMinutes(5)))
+				.build();
+		OpaqueAccessTokenGenerator generator = new OpaqueAccessTokenGenerator();
+
+		OAuth2AccessToken accessToken = generator.generate(context);
+
+		assertThat(accessToken.getTokenType()).isEqualTo(OAuth2AccessToken.TokenType.BEARER);
+		assertThat(Base64.getUrlDecoder().decode(accessToken.getTokenValue())).hasSize(32);
+		assertThat(accessToken.getIssuedAt()).isEqualTo(issuedAt);
+		assertThat(accessToken.getExpiresAt()).isEqualTo(context.getExpiresAt());
+		assertThat(accessToken.getScopes()).containsExactly("openid");
+		assertThat(generator.generate(context).getTokenValue()).isNotEqualTo(accessToken.getTokenValue());
+	}
+}
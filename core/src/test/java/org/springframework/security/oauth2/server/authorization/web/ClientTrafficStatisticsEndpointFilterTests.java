@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link ClientTrafficStatisticsEndpointFilter}.
+ */
+public class ClientTrafficStatisticsEndpointFilterTests {
+	private static final String ENDPOINT_URI =
+			ClientTrafficStatisticsEndpointFilter.DEFAULT_CLIENT_TRAFFIC_STATISTICS_ENDPOINT_URI;
+	private static final String REQUIRED_AUTHORITY = "ROLE_ACTUATOR";
+	private ClientTrafficStatistics clientTrafficStatistics;
+	private ClientTrafficStatisticsEndpointFilter filter;
+
+	@Before
+	public void setUp() {
+		this.clientTrafficStatistics = new ClientTrafficStatistics();
+		this.filter = new ClientTrafficStatisticsEndpointFilter(this.clientTrafficStatistics, REQUIRED_AUTHORITY);
+		SecurityContextHolder.getContext().setAuthentication(
+				new TestingAuthenticationToken("operator", null, REQUIRED_AUTHORITY));
+	}
+
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void constructorWhenClientTrafficStatisticsNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new ClientTrafficStatisticsEndpointFilter(null, REQUIRED_AUTHORITY))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientTrafficStatistics cannot be null");
+	}
+
+	@Test
+	public void constructorWhenEndpointUriEmptyThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new ClientTrafficStatisticsEndpointFilter(this.clientTrafficStatistics, "", REQUIRED_AUTHORITY))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientTrafficStatisticsEndpointUri cannot be empty");
+	}
+
+	@Test
+	public void constructorWhenRequiredAuthorityEmptyThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new ClientTrafficStatisticsEndpointFilter(this.clientTrafficStatistics, ""))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("requiredAuthority cannot be empty");
+	}
+
+	@Test
+	public void doFilterWhenNotStatisticsRequestThenNotProcessed() throws Exception {
+		MockHttpServletRequest request = createRequest("GET", "/path");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verify(filterChain).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenStatisticsRequestThenTopClientsReturned() throws Exception {
+		this.clientTrafficStatistics.recordAuthorizationRequest("client-1");
+		this.clientTrafficStatistics.recordTokenRequest("client-1");
+		this.clientTrafficStatistics.recordTokenRequest("client-2");
+		MockHttpServletRequest request = createRequest("GET", ENDPOINT_URI);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+		assertThat(response.getContentAsString())
+				.startsWith("{\"authorizationRequests\":1,\"tokenRequests\":2,")
+				.contains("\"topClients\":[{\"clientId\":\"client-1\",\"authorizationRequests\":1,\"tokenRequests\":1,\"totalRequests\":2}," +
+						"{\"clientId\":\"client-2\",\"authorizationRequests\":0,\"tokenRequests\":1,\"totalRequests\":1}]");
+	}
+
+	@Test
+	public void doFilterWhenClientStatisticsRequestThenClientStatisticsReturned() throws Exception {
+		this.clientTrafficStatistics.recordTokenRequest("client-1");
+		MockHttpServletRequest request = createRequest("GET", ENDPOINT_URI + "/client-1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).isEqualTo(
+				"{\"clientId\":\"client-1\",\"authorizationRequests\":0,\"tokenRequests\":1,\"totalRequests\":1}");
+	}
+
+	@Test
+	public void doFilterWhenResetRequestThenStatisticsReset() throws Exception {
+		this.clientTrafficStatistics.recordTokenRequest("client-1");
+		MockHttpServletRequest request = createRequest("DELETE", ENDPOINT_URI);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NO_CONTENT.value());
+		assertThat(this.clientTrafficStatistics.getTokenRequestCount()).isEqualTo(0);
+		assertThat(this.clientTrafficStatistics.getTopClients()).isEmpty();
+	}
+
+	@Test
+	public void doFilterWhenNotAuthenticatedThenForbidden() throws Exception {
+		SecurityContextHolder.clearContext();
+		this.clientTrafficStatistics.recordTokenRequest("client-1");
+		MockHttpServletRequest request = createRequest("GET", ENDPOINT_URI);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+		assertThat(response.getContentAsString()).isEmpty();
+	}
+
+	@Test
+	public void doFilterWhenAnonymousThenForbidden() throws Exception {
+		SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+				"key", "anonymous", AuthorityUtils.createAuthorityList(REQUIRED_AUTHORITY)));
+		MockHttpServletRequest request = createRequest("GET", ENDPOINT_URI + "/client-1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+	}
+
+	@Test
+	public void doFilterWhenResetRequestWithoutRequiredAuthorityThenForbiddenAndNotReset() throws Exception {
+		SecurityContextHolder.getContext().setAuthentication(
+				new TestingAuthenticationToken("user", null, "ROLE_USER"));
+		this.clientTrafficStatistics.recordTokenRequest("client-1");
+		MockHttpServletRequest request = createRequest("DELETE", ENDPOINT_URI);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+		assertThat(this.clientTrafficStatistics.getTokenRequestCount()).isEqualTo(1);
+	}
+
+	private static MockHttpServletRequest createRequest(String method, String requestUri) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, requestUri);
+		request.setServletPath(requestUri);
+		return request;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.only;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link JwkSetEndpointFilter}.
+ */
+public class JwkSetEndpointFilterTests {
+	private JWK jwk;
+	private JwkSetEndpointFilter filter;
+
+	@Before
+	public void setUp() throws Exception {
+		this.jwk = new RSAKeyGenerator(2048).keyID("endpoint-test").keyUse(KeyUse.SIGNATURE).generate();
+		this.filter = new JwkSetEndpointFilter(new JWKSet(this.jwk));
+	}
+
+	@Test
+	public void constructorWhenJwkSetNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new JwkSetEndpointFilter((JWKSet) null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("jwkSet cannot be null");
+	}
+
+	@Test
+	public void constructorWhenJwkSetSupplierNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new JwkSetEndpointFilter((Supplier<JWKSet>) null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("jwkSetSupplier cannot be null");
+	}
+
+	@Test
+	public void constructorWhenJwkSetEndpointUriEmptyThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new JwkSetEndpointFilter(new JWKSet(this.jwk), ""))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("jwkSetEndpointUri cannot be empty");
+	}
+
+	@Test
+	public void doFilterWhenNotJwkSetRequestThenNotProcessed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/path");
+		request.setServletPath("/path");
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verify(filterChain, only()).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenJwkSetRequestThenPublicKeysReturned() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(createJwkSetRequest(), response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("public, max-age=300");
+		assertThat(response.getHeader("ETag")).startsWith("\"").endsWith("\"");
+		JWKSet jwkSet = JWKSet.parse(response.getContentAsString());
+		assertThat(jwkSet.getKeys()).hasSize(1);
+		assertThat(jwkSet.getKeys().get(0).getKeyID()).isEqualTo(this.jwk.getKeyID());
+		assertThat(jwkSet.getKeys().get(0).isPrivate()).isFalse();
+	}
+
+	@Test
+	public void doFilterWhenIfNoneMatchCurrentETagThenNotModified() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(createJwkSetRequest(), response, mock(FilterChain.class));
+		String etag = response.getHeader("ETag");
+
+		MockHttpServletRequest request = createJwkSetRequest();
+		request.addHeader("If-None-Match", "\"other\", " + etag);
+		response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+		assertThat(response.getHeader("ETag")).isEqualTo(etag);
+		assertThat(response.getContentLength()).isZero();
+	}
+
+	@Test
+	public void doFilterWhenIfNoneMatchStaleETagThenPublicKeysReturned() throws Exception {
+		MockHttpServletRequest request = createJwkSetRequest();
+		request.addHeader("If-None-Match", "\"stale\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).contains(this.jwk.getKeyID());
+	}
+
+	@Test
+	public void doFilterWhenJwkSetChangedThenReserializedWithNewETag() throws Exception {
+		AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet(this.jwk));
+		JwkSetEndpointFilter filter = new JwkSetEndpointFilter(jwkSet::get);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(createJwkSetRequest(), response, mock(FilterChain.class));
+		String etag = response.getHeader("ETag");
+
+		JWK rotatedJwk = new RSAKeyGenerator(2048).keyID("rotated").keyUse(KeyUse.SIGNATURE).generate();
+		jwkSet.set(new JWKSet(rotatedJwk));
+		MockHttpServletRequest request = createJwkSetRequest();
+		request.addHeader("If-None-Match", etag);
+		response = new MockHttpServletResponse();
+		filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader("ETag")).isNotEqualTo(etag);
+		assertThat(response.getContentAsString()).contains("rotated");
+	}
+
+	@Test
+	public void doFilterWhenCacheMaxAgeSetThenCacheControlMaxAge() throws Exception {
+		this.filter.setCacheMaxAge(Duration.ofMinutes(1));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createJwkSetRequest(), response, mock(FilterChain.class));
+
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("public, max-age=60");
+	}
+
+	private static MockHttpServletRequest createJwkSetRequest() {
+		String requestUri = JwkSetEndpointFilter.DEFAULT_JWK_SET_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		request.setServletPath(requestUri);
+		return request;
+	}
+}
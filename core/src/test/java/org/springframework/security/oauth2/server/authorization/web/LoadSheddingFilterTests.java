@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.server.authorization.ratelimit.AdaptiveConcurrencyLimiter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link LoadSheddingFilter}.
+ */
+public class LoadSheddingFilterTests {
+	private static final String TOKEN_ENDPOINT_URI = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+	private LoadSheddingFilter filter;
+
+	@Before
+	public void setUp() {
+		this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(1, 10);
+		this.filter = new LoadSheddingFilter(this.concurrencyLimiter, new AntPathRequestMatcher(TOKEN_ENDPOINT_URI));
+	}
+
+	@Test
+	public void constructorWhenConcurrencyLimiterNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new LoadSheddingFilter(null, new AntPathRequestMatcher(TOKEN_ENDPOINT_URI)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("concurrencyLimiter cannot be null");
+	}
+
+	@Test
+	public void setRetryAfterWhenLessThanOneSecondThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setRetryAfter(Duration.ofMillis(500)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("retryAfter must be at least 1 second");
+	}
+
+	@Test
+	public void doFilterWhenNotMatchingRequestThenNotLimited() throws Exception {
+		this.concurrencyLimiter.tryAcquire();
+		MockHttpServletRequest request = createRequest("/path");
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verify(filterChain).doFilter(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenPermitAcquiredThenProcessedAndReleased() throws Exception {
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(createRequest(TOKEN_ENDPOINT_URI), new MockHttpServletResponse(), filterChain);
+
+		verify(filterChain).doFilter(any(), any());
+		assertThat(this.concurrencyLimiter.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void doFilterWhenProcessingFailsThenReleased() throws Exception {
+		FilterChain filterChain = mock(FilterChain.class);
+		doThrow(new ServletException("failed")).when(filterChain).doFilter(any(), any());
+
+		assertThatThrownBy(() -> this.filter.doFilter(createRequest(TOKEN_ENDPOINT_URI), new MockHttpServletResponse(), filterChain))
+				.isInstanceOf(ServletException.class);
+		assertThat(this.concurrencyLimiter.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void doFilterWhenLimitReachedThenServiceUnavailable() throws Exception {
+		this.filter.setRetryAfter(Duration.ofSeconds(5));
+		this.concurrencyLimiter.tryAcquire();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(createRequest(TOKEN_ENDPOINT_URI), response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+		assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-store");
+		assertThat(response.getContentAsString()).contains("\"error\":\"temporarily_unavailable\"");
+	}
+
+	private static MockHttpServletRequest createRequest(String requestUri) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		return request;
+	}
+}
@@ -26,29 +26,39 @@ import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponseType;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.endpoint.PkceParameterNames;
 import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.ratelimit.ClientRateLimiter;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics;
 import org.springframework.util.StringUtils;
 
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -383,6 +393,207 @@ public class OAuth2AuthorizationEndpointFilterTests {
 		assertThat(authorizationRequest.getAdditionalParameters()).isEmpty();
 	}
 
+	@Test
+	public void doFilterWhenAuthorizationRequestInvalidCodeChallengeMethodThenInvalidRequestError() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		request.addParameter(PkceParameterNames.CODE_CHALLENGE, "E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM");
+		request.addParameter(PkceParameterNames.CODE_CHALLENGE_METHOD, "S512");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		verifyNoInteractions(this.authorizationService);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.FOUND.value());
+		assertThat(response.getRedirectedUrl()).matches("https://example.com\\?" +
+				"error=invalid_request&" +
+				"error_description=OAuth%202.0%20Parameter:%20code_challenge_method&" +
+				"error_uri=https://tools.ietf.org/html/rfc6749%23section-4.1.2.1&" +
+				"state=state");
+	}
+
+	@Test
+	public void doFilterWhenAuthorizationRequestCodeChallengeMethodWithoutCodeChallengeThenInvalidRequestError() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		request.addParameter(PkceParameterNames.CODE_CHALLENGE_METHOD, "S256");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		verifyNoInteractions(this.authorizationService);
+		assertThat(response.getRedirectedUrl()).contains("error=invalid_request");
+	}
+
+	@Test
+	public void doFilterWhenAuthorizationRequestWithCodeChallengeThenCodeChallengeStored() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		request.addParameter(PkceParameterNames.CODE_CHALLENGE, "E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM");
+		request.addParameter(PkceParameterNames.CODE_CHALLENGE_METHOD, "S256");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.FOUND.value());
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).save(authorizationCaptor.capture());
+		OAuth2Authorization authorization = authorizationCaptor.getValue();
+		assertThat(authorization.<String>getAttribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE))
+				.isEqualTo("E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM");
+		assertThat(authorization.<String>getAttribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD))
+				.isEqualTo("S256");
+		OAuth2AuthorizationRequest authorizationRequest = authorization.getAttribute(OAuth2AuthorizationAttributeNames.AUTHORIZATION_REQUEST);
+		assertThat(authorizationRequest.getAdditionalParameters()).isEmpty();
+	}
+
+	@Test
+	public void doFilterWhenAuthorizationRequestWithCodeChallengeAndNoMethodThenPlain() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		request.addParameter(PkceParameterNames.CODE_CHALLENGE, "dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk");
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		ArgumentCaptor<OAuth2Authorization> authorizationCaptor = ArgumentCaptor.forClass(OAuth2Authorization.class);
+		verify(this.authorizationService).save(authorizationCaptor.capture());
+		assertThat(authorizationCaptor.getValue().<String>getAttribute(OAuth2AuthorizationAttributeNames.CODE_CHALLENGE_METHOD))
+				.isEqualTo("plain");
+	}
+
+	@Test
+	public void setAuthorizationEndpointListenerWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setAuthorizationEndpointListener(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorizationEndpointListener cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenAuthorizationRequestValidThenListenerNotifiedAuthorizationCodeIssued() throws Exception {
+		OAuth2AuthorizationEndpointListener listener = mock(OAuth2AuthorizationEndpointListener.class);
+		this.filter.setAuthorizationEndpointListener(listener);
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		verify(listener).onAuthorizationCodeIssued(anyLong());
+		verifyNoMoreInteractions(listener);
+	}
+
+	@Test
+	public void doFilterWhenAuthorizationRequestInvalidThenListenerNotifiedAuthorizationError() throws Exception {
+		OAuth2AuthorizationEndpointListener listener = mock(OAuth2AuthorizationEndpointListener.class);
+		this.filter.setAuthorizationEndpointListener(listener);
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		ArgumentCaptor<OAuth2Error> errorCaptor = ArgumentCaptor.forClass(OAuth2Error.class);
+		verify(listener).onAuthorizationError(errorCaptor.capture(), anyLong());
+		verifyNoMoreInteractions(listener);
+		assertThat(errorCaptor.getValue().getErrorCode()).isEqualTo(OAuth2ErrorCodes.INVALID_REQUEST);
+	}
+
+	@Test
+	public void doFilterWhenPrincipalNotAuthenticatedThenListenerNotifiedAuthenticationRequired() throws Exception {
+		OAuth2AuthorizationEndpointListener listener = mock(OAuth2AuthorizationEndpointListener.class);
+		this.filter.setAuthorizationEndpointListener(listener);
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+		this.authentication.setAuthenticated(false);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		FilterChain filterChain = mock(FilterChain.class);
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verify(filterChain).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+		verify(listener).onAuthenticationRequired(anyLong());
+		verifyNoMoreInteractions(listener);
+	}
+
+	@Test
+	public void setClientTrafficStatisticsWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setClientTrafficStatistics(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientTrafficStatistics cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenRegisteredClientFoundThenAuthorizationRequestRecorded() throws Exception {
+		ClientTrafficStatistics clientTrafficStatistics = new ClientTrafficStatistics();
+		this.filter.setClientTrafficStatistics(clientTrafficStatistics);
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		assertThat(clientTrafficStatistics.getAuthorizationRequestCount()).isEqualTo(1);
+		assertThat(clientTrafficStatistics.getClientStatistics(registeredClient.getClientId())
+				.getAuthorizationRequests()).isEqualTo(1);
+	}
+
+	@Test
+	public void doFilterWhenRegisteredClientNotFoundThenAuthorizationRequestNotRecorded() throws Exception {
+		ClientTrafficStatistics clientTrafficStatistics = new ClientTrafficStatistics();
+		this.filter.setClientTrafficStatistics(clientTrafficStatistics);
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		assertThat(clientTrafficStatistics.getAuthorizationRequestCount()).isEqualTo(0);
+		assertThat(clientTrafficStatistics.getTopClients()).isEmpty();
+	}
+
+	@Test
+	public void setClientRateLimiterWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setClientRateLimiter(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientRateLimiter cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenClientRateLimitExceededThenTemporarilyUnavailableErrorAndAuthorizationNotSaved() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient()
+				.rateLimit(RateLimit.of(1, Duration.ofMinutes(1)))
+				.build();
+		when(this.registeredClientRepository.findByClientId((eq(registeredClient.getClientId()))))
+				.thenReturn(registeredClient);
+		this.filter.setClientRateLimiter(new ClientRateLimiter());
+		this.filter.doFilter(createAuthorizationRequest(registeredClient), new MockHttpServletResponse(), mock(FilterChain.class));
+		reset(this.authorizationService);
+
+		MockHttpServletRequest request = createAuthorizationRequest(registeredClient);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.FOUND.value());
+		assertThat(response.getRedirectedUrl()).matches("https://example.com\\?error=temporarily_unavailable&error_description=.*&state=state");
+		verifyNoInteractions(this.authorizationService);
+	}
+
 	private static MockHttpServletRequest createAuthorizationRequest(RegisteredClient registeredClient) {
 		String[] redirectUris = registeredClient.getRedirectUris().toArray(new String[0]);
 
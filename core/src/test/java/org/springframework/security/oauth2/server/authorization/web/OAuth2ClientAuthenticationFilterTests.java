@@ -0,0 +1,372 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.TestX509Certificates;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RateLimit;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.ratelimit.ClientRateLimiter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import javax.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2ClientAuthenticationFilter}.
+ */
+public class OAuth2ClientAuthenticationFilterTests {
+	private static final String TOKEN_ENDPOINT_URI = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+	private RegisteredClient registeredClient;
+	private AuthenticationManager authenticationManager;
+	private OAuth2ClientAuthenticationFilter filter;
+
+	@Before
+	public void setUp() {
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+		this.authenticationManager = mock(AuthenticationManager.class);
+		this.filter = new OAuth2ClientAuthenticationFilter(this.authenticationManager,
+				new AntPathRequestMatcher(TOKEN_ENDPOINT_URI));
+	}
+
+	@After
+	public void cleanup() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void constructorWhenAuthenticationManagerNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2ClientAuthenticationFilter(null, new AntPathRequestMatcher(TOKEN_ENDPOINT_URI)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authenticationManager cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenNotMatchingRequestThenNotProcessed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/path");
+		request.setServletPath("/path");
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic("client-1", "secret"));
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verifyNoInteractions(this.authenticationManager);
+		verify(filterChain).doFilter(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenNoClientCredentialsThenNotAuthenticated() throws Exception {
+		MockHttpServletRequest request = createTokenRequest();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verifyNoInteractions(this.authenticationManager);
+		verify(filterChain).doFilter(any(), any());
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void doFilterWhenClientSecretBasicThenAuthenticated() throws Exception {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		when(this.authenticationManager.authenticate(any())).thenReturn(clientPrincipal);
+		MockHttpServletRequest request = createTokenRequest();
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic("client%3A1", "se:cret"));
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		ArgumentCaptor<Authentication> authenticationCaptor = ArgumentCaptor.forClass(Authentication.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		assertThat(authenticationCaptor.getValue().getPrincipal()).isEqualTo("client:1");
+		assertThat(authenticationCaptor.getValue().getCredentials()).isEqualTo("se:cret");
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isSameAs(clientPrincipal);
+		verify(filterChain).doFilter(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenClientSecretPostThenAuthenticated() throws Exception {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		when(this.authenticationManager.authenticate(any())).thenReturn(clientPrincipal);
+		MockHttpServletRequest request = createTokenRequest();
+		request.addParameter(OAuth2ParameterNames.CLIENT_ID, "client-1");
+		request.addParameter(OAuth2ParameterNames.CLIENT_SECRET, "secret");
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		ArgumentCaptor<Authentication> authenticationCaptor = ArgumentCaptor.forClass(Authentication.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		assertThat(authenticationCaptor.getValue().getPrincipal()).isEqualTo("client-1");
+		assertThat(authenticationCaptor.getValue().getCredentials()).isEqualTo("secret");
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isSameAs(clientPrincipal);
+	}
+
+	@Test
+	public void doFilterWhenClientAssertionThenAuthenticated() throws Exception {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		when(this.authenticationManager.authenticate(any())).thenReturn(clientPrincipal);
+		MockHttpServletRequest request = createTokenRequest();
+		request.addParameter("client_assertion_type", "urn:ietf:params:oauth:client-assertion-type:jwt-bearer");
+		request.addParameter("client_assertion", "assertion");
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		ArgumentCaptor<OAuth2ClientAuthenticationToken> authenticationCaptor =
+				ArgumentCaptor.forClass(OAuth2ClientAuthenticationToken.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		assertThat(authenticationCaptor.getValue().getPrincipal()).isNull();
+		assertThat(authenticationCaptor.getValue().getCredentials()).isEqualTo("assertion");
+		assertThat(authenticationCaptor.getValue().getClientAuthenticationMethod())
+				.isEqualTo(OAuth2ClientAuthenticationProvider.PRIVATE_KEY_JWT);
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isSameAs(clientPrincipal);
+	}
+
+	@Test
+	public void doFilterWhenClientAssertionTypeUnsupportedThenInvalidRequestError() throws Exception {
+		MockHttpServletRequest request = createTokenRequest();
+		request.addParameter("client_assertion_type", "urn:ietf:params:oauth:client-assertion-type:saml2-bearer");
+		request.addParameter("client_assertion", "assertion");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		verifyNoInteractions(this.authenticationManager);
+	}
+
+	@Test
+	public void doFilterWhenClientCertificateThenAuthenticated() throws Exception {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		when(this.authenticationManager.authenticate(any())).thenReturn(clientPrincipal);
+		X509Certificate clientCertificate = TestX509Certificates.clientCertificate();
+		MockHttpServletRequest request = createTokenRequest();
+		request.setAttribute("javax.servlet.request.X509Certificate", new X509Certificate[] { clientCertificate });
+		request.addParameter(OAuth2ParameterNames.CLIENT_ID, "client-1");
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		ArgumentCaptor<OAuth2ClientAuthenticationToken> authenticationCaptor =
+				ArgumentCaptor.forClass(OAuth2ClientAuthenticationToken.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		assertThat(authenticationCaptor.getValue().getPrincipal()).isEqualTo("client-1");
+		assertThat(authenticationCaptor.getValue().getCredentials()).isSameAs(clientCertificate);
+		assertThat(authenticationCaptor.getValue().getClientAuthenticationMethod())
+				.isEqualTo(OAuth2ClientAuthenticationProvider.TLS_CLIENT_AUTH);
+	}
+
+	@Test
+	public void doFilterWhenMultipleAuthenticationMethodsThenInvalidRequestError() throws Exception {
+		MockHttpServletRequest request = createTokenRequest();
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic("client-1", "secret"));
+		request.addParameter(OAuth2ParameterNames.CLIENT_SECRET, "secret");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains(OAuth2ErrorCodes.INVALID_REQUEST);
+		verify(filterChain, never()).doFilter(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenInvalidClientCredentialsThenInvalidClientError() throws Exception {
+		when(this.authenticationManager.authenticate(any())).thenThrow(
+				new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT)));
+		MockHttpServletRequest request = createTokenRequest();
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic("client-1", "invalid"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+		assertThat(response.getContentAsString()).contains(OAuth2ErrorCodes.INVALID_CLIENT);
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+		verify(filterChain, never()).doFilter(any(), any());
+	}
+
+	@Test
+	public void setClientRateLimiterWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setClientRateLimiter(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientRateLimiter cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenClientRateLimitExceededThenTooManyRequests() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient()
+				.rateLimit(RateLimit.of(1, Duration.ofMinutes(1)))
+				.build();
+		this.filter.setClientRateLimiter(new ClientRateLimiter());
+		when(this.authenticationManager.authenticate(any())).thenReturn(new OAuth2ClientAuthenticationToken(registeredClient));
+		MockHttpServletRequest request = createTokenRequest();
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic(registeredClient.getClientId(), "secret"));
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+		SecurityContextHolder.clearContext();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+		assertThat(response.getContentAsString()).contains("\"error\":\"temporarily_unavailable\"");
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void doFilterWhenClientIdOfAnotherClientWithInvalidSecretThenRateLimitOfClientNotCharged() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient()
+				.rateLimit(RateLimit.of(1, Duration.ofMinutes(1)))
+				.build();
+		this.filter.setClientRateLimiter(new ClientRateLimiter());
+		when(this.authenticationManager.authenticate(any()))
+				.thenThrow(new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT)));
+		MockHttpServletRequest attackerRequest = createTokenRequest();
+		attackerRequest.setRemoteAddr("192.0.2.1");
+		attackerRequest.addHeader(HttpHeaders.AUTHORIZATION, basic(registeredClient.getClientId(), "invalid"));
+		this.filter.doFilter(attackerRequest, new MockHttpServletResponse(), mock(FilterChain.class));
+		reset(this.authenticationManager);
+
+		when(this.authenticationManager.authenticate(any())).thenReturn(new OAuth2ClientAuthenticationToken(registeredClient));
+		MockHttpServletRequest request = createTokenRequest();
+		request.setRemoteAddr("198.51.100.1");
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic(registeredClient.getClientId(), "secret"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+		this.filter.doFilter(request, response, filterChain);
+
+		verify(filterChain).doFilter(any(), any());
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+	}
+
+	@Test
+	public void doFilterWhenFailedAuthenticationRateLimitExceededThenTooManyRequestsBeforeAuthentication() throws Exception {
+		ClientRateLimiter clientRateLimiter = new ClientRateLimiter();
+		clientRateLimiter.setFailedAuthenticationRateLimit(RateLimit.of(1, Duration.ofMinutes(1)));
+		this.filter.setClientRateLimiter(clientRateLimiter);
+		when(this.authenticationManager.authenticate(any()))
+				.thenThrow(new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT)));
+		MockHttpServletRequest request = createTokenRequest();
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic("unknown-client", "invalid"));
+		MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+		this.filter.doFilter(request, firstResponse, mock(FilterChain.class));
+		assertThat(firstResponse.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+		reset(this.authenticationManager);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(this.authenticationManager);
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void doFilterWhenFailedAuthenticationRateLimitExceededFromSharedAddressThenOtherClientAuthenticated() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient().build();
+		ClientRateLimiter clientRateLimiter = new ClientRateLimiter();
+		clientRateLimiter.setFailedAuthenticationRateLimit(RateLimit.of(1, Duration.ofMinutes(1)));
+		this.filter.setClientRateLimiter(clientRateLimiter);
+		when(this.authenticationManager.authenticate(any()))
+				.thenThrow(new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT)));
+		for (int i = 0; i < 2; i++) {
+			MockHttpServletRequest failingRequest = createTokenRequest();
+			failingRequest.setRemoteAddr("192.0.2.1");
+			failingRequest.addHeader(HttpHeaders.AUTHORIZATION, basic("other-client", "invalid"));
+			this.filter.doFilter(failingRequest, new MockHttpServletResponse(), mock(FilterChain.class));
+		}
+		reset(this.authenticationManager);
+
+		when(this.authenticationManager.authenticate(any())).thenReturn(new OAuth2ClientAuthenticationToken(registeredClient));
+		MockHttpServletRequest request = createTokenRequest();
+		request.setRemoteAddr("192.0.2.1");
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic(registeredClient.getClientId(), "secret"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+		this.filter.doFilter(request, response, filterChain);
+
+		verify(filterChain).doFilter(any(), any());
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(clientRateLimiter.getFailedAuthenticationWaitTime("192.0.2.1", "other-client")).isGreaterThan(0);
+	}
+
+	@Test
+	public void doFilterWhenClientCertificateWithoutClientIdAndRateLimitExceededThenTooManyRequests() throws Exception {
+		RegisteredClient registeredClient = TestRegisteredClients.registeredClient()
+				.rateLimit(RateLimit.of(1, Duration.ofMinutes(1)))
+				.build();
+		this.filter.setClientRateLimiter(new ClientRateLimiter());
+		when(this.authenticationManager.authenticate(any())).thenReturn(new OAuth2ClientAuthenticationToken(registeredClient));
+		MockHttpServletRequest request = createTokenRequest();
+		request.setAttribute("javax.servlet.request.X509Certificate",
+				new X509Certificate[] { TestX509Certificates.clientCertificate() });
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+		SecurityContextHolder.clearContext();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+	}
+
+	private static MockHttpServletRequest createTokenRequest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", TOKEN_ENDPOINT_URI);
+		request.setServletPath(TOKEN_ENDPOINT_URI);
+		return request;
+	}
+
+	private static String basic(String clientId, String clientSecret) {
+		return "Basic " + Base64.getEncoder().encodeToString(
+				(clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+	}
+}
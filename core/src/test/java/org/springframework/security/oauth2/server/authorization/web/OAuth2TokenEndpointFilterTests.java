@@ -0,0 +1,370 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.endpoint.PkceParameterNames;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AuthorizationCodeAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.stats.ClientTrafficStatistics;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2TokenEndpointFilter}.
+ */
+public class OAuth2TokenEndpointFilterTests {
+	private AuthenticationManager authenticationManager;
+	private OAuth2TokenEndpointFilter filter;
+	private RegisteredClient registeredClient;
+	private OAuth2ClientAuthenticationToken clientPrincipal;
+
+	@Before
+	public void setUp() {
+		this.authenticationManager = mock(AuthenticationManager.class);
+		this.filter = new OAuth2TokenEndpointFilter(this.authenticationManager);
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+		this.clientPrincipal = new OAuth2ClientAuthenticationToken(this.registeredClient);
+		SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+		securityContext.setAuthentication(this.clientPrincipal);
+		SecurityContextHolder.setContext(securityContext);
+	}
+
+	@After
+	public void cleanup() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void constructorWhenAuthenticationManagerNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2TokenEndpointFilter(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authenticationManager cannot be null");
+	}
+
+	@Test
+	public void constructorWhenTokenEndpointUriNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2TokenEndpointFilter(this.authenticationManager, null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("tokenEndpointUri cannot be empty");
+	}
+
+	@Test
+	public void doFilterWhenNotTokenRequestThenNotProcessed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/path");
+		request.setServletPath("/path");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verify(filterChain).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenTokenRequestGetThenNotProcessed() throws Exception {
+		String requestUri = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		request.setServletPath(requestUri);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verify(filterChain).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenTokenRequestMissingGrantTypeThenInvalidRequestError() throws Exception {
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+		request.removeParameter(OAuth2ParameterNames.GRANT_TYPE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"invalid_request\"");
+	}
+
+	@Test
+	public void doFilterWhenTokenRequestUnsupportedGrantTypeThenUnsupportedGrantTypeError() throws Exception {
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+		request.setParameter(OAuth2ParameterNames.GRANT_TYPE, "urn:ietf:params:oauth:grant-type:unsupported");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"unsupported_grant_type\"");
+	}
+
+	@Test
+	public void doFilterWhenTokenRequestMissingCodeThenInvalidRequestError() throws Exception {
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+		request.removeParameter(OAuth2ParameterNames.CODE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"invalid_request\"");
+		verifyNoInteractions(this.authenticationManager);
+	}
+
+	@Test
+	public void doFilterWhenAuthenticationFailsThenErrorResponse() throws Exception {
+		when(this.authenticationManager.authenticate(any()))
+				.thenThrow(new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT)));
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"invalid_grant\"");
+	}
+
+	@Test
+	public void doFilterWhenTemporarilyUnavailableThenServiceUnavailableResponse() throws Exception {
+		when(this.authenticationManager.authenticate(any()))
+				.thenThrow(new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE)));
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(response.getContentAsString()).contains("\"error\":\"temporarily_unavailable\"");
+	}
+
+	@Test
+	public void setClientTrafficStatisticsWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setClientTrafficStatistics(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clientTrafficStatistics cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenClientAuthenticatedThenTokenRequestRecorded() throws Exception {
+		ClientTrafficStatistics clientTrafficStatistics = new ClientTrafficStatistics();
+		this.filter.setClientTrafficStatistics(clientTrafficStatistics);
+		when(this.authenticationManager.authenticate(any()))
+				.thenThrow(new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT)));
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+		assertThat(clientTrafficStatistics.getTokenRequestCount()).isEqualTo(1);
+		assertThat(clientTrafficStatistics.getTopClients())
+				.extracting(ClientTrafficStatistics.ClientStatistics::getClientId)
+				.containsExactly(this.registeredClient.getClientId());
+	}
+
+	@Test
+	public void doFilterWhenTokenRequestValidThenAccessTokenResponse() throws Exception {
+		Instant issuedAt = Instant.now();
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"token", issuedAt, issuedAt.plus(Duration.ofHours(1)), Collections.singleton("openid"));
+		when(this.authenticationManager.authenticate(any())).thenReturn(
+				new OAuth2AccessTokenAuthenticationToken(this.registeredClient, this.clientPrincipal, accessToken));
+		MockHttpServletRequest request = createAuthorizationCodeTokenRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, response, filterChain);
+
+		verifyNoInteractions(filterChain);
+		ArgumentCaptor<Authentication> authenticationCaptor = ArgumentCaptor.forClass(Authentication.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		OAuth2AuthorizationCodeAuthenticationToken authorizationCodeAuthentication =
+				(OAuth2AuthorizationCodeAuthenticationToken) authenticationCaptor.getValue();
+		assertThat(authorizationCodeAuthentication.getCode()).isEqualTo("code");
+		assertThat(authorizationCodeAuthentication.getPrincipal()).isEqualTo(this.clientPrincipal);
+		assertThat(authorizationCodeAuthentication.getRedirectUri()).isEqualTo("https://example.com");
+		assertThat(authorizationCodeAuthentication.getCodeVerifier()).isEqualTo("code-verifier");
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("no-store");
+		assertThat(response.getContentAsString())
+				.contains("\"access_token\":\"token\"")
+				.contains("\"token_type\":\"Bearer\"")
+				.contains("\"expires_in\"")
+				.contains("\"scope\":\"openid\"");
+	}
+
+	@Test
+	public void doFilterWhenRefreshTokenRequestValidThenAccessTokenResponseWithRefreshToken() throws Exception {
+		Instant issuedAt = Instant.now();
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"token", issuedAt, issuedAt.plus(Duration.ofHours(1)), Collections.singleton("openid"));
+		OAuth2RefreshToken refreshToken = new OAuth2RefreshToken("rotated-refresh-token", issuedAt);
+		when(this.authenticationManager.authenticate(any())).thenReturn(new OAuth2AccessTokenAuthenticationToken(
+				this.registeredClient, this.clientPrincipal, accessToken, refreshToken));
+		String requestUri = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter(OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.REFRESH_TOKEN.getValue());
+		request.addParameter(OAuth2ParameterNames.REFRESH_TOKEN, "refresh-token");
+		request.addParameter(OAuth2ParameterNames.SCOPE, "openid profile");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		ArgumentCaptor<Authentication> authenticationCaptor = ArgumentCaptor.forClass(Authentication.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		OAuth2RefreshTokenAuthenticationToken refreshTokenAuthentication =
+				(OAuth2RefreshTokenAuthenticationToken) authenticationCaptor.getValue();
+		assertThat(refreshTokenAuthentication.getRefreshToken()).isEqualTo("refresh-token");
+		assertThat(refreshTokenAuthentication.getScopes()).containsExactly("openid", "profile");
+		assertThat(refreshTokenAuthentication.getPrincipal()).isEqualTo(this.clientPrincipal);
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).contains("\"refresh_token\":\"rotated-refresh-token\"");
+	}
+
+	@Test
+	public void doFilterWhenAccessTokenIssuedThenJsonResponseWithExpiresInNumber() throws Exception {
+		Instant issuedAt = Instant.now();
+		this.filter.setClock(Clock.fixed(issuedAt, ZoneOffset.UTC));
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"token", issuedAt, issuedAt.plus(Duration.ofHours(1)), Collections.emptySet());
+		when(this.authenticationManager.authenticate(any())).thenReturn(
+				new OAuth2AccessTokenAuthenticationToken(this.registeredClient, this.clientPrincipal, accessToken));
+		String requestUri = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter(OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.CLIENT_CREDENTIALS.getValue());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentType()).startsWith(MediaType.APPLICATION_JSON_VALUE);
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("no-store");
+		assertThat(response.getHeader("Pragma")).isEqualTo("no-cache");
+		assertThat(response.getContentAsString()).isEqualTo(
+				"{\"access_token\":\"token\",\"token_type\":\"Bearer\",\"expires_in\":3600}");
+	}
+
+	@Test
+	public void doFilterWhenAccessTokenReusedThenExpiresInRemainingLifetime() throws Exception {
+		Instant issuedAt = Instant.now().minus(Duration.ofMinutes(40));
+		this.filter.setClock(Clock.fixed(issuedAt.plus(Duration.ofMinutes(40)), ZoneOffset.UTC));
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"token", issuedAt, issuedAt.plus(Duration.ofHours(1)), Collections.emptySet());
+		when(this.authenticationManager.authenticate(any())).thenReturn(
+				new OAuth2AccessTokenAuthenticationToken(this.registeredClient, this.clientPrincipal, accessToken));
+		String requestUri = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter(OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.CLIENT_CREDENTIALS.getValue());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).contains("\"expires_in\":1200");
+	}
+
+	@Test
+	public void setClockWhenNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> this.filter.setClock(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("clock cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenClientCredentialsTokenRequestThenClientCredentialsAuthentication() throws Exception {
+		Instant issuedAt = Instant.now();
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+				"token", issuedAt, issuedAt.plus(Duration.ofHours(1)), Collections.singleton("openid"));
+		when(this.authenticationManager.authenticate(any())).thenReturn(
+				new OAuth2AccessTokenAuthenticationToken(this.registeredClient, this.clientPrincipal, accessToken));
+		String requestUri = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter(OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.CLIENT_CREDENTIALS.getValue());
+		request.addParameter(OAuth2ParameterNames.SCOPE, "openid");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		ArgumentCaptor<Authentication> authenticationCaptor = ArgumentCaptor.forClass(Authentication.class);
+		verify(this.authenticationManager).authenticate(authenticationCaptor.capture());
+		OAuth2ClientCredentialsAuthenticationToken clientCredentialsAuthentication =
+				(OAuth2ClientCredentialsAuthenticationToken) authenticationCaptor.getValue();
+		assertThat(clientCredentialsAuthentication.getScopes()).containsExactly("openid");
+		assertThat(clientCredentialsAuthentication.getPrincipal()).isEqualTo(this.clientPrincipal);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).doesNotContain("refresh_token");
+	}
+
+	private static MockHttpServletRequest createAuthorizationCodeTokenRequest() {
+		String requestUri = OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter(OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.AUTHORIZATION_CODE.getValue());
+		request.addParameter(OAuth2ParameterNames.CODE, "code");
+		request.addParameter(OAuth2ParameterNames.REDIRECT_URI, "https://example.com");
+		request.addParameter(PkceParameterNames.CODE_VERIFIER, "code-verifier");
+		return request;
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationAttributeNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TestOAuth2Authorizations;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationList;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2TokenIntrospectionEndpointFilter}.
+ */
+public class OAuth2TokenIntrospectionEndpointFilterTests {
+	private OAuth2AuthorizationService authorizationService;
+	private RegisteredClientRepository registeredClientRepository;
+	private OAuth2TokenIntrospectionEndpointFilter filter;
+	private RegisteredClient registeredClient;
+	private Instant now;
+
+	@Before
+	public void setUp() {
+		this.authorizationService = mock(OAuth2AuthorizationService.class);
+		this.registeredClientRepository = mock(RegisteredClientRepository.class);
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+		when(this.registeredClientRepository.findById(this.registeredClient.getId())).thenReturn(this.registeredClient);
+		this.filter = new OAuth2TokenIntrospectionEndpointFilter(this.authorizationService, this.registeredClientRepository);
+		this.now = Instant.now();
+		setClock(this.now);
+		SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+		securityContext.setAuthentication(new OAuth2ClientAuthenticationToken(this.registeredClient));
+		SecurityContextHolder.setContext(securityContext);
+	}
+
+	@After
+	public void cleanup() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void constructorWhenAuthorizationServiceNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2TokenIntrospectionEndpointFilter(null, this.registeredClientRepository))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorizationService cannot be null");
+	}
+
+	@Test
+	public void constructorWhenRegisteredClientRepositoryNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2TokenIntrospectionEndpointFilter(this.authorizationService, null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("registeredClientRepository cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenNotIntrospectionRequestThenNotProcessed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/path");
+		request.setServletPath("/path");
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verify(filterChain).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenNotAuthenticatedThenInvalidClientError() throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createIntrospectionRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"invalid_client\"");
+		verifyNoInteractions(this.authorizationService);
+	}
+
+	@Test
+	public void doFilterWhenTokenMissingThenInvalidRequestError() throws Exception {
+		MockHttpServletRequest request = createIntrospectionRequest("token");
+		request.removeParameter("token");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"invalid_request\"");
+	}
+
+	@Test
+	public void doFilterWhenTokenActiveThenActiveResponse() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(60), this.now.plusSeconds(300), Collections.singleton("openid"));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization(accessToken));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createIntrospectionRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("no-store");
+		assertThat(response.getContentAsString()).isEqualTo("{\"active\":true,\"scope\":\"openid\"," +
+				"\"client_id\":\"" + this.registeredClient.getClientId() + "\",\"username\":\"principal\"," +
+				"\"token_type\":\"Bearer\",\"iat\":" + accessToken.getIssuedAt().getEpochSecond() + "," +
+				"\"exp\":" + accessToken.getExpiresAt().getEpochSecond() + ",\"sub\":\"principal\"}");
+	}
+
+	@Test
+	public void doFilterWhenTokenCertificateBoundThenConfirmationInResponse() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(60), this.now.plusSeconds(300));
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.accessToken(accessToken)
+				.attribute(OAuth2AuthorizationAttributeNames.X509_CERTIFICATE_THUMBPRINT, "thumbprint")
+				.build();
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createIntrospectionRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).endsWith(",\"cnf\":{\"x5t#S256\":\"thumbprint\"}}");
+	}
+
+	@Test
+	public void doFilterWhenTokenExpiredThenInactiveResponse() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(600), this.now.minusSeconds(300));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization(accessToken));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createIntrospectionRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).isEqualTo("{\"active\":false}");
+	}
+
+	@Test
+	public void doFilterWhenTokenActiveIntrospectedTwiceThenCached() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(60), this.now.plusSeconds(300));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization(accessToken));
+		MockHttpServletResponse response1 = new MockHttpServletResponse();
+		MockHttpServletResponse response2 = new MockHttpServletResponse();
+
+		this.filter.doFilter(createIntrospectionRequest("token"), response1, mock(FilterChain.class));
+		this.filter.doFilter(createIntrospectionRequest("token"), response2, mock(FilterChain.class));
+
+		verify(this.authorizationService, times(1)).findByTokenAndTokenType(any(), any());
+		assertThat(response2.getContentAsString()).isEqualTo(response1.getContentAsString());
+	}
+
+	@Test
+	public void doFilterWhenCachedResponseExpiredThenLookedUpAgain() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(60), this.now.plusSeconds(300));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization(accessToken));
+		this.filter.setCacheTimeToLive(Duration.ofSeconds(10));
+
+		this.filter.doFilter(createIntrospectionRequest("token"), new MockHttpServletResponse(), mock(FilterChain.class));
+		setClock(this.now.plusSeconds(10));
+		this.filter.doFilter(createIntrospectionRequest("token"), new MockHttpServletResponse(), mock(FilterChain.class));
+
+		verify(this.authorizationService, times(2)).findByTokenAndTokenType(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenCachedResponseOutlivesTokenThenInactiveResponse() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(60), this.now.plusSeconds(5));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization(accessToken));
+
+		this.filter.doFilter(createIntrospectionRequest("token"), new MockHttpServletResponse(), mock(FilterChain.class));
+		setClock(this.now.plusSeconds(5));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(createIntrospectionRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).isEqualTo("{\"active\":false}");
+	}
+
+	@Test
+	public void doFilterWhenCachedTokenRevokedThenInactiveResponse() throws Exception {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				this.now.minusSeconds(60), this.now.plusSeconds(300));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization(accessToken));
+		TokenRevocationList revocationList = new TokenRevocationList();
+		this.filter.setTokenRevocationList(revocationList);
+
+		this.filter.doFilter(createIntrospectionRequest("token"), new MockHttpServletResponse(), mock(FilterChain.class));
+		revocationList.onRevocation(new TokenRevocation(TokenDigest.of("token"), accessToken.getExpiresAt()));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(createIntrospectionRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).isEqualTo("{\"active\":false}");
+	}
+
+	@Test
+	public void doFilterWhenTokenUnknownThenInactiveResponseCached() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createIntrospectionRequest("unknown"), response, mock(FilterChain.class));
+		this.filter.doFilter(createIntrospectionRequest("unknown"), new MockHttpServletResponse(), mock(FilterChain.class));
+
+		assertThat(response.getContentAsString()).isEqualTo("{\"active\":false}");
+		verify(this.authorizationService, times(1)).findByTokenAndTokenType(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenMaximumCacheSizeZeroThenNotCached() throws Exception {
+		this.filter.setMaximumCacheSize(0);
+
+		this.filter.doFilter(createIntrospectionRequest("unknown"), new MockHttpServletResponse(), mock(FilterChain.class));
+		this.filter.doFilter(createIntrospectionRequest("unknown"), new MockHttpServletResponse(), mock(FilterChain.class));
+
+		verify(this.authorizationService, times(2)).findByTokenAndTokenType(any(), any());
+	}
+
+	@Test
+	public void doFilterWhenCacheFullThenLeastRecentlyUsedEvictedAndResponseCached() throws Exception {
+		this.filter.setMaximumCacheSize(1);
+
+		this.filter.doFilter(createIntrospectionRequest("unknown-1"), new MockHttpServletResponse(), mock(FilterChain.class));
+		this.filter.doFilter(createIntrospectionRequest("unknown-2"), new MockHttpServletResponse(), mock(FilterChain.class));
+		this.filter.doFilter(createIntrospectionRequest("unknown-2"), new MockHttpServletResponse(), mock(FilterChain.class));
+		this.filter.doFilter(createIntrospectionRequest("unknown-1"), new MockHttpServletResponse(), mock(FilterChain.class));
+
+		verify(this.authorizationService, times(1)).findByTokenAndTokenType(eq("unknown-2"), any());
+		verify(this.authorizationService, times(2)).findByTokenAndTokenType(eq("unknown-1"), any());
+	}
+
+	private OAuth2Authorization authorization(OAuth2AccessToken accessToken) {
+		return TestOAuth2Authorizations.authorization(this.registeredClient)
+				.accessToken(accessToken)
+				.build();
+	}
+
+	private void setClock(Instant instant) {
+		this.filter.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+	}
+
+	private static MockHttpServletRequest createIntrospectionRequest(String token) {
+		String requestUri = OAuth2TokenIntrospectionEndpointFilter.DEFAULT_TOKEN_INTROSPECTION_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter("token", token);
+		return request;
+	}
+}
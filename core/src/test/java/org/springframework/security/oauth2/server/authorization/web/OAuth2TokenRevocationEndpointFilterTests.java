@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.TestOAuth2Authorizations;
+import org.springframework.security.oauth2.server.authorization.TokenDigest;
+import org.springframework.security.oauth2.server.authorization.TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.TestRegisteredClients;
+import org.springframework.security.oauth2.server.authorization.revocation.InProcessTokenRevocationBus;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocation;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationBus;
+import org.springframework.security.oauth2.server.authorization.revocation.TokenRevocationList;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link OAuth2TokenRevocationEndpointFilter}.
+ */
+public class OAuth2TokenRevocationEndpointFilterTests {
+	private OAuth2AuthorizationService authorizationService;
+	private TokenRevocationBus revocationBus;
+	private OAuth2TokenRevocationEndpointFilter filter;
+	private RegisteredClient registeredClient;
+
+	@Before
+	public void setUp() {
+		this.authorizationService = mock(OAuth2AuthorizationService.class);
+		this.revocationBus = mock(TokenRevocationBus.class);
+		this.filter = new OAuth2TokenRevocationEndpointFilter(this.authorizationService, this.revocationBus);
+		this.registeredClient = TestRegisteredClients.registeredClient().build();
+		setClientPrincipal(this.registeredClient);
+	}
+
+	@After
+	public void cleanup() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void constructorWhenAuthorizationServiceNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2TokenRevocationEndpointFilter(null, this.revocationBus))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("authorizationService cannot be null");
+	}
+
+	@Test
+	public void constructorWhenRevocationBusNullThenThrowIllegalArgumentException() {
+		assertThatThrownBy(() -> new OAuth2TokenRevocationEndpointFilter(this.authorizationService, null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("revocationBus cannot be null");
+	}
+
+	@Test
+	public void doFilterWhenNotRevocationRequestThenNotProcessed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/path");
+		request.setServletPath("/path");
+		FilterChain filterChain = mock(FilterChain.class);
+
+		this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+		verify(filterChain).doFilter(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenNotAuthenticatedThenInvalidClientError() throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createRevocationRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+		verifyNoInteractions(this.authorizationService);
+	}
+
+	@Test
+	public void doFilterWhenTokenMissingThenInvalidRequestError() throws Exception {
+		MockHttpServletRequest request = createRevocationRequest("token");
+		request.removeParameter("token");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+		assertThat(response.getContentAsString()).contains("\"error\":\"invalid_request\"");
+	}
+
+	@Test
+	public void doFilterWhenTokenUnknownThenOk() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createRevocationRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		verify(this.authorizationService, never()).revoke(any());
+		verifyNoInteractions(this.revocationBus);
+	}
+
+	@Test
+	public void doFilterWhenTokenIssuedToOtherClientThenInvalidClientError() throws Exception {
+		OAuth2Authorization authorization = authorization(Instant.now().plusSeconds(300));
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization);
+		setClientPrincipal(TestRegisteredClients.registeredClient2().build());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createRevocationRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+		verify(this.authorizationService, never()).revoke(any());
+		verifyNoInteractions(this.revocationBus);
+	}
+
+	@Test
+	public void doFilterWhenTokenValidThenRemovedAndRevocationPublished() throws Exception {
+		Instant expiresAt = Instant.now().plusSeconds(300);
+		OAuth2Authorization authorization = authorization(expiresAt);
+		when(this.authorizationService.findByTokenAndTokenType(eq("token"), eq(TokenType.ACCESS_TOKEN)))
+				.thenReturn(authorization);
+		TokenRevocation revocation = new TokenRevocation(TokenDigest.of("token"), expiresAt);
+		when(this.authorizationService.revoke(authorization)).thenReturn(revocation);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createRevocationRequest("token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		verify(this.authorizationService).revoke(authorization);
+		verify(this.revocationBus).publish(revocation);
+	}
+
+	@Test
+	public void doFilterWhenRefreshTokenThenAccessTokenRevokedOnPeers() throws Exception {
+		InMemoryOAuth2AuthorizationService authorizationService = new InMemoryOAuth2AuthorizationService();
+		InProcessTokenRevocationBus revocationBus = new InProcessTokenRevocationBus();
+		TokenRevocationList peerRevocationList = new TokenRevocationList();
+		revocationBus.subscribe(peerRevocationList);
+		OAuth2Authorization authorization = TestOAuth2Authorizations.authorization(this.registeredClient)
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+						Instant.now(), Instant.now().plusSeconds(300)))
+				.refreshToken(new OAuth2RefreshToken("refresh-token", Instant.now()))
+				.build();
+		authorizationService.save(authorization);
+		this.filter = new OAuth2TokenRevocationEndpointFilter(authorizationService, revocationBus);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(createRevocationRequest("refresh-token"), response, mock(FilterChain.class));
+
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(authorizationService.findByTokenAndTokenType("refresh-token", TokenType.REFRESH_TOKEN)).isNull();
+		assertThat(authorizationService.findByTokenAndTokenType("access-token", TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(peerRevocationList.isRevoked("access-token")).isTrue();
+	}
+
+	private OAuth2Authorization authorization(Instant expiresAt) {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token",
+				Instant.now(), expiresAt);
+		return TestOAuth2Authorizations.authorization(this.registeredClient)
+				.accessToken(accessToken)
+				.build();
+	}
+
+	private static void setClientPrincipal(RegisteredClient registeredClient) {
+		SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+		securityContext.setAuthentication(new OAuth2ClientAuthenticationToken(registeredClient));
+		SecurityContextHolder.setContext(securityContext);
+	}
+
+	private static MockHttpServletRequest createRevocationRequest(String token) {
+		String requestUri = OAuth2TokenRevocationEndpointFilter.DEFAULT_TOKEN_REVOCATION_ENDPOINT_URI;
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", requestUri);
+		request.setServletPath(requestUri);
+		request.addParameter("token", token);
+		return request;
+	}
+}
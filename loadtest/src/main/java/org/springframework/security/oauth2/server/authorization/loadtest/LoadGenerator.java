@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Credentials;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.loadtest.LoadTestOptions.Workload;
+import org.springframework.security.oauth2.server.authorization.web.JwkSetEndpointFilter;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2AuthorizationEndpointFilter;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2TokenEndpointFilter;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of authorization, token and JWK Set requests against a server configured
+ * with {@link LoadTestServerConfiguration}, and records their latencies in a {@link LoadTestResult}.
+ *
+ * <p>
+ * With the {@link Workload#CLOSED closed} workload, each worker sends its next request
+ * as soon as the previous one completes. With the {@link Workload#OPEN open} workload,
+ * the workers claim the start times of a fixed rate schedule, and the latency of a request
+ * is measured from its scheduled start time rather than from the time it was actually sent,
+ * so that requests delayed by a slow server are not omitted from the distribution.
+ *
+ * <p>
+ * A token request exchanges an authorization code issued by an earlier authorization request.
+ * When no code is available, an authorization request is sent instead.
+ */
+final class LoadGenerator {
+	private static final int MAX_PENDING_AUTHORIZATION_CODES = 10000;
+	private final LoadTestOptions options;
+	private final OkHttpClient client;
+	private final HttpUrl authorizationUri;
+	private final HttpUrl tokenUri;
+	private final HttpUrl jwkSetUri;
+	private final String userCredentials = Credentials.basic(
+			LoadTestServerConfiguration.USERNAME, LoadTestServerConfiguration.PASSWORD);
+	private final String clientCredentials = Credentials.basic(
+			LoadTestServerConfiguration.CLIENT_ID, LoadTestServerConfiguration.CLIENT_SECRET);
+	private final Operation[] operations;
+	private final int[] cumulativeWeights;
+	private final Queue<String> authorizationCodes = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingAuthorizationCodes = new AtomicInteger();
+
+	LoadGenerator(String target, LoadTestOptions options) {
+		Assert.hasText(target, "target cannot be empty");
+		Assert.notNull(options, "options cannot be null");
+		this.options = options;
+		this.client = new OkHttpClient.Builder()
+				.followRedirects(false)
+				.connectionPool(new ConnectionPool(options.getConcurrency(), 5, TimeUnit.MINUTES))
+				.build();
+		HttpUrl baseUri = HttpUrl.get(target);
+		this.authorizationUri = baseUri.newBuilder()
+				.encodedPath(OAuth2AuthorizationEndpointFilter.DEFAULT_AUTHORIZATION_ENDPOINT_URI)
+				.addQueryParameter(OAuth2ParameterNames.RESPONSE_TYPE, "code")
+				.addQueryParameter(OAuth2ParameterNames.CLIENT_ID, LoadTestServerConfiguration.CLIENT_ID)
+				.addQueryParameter(OAuth2ParameterNames.REDIRECT_URI, LoadTestServerConfiguration.REDIRECT_URI)
+				.addQueryParameter(OAuth2ParameterNames.SCOPE, LoadTestServerConfiguration.SCOPE)
+				.addQueryParameter(OAuth2ParameterNames.STATE, "state")
+				.build();
+		this.tokenUri = baseUri.newBuilder()
+				.encodedPath(OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI)
+				.build();
+		this.jwkSetUri = baseUri.newBuilder()
+				.encodedPath(JwkSetEndpointFilter.DEFAULT_JWK_SET_ENDPOINT_URI)
+				.build();
+
+		Map<Operation, Integer> mix = options.getMix();
+		this.operations = mix.keySet().toArray(new Operation[0]);
+		this.cumulativeWeights = new int[this.operations.length];
+		int totalWeight = 0;
+		for (int i = 0; i < this.operations.length; i++) {
+			totalWeight += mix.get(this.operations[i]);
+			this.cumulativeWeights[i] = totalWeight;
+		}
+	}
+
+	/**
+	 * Runs the warmup, whose latencies are discarded, followed by the measured run.
+	 *
+	 * @return the {@link LoadTestResult} of the measured run
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	LoadTestResult run() throws InterruptedException {
+		if (!this.options.getWarmup().isZero()) {
+			run(this.options.getWarmup(), new LoadTestResult());
+		}
+		LoadTestResult result = new LoadTestResult();
+		long startTime = System.nanoTime();
+		run(this.options.getDuration(), result);
+		result.setElapsed(Duration.ofNanos(System.nanoTime() - startTime));
+		return result;
+	}
+
+	private void run(Duration duration, LoadTestResult result) throws InterruptedException {
+		int concurrency = this.options.getConcurrency();
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new WorkerThreadFactory());
+		long startTime = System.nanoTime();
+		long endTime = startTime + duration.toNanos();
+		AtomicLong sequence = new AtomicLong();
+		for (int i = 0; i < concurrency; i++) {
+			if (this.options.getWorkload() == Workload.CLOSED) {
+				executor.execute(() -> runClosed(endTime, result));
+			} else {
+				executor.execute(() -> runOpen(startTime, endTime, sequence, result));
+			}
+		}
+		executor.shutdown();
+		if (!executor.awaitTermination(duration.plusMinutes(1).toNanos(), TimeUnit.NANOSECONDS)) {
+			executor.shutdownNow();
+		}
+	}
+
+	private void runClosed(long endTime, LoadTestResult result) {
+		long startTime;
+		while ((startTime = System.nanoTime()) < endTime && !Thread.currentThread().isInterrupted()) {
+			execute(startTime, result);
+		}
+	}
+
+	private void runOpen(long startTime, long endTime, AtomicLong sequence, LoadTestResult result) {
+		long rate = this.options.getRate();
+		while (!Thread.currentThread().isInterrupted()) {
+			long scheduledTime = startTime + sequence.getAndIncrement() * TimeUnit.SECONDS.toNanos(1) / rate;
+			if (scheduledTime >= endTime) {
+				return;
+			}
+			long delay;
+			while ((delay = scheduledTime - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(delay);
+			}
+			execute(scheduledTime, result);
+		}
+	}
+
+	private void execute(long startTime, LoadTestResult result) {
+		Operation operation = nextOperation();
+		String authorizationCode = null;
+		if (operation == Operation.TOKEN) {
+			authorizationCode = this.authorizationCodes.poll();
+			if (authorizationCode != null) {
+				this.pendingAuthorizationCodes.decrementAndGet();
+			} else {
+				operation = Operation.AUTHORIZE;
+			}
+		}
+		boolean success;
+		try {
+			switch (operation) {
+				case AUTHORIZE:
+					success = authorize();
+					break;
+				case TOKEN:
+					success = token(authorizationCode);
+					break;
+				default:
+					success = jwkSet();
+			}
+		} catch (IOException ex) {
+			success = false;
+		}
+		result.record(operation, System.nanoTime() - startTime, success);
+	}
+
+	private Operation nextOperation() {
+		int value = ThreadLocalRandom.current().nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+		for (int i = 0; i < this.cumulativeWeights.length; i++) {
+			if (value < this.cumulativeWeights[i]) {
+				return this.operations[i];
+			}
+		}
+		throw new IllegalStateException("No operation for weight " + value);
+	}
+
+	private boolean authorize() throws IOException {
+		Request request = new Request.Builder()
+				.url(this.authorizationUri)
+				.header("Authorization", this.userCredentials)
+				.build();
+		try (Response response = this.client.newCall(request).execute()) {
+			consume(response);
+			String location = response.header("Location");
+			HttpUrl redirectUri = location != null ? HttpUrl.parse(location) : null;
+			String authorizationCode = redirectUri != null ? redirectUri.queryParameter(OAuth2ParameterNames.CODE) : null;
+			if (response.code() != 302 || authorizationCode == null) {
+				return false;
+			}
+			if (this.pendingAuthorizationCodes.incrementAndGet() <= MAX_PENDING_AUTHORIZATION_CODES) {
+				this.authorizationCodes.offer(authorizationCode);
+			} else {
+				this.pendingAuthorizationCodes.decrementAndGet();
+			}
+			return true;
+		}
+	}
+
+	private boolean token(String authorizationCode) throws IOException {
+		Request request = new Request.Builder()
+				.url(this.tokenUri)
+				.header("Authorization", this.clientCredentials)
+				.post(new FormBody.Builder()
+						.add(OAuth2ParameterNames.GRANT_TYPE, "authorization_code")
+						.add(OAuth2ParameterNames.CODE, authorizationCode)
+						.add(OAuth2ParameterNames.REDIRECT_URI, LoadTestServerConfiguration.REDIRECT_URI)
+						.build())
+				.build();
+		return execute(request);
+	}
+
+	private boolean jwkSet() throws IOException {
+		return execute(new Request.Builder().url(this.jwkSetUri).build());
+	}
+
+	private boolean execute(Request request) throws IOException {
+		try (Response response = this.client.newCall(request).execute()) {
+			consume(response);
+			return response.code() == 200;
+		}
+	}
+
+	// Reads the body fully, so that the connection is returned to the pool without waiting to discard it
+	private static void consume(Response response) throws IOException {
+		ResponseBody body = response.body();
+		if (body != null) {
+			body.bytes();
+		}
+	}
+
+	private static final class WorkerThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "loadtest-worker-" + this.threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.Assert;
+import sample.MinimalAuthorizationServerApplication;
+
+/**
+ * Runs a load test against the minimal sample server.
+ *
+ * <p>
+ * Unless a {@code --target} is provided, the server is started in the same process,
+ * on a random port. To keep the load generator from competing with the server for CPU,
+ * start the server with {@code --server-only} and run the load test from another process,
+ * with {@code --target=http://localhost:8080}. See {@link LoadTestOptions} for the other options.
+ */
+public final class LoadTestApplication {
+
+	private LoadTestApplication() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestOptions options = LoadTestOptions.parse(args);
+		Assert.isTrue(!options.isServerOnly() || options.getTarget() == null,
+				"target cannot be provided with server-only");
+
+		ConfigurableApplicationContext context = null;
+		String target = options.getTarget();
+		if (target == null) {
+			context = new SpringApplicationBuilder(
+					MinimalAuthorizationServerApplication.class, LoadTestServerConfiguration.class)
+					.properties("server.port=" + (options.isServerOnly() ? 8080 : 0))
+					.run();
+			target = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+			if (options.isServerOnly()) {
+				System.out.println("Server started, run the load test with --target=" + target);
+				return;
+			}
+		}
+		try {
+			LoadTestResult result = new LoadGenerator(target, options).run();
+			result.print(System.out);
+			if (options.getOutput() != null) {
+				result.writeHistograms(options.getOutput());
+			}
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+}
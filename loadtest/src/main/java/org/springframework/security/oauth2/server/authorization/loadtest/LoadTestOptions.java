@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The options of a load test run, parsed from {@code --name=value} arguments.
+ *
+ * <ul>
+ * <li>{@code --target} the base URI of an already running server, instead of an embedded one</li>
+ * <li>{@code --server-only} starts the embedded server and waits, so that the load is generated from another process</li>
+ * <li>{@code --mix} the weight of each operation, for example {@code authorize=1,token=1,jwks=8}</li>
+ * <li>{@code --workload} {@code closed} or {@code open}</li>
+ * <li>{@code --concurrency} the number of workers, which is also the maximum number of outstanding requests</li>
+ * <li>{@code --rate} the number of requests started per second, with the open workload</li>
+ * <li>{@code --warmup} and {@code --duration} for example {@code 10s} or {@code 1m}</li>
+ * <li>{@code --output} the directory the latency distributions are written to</li>
+ * </ul>
+ */
+final class LoadTestOptions {
+	private String target;
+	private boolean serverOnly;
+	private Map<Operation, Integer> mix = parseMix("authorize=1,token=1,jwks=8");
+	private Workload workload = Workload.CLOSED;
+	private int concurrency = 16;
+	private int rate = 1000;
+	private Duration warmup = Duration.ofSeconds(10);
+	private Duration duration = Duration.ofSeconds(30);
+	private Path output;
+
+	static LoadTestOptions parse(String... args) {
+		LoadTestOptions options = new LoadTestOptions();
+		for (String arg : args) {
+			Assert.isTrue(arg.startsWith("--"), () -> "Invalid argument " + arg + ", expected --name=value");
+			int separator = arg.indexOf('=');
+			String name = separator != -1 ? arg.substring(2, separator) : arg.substring(2);
+			String value = separator != -1 ? arg.substring(separator + 1) : "true";
+			switch (name) {
+				case "target":
+					options.target(value);
+					break;
+				case "server-only":
+					options.serverOnly(Boolean.parseBoolean(value));
+					break;
+				case "mix":
+					options.mix(parseMix(value));
+					break;
+				case "workload":
+					options.workload(Workload.valueOf(value.toUpperCase()));
+					break;
+				case "concurrency":
+					options.concurrency(Integer.parseInt(value));
+					break;
+				case "rate":
+					options.rate(Integer.parseInt(value));
+					break;
+				case "warmup":
+					options.warmup(DurationStyle.detectAndParse(value));
+					break;
+				case "duration":
+					options.duration(DurationStyle.detectAndParse(value));
+					break;
+				case "output":
+					options.output(Paths.get(value));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + name);
+			}
+		}
+		return options;
+	}
+
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (String entry : StringUtils.commaDelimitedListToStringArray(mix)) {
+			String[] weight = StringUtils.split(entry.trim(), "=");
+			Assert.notNull(weight, () -> "Invalid mix entry " + entry + ", expected operation=weight");
+			weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+		}
+		return weights;
+	}
+
+	LoadTestOptions target(String target) {
+		Assert.hasText(target, "target cannot be empty");
+		this.target = target;
+		return this;
+	}
+
+	LoadTestOptions serverOnly(boolean serverOnly) {
+		this.serverOnly = serverOnly;
+		return this;
+	}
+
+	LoadTestOptions mix(Map<Operation, Integer> mix) {
+		Assert.notEmpty(mix, "mix cannot be empty");
+		Assert.isTrue(mix.values().stream().allMatch(weight -> weight >= 0), "mix weights cannot be negative");
+		Assert.isTrue(mix.values().stream().anyMatch(weight -> weight > 0), "mix must contain a positive weight");
+		this.mix = new EnumMap<>(mix);
+		return this;
+	}
+
+	LoadTestOptions workload(Workload workload) {
+		Assert.notNull(workload, "workload cannot be null");
+		this.workload = workload;
+		return this;
+	}
+
+	LoadTestOptions concurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+		this.concurrency = concurrency;
+		return this;
+	}
+
+	LoadTestOptions rate(int rate) {
+		Assert.isTrue(rate > 0, "rate must be greater than 0");
+		this.rate = rate;
+		return this;
+	}
+
+	LoadTestOptions warmup(Duration warmup) {
+		Assert.isTrue(warmup != null && !warmup.isNegative(), "warmup cannot be negative");
+		this.warmup = warmup;
+		return this;
+	}
+
+	LoadTestOptions duration(Duration duration) {
+		Assert.isTrue(duration != null && !duration.isNegative() && !duration.isZero(),
+				"duration must be greater than 0");
+		this.duration = duration;
+		return this;
+	}
+
+	LoadTestOptions output(Path output) {
+		Assert.notNull(output, "output cannot be null");
+		this.output = output;
+		return this;
+	}
+
+	String getTarget() {
+		return this.target;
+	}
+
+	boolean isServerOnly() {
+		return this.serverOnly;
+	}
+
+	Map<Operation, Integer> getMix() {
+		return this.mix;
+	}
+
+	Workload getWorkload() {
+		return this.workload;
+	}
+
+	int getConcurrency() {
+		return this.concurrency;
+	}
+
+	int getRate() {
+		return this.rate;
+	}
+
+	Duration getWarmup() {
+		return this.warmup;
+	}
+
+	Duration getDuration() {
+		return this.duration;
+	}
+
+	Path getOutput() {
+		return this.output;
+	}
+
+	/**
+	 * The workload model.
+	 */
+	enum Workload {
+
+		/**
+		 * Each worker sends its next request as soon as the previous one completes,
+		 * so the request rate follows the server's throughput.
+		 */
+		CLOSED,
+
+		/**
+		 * Requests are started at a fixed rate, independently of the completion of earlier requests,
+		 * and their latency is measured from the time they were scheduled to start.
+		 */
+		OPEN
+
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latency distributions and error counts of a load test run, by {@link Operation}.
+ *
+ * <p>
+ * Latencies are recorded in nanoseconds and reported in milliseconds. The distributions
+ * can be written in the HdrHistogram percentile distribution format, so that runs can be
+ * plotted and compared against a baseline.
+ */
+final class LoadTestResult {
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+	private volatile Duration elapsed = Duration.ZERO;
+
+	LoadTestResult() {
+		for (Operation operation : Operation.values()) {
+			this.latencies.put(operation, new ConcurrentHistogram(3));
+			this.errors.put(operation, new LongAdder());
+		}
+	}
+
+	void record(Operation operation, long latencyNanos, boolean success) {
+		if (success) {
+			this.latencies.get(operation).recordValue(latencyNanos);
+		} else {
+			this.errors.get(operation).increment();
+		}
+	}
+
+	void setElapsed(Duration elapsed) {
+		this.elapsed = elapsed;
+	}
+
+	Duration getElapsed() {
+		return this.elapsed;
+	}
+
+	Histogram getLatencies(Operation operation) {
+		return this.latencies.get(operation);
+	}
+
+	long getCount(Operation operation) {
+		return this.latencies.get(operation).getTotalCount();
+	}
+
+	long getErrorCount(Operation operation) {
+		return this.errors.get(operation).sum();
+	}
+
+	void print(PrintStream out) {
+		double seconds = this.elapsed.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+		out.printf("%-10s %10s %8s %12s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "errors",
+				"ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = this.latencies.get(operation);
+			long count = histogram.getTotalCount();
+			long errorCount = getErrorCount(operation);
+			if (count == 0 && errorCount == 0) {
+				continue;
+			}
+			out.printf("%-10s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+					operation.name().toLowerCase(), count, errorCount,
+					seconds > 0 ? (count + errorCount) / seconds : 0,
+					histogram.getMean() / NANOS_PER_MILLI,
+					histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+					histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+					histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+					histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+					histogram.getMaxValue() / NANOS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * Writes the latency distribution of each operation, in milliseconds,
+	 * to a {@code <operation>.hgrm} file in the provided directory.
+	 *
+	 * @param directory the directory the distributions are written to
+	 * @throws IOException if the distributions could not be written
+	 */
+	void writeHistograms(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = this.latencies.get(operation);
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+			Path file = directory.resolve(operation.name().toLowerCase() + ".hgrm");
+			try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+				histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AuthorizationCodeAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.jose.SigningKeyManager;
+import org.springframework.security.oauth2.server.authorization.token.JwtAccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2AuthorizationEndpointFilter;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2ClientAuthenticationFilter;
+import org.springframework.security.oauth2.server.authorization.web.OAuth2TokenEndpointFilter;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.util.Arrays;
+
+import static org.springframework.security.config.Customizer.withDefaults;
+
+/**
+ * Adds the authorization and token endpoints to the minimal sample server, with a single
+ * registered client and user known to the {@link LoadGenerator}.
+ *
+ * <p>
+ * The user authenticates to the authorization endpoint with HTTP Basic, so that an
+ * authorization code is issued without an interactive login, and no session is created
+ * for the requests, which carry no cookies.
+ */
+@Configuration
+@Order(90)
+public class LoadTestServerConfiguration extends WebSecurityConfigurerAdapter {
+	static final String CLIENT_ID = "loadtest-client";
+	static final String CLIENT_SECRET = "secret";
+	static final String REDIRECT_URI = "https://client.example.com/authorized";
+	static final String SCOPE = "message.read";
+	static final String USERNAME = "user1";
+	static final String PASSWORD = "password";
+	private final SigningKeyManager signingKeyManager;
+
+	public LoadTestServerConfiguration(SigningKeyManager signingKeyManager) {
+		this.signingKeyManager = signingKeyManager;
+	}
+
+	@Override
+	protected void configure(HttpSecurity http) throws Exception {
+		RegisteredClientRepository registeredClientRepository = registeredClientRepository();
+		OAuth2AuthorizationService authorizationService = authorizationService();
+
+		OAuth2AuthorizationCodeAuthenticationProvider authorizationCodeAuthenticationProvider =
+				new OAuth2AuthorizationCodeAuthenticationProvider(authorizationService);
+		authorizationCodeAuthenticationProvider.setAccessTokenGenerator(
+				new JwtAccessTokenGenerator(this.signingKeyManager::getSigningKey));
+		AuthenticationManager authenticationManager = new ProviderManager(Arrays.asList(
+				new OAuth2ClientAuthenticationProvider(registeredClientRepository),
+				authorizationCodeAuthenticationProvider));
+
+		http
+			.requestMatchers(requestMatchers ->
+				requestMatchers.antMatchers(OAuth2AuthorizationEndpointFilter.DEFAULT_AUTHORIZATION_ENDPOINT_URI,
+						OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI))
+			.authorizeRequests(authorizeRequests -> authorizeRequests.anyRequest().authenticated())
+			.httpBasic(withDefaults())
+			.csrf(csrf -> csrf.disable())
+			.sessionManagement(sessionManagement ->
+				sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+			.addFilterBefore(new OAuth2ClientAuthenticationFilter(authenticationManager,
+					new AntPathRequestMatcher(OAuth2TokenEndpointFilter.DEFAULT_TOKEN_ENDPOINT_URI, "POST")),
+					BasicAuthenticationFilter.class)
+			.addFilterAfter(new OAuth2TokenEndpointFilter(authenticationManager),
+					OAuth2ClientAuthenticationFilter.class)
+			.addFilterAfter(new OAuth2AuthorizationEndpointFilter(registeredClientRepository, authorizationService),
+					BasicAuthenticationFilter.class);
+	}
+
+	@Bean
+	public RegisteredClientRepository registeredClientRepository() {
+		RegisteredClient registeredClient = RegisteredClient.withId("loadtest-registration")
+				.clientId(CLIENT_ID)
+				.clientSecret("{noop}" + CLIENT_SECRET)
+				.clientAuthenticationMethod(ClientAuthenticationMethod.BASIC)
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.redirectUri(REDIRECT_URI)
+				.scope(SCOPE)
+				.build();
+		return new InMemoryRegisteredClientRepository(registeredClient);
+	}
+
+	@Bean
+	public OAuth2AuthorizationService authorizationService() {
+		return new InMemoryOAuth2AuthorizationService();
+	}
+
+	@Bean
+	public UserDetailsService users() {
+		InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(User.withUsername(USERNAME)
+				.password("{noop}" + PASSWORD)
+				.roles("USER")
+				.build());
+		// Not exposed as a UserDetailsPasswordService, which would upgrade the password to BCrypt
+		// on the first login and have password hashing dominate every authorization request
+		return users::loadUserByUsername;
+	}
+}
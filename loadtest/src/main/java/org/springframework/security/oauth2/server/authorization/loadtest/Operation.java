@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+/**
+ * An operation of the load test workload.
+ */
+enum Operation {
+
+	/**
+	 * An authorization request, authenticated with HTTP Basic, which is redirected
+	 * with an authorization code.
+	 */
+	AUTHORIZE,
+
+	/**
+	 * An access token request, exchanging an authorization code issued by an earlier
+	 * {@link #AUTHORIZE} operation.
+	 */
+	TOKEN,
+
+	/**
+	 * A JWK Set request.
+	 */
+	JWKS
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.oauth2.server.authorization.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.security.oauth2.server.authorization.loadtest.LoadTestOptions.Workload;
+import sample.MinimalAuthorizationServerApplication;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = { MinimalAuthorizationServerApplication.class, LoadTestServerConfiguration.class },
+		webEnvironment = WebEnvironment.RANDOM_PORT)
+public class LoadGeneratorTests {
+
+	@LocalServerPort
+	private int serverPort;
+
+	@Test
+	void runWhenClosedWorkloadThenAllOperationsSucceed() throws Exception {
+		LoadTestOptions options = LoadTestOptions.parse("--mix=authorize=1,token=1,jwks=1",
+				"--workload=closed", "--concurrency=4", "--warmup=0s", "--duration=1s");
+
+		LoadTestResult result = new LoadGenerator("http://localhost:" + this.serverPort, options).run();
+
+		for (Operation operation : Operation.values()) {
+			assertThat(result.getCount(operation)).isPositive();
+			assertThat(result.getErrorCount(operation)).isZero();
+		}
+	}
+
+	@Test
+	void runWhenOpenWorkloadThenRequestsStartedAtRate() throws Exception {
+		LoadTestOptions options = new LoadTestOptions()
+				.workload(Workload.OPEN)
+				.concurrency(4)
+				.rate(200)
+				.warmup(Duration.ZERO)
+				.duration(Duration.ofSeconds(1));
+
+		LoadTestResult result = new LoadGenerator("http://localhost:" + this.serverPort, options).run();
+
+		long requestCount = 0;
+		for (Operation operation : Operation.values()) {
+			assertThat(result.getErrorCount(operation)).isZero();
+			requestCount += result.getCount(operation);
+		}
+		assertThat(requestCount).isEqualTo(200);
+	}
+}
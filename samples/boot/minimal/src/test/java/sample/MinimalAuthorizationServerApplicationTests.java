@@ -21,6 +21,7 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.server.authorization.web.JwkSetEndpointFilter;
 import org.springframework.web.client.RestTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,7 +36,7 @@ public class MinimalAuthorizationServerApplicationTests {
 	@Test
 	void requestWhenNotAuthenticatedThenJwkSetEndpointStillAccessible() {
 		ResponseEntity<String> responseEntity = this.rest.getForEntity(
-				"http://localhost:" + this.serverPort + JwkSetEndpointFilter.DEFAULT_JWK_SET_URI, String.class);
+				"http://localhost:" + this.serverPort + JwkSetEndpointFilter.DEFAULT_JWK_SET_ENDPOINT_URI, String.class);
 		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
 	}
 }
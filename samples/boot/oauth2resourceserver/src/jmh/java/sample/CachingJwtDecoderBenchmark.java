@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sample;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks decoding a bearer token presented repeatedly, with and without {@link CachingJwtDecoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CachingJwtDecoderBenchmark {
+	private JwtDecoder jwtDecoder;
+	private JwtDecoder cachingJwtDecoder;
+	private String token;
+
+	@Setup
+	public void setup() throws Exception {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+		DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+		jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(
+				JWSAlgorithm.RS256, new ImmutableJWKSet<>(new JWKSet(key))));
+		jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+		this.jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+		this.cachingJwtDecoder = new CachingJwtDecoder(this.jwtDecoder);
+
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.subject("subject")
+				.issueTime(new Date())
+				.expirationTime(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+				.claim("scope", "message:read")
+				.build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+		jwt.sign(new RSASSASigner(key));
+		this.token = jwt.serialize();
+	}
+
+	@Benchmark
+	public Jwt verifyEveryTime() {
+		return this.jwtDecoder.decode(this.token);
+	}
+
+	@Benchmark
+	public Jwt cached() {
+		return this.cachingJwtDecoder.decode(this.token);
+	}
+}
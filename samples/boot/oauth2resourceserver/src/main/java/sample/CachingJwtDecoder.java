@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sample;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link JwtDecoder} that caches the tokens validated by its delegate until they expire,
+ * so that a bearer token presented again skips the signature verification.
+ *
+ * <p>
+ * The cache is keyed by the SHA-256 hash of the token, and bounded by the maximum cache size:
+ * once full, caching a token evicts the least recently used one, in constant time.
+ * Tokens without an expiry are not cached.
+ */
+public final class CachingJwtDecoder implements JwtDecoder {
+	private final JwtDecoder delegate;
+	private final Map<String, Jwt> cache = new LinkedHashMap<String, Jwt>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Jwt> eldest) {
+			return size() > CachingJwtDecoder.this.maximumCacheSize;
+		}
+	};
+	private volatile int maximumCacheSize = 10000;
+	private Clock clock = Clock.systemUTC();
+
+	public CachingJwtDecoder(JwtDecoder delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	public void setMaximumCacheSize(int maximumCacheSize) {
+		Assert.isTrue(maximumCacheSize >= 0, "maximumCacheSize cannot be negative");
+		synchronized (this.cache) {
+			this.maximumCacheSize = maximumCacheSize;
+			this.cache.clear();
+		}
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public Jwt decode(String token) throws JwtException {
+		String key = hash(token);
+		Instant now = this.clock.instant();
+		Jwt jwt;
+		synchronized (this.cache) {
+			jwt = this.cache.get(key);
+			if (jwt != null) {
+				if (now.isBefore(jwt.getExpiresAt())) {
+					return jwt;
+				}
+				this.cache.remove(key);
+			}
+		}
+
+		jwt = this.delegate.decode(token);
+		if (jwt.getExpiresAt() != null && now.isBefore(jwt.getExpiresAt()) && this.maximumCacheSize > 0) {
+			synchronized (this.cache) {
+				this.cache.put(key, jwt);
+			}
+		}
+		return jwt;
+	}
+
+	private static String hash(String token) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sample;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link JWKSource} that caches the JWK Set fetched from the authorization server,
+ * and refreshes it in the background ahead of its expiry, so that requests never wait for the fetch
+ * once the JWK Set has been fetched. A JWK Set not containing the requested key is refetched
+ * (at most once per minimum refresh interval), to pick up a key the authorization server rotated to.
+ */
+public final class RefreshAheadJwkSource implements JWKSource<SecurityContext> {
+	private final Log logger = LogFactory.getLog(getClass());
+	private final String jwkSetUri;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private volatile CachedJwkSet cachedJwkSet;
+	private RestOperations restOperations = new RestTemplate();
+	private Executor refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "jwk-set-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Duration timeToLive = Duration.ofMinutes(5);
+	private Duration minimumRefreshInterval = Duration.ofSeconds(30);
+	private Clock clock = Clock.systemUTC();
+
+	public RefreshAheadJwkSource(String jwkSetUri) {
+		Assert.hasText(jwkSetUri, "jwkSetUri cannot be empty");
+		this.jwkSetUri = jwkSetUri;
+	}
+
+	public void setRestOperations(RestOperations restOperations) {
+		Assert.notNull(restOperations, "restOperations cannot be null");
+		this.restOperations = restOperations;
+	}
+
+	public void setRefreshExecutor(Executor refreshExecutor) {
+		Assert.notNull(refreshExecutor, "refreshExecutor cannot be null");
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	public void setMinimumRefreshInterval(Duration minimumRefreshInterval) {
+		Assert.notNull(minimumRefreshInterval, "minimumRefreshInterval cannot be null");
+		Assert.isTrue(!minimumRefreshInterval.isNegative(), "minimumRefreshInterval cannot be negative");
+		this.minimumRefreshInterval = minimumRefreshInterval;
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+		Instant now = this.clock.instant();
+		CachedJwkSet cachedJwkSet = this.cachedJwkSet;
+		if (cachedJwkSet == null || !now.isBefore(cachedJwkSet.expiresAt)) {
+			cachedJwkSet = fetch(cachedJwkSet);
+		} else if (!now.isBefore(cachedJwkSet.refreshAt)) {
+			refreshAhead();
+		}
+
+		List<JWK> keys = jwkSelector.select(cachedJwkSet.jwkSet);
+		if (keys.isEmpty() && !now.isBefore(cachedJwkSet.fetchedAt.plus(this.minimumRefreshInterval))) {
+			// The authorization server may have rotated to a key not yet known
+			keys = jwkSelector.select(fetch(cachedJwkSet).jwkSet);
+		}
+		return keys;
+	}
+
+	private synchronized CachedJwkSet fetch(CachedJwkSet stale) throws KeySourceException {
+		CachedJwkSet cachedJwkSet = this.cachedJwkSet;
+		if (cachedJwkSet != stale) {
+			// Fetched by another thread in the meantime
+			return cachedJwkSet;
+		}
+		Instant fetchedAt = this.clock.instant();
+		JWKSet jwkSet;
+		try {
+			jwkSet = JWKSet.parse(this.restOperations.getForObject(this.jwkSetUri, String.class));
+		} catch (Exception ex) {
+			throw new KeySourceException("Failed to fetch the JWK Set from " + this.jwkSetUri + ": " + ex.getMessage(), ex);
+		}
+		cachedJwkSet = new CachedJwkSet(jwkSet, fetchedAt,
+				fetchedAt.plus(this.timeToLive.multipliedBy(4).dividedBy(5)), fetchedAt.plus(this.timeToLive));
+		this.cachedJwkSet = cachedJwkSet;
+		return cachedJwkSet;
+	}
+
+	private void refreshAhead() {
+		if (!this.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		CachedJwkSet stale = this.cachedJwkSet;
+		try {
+			this.refreshExecutor.execute(() -> {
+				try {
+					fetch(stale);
+				} catch (KeySourceException ex) {
+					// The cached JWK Set remains in use until it expires
+					this.logger.warn("Failed to refresh the JWK Set", ex);
+				} finally {
+					this.refreshing.set(false);
+				}
+			});
+		} catch (RuntimeException ex) {
+			this.refreshing.set(false);
+			throw ex;
+		}
+	}
+
+	private static final class CachedJwkSet {
+		private final JWKSet jwkSet;
+		private final Instant fetchedAt;
+		private final Instant refreshAt;
+		private final Instant expiresAt;
+
+		private CachedJwkSet(JWKSet jwkSet, Instant fetchedAt, Instant refreshAt, Instant expiresAt) {
+			this.jwkSet = jwkSet;
+			this.fetchedAt = fetchedAt;
+			this.refreshAt = refreshAt;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sample;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingJwtDecoderTests {
+	private final Instant now = Instant.now();
+	private JwtDecoder delegate;
+	private CachingJwtDecoder jwtDecoder;
+
+	@BeforeEach
+	void setup() {
+		this.delegate = mock(JwtDecoder.class);
+		when(this.delegate.decode(any())).thenAnswer(invocation -> jwt(invocation.getArgument(0)));
+		this.jwtDecoder = new CachingJwtDecoder(this.delegate);
+		setClock(this.now);
+	}
+
+	@Test
+	void decodeWhenSameTokenThenVerifiedOnce() {
+		Jwt jwt = this.jwtDecoder.decode("token");
+
+		assertThat(this.jwtDecoder.decode("token")).isSameAs(jwt);
+		verify(this.delegate, times(1)).decode("token");
+	}
+
+	@Test
+	void decodeWhenTokenExpiredThenVerifiedAgain() {
+		this.jwtDecoder.decode("token");
+
+		setClock(this.now.plusSeconds(60));
+
+		this.jwtDecoder.decode("token");
+		verify(this.delegate, times(2)).decode("token");
+	}
+
+	@Test
+	void decodeWhenInvalidTokenThenNotCached() {
+		when(this.delegate.decode("invalid")).thenThrow(new BadJwtException("invalid"));
+
+		assertThatThrownBy(() -> this.jwtDecoder.decode("invalid")).isInstanceOf(BadJwtException.class);
+		assertThatThrownBy(() -> this.jwtDecoder.decode("invalid")).isInstanceOf(BadJwtException.class);
+		verify(this.delegate, times(2)).decode("invalid");
+	}
+
+	@Test
+	void decodeWhenCacheFullThenLeastRecentlyUsedEvicted() {
+		this.jwtDecoder.setMaximumCacheSize(2);
+		this.jwtDecoder.decode("token-1");
+		this.jwtDecoder.decode("token-2");
+		this.jwtDecoder.decode("token-1");
+
+		this.jwtDecoder.decode("token-3");
+		this.jwtDecoder.decode("token-1");
+		this.jwtDecoder.decode("token-3");
+		this.jwtDecoder.decode("token-2");
+
+		verify(this.delegate, times(1)).decode("token-1");
+		verify(this.delegate, times(2)).decode("token-2");
+		verify(this.delegate, times(1)).decode("token-3");
+	}
+
+	@Test
+	void decodeWhenMaximumCacheSizeZeroThenNotCached() {
+		this.jwtDecoder.setMaximumCacheSize(0);
+
+		this.jwtDecoder.decode("token-1");
+		this.jwtDecoder.decode("token-1");
+
+		verify(this.delegate, times(2)).decode("token-1");
+	}
+
+	private Jwt jwt(String token) {
+		return Jwt.withTokenValue(token)
+				.header("alg", "RS256")
+				.subject("subject")
+				.issuedAt(this.now)
+				.expiresAt(this.now.plusSeconds(30))
+				.build();
+	}
+
+	private void setClock(Instant instant) {
+		this.jwtDecoder.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+	}
+}
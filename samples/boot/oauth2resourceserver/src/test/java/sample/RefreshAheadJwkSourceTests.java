@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sample;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestOperations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RefreshAheadJwkSourceTests {
+	private static final String JWK_SET_URI = "https://provider.com/oauth2/jwks";
+	private final Instant now = Instant.now();
+	private ECKey key;
+	private RestOperations restOperations;
+	private RefreshAheadJwkSource jwkSource;
+
+	@BeforeEach
+	void setup() throws Exception {
+		this.key = new ECKeyGenerator(Curve.P_256).keyID("key-1").generate();
+		this.restOperations = mock(RestOperations.class);
+		when(this.restOperations.getForObject(eq(JWK_SET_URI), eq(String.class)))
+				.thenReturn(new JWKSet(this.key).toString());
+		this.jwkSource = new RefreshAheadJwkSource(JWK_SET_URI);
+		this.jwkSource.setRestOperations(this.restOperations);
+		// Refresh ahead synchronously
+		this.jwkSource.setRefreshExecutor(Runnable::run);
+		setClock(this.now);
+	}
+
+	@Test
+	void getWhenCachedThenNotFetchedAgain() throws Exception {
+		assertThat(get("key-1")).hasSize(1);
+		assertThat(get("key-1")).hasSize(1);
+
+		verify(this.restOperations, times(1)).getForObject(JWK_SET_URI, String.class);
+	}
+
+	@Test
+	void getWhenRefreshAheadDueThenRefreshedInBackground() throws Exception {
+		get("key-1");
+
+		setClock(this.now.plusSeconds(250));
+		get("key-1");
+
+		verify(this.restOperations, times(2)).getForObject(JWK_SET_URI, String.class);
+	}
+
+	@Test
+	void getWhenUnknownKeyThenRefetchedAtMostOncePerMinimumRefreshInterval() throws Exception {
+		get("key-1");
+		ECKey rotatedKey = new ECKeyGenerator(Curve.P_256).keyID("key-2").generate();
+		when(this.restOperations.getForObject(eq(JWK_SET_URI), eq(String.class)))
+				.thenReturn(new JWKSet(rotatedKey).toString());
+
+		assertThat(get("key-2")).isEmpty();
+
+		setClock(this.now.plusSeconds(30));
+		assertThat(get("key-2")).hasSize(1);
+		verify(this.restOperations, times(2)).getForObject(JWK_SET_URI, String.class);
+	}
+
+	private List<JWK> get(String keyId) throws KeySourceException {
+		return this.jwkSource.get(new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build()), null);
+	}
+
+	private void setClock(Instant instant) {
+		this.jwkSource.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+	}
+}
@@ -28,6 +28,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,7 +55,8 @@ public class ResourceControllerTests {
 	@TestConfiguration
 	static class ResourceControllerTestConfiguration {
 		@Bean
-		public JwtDecoder jwtDecoder() {
+		@Primary
+		public JwtDecoder testJwtDecoder() {
 			return (token) -> {
 				Map<String, Object> headers = new HashMap<>();
 				headers.put("alg", "RS256");